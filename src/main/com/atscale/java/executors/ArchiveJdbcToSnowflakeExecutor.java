@@ -1,5 +1,8 @@
 package com.atscale.java.executors;
 
+import com.atscale.java.runlog.BinaryRunLogLines;
+import com.atscale.java.runlog.RunLogLine;
+import com.atscale.java.runlog.RunLogLineParser;
 import com.atscale.java.utils.PropertiesManager;
 import com.atscale.java.utils.AdditionalPropertiesLoader;
 import org.apache.commons.lang3.StringUtils;
@@ -7,14 +10,21 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import com.atscale.java.utils.RunLogUtils;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.sql.*;
 import java.util.*;
+import java.util.stream.Stream;
 
 public class ArchiveJdbcToSnowflakeExecutor {
     private static final Logger LOGGER = LoggerFactory.getLogger(ArchiveJdbcToSnowflakeExecutor.class);
     private static final String STAGE = "GATLING_LOGS_STAGE";
     private static final String RAW_TABLE = "GATLING_RAW_SQL_LOGS";
+    private static final int DEFAULT_PARALLELISM = 4;
+    private static final String CLIENT_PARSE = "client";
+    private static final int PARSE_BATCH_SIZE = 10_000;
 
     static {
         com.atscale.java.utils.Log4jShutdown.installHook();
@@ -36,7 +46,17 @@ public class ArchiveJdbcToSnowflakeExecutor {
 
             ArchiveJdbcToSnowflakeExecutor executor = new ArchiveJdbcToSnowflakeExecutor();
             executor.initAdditionalProperties();
-            executor.execute(dataFile);
+            long chunkMb = Long.parseLong(arguments.getOrDefault("chunk_mb", "0"));
+            int parallelism = Integer.parseInt(arguments.getOrDefault("parallelism", String.valueOf(DEFAULT_PARALLELISM)));
+            if (isBinaryRunLog(dataFile)) {
+                executor.executeBinary(dataFile);
+            } else if (CLIENT_PARSE.equalsIgnoreCase(arguments.get("parse"))) {
+                executor.executeClientParsed(dataFile, parallelism);
+            } else if (chunkMb > 0) {
+                executor.executeChunked(dataFile, chunkMb, parallelism);
+            } else {
+                executor.execute(dataFile);
+            }
         } catch (Exception e) {
             LOGGER.error("Error during ArchiveJdbcToSnowflakeExecutor execution", e);
             throw new RuntimeException("ArchiveJdbcToSnowflakeExecutor failed", e);
@@ -148,49 +168,8 @@ public class ArchiveJdbcToSnowflakeExecutor {
                     LOGGER.info("Inserted {} parsed rows into GATLING_SQL_LOGS from {}", rowsInserted, "GATLING_RAW_SQL_LOGS");
                 }
 
-                // 5) PreparedStatement batches for headers this step is idempotent
-                if (!runIds.isEmpty()) {
-                    try (PreparedStatement ps = conn.prepareStatement(getInsertIntoHeadersSql())) {
-                        final int batchSize = 1000;
-                        int count = 0;
-                        for (String runId : runIds) {
-                            ps.setString(1, runId);
-                            ps.setString(2, runId);
-                            ps.addBatch();
-                            if (++count % batchSize == 0) {
-                                ps.executeBatch();
-                                LOGGER.debug("Inserted header batch of {} runIds", batchSize);
-                            }
-                        }
-                        if (count % batchSize != 0) {
-                            ps.executeBatch();
-                            LOGGER.debug("Inserted final header batch of {} runIds", count % batchSize);
-                        }
-                    }
-                    LOGGER.info("Inserted header rows into GATLING_SQL_HEADERS from gatling_sql_logs");
-
-                    // 6) PreparedStatement batches for details this step is idempotent
-                    try (PreparedStatement ps = conn.prepareStatement(getInsertIntoDetailsSql())) {
-                        final int batchSize = 1000;
-                        int count = 0;
-                        for (String runId : runIds) {
-                            ps.setString(1, runId);
-                            ps.setString(2, runId);
-                            ps.addBatch();
-                            if (++count % batchSize == 0) {
-                                ps.executeBatch();
-                                LOGGER.debug("Inserted details batch of {} runIds", batchSize);
-                            }
-                        }
-                        if (count % batchSize != 0) {
-                            ps.executeBatch();
-                            LOGGER.debug("Inserted final details batch of {} runIds", count % batchSize);
-                        }
-                    }
-                    LOGGER.info("Inserted detail rows into GATLING_SQL_DETAILS from gatling_sql_logs");
-                } else {
-                    LOGGER.info("No runIds found; skipping header/details insertion.");
-                }
+                // 5) and 6) headers and details, these steps are idempotent
+                insertHeadersAndDetails(conn, runIds);
 
                 // 7) Commit all DML together
                 conn.commit();
@@ -232,6 +211,350 @@ public class ArchiveJdbcToSnowflakeExecutor {
         LOGGER.info("Processed {} unique JDBC RUN IDs in log file {}:: {}.", runIds.size(), dataFile, runIds);
     }
 
+    /**
+     * Archives a large run log in chunks.  The log is split into gzip chunks of about chunkMb that are uploaded,
+     * copied into GATLING_RAW_SQL_LOGS and parsed into GATLING_SQL_LOGS by parallel workers, one transaction per chunk.
+     * Chunks already recorded in the archive ledger are skipped, so a failed archive can be run again.
+     * Headers and details are built once every chunk has loaded.
+     */
+    protected void executeChunked(Path dataFile, long chunkMb, int parallelism) {
+        String jdbcUrl = getSnowflakeURL();
+        Properties connectionProps = getConnectionProperties();
+
+        List<String> runIds = RunLogUtils.extractGatlingRunIds(dataFile);
+        LOGGER.info("Found {} unique JDBC RUN IDs in log file {}:: {}.", runIds.size(), dataFile, runIds);
+
+        LOGGER.info("Connecting to Snowflake with URL: {}", jdbcUrl);
+        try (Connection conn = DriverManager.getConnection(jdbcUrl, connectionProps)) {
+            createIfNotExistsObjects(conn);
+
+            Path workDir = Files.createTempDirectory("gatling-archive");
+            try {
+                newChunkedLoader(chunkMb * 1024 * 1024, parallelism, workDir, jdbcUrl, connectionProps).load(dataFile);
+            } finally {
+                deleteWorkDir(workDir);
+            }
+
+            boolean originalAutoCommit = conn.getAutoCommit();
+            try {
+                conn.setAutoCommit(false);
+                insertHeadersAndDetails(conn, runIds);
+                conn.commit();
+            } catch (SQLException e) {
+                try {
+                    conn.rollback();
+                } catch (SQLException rbEx) {
+                    LOGGER.error("Rollback failed: {}", rbEx.getMessage());
+                }
+                throw e;
+            } finally {
+                conn.setAutoCommit(originalAutoCommit);
+            }
+            LOGGER.info("✅ Chunked load complete: RAW -> SQL_LOGS -> (HEADERS, DETAILS).");
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to execute Snowflake operations", e);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create the chunk directory", e);
+        }
+        LOGGER.info("Processed {} unique JDBC RUN IDs in log file {}:: {}.", runIds.size(), dataFile, runIds);
+    }
+
+    /**
+     * Archives a run log that is parsed on this machine instead of in the warehouse.  The sqlLog, sqlDictionary and
+     * sqlPhase lines are parsed into typed columns on parallel threads and batch inserted into GATLING_SQL_LOGS, so the file is
+     * neither staged nor copied into GATLING_RAW_SQL_LOGS and no regex runs over raw lines.
+     * As in the warehouse parsed mode, runs that already have headers are skipped.
+     */
+    protected void executeClientParsed(Path dataFile, int parallelism) {
+        List<String> runIds = RunLogUtils.extractGatlingRunIds(dataFile);
+        executeLocallyParsed(dataFile, runIds, handler -> RunLogLineParser.parse(dataFile, parallelism, PARSE_BATCH_SIZE, handler));
+    }
+
+    /**
+     * Archives a binary run log, written when atscale.runlog.binary.enabled is true, the same way as a run log parsed
+     * on this machine.  Its records are read without any text parsing and batch inserted into GATLING_SQL_LOGS.
+     */
+    protected void executeBinary(Path dataFile) {
+        List<String> runIds;
+        try {
+            runIds = BinaryRunLogLines.readGatlingRunIds(dataFile);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read binary run log " + dataFile, e);
+        }
+        executeLocallyParsed(dataFile, runIds, handler -> BinaryRunLogLines.read(dataFile, PARSE_BATCH_SIZE, handler));
+    }
+
+    private void executeLocallyParsed(Path dataFile, List<String> runIds, RunLogLineParser.Source source) {
+        String jdbcUrl = getSnowflakeURL();
+        Properties connectionProps = getConnectionProperties();
+
+        LOGGER.info("Found {} unique JDBC RUN IDs in log file {}:: {}.", runIds.size(), dataFile, runIds);
+
+        LOGGER.info("Connecting to Snowflake with URL: {}", jdbcUrl);
+        try (Connection conn = DriverManager.getConnection(jdbcUrl, connectionProps)) {
+            createIfNotExistsObjects(conn);
+
+            boolean originalAutoCommit = conn.getAutoCommit();
+            try {
+                conn.setAutoCommit(false);
+                List<String> pendingRunIds = getRunIdsWithoutHeaders(conn, runIds);
+                LOGGER.info("{} of {} RUN IDs are not archived yet: {}", pendingRunIds.size(), runIds.size(), pendingRunIds);
+                if (!pendingRunIds.isEmpty()) {
+                    long rowsInserted = insertParsedSqlLogs(conn, source, dataFile.getFileName().toString(), pendingRunIds);
+                    LOGGER.info("Inserted {} locally parsed rows into GATLING_SQL_LOGS from {}", rowsInserted, dataFile);
+                    insertHeadersAndDetails(conn, pendingRunIds);
+                }
+                conn.commit();
+            } catch (SQLException | IOException | RuntimeException e) {
+                try {
+                    conn.rollback();
+                } catch (SQLException rbEx) {
+                    LOGGER.error("Rollback failed: {}", rbEx.getMessage());
+                }
+                throw e;
+            } finally {
+                conn.setAutoCommit(originalAutoCommit);
+            }
+            LOGGER.info("✅ Client parsed load complete: SQL_LOGS -> (HEADERS, DETAILS).");
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to execute Snowflake operations", e);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to parse run log " + dataFile, e);
+        }
+        LOGGER.info("Processed {} unique JDBC RUN IDs in log file {}:: {}.", runIds.size(), dataFile, runIds);
+    }
+
+    private static List<String> getRunIdsWithoutHeaders(Connection conn, List<String> runIds) throws SQLException {
+        List<String> pending = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement("SELECT 1 FROM GATLING_SQL_HEADERS WHERE GATLING_RUN_ID = ? LIMIT 1")) {
+            for (String runId : runIds) {
+                ps.setString(1, runId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (!rs.next()) {
+                        pending.add(runId);
+                    }
+                }
+            }
+        }
+        return pending;
+    }
+
+    /**
+     * Replaces the GATLING_SQL_LOGS rows of the given runs with the lines parsed from the data file.
+     *
+     * @return the number of rows inserted
+     */
+    static long insertParsedSqlLogs(Connection conn, RunLogLineParser.Source source, String srcFilename, List<String> runIds) throws SQLException, IOException {
+        try (PreparedStatement ps = conn.prepareStatement("DELETE FROM GATLING_SQL_LOGS WHERE GATLING_RUN_ID = ?")) {
+            for (String runId : runIds) {
+                ps.setString(1, runId);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+
+        Set<String> wanted = new HashSet<>(runIds);
+        long[] rowsInserted = {0};
+        try (PreparedStatement ps = conn.prepareStatement("""
+                INSERT INTO GATLING_SQL_LOGS (
+                    TS, LEVEL, LOGGER, MESSAGE_KIND, GATLING_RUN_ID, STATUS,
+                    GATLING_SESSION_ID, MODEL, QUERY_NAME, ATSCALE_QUERY_ID, QUERY_HASH, QUERY_BASE64,
+                    START_MS, END_MS, DURATION_MS, ROWS_RETURNED,
+                    ROWNUMBER, ROW_MAP_RAW, ROW_HASH,
+                    SRC_FILENAME, SRC_ROW_NUMBER, RAW_LINE, RESULT_HASH,
+                    DURATION_US, JDBC_US, CALLBACK_US, EXECUTE_US, FETCH_US
+                ) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+                """)) {
+            source.read(lines -> {
+                int batched = 0;
+                for (RunLogLine line : lines) {
+                    boolean sqlLine = RunLogLineParser.SQL_LOG.equals(line.getMessageKind()) || RunLogLineParser.SQL_DICTIONARY.equals(line.getMessageKind())
+                            || RunLogLineParser.SQL_PHASE.equals(line.getMessageKind());
+                    if (!sqlLine || !wanted.contains(line.getGatlingRunId())) {
+                        continue;
+                    }
+                    int i = 0;
+                    setTimestamp(ps, ++i, line.getTs());
+                    ps.setString(++i, line.getLevel());
+                    ps.setString(++i, line.getLogger());
+                    ps.setString(++i, line.getMessageKind());
+                    ps.setString(++i, line.getGatlingRunId());
+                    ps.setString(++i, line.getStatus());
+                    setLong(ps, ++i, parseLong(line.getGatlingSessionId()));
+                    ps.setString(++i, line.getModel());
+                    ps.setString(++i, line.getQueryName());
+                    ps.setString(++i, line.getAtscaleQueryId());
+                    ps.setString(++i, line.getQueryHash());
+                    ps.setString(++i, line.getQueryBase64());
+                    setLong(ps, ++i, line.getStartMs());
+                    setLong(ps, ++i, line.getEndMs());
+                    setLong(ps, ++i, line.getDurationMs());
+                    setLong(ps, ++i, line.getRowsReturned());
+                    setLong(ps, ++i, line.getRowNumber());
+                    ps.setString(++i, line.getRowMapRaw());
+                    ps.setString(++i, line.getRowHash());
+                    ps.setString(++i, srcFilename);
+                    ps.setLong(++i, line.getSrcRowNumber());
+                    ps.setString(++i, line.getRawLine());
+                    ps.setString(++i, StringUtils.defaultIfEmpty(line.getResultHash(), null));
+                    setLong(ps, ++i, line.getDurationUs());
+                    setLong(ps, ++i, line.getJdbcUs());
+                    setLong(ps, ++i, line.getCallbackUs());
+                    setLong(ps, ++i, line.getExecuteUs());
+                    setLong(ps, ++i, line.getFetchUs());
+                    ps.addBatch();
+                    batched++;
+                }
+                if (batched > 0) {
+                    ps.executeBatch();
+                    rowsInserted[0] += batched;
+                    LOGGER.debug("Inserted sql_logs batch of {} parsed rows", batched);
+                }
+            });
+        }
+        return rowsInserted[0];
+    }
+
+    private static void setTimestamp(PreparedStatement ps, int index, java.time.LocalDateTime value) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, Types.TIMESTAMP);
+        } else {
+            ps.setTimestamp(index, Timestamp.valueOf(value));
+        }
+    }
+
+    private static void setLong(PreparedStatement ps, int index, Long value) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, Types.BIGINT);
+        } else {
+            ps.setLong(index, value);
+        }
+    }
+
+    private static Long parseLong(String value) {
+        try {
+            return value == null ? null : Long.valueOf(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Deletes the chunk work directory and any chunk files a failed load left in it.  Failures are only logged, so they
+     * do not hide the exception of the load.
+     */
+    private static void deleteWorkDir(Path workDir) {
+        try (Stream<Path> paths = Files.walk(workDir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        } catch (IOException | UncheckedIOException e) {
+            LOGGER.warn("Failed to delete chunk work directory {}", workDir, e);
+        }
+    }
+
+    private static ChunkedArchiveLoader newChunkedLoader(long chunkBytes, int parallelism, Path workDir, String jdbcUrl, Properties connectionProps) {
+        return new ChunkedArchiveLoader(chunkBytes, parallelism, workDir) {
+            @Override
+            protected Connection openConnection() throws SQLException {
+                return DriverManager.getConnection(jdbcUrl, connectionProps);
+            }
+
+            @Override
+            protected void uploadChunk(Connection conn, Path chunkFile) throws SQLException {
+                String fileUri = chunkFile.toUri().toString().replace("'", "''");
+                exec(conn, "PUT '" + fileUri + "' @" + STAGE + " AUTO_COMPRESS=FALSE SOURCE_COMPRESSION=GZIP OVERWRITE=TRUE");
+            }
+
+            @Override
+            protected void loadChunk(Connection conn, String chunkName) throws SQLException {
+                // Rows are keyed by chunk name, so a chunk that loaded partially before is replaced rather than duplicated
+                unloadChunk(conn, chunkName);
+                exec(conn, getInsertIntoRawSqlLogsSql(chunkName.replace("'", "''"), true));
+                try (PreparedStatement ps = conn.prepareStatement(getInsertChunkIntoSqlLogsSql())) {
+                    ps.setString(1, chunkName);
+                    int rows = ps.executeUpdate();
+                    LOGGER.debug("Inserted {} parsed rows into GATLING_SQL_LOGS from chunk {}", rows, chunkName);
+                }
+            }
+
+            @Override
+            protected void unloadChunk(Connection conn, String chunkName) throws SQLException {
+                for (String table : List.of(RAW_TABLE, "GATLING_SQL_LOGS")) {
+                    try (PreparedStatement ps = conn.prepareStatement("DELETE FROM " + table + " WHERE SRC_FILENAME = ?")) {
+                        ps.setString(1, chunkName);
+                        ps.executeUpdate();
+                    }
+                }
+            }
+
+            @Override
+            protected void removeChunk(Connection conn, String chunkName) throws SQLException {
+                exec(conn, "REMOVE @" + STAGE + "/" + chunkName);
+            }
+        };
+    }
+
+    /** Steps 5 to 7: build GATLING_SQL_HEADERS, GATLING_SQL_DETAILS and GATLING_SQL_PHASES from gatling_sql_logs for each run id. */
+    private static void insertHeadersAndDetails(Connection conn, List<String> runIds) throws SQLException {
+        // 5) PreparedStatement batches for headers this step is idempotent
+        if (!runIds.isEmpty()) {
+            try (PreparedStatement ps = conn.prepareStatement(getInsertIntoHeadersSql())) {
+                final int batchSize = 1000;
+                int count = 0;
+                for (String runId : runIds) {
+                    ps.setString(1, runId);
+                    ps.setString(2, runId);
+                    ps.setString(3, runId);
+                    ps.addBatch();
+                    if (++count % batchSize == 0) {
+                        ps.executeBatch();
+                        LOGGER.debug("Inserted header batch of {} runIds", batchSize);
+                    }
+                }
+                if (count % batchSize != 0) {
+                    ps.executeBatch();
+                    LOGGER.debug("Inserted final header batch of {} runIds", count % batchSize);
+                }
+            }
+            LOGGER.info("Inserted header rows into GATLING_SQL_HEADERS from gatling_sql_logs");
+
+            // 6) PreparedStatement batches for details this step is idempotent
+            try (PreparedStatement ps = conn.prepareStatement(getInsertIntoDetailsSql())) {
+                final int batchSize = 1000;
+                int count = 0;
+                for (String runId : runIds) {
+                    ps.setString(1, runId);
+                    ps.setString(2, runId);
+                    ps.setString(3, runId);
+                    ps.addBatch();
+                    if (++count % batchSize == 0) {
+                        ps.executeBatch();
+                        LOGGER.debug("Inserted details batch of {} runIds", batchSize);
+                    }
+                }
+                if (count % batchSize != 0) {
+                    ps.executeBatch();
+                    LOGGER.debug("Inserted final details batch of {} runIds", count % batchSize);
+                }
+            }
+            LOGGER.info("Inserted detail rows into GATLING_SQL_DETAILS from gatling_sql_logs");
+
+            // 7) PreparedStatement batches for query phases this step is idempotent
+            try (PreparedStatement ps = conn.prepareStatement(getInsertIntoPhasesSql())) {
+                for (String runId : runIds) {
+                    ps.setString(1, runId);
+                    ps.setString(2, runId);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            LOGGER.info("Inserted phase rows into GATLING_SQL_PHASES from gatling_sql_logs");
+        } else {
+            LOGGER.info("No runIds found; skipping header/details insertion.");
+        }
+    }
+
     /** Create all tables, view, stage, and file format if not already present. */
     private static void createIfNotExistsObjects(Connection conn) throws SQLException {
         LOGGER.info("Ensuring all required Snowflake objects exist...");
@@ -283,7 +606,13 @@ public class ArchiveJdbcToSnowflakeExecutor {
               ROW_HASH VARCHAR(16777216),
               SRC_FILENAME VARCHAR(16777216),
               SRC_ROW_NUMBER NUMBER(38,0),
-              RAW_LINE VARCHAR(16777216)
+              RAW_LINE VARCHAR(16777216),
+              RESULT_HASH VARCHAR(256),
+              DURATION_US NUMBER(38,0),
+              JDBC_US NUMBER(38,0),
+              CALLBACK_US NUMBER(38,0),
+              EXECUTE_US NUMBER(38,0),
+              FETCH_US NUMBER(38,0)
             );
             """);
 
@@ -336,10 +665,41 @@ public class ArchiveJdbcToSnowflakeExecutor {
               ROWS_RETURNED NUMBER(38,0),
               SRC_FILENAME VARCHAR(250),
               SRC_ROW_NUMBER NUMBER(38,0),
-              RAW_LINE VARCHAR(16777216)
+              RAW_LINE VARCHAR(16777216),
+              RESULT_HASH VARCHAR(256),
+              DURATION_US NUMBER(38,0),
+              JDBC_US NUMBER(38,0),
+              CALLBACK_US NUMBER(38,0)
             );
             """);
 
+        exec(conn, """
+            CREATE TABLE IF NOT EXISTS GATLING_SQL_PHASES CLUSTER BY (GATLING_RUN_ID) (
+              TS TIMESTAMP_NTZ(9),
+              GATLING_RUN_ID VARCHAR(256),
+              MODEL VARCHAR(256),
+              QUERY_NAME VARCHAR(100),
+              ATSCALE_QUERY_ID VARCHAR(256),
+              QUERY_HASH VARCHAR(256),
+              START_MS NUMBER(38,0),
+              EXECUTE_US NUMBER(38,0),
+              FETCH_US NUMBER(38,0),
+              ROWS_RETURNED NUMBER(38,0),
+              SRC_FILENAME VARCHAR(250),
+              SRC_ROW_NUMBER NUMBER(38,0)
+            );
+            """);
+
+        // Tables created by earlier versions get the columns added since, at the end so positional inserts line up
+        for (String column : List.of("RESULT_HASH VARCHAR(256)", "DURATION_US NUMBER(38,0)", "JDBC_US NUMBER(38,0)",
+                "CALLBACK_US NUMBER(38,0)", "EXECUTE_US NUMBER(38,0)", "FETCH_US NUMBER(38,0)")) {
+            addColumnIfNotExists(conn, "GATLING_SQL_LOGS", column);
+        }
+        for (String column : List.of("RESULT_HASH VARCHAR(256)", "DURATION_US NUMBER(38,0)", "JDBC_US NUMBER(38,0)",
+                "CALLBACK_US NUMBER(38,0)")) {
+            addColumnIfNotExists(conn, "GATLING_SQL_HEADERS", column);
+        }
+
         exec(conn, """
                 CREATE OR REPLACE VIEW V_GATLING_JOINED AS
                 SELECT
@@ -365,6 +725,10 @@ public class ArchiveJdbcToSnowflakeExecutor {
                 h.rows_returned AS header_rows_returned,
                 h.src_filename AS header_src_filename,
                 h.src_row_number AS header_src_row_number,
+                h.result_hash,
+                h.duration_us AS header_duration_us,
+                h.jdbc_us AS header_jdbc_us,
+                h.callback_us AS header_callback_us,
                 d.ts AS detail_ts,
                 d.rownumber,
                 d.row_map_raw,
@@ -383,6 +747,10 @@ public class ArchiveJdbcToSnowflakeExecutor {
         LOGGER.info("✅ All required Snowflake schema objects verified.");
     }
 
+    private static void addColumnIfNotExists(Connection conn, String table, String column) throws SQLException {
+        exec(conn, "ALTER TABLE " + table + " ADD COLUMN IF NOT EXISTS " + column);
+    }
+
     private static void exec(Connection conn, String sql) throws SQLException {
         try (Statement st = conn.createStatement()) {
             st.execute(sql);
@@ -446,6 +814,11 @@ public class ArchiveJdbcToSnowflakeExecutor {
     }
 
     private static String getInsertIntoRawSqlLogsSql(String fileName) {
+        return getInsertIntoRawSqlLogsSql(fileName, false);
+    }
+
+    /** FORCE reloads a chunk that Snowflake has already seen, chunk loads are made idempotent by the archive ledger instead. */
+    private static String getInsertIntoRawSqlLogsSql(String fileName, boolean force) {
         return String.format("""
               COPY INTO GATLING_RAW_SQL_LOGS (RAW_LINE, SRC_FILENAME, SRC_ROW_NUMBER)
               FROM (
@@ -458,21 +831,42 @@ public class ArchiveJdbcToSnowflakeExecutor {
               FILES = ('%s')
               FILE_FORMAT = (FORMAT_NAME = GATLING_WHOLE_LINE_FMT)
               PURGE=TRUE
+              FORCE=%s
               ON_ERROR = 'ABORT_STATEMENT';
-            """, fileName);
+            """, fileName, force ? "TRUE" : "FALSE");
     }
 
 
 
     /** INSERT from RAW -> SQL_LOGS (parsing by tab-delimited fields). Adjust positions if needed. */
     private static String getInsertIntoSqlLogsSql(String fileName) {
-        return String.format("""
+        return getParseRawSqlLogsSql() + String.format("""
+                WHERE src_filename = '%s'
+                AND raw_line LIKE ?
+                AND NOT EXISTS (
+                    select gatling_run_id from gatling_sql_headers
+                    where gatling_run_id = ?
+                    limit 1
+                );
+            """, fileName);
+    }
+
+    /** INSERT every line of one chunk from RAW -> SQL_LOGS. */
+    private static String getInsertChunkIntoSqlLogsSql() {
+        return getParseRawSqlLogsSql() + """
+                WHERE src_filename = ?;
+            """;
+    }
+
+    private static String getParseRawSqlLogsSql() {
+        return """
             INSERT INTO GATLING_SQL_LOGS (
                 TS, LEVEL, LOGGER, MESSAGE_KIND, GATLING_RUN_ID, STATUS,
                 GATLING_SESSION_ID, MODEL, QUERY_NAME, ATSCALE_QUERY_ID, QUERY_HASH, QUERY_BASE64,
                 START_MS, END_MS, DURATION_MS, ROWS_RETURNED,
                 ROWNUMBER, ROW_MAP_RAW, ROW_HASH,
-                SRC_FILENAME, SRC_ROW_NUMBER, RAW_LINE
+                SRC_FILENAME, SRC_ROW_NUMBER, RAW_LINE, RESULT_HASH,
+                DURATION_US, JDBC_US, CALLBACK_US, EXECUTE_US, FETCH_US
             )
             SELECT
                 /* ts */
@@ -513,55 +907,72 @@ public class ArchiveJdbcToSnowflakeExecutor {
                 /* lineage + raw */
                 src_filename,
                 src_row_number,
-                raw_line            FROM GATLING_RAW_SQL_LOGS
-                WHERE src_filename = '%s'
-                AND raw_line LIKE ?
-                AND NOT EXISTS (
-                    select gatling_run_id from gatling_sql_headers
-                    where gatling_run_id = ?
-                    limit 1
-                );
-            """, fileName);
+                raw_line,
+
+                nullif(regexp_substr(raw_line, 'resultHash=''([^'']*)''', 1, 1, 'e', 1), '') as result_hash,
+
+                /* monotonic durations of sqlLog lines and the phases of sqlPhase lines */
+                try_to_number(regexp_substr(raw_line, 'durationUs=([0-9]+)', 1, 1, 'e', 1)) as duration_us,
+                try_to_number(regexp_substr(raw_line, 'jdbcUs=([0-9]+)',     1, 1, 'e', 1)) as jdbc_us,
+                try_to_number(regexp_substr(raw_line, 'callbackUs=([0-9]+)', 1, 1, 'e', 1)) as callback_us,
+                try_to_number(regexp_substr(raw_line, 'executeUs=([0-9]+)',  1, 1, 'e', 1)) as execute_us,
+                try_to_number(regexp_substr(raw_line, 'fetchUs=([0-9]+)',    1, 1, 'e', 1)) as fetch_us
+            FROM GATLING_RAW_SQL_LOGS
+            """;
     }
 
-    /** Step 5: INSERT headers (ROWNUMBER IS NULL) into GATLING_SQL_HEADERS. */
+    /**
+     * Step 5: INSERT headers (ROWNUMBER IS NULL) into GATLING_SQL_HEADERS.
+     * Query text is logged once per run on sqlDictionary lines and joined back in by query hash.
+     * Older run logs carry inboundTextAsBase64 on every line, which takes precedence.
+     */
     private static String getInsertIntoHeadersSql() {
         return """
             INSERT INTO GATLING_SQL_HEADERS
             SELECT
                 /* stable key built from your join columns */
-                HASH(gatling_run_id, gatling_session_id, model, query_hash) AS run_key,
-
-                ts,
-                level,
-                logger,
-                message_kind,
-                gatling_run_id,
-                status,
-                gatling_session_id,
-                model,
-                query_name,
-                atscale_query_id,
-                query_hash,
-                query_base64,
-                start_ms,
-                end_ms,
-                duration_ms,
-                rows_returned,
+                HASH(l.gatling_run_id, l.gatling_session_id, l.model, l.query_hash) AS run_key,
+
+                l.ts,
+                l.level,
+                l.logger,
+                l.message_kind,
+                l.gatling_run_id,
+                l.status,
+                l.gatling_session_id,
+                l.model,
+                l.query_name,
+                l.atscale_query_id,
+                l.query_hash,
+                COALESCE(l.query_base64, d.query_base64) AS query_base64,
+                l.start_ms,
+                l.end_ms,
+                l.duration_ms,
+                l.rows_returned,
 
                 /* lineage + raw */
-                src_filename,
-                src_row_number,
-                raw_line
-            FROM gatling_sql_logs
-            WHERE rownumber IS NULL
-            AND GATLING_RUN_ID = ?
+                l.src_filename,
+                l.src_row_number,
+                l.raw_line,
+
+                l.result_hash,
+                l.duration_us,
+                l.jdbc_us,
+                l.callback_us
+            FROM gatling_sql_logs l
+            LEFT JOIN (%s) d
+              ON l.gatling_run_id = d.gatling_run_id
+             AND l.model = d.model
+             AND l.query_hash = d.query_hash
+            WHERE l.rownumber IS NULL
+            AND l.message_kind = 'sqlLog'
+            AND l.GATLING_RUN_ID = ?
             AND NOT EXISTS (
                 SELECT 1 FROM GATLING_SQL_HEADERS
                 WHERE gatling_run_id = ?
                 LIMIT 1
             );
-            """;
+            """.formatted(getQueryDictionarySql());
     }
 
     /** Step 6: INSERT details (ROWNUMBER IS NOT NULL) into GATLING_SQL_DETAILS. */
@@ -570,45 +981,82 @@ public class ArchiveJdbcToSnowflakeExecutor {
             INSERT INTO GATLING_SQL_DETAILS
             SELECT
                 /* same stable key for easy joins */
-                HASH(gatling_run_id, gatling_session_id, model, query_hash) AS run_key,
-
-                ts,
-                level,
-                logger,
-                message_kind,
-                gatling_run_id,
-                status,
-                gatling_session_id,
-                model,
-                query_name,
-                atscale_query_id,
-                query_hash,
-                query_base64,
+                HASH(l.gatling_run_id, l.gatling_session_id, l.model, l.query_hash) AS run_key,
+
+                l.ts,
+                l.level,
+                l.logger,
+                l.message_kind,
+                l.gatling_run_id,
+                l.status,
+                l.gatling_session_id,
+                l.model,
+                l.query_name,
+                l.atscale_query_id,
+                l.query_hash,
+                COALESCE(l.query_base64, d.query_base64) AS query_base64,
 
                 /* detail-specific fields */
-                rownumber,
-                row_map_raw,
-                row_hash,
+                l.rownumber,
+                l.row_map_raw,
+                l.row_hash,
 
                 /* optional metrics appear on some detail lines in some log formats;
                    keep them in case they show up */
-                start_ms,
-                end_ms,
-                duration_ms,
-                rows_returned,
+                l.start_ms,
+                l.end_ms,
+                l.duration_ms,
+                l.rows_returned,
 
                 /* lineage + raw */
-                src_filename,
-                src_row_number,
-                raw_line
-            FROM gatling_sql_logs
-            WHERE rownumber IS NOT NULL
-            AND GATLING_RUN_ID = ?
+                l.src_filename,
+                l.src_row_number,
+                l.raw_line
+            FROM gatling_sql_logs l
+            LEFT JOIN (%s) d
+              ON l.gatling_run_id = d.gatling_run_id
+             AND l.model = d.model
+             AND l.query_hash = d.query_hash
+            WHERE l.rownumber IS NOT NULL
+            AND l.message_kind = 'sqlLog'
+            AND l.GATLING_RUN_ID = ?
             AND NOT EXISTS (
                 SELECT 1 FROM GATLING_SQL_DETAILS
                 WHERE gatling_run_id = ?
                 LIMIT 1
             );
+            """.formatted(getQueryDictionarySql());
+    }
+
+    /** Step 7: INSERT the sqlPhase lines, written when phase timings are enabled, into GATLING_SQL_PHASES. */
+    private static String getInsertIntoPhasesSql() {
+        return """
+            INSERT INTO GATLING_SQL_PHASES (
+                TS, GATLING_RUN_ID, MODEL, QUERY_NAME, ATSCALE_QUERY_ID, QUERY_HASH,
+                START_MS, EXECUTE_US, FETCH_US, ROWS_RETURNED, SRC_FILENAME, SRC_ROW_NUMBER
+            )
+            SELECT
+                l.ts, l.gatling_run_id, l.model, l.query_name, l.atscale_query_id, l.query_hash,
+                l.start_ms, l.execute_us, l.fetch_us, l.rows_returned, l.src_filename, l.src_row_number
+            FROM gatling_sql_logs l
+            WHERE l.message_kind = 'sqlPhase'
+            AND l.GATLING_RUN_ID = ?
+            AND NOT EXISTS (
+                SELECT 1 FROM GATLING_SQL_PHASES
+                WHERE gatling_run_id = ?
+                LIMIT 1
+            );
+            """;
+    }
+
+    /** The query dictionary of a run: one query text per model and query hash, taken from the sqlDictionary lines. */
+    private static String getQueryDictionarySql() {
+        return """
+                SELECT gatling_run_id, model, query_hash, ANY_VALUE(query_base64) AS query_base64
+                FROM gatling_sql_logs
+                WHERE message_kind = 'sqlDictionary'
+                AND gatling_run_id = ?
+                GROUP BY gatling_run_id, model, query_hash
             """;
     }
 
@@ -622,6 +1070,11 @@ public class ArchiveJdbcToSnowflakeExecutor {
         PropertiesManager.setCustomProperties(loader.fetchAdditionalProperties(AdditionalPropertiesLoader.SecretsManagerType.AWS));
     }
 
+    /** Binary run logs are named run_logs/<run log file name>.<gatling run id>.runlog. */
+    static boolean isBinaryRunLog(Path dataFile) {
+        return dataFile.getFileName().toString().endsWith(".runlog");
+    }
+
     protected static Map<String, String> parseArgs(String[] args) {
         Map<String, String> m = new HashMap<>();
         try {
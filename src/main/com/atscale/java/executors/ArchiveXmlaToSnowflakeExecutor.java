@@ -1,5 +1,8 @@
 package com.atscale.java.executors;
 
+import com.atscale.java.runlog.BinaryRunLogLines;
+import com.atscale.java.runlog.RunLogLine;
+import com.atscale.java.runlog.RunLogLineParser;
 import com.atscale.java.utils.PropertiesManager;
 import com.atscale.java.utils.AdditionalPropertiesLoader;
 import org.apache.commons.lang3.StringUtils;
@@ -7,6 +10,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import com.atscale.java.utils.RunLogUtils;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Path;
 import java.sql.*;
 import java.time.Duration;
@@ -16,6 +21,9 @@ public class ArchiveXmlaToSnowflakeExecutor {
     private static final Logger LOGGER = LoggerFactory.getLogger(ArchiveXmlaToSnowflakeExecutor.class);
     private static final String STAGE = "XMLA_LOGS_STAGE";
     private static final String RAW_TABLE = "GATLING_RAW_XMLA_LOGS";
+    private static final String CLIENT_PARSE = "client";
+    private static final int DEFAULT_PARALLELISM = 4;
+    private static final int PARSE_BATCH_SIZE = 1_000;
 
     static {
         com.atscale.java.utils.Log4jShutdown.installHook();
@@ -37,7 +45,14 @@ public class ArchiveXmlaToSnowflakeExecutor {
 
             ArchiveXmlaToSnowflakeExecutor executor = new ArchiveXmlaToSnowflakeExecutor();
             executor.initAdditionalProperties();
-            executor.execute(dataFile);
+            if (isBinaryRunLog(dataFile)) {
+                executor.executeBinary(dataFile);
+            } else if (CLIENT_PARSE.equalsIgnoreCase(arguments.get("parse"))) {
+                int parallelism = Integer.parseInt(arguments.getOrDefault("parallelism", String.valueOf(DEFAULT_PARALLELISM)));
+                executor.executeClientParsed(dataFile, parallelism);
+            } else {
+                executor.execute(dataFile);
+            }
         } catch (Exception e) {
             LOGGER.error("Error during ArchiveXmlaToSnowflakeExecutor execution", e);
             throw new RuntimeException("ArchiveXmlaToSnowflakeExecutor failed", e);
@@ -137,29 +152,7 @@ public class ArchiveXmlaToSnowflakeExecutor {
 
 
                 // 5) Copy into the RESPONSES table this step is idempotent
-                if (!runIds.isEmpty()) {
-                    try (PreparedStatement ps = conn.prepareStatement(getInsertIntoResponsesSql())) {
-                        final int batchSize = 1000;
-                        int count = 0;
-                        for (String runId : runIds) {
-                            ps.setString(1, runId);
-                            ps.setString(2, runId);
-                            ps.addBatch();
-                            if (++count % batchSize == 0) {
-                                ps.executeBatch();
-                                LOGGER.debug("Inserted responses batch of {} runIds", batchSize);
-                            }
-                        }
-                        if (count % batchSize != 0) {
-                            ps.executeBatch();
-                            LOGGER.debug("Inserted final responses batch of {} runIds", count % batchSize);
-                        }
-                    }
-                    LOGGER.info("Inserted response rows into gatling_xmla_responses");
-                }
-
-
-
+                insertResponses(conn, runIds);
 
                 // cleanup staged file
                 try {
@@ -195,6 +188,240 @@ public class ArchiveXmlaToSnowflakeExecutor {
 
     }
 
+    /**
+     * Archives a run log that is parsed on this machine instead of in the warehouse.  The xmlaLog lines are parsed
+     * into typed columns on parallel threads, their query text is resolved from the xmlaDictionary lines, and they are
+     * batch inserted into a session temporary table from which the headers are built.  The file is neither staged nor
+     * copied into GATLING_RAW_XMLA_LOGS.  As in the warehouse parsed mode, runs that already have headers are skipped.
+     */
+    protected void executeClientParsed(Path dataFile, int parallelism) {
+        List<String> runIds = RunLogUtils.extractGatlingRunIds(dataFile);
+        executeLocallyParsed(dataFile, runIds, handler -> RunLogLineParser.parse(dataFile, parallelism, PARSE_BATCH_SIZE, handler));
+    }
+
+    /**
+     * Archives a binary run log, written when atscale.runlog.binary.enabled is true, the same way as a run log parsed
+     * on this machine.  Its records are read without any text parsing and batch inserted into GATLING_XMLA_PARSED.
+     */
+    protected void executeBinary(Path dataFile) {
+        List<String> runIds;
+        try {
+            runIds = BinaryRunLogLines.readGatlingRunIds(dataFile);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read binary run log " + dataFile, e);
+        }
+        executeLocallyParsed(dataFile, runIds, handler -> BinaryRunLogLines.read(dataFile, PARSE_BATCH_SIZE, handler));
+    }
+
+    private void executeLocallyParsed(Path dataFile, List<String> runIds, RunLogLineParser.Source source) {
+        String jdbcUrl = getSnowflakeURL();
+        Properties connectionProps = getConnectionProperties();
+
+        LOGGER.info("Found {} unique XMLA RUN IDs in log file {}:: {}.", runIds.size(), dataFile, runIds);
+
+        LOGGER.info("Connecting to Snowflake with URL: {}", jdbcUrl);
+        try (Connection conn = DriverManager.getConnection(jdbcUrl, connectionProps)) {
+            createIfNotExistsObjects(conn);
+            // DDL commits implicitly, so the temporary table is created before the transaction starts
+            exec(conn, """
+                CREATE OR REPLACE TEMPORARY TABLE GATLING_XMLA_PARSED (
+                  TS TIMESTAMP_NTZ(9),
+                  LEVEL VARCHAR(30),
+                  LOGGER VARCHAR(100),
+                  MESSAGE_KIND VARCHAR(100),
+                  GATLING_RUN_ID VARCHAR(512),
+                  STATUS VARCHAR(12),
+                  GATLING_SESSION_ID VARCHAR(64),
+                  MODEL VARCHAR(1024),
+                  CUBE VARCHAR(1024),
+                  CATALOG VARCHAR(1024),
+                  QUERY_NAME VARCHAR(1024),
+                  ATSCALE_QUERY_ID VARCHAR(256),
+                  QUERY_HASH VARCHAR(256),
+                  QUERY_BASE64 VARCHAR(16777216),
+                  START_MS NUMBER(38,0),
+                  END_MS NUMBER(38,0),
+                  DURATION_MS NUMBER(38,0),
+                  RESPONSE_SIZE NUMBER(38,0),
+                  RESPONSE_HASH VARCHAR(256),
+                  RAW_SOAP VARCHAR(16777216),
+                  DURATION_US NUMBER(38,0),
+                  RESPONSE_MS NUMBER(38,0)
+                );
+                """);
+
+            boolean originalAutoCommit = conn.getAutoCommit();
+            try {
+                conn.setAutoCommit(false);
+                List<String> pendingRunIds = getRunIdsWithoutHeaders(conn, runIds);
+                LOGGER.info("{} of {} XMLA RUN IDs are not archived yet: {}", pendingRunIds.size(), runIds.size(), pendingRunIds);
+                if (!pendingRunIds.isEmpty()) {
+                    long rowsInserted = insertParsedXmlaLogs(conn, source, pendingRunIds);
+                    LOGGER.info("Parsed {} XMLA rows locally from {}", rowsInserted, dataFile);
+                    exec(conn, getInsertParsedIntoHeadersSql());
+                    LOGGER.info("Inserted header rows into GATLING_XMLA_HEADERS from locally parsed rows");
+                    insertResponses(conn, pendingRunIds);
+                }
+                conn.commit();
+            } catch (SQLException | IOException | RuntimeException e) {
+                try {
+                    conn.rollback();
+                } catch (SQLException rbEx) {
+                    LOGGER.error("Rollback failed: {}", rbEx.getMessage());
+                }
+                throw e;
+            } finally {
+                conn.setAutoCommit(originalAutoCommit);
+            }
+            LOGGER.info("✅ XMLA client parsed load complete.");
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to execute Snowflake operations", e);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to parse run log " + dataFile, e);
+        }
+        LOGGER.info("Processed {} XMLA RUN IDs in log file {}:: {}.", runIds.size(), dataFile, runIds);
+    }
+
+    private static List<String> getRunIdsWithoutHeaders(Connection conn, List<String> runIds) throws SQLException {
+        List<String> pending = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement("SELECT 1 FROM GATLING_XMLA_HEADERS WHERE GATLING_RUN_ID = ? LIMIT 1")) {
+            for (String runId : runIds) {
+                ps.setString(1, runId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (!rs.next()) {
+                        pending.add(runId);
+                    }
+                }
+            }
+        }
+        return pending;
+    }
+
+    /**
+     * Inserts the xmlaLog lines of the given runs into GATLING_XMLA_PARSED.  Query text is taken from the line when it
+     * carries it, otherwise from the xmlaDictionary line of the run, which is logged before the executions.
+     *
+     * @return the number of rows inserted
+     */
+    private static long insertParsedXmlaLogs(Connection conn, RunLogLineParser.Source source, List<String> runIds) throws SQLException, IOException {
+        Set<String> wanted = new HashSet<>(runIds);
+        Map<String, String> dictionary = new HashMap<>();
+        long[] rowsInserted = {0};
+        try (PreparedStatement ps = conn.prepareStatement("""
+                INSERT INTO GATLING_XMLA_PARSED (
+                    TS, LEVEL, LOGGER, MESSAGE_KIND, GATLING_RUN_ID, STATUS, GATLING_SESSION_ID,
+                    MODEL, CUBE, CATALOG, QUERY_NAME, ATSCALE_QUERY_ID, QUERY_HASH, QUERY_BASE64,
+                    START_MS, END_MS, DURATION_MS, RESPONSE_SIZE, RESPONSE_HASH, RAW_SOAP,
+                    DURATION_US, RESPONSE_MS
+                ) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+                """)) {
+            source.read(lines -> {
+                int batched = 0;
+                for (RunLogLine line : lines) {
+                    if (!wanted.contains(line.getGatlingRunId())) {
+                        continue;
+                    }
+                    String dictionaryKey = String.join("|", line.getGatlingRunId(), line.getModel(), line.getQueryHash());
+                    if (RunLogLineParser.XMLA_DICTIONARY.equals(line.getMessageKind())) {
+                        dictionary.putIfAbsent(dictionaryKey, line.getQueryBase64());
+                        continue;
+                    }
+                    if (!RunLogLineParser.XMLA_LOG.equals(line.getMessageKind())) {
+                        continue;
+                    }
+                    String queryBase64 = line.getQueryBase64() != null ? line.getQueryBase64() : dictionary.get(dictionaryKey);
+                    int i = 0;
+                    if (line.getTs() == null) {
+                        ps.setNull(++i, Types.TIMESTAMP);
+                    } else {
+                        ps.setTimestamp(++i, Timestamp.valueOf(line.getTs()));
+                    }
+                    ps.setString(++i, line.getLevel());
+                    ps.setString(++i, line.getLogger());
+                    ps.setString(++i, line.getMessageKind());
+                    ps.setString(++i, line.getGatlingRunId());
+                    ps.setString(++i, line.getStatus());
+                    ps.setString(++i, line.getGatlingSessionId());
+                    ps.setString(++i, line.getModel());
+                    ps.setString(++i, line.getCube());
+                    ps.setString(++i, line.getCatalog());
+                    ps.setString(++i, line.getQueryName());
+                    ps.setString(++i, line.getAtscaleQueryId());
+                    ps.setString(++i, line.getQueryHash());
+                    ps.setString(++i, queryBase64);
+                    setLong(ps, ++i, line.getStartMs());
+                    setLong(ps, ++i, line.getEndMs());
+                    setLong(ps, ++i, line.getDurationMs());
+                    setLong(ps, ++i, line.getResponseSize());
+                    ps.setString(++i, line.getResponseHash());
+                    ps.setString(++i, line.getResponse());
+                    setLong(ps, ++i, line.getDurationUs());
+                    setLong(ps, ++i, line.getResponseMs());
+                    ps.addBatch();
+                    batched++;
+                }
+                if (batched > 0) {
+                    ps.executeBatch();
+                    rowsInserted[0] += batched;
+                    LOGGER.debug("Inserted parsed XMLA batch of {} rows", batched);
+                }
+            });
+        }
+        return rowsInserted[0];
+    }
+
+    private static void setLong(PreparedStatement ps, int index, Long value) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, Types.BIGINT);
+        } else {
+            ps.setLong(index, value);
+        }
+    }
+
+    /** Builds headers from the locally parsed rows, keyed the same way as headers parsed in the warehouse. */
+    private static String getInsertParsedIntoHeadersSql() {
+        return """
+                INSERT INTO GATLING_XMLA_HEADERS (
+                    RUN_KEY, TS, LEVEL, LOGGER, MESSAGE_KIND, GATLING_RUN_ID, STATUS, GATLING_SESSION_ID,
+                    MODEL, CUBE, CATALOG, QUERY_NAME, ATSCALE_QUERY_ID, QUERY_HASH, QUERY_BASE64,
+                    START_MS, END_MS, DURATION_MS, RESPONSE_SIZE, RESPONSE_HASH, RAW_SOAP,
+                    DURATION_US, RESPONSE_MS
+                )
+                SELECT
+                    HASH(GATLING_RUN_ID, GATLING_SESSION_ID, MODEL, QUERY_HASH) AS RUN_KEY,
+                    TS, LEVEL, LOGGER, MESSAGE_KIND, TRIM(GATLING_RUN_ID), STATUS, GATLING_SESSION_ID,
+                    MODEL, CUBE, CATALOG, QUERY_NAME, ATSCALE_QUERY_ID, QUERY_HASH, QUERY_BASE64,
+                    START_MS, END_MS, DURATION_MS, RESPONSE_SIZE, RESPONSE_HASH, RAW_SOAP,
+                    DURATION_US, RESPONSE_MS
+                FROM GATLING_XMLA_PARSED
+                ORDER BY MODEL, CUBE, CATALOG, QUERY_NAME;
+                """;
+    }
+
+    /** Step 5: build GATLING_XMLA_RESPONSES from GATLING_XMLA_HEADERS for each run id. */
+    private static void insertResponses(Connection conn, List<String> runIds) throws SQLException {
+        if (!runIds.isEmpty()) {
+            try (PreparedStatement ps = conn.prepareStatement(getInsertIntoResponsesSql())) {
+                final int batchSize = 1000;
+                int count = 0;
+                for (String runId : runIds) {
+                    ps.setString(1, runId);
+                    ps.setString(2, runId);
+                    ps.addBatch();
+                    if (++count % batchSize == 0) {
+                        ps.executeBatch();
+                        LOGGER.debug("Inserted responses batch of {} runIds", batchSize);
+                    }
+                }
+                if (count % batchSize != 0) {
+                    ps.executeBatch();
+                    LOGGER.debug("Inserted final responses batch of {} runIds", count % batchSize);
+                }
+            }
+            LOGGER.info("Inserted response rows into gatling_xmla_responses");
+        }
+    }
+
     /** Create stage, file format, and XMLA tables. */
     private static void createIfNotExistsObjects(Connection conn) throws SQLException {
         LOGGER.info("Ensuring all required Snowflake objects for XMLA exist...");
@@ -247,10 +474,16 @@ public class ArchiveXmlaToSnowflakeExecutor {
               RESPONSE_SIZE NUMBER(38,0),
               RESPONSE_HASH VARCHAR(256),
               RAW_SOAP VARCHAR(16777216),
+              DURATION_US NUMBER(38,0),
+              RESPONSE_MS NUMBER(38,0),
               PRIMARY KEY (RUN_KEY)
             );
             """);
 
+        // Tables created by earlier versions get the columns added since
+        exec(conn, "ALTER TABLE GATLING_XMLA_HEADERS ADD COLUMN IF NOT EXISTS DURATION_US NUMBER(38,0)");
+        exec(conn, "ALTER TABLE GATLING_XMLA_HEADERS ADD COLUMN IF NOT EXISTS RESPONSE_MS NUMBER(38,0)");
+
         exec(conn, """
             CREATE TABLE IF NOT EXISTS GATLING_XMLA_RESPONSES CLUSTER BY (GATLING_RUN_ID)(
               RUN_KEY NUMBER(19,0),
@@ -324,7 +557,9 @@ public class ArchiveXmlaToSnowflakeExecutor {
                     DURATION_MS,
                     RESPONSE_SIZE,
                     RESPONSE_HASH,
-                    RAW_SOAP
+                    RAW_SOAP,
+                    DURATION_US,
+                    RESPONSE_MS
                 )
                 -- Start of the Common Table Expression definition
                 WITH ParsedData AS (
@@ -357,6 +592,8 @@ public class ArchiveXmlaToSnowflakeExecutor {
                         regexp_substr(raw_soap, 'duration=([^\\\\s]+)', 1, 1, 'e', 1) AS DURATION_MS,
                         regexp_substr(raw_soap, 'responseSize=([^\\\\s]+)', 1, 1, 'e', 1) AS RESPONSE_SIZE,
                         regexp_substr(raw_soap, 'responseHash=\\'([^\\']+)\\'', 1, 1, 'e', 1) AS RESPONSE_HASH,
+                        try_to_number(regexp_substr(raw_soap, 'durationUs=([0-9]+)', 1, 1, 'e', 1)) AS DURATION_US,
+                        try_to_number(regexp_substr(raw_soap, 'responseMs=([0-9]+)', 1, 1, 'e', 1)) AS RESPONSE_MS,
                          -- Extract the full XML content starting from '<soap:Envelope'
                           COALESCE(
                              NULLIF(regexp_substr(raw_soap, '<soap:Envelope.*</soap:Envelope>', 1, 1, 's'), ''),
@@ -371,35 +608,51 @@ public class ArchiveXmlaToSnowflakeExecutor {
                             where gatling_run_id = ?
                             limit 1
                         )
+                ),
+                -- Query text is logged once per run on xmlaDictionary lines
+                QueryDictionary AS (
+                    SELECT GATLING_RUN_ID, MODEL, QUERY_HASH, ANY_VALUE(QUERY_BASE64) AS QUERY_BASE64
+                    FROM ParsedData
+                    WHERE MESSAGE_KIND = 'xmlaDictionary'
+                    GROUP BY GATLING_RUN_ID, MODEL, QUERY_HASH
                 )
                 -- Final SELECT statement to insert data
                 SELECT
                     /* stable key built from your join columns using the HASH function */
-                    HASH(GATLING_RUN_ID, GATLING_SESSION_ID, MODEL, QUERY_HASH) AS RUN_KEY,
-                    TS,
-                    LEVEL,
-                    LOGGER,
-                    MESSAGE_KIND,
-                    TRIM(GATLING_RUN_ID) as GATLING_RUN_ID,
-                    STATUS,
-                    GATLING_SESSION_ID,
-                    MODEL,
-                    CUBE,
-                    CATALOG,
-                    QUERY_NAME,
-                    ATSCALE_QUERY_ID,
-                    QUERY_HASH,
-                    QUERY_BASE64,
-                    START_MS,
-                    END_MS,
-                    DURATION_MS,
-                    RESPONSE_SIZE,
-                    RESPONSE_HASH,
-                    RAW_SOAP
+                    HASH(P.GATLING_RUN_ID, P.GATLING_SESSION_ID, P.MODEL, P.QUERY_HASH) AS RUN_KEY,
+                    P.TS,
+                    P.LEVEL,
+                    P.LOGGER,
+                    P.MESSAGE_KIND,
+                    TRIM(P.GATLING_RUN_ID) as GATLING_RUN_ID,
+                    P.STATUS,
+                    P.GATLING_SESSION_ID,
+                    P.MODEL,
+                    P.CUBE,
+                    P.CATALOG,
+                    P.QUERY_NAME,
+                    P.ATSCALE_QUERY_ID,
+                    P.QUERY_HASH,
+                    -- Older run logs carry inboundTextAsBase64 on every line, which takes precedence
+                    COALESCE(P.QUERY_BASE64, D.QUERY_BASE64) AS QUERY_BASE64,
+                    P.START_MS,
+                    P.END_MS,
+                    P.DURATION_MS,
+                    P.RESPONSE_SIZE,
+                    P.RESPONSE_HASH,
+                    P.RAW_SOAP,
+                    P.DURATION_US,
+                    P.RESPONSE_MS
                 FROM
-                    ParsedData
+                    ParsedData P
+                    LEFT JOIN QueryDictionary D
+                        ON P.GATLING_RUN_ID = D.GATLING_RUN_ID
+                        AND P.MODEL = D.MODEL
+                        AND P.QUERY_HASH = D.QUERY_HASH
+                WHERE
+                    P.MESSAGE_KIND = 'xmlaLog'
                 ORDER BY
-                    MODEL, CUBE, CATALOG, QUERY_NAME;
+                    P.MODEL, P.CUBE, P.CATALOG, P.QUERY_NAME;
             """;
     }
 
@@ -525,6 +778,11 @@ public class ArchiveXmlaToSnowflakeExecutor {
         PropertiesManager.setCustomProperties(loader.fetchAdditionalProperties(AdditionalPropertiesLoader.SecretsManagerType.AWS));
     }
 
+    /** Binary run logs are named run_logs/<run log file name>.<gatling run id>.runlog. */
+    static boolean isBinaryRunLog(Path dataFile) {
+        return dataFile.getFileName().toString().endsWith(".runlog");
+    }
+
     protected static Map<String, String> parseArgs(String[] args) {
         Map<String, String> m = new HashMap<>();
         try {
@@ -0,0 +1,476 @@
+package com.atscale.java.executors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Loads a large run log in chunks instead of as a single file in a single transaction.
+ * The log is split on line boundaries into chunks of about {@code chunkBytes}, each chunk is compressed with gzip,
+ * and the compressed chunks are uploaded and loaded by {@code parallelism} workers, each holding its own connection.
+ * Splitting, compressing and loading overlap, so the first chunk is loading while later chunks are still being read.
+ * <p>
+ * Every loaded chunk is recorded in the {@value #LEDGER_TABLE} table with the SHA-256 of its content.
+ * Loading the same log again skips the chunks already recorded, so a failed archive can simply be run again.
+ * Chunks recorded for the log that are not part of its current split, for example after a run with a larger chunk
+ * size, are unloaded and dropped from the ledger, so their rows are not kept alongside the rows of the new chunks.
+ * Subclasses supply the connection and the stage operations for the target database.
+ */
+public abstract class ChunkedArchiveLoader {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChunkedArchiveLoader.class);
+    public static final String LEDGER_TABLE = "GATLING_ARCHIVE_CHUNKS";
+    private static final int MAX_CHUNK_BYTES = Integer.MAX_VALUE - 8;
+    private static final Chunk END_OF_CHUNKS = new Chunk(null, null, -1, 0, null, null);
+
+    private final long chunkBytes;
+    private final int parallelism;
+    private final Path workDir;
+
+    protected ChunkedArchiveLoader(long chunkBytes, int parallelism, Path workDir) {
+        if (chunkBytes <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunkBytes);
+        }
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        }
+        this.chunkBytes = chunkBytes;
+        this.parallelism = parallelism;
+        this.workDir = workDir;
+    }
+
+    /** Opens a connection for one worker.  Each worker uses its own connection for all the chunks it loads. */
+    protected abstract Connection openConnection() throws SQLException;
+
+    /** Uploads a compressed chunk to the stage.  Called outside the chunk transaction. */
+    protected abstract void uploadChunk(Connection conn, Path chunkFile) throws SQLException;
+
+    /**
+     * Loads an uploaded chunk.  Called inside the chunk transaction, which also records the chunk in the ledger.
+     * Implementations must first remove any rows a previous attempt loaded for the same chunk name.
+     */
+    protected abstract void loadChunk(Connection conn, String chunkName) throws SQLException;
+
+    /**
+     * Deletes the rows loaded for a chunk that is no longer part of the split of its source file.
+     * Called inside a transaction, which also drops the chunk from the ledger.
+     */
+    protected abstract void unloadChunk(Connection conn, String chunkName) throws SQLException;
+
+    /** Removes an uploaded chunk from the stage after a failed load. */
+    protected void removeChunk(Connection conn, String chunkName) throws SQLException {
+    }
+
+    /**
+     * Splits, compresses and loads the data file.
+     *
+     * @return the outcome of every chunk in file order
+     */
+    public Result load(Path dataFile) {
+        String sourceName = dataFile.getFileName().toString();
+        Map<String, String> loadedChunks;
+        try (Connection conn = openConnection()) {
+            createLedgerIfNotExists(conn);
+            loadedChunks = getLoadedChunks(conn, sourceName);
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to read the archive ledger for " + sourceName, e);
+        }
+        LOGGER.info("Archiving {} in chunks of {} bytes with {} workers. {} chunks already loaded.", dataFile, chunkBytes, parallelism, loadedChunks.size());
+
+        ExecutorService compressors = Executors.newFixedThreadPool(parallelism);
+        ExecutorService loaders = Executors.newFixedThreadPool(parallelism);
+        // Bounds the chunks held in memory while they wait for a compressor
+        Semaphore inFlight = new Semaphore(parallelism);
+        BlockingQueue<Chunk> ready = new LinkedBlockingQueue<>();
+        Map<Integer, ChunkStatus> statuses = new ConcurrentSkipListMap<>();
+        Map<Integer, String> names = new ConcurrentSkipListMap<>();
+        List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+
+        List<Future<?>> workers = new ArrayList<>();
+        for (int i = 0; i < parallelism; i++) {
+            workers.add(loaders.submit(() -> runWorker(ready, statuses, failures)));
+        }
+
+        List<Future<?>> compressions = new ArrayList<>();
+        boolean splitComplete = false;
+        try {
+            AtomicInteger index = new AtomicInteger();
+            try (InputStream in = Files.newInputStream(dataFile)) {
+                split(in, content -> {
+                    int chunkIndex = index.incrementAndGet();
+                    String chunkName = chunkName(sourceName, chunkIndex);
+                    names.put(chunkIndex, chunkName);
+                    inFlight.acquire();
+                    compressions.add(compressors.submit(() -> {
+                        try {
+                            String sha256 = sha256(content);
+                            if (sha256.equals(loadedChunks.get(chunkName))) {
+                                statuses.put(chunkIndex, ChunkStatus.SKIPPED);
+                                return;
+                            }
+                            Path chunkFile = workDir.resolve(chunkName);
+                            writeCompressed(chunkFile, content);
+                            ready.put(new Chunk(sourceName, chunkName, chunkIndex, countLines(content), sha256, chunkFile));
+                        } catch (Exception e) {
+                            statuses.put(chunkIndex, ChunkStatus.FAILED);
+                            failures.add(e);
+                            LOGGER.error("Failed to compress chunk {}", chunkName, e);
+                        } finally {
+                            inFlight.release();
+                        }
+                    }));
+                });
+            }
+            splitComplete = true;
+            for (Future<?> compression : compressions) {
+                compression.get();
+            }
+        } catch (IOException e) {
+            failures.add(e);
+            LOGGER.error("Failed to split {}", dataFile, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failures.add(e);
+        } catch (ExecutionException e) {
+            failures.add(e.getCause());
+        } finally {
+            compressors.shutdown();
+            try {
+                // Compressed chunks must all be queued before the workers are told to stop
+                compressors.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            for (int i = 0; i < parallelism; i++) {
+                ready.add(END_OF_CHUNKS);
+            }
+            for (Future<?> worker : workers) {
+                try {
+                    worker.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    failures.add(e.getCause());
+                }
+            }
+            loaders.shutdown();
+        }
+
+        // Stale chunks are only known once the whole file has been split
+        if (splitComplete) {
+            Set<String> staleChunks = new TreeSet<>(loadedChunks.keySet());
+            staleChunks.removeAll(names.values());
+            for (String staleChunk : staleChunks) {
+                try {
+                    unloadChunkInTransaction(sourceName, staleChunk);
+                } catch (SQLException e) {
+                    failures.add(e);
+                    LOGGER.error("Failed to unload stale chunk {}", staleChunk, e);
+                }
+            }
+        }
+
+        Result result = new Result(names, statuses);
+        LOGGER.info("Archived {}: {} chunks loaded, {} skipped, {} failed.", dataFile, result.getLoadedCount(), result.getSkippedCount(), result.getFailedCount());
+        if (!failures.isEmpty()) {
+            RuntimeException e = new RuntimeException(String.format("Failed to archive %d of %d chunks of %s", result.getFailedCount(), names.size(), sourceName), failures.get(0));
+            failures.stream().skip(1).forEach(e::addSuppressed);
+            throw e;
+        }
+        return result;
+    }
+
+    private void runWorker(BlockingQueue<Chunk> ready, Map<Integer, ChunkStatus> statuses, List<Throwable> failures) {
+        Connection conn = null;
+        try {
+            while (true) {
+                Chunk chunk = ready.take();
+                if (chunk == END_OF_CHUNKS) {
+                    return;
+                }
+                try {
+                    if (conn == null) {
+                        conn = openConnection();
+                    }
+                    loadChunkInTransaction(conn, chunk);
+                    statuses.put(chunk.index, ChunkStatus.LOADED);
+                } catch (Exception e) {
+                    statuses.put(chunk.index, ChunkStatus.FAILED);
+                    failures.add(e);
+                    LOGGER.error("Failed to load chunk {}", chunk.name, e);
+                } finally {
+                    deleteQuietly(chunk.file);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (conn != null) {
+                try {
+                    conn.close();
+                } catch (SQLException e) {
+                    LOGGER.warn("Failed to close archive connection: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void loadChunkInTransaction(Connection conn, Chunk chunk) throws SQLException {
+        long started = System.currentTimeMillis();
+        // PUT is not transactional, so the upload happens before the chunk transaction starts
+        uploadChunk(conn, chunk.file);
+        boolean originalAutoCommit = conn.getAutoCommit();
+        try {
+            conn.setAutoCommit(false);
+            loadChunk(conn, chunk.name);
+            recordChunk(conn, chunk);
+            conn.commit();
+        } catch (SQLException e) {
+            try {
+                conn.rollback();
+            } catch (SQLException rbEx) {
+                LOGGER.error("Rollback failed: {}", rbEx.getMessage());
+            }
+            try {
+                removeChunk(conn, chunk.name);
+            } catch (SQLException cleanupEx) {
+                LOGGER.warn("Failed to remove staged chunk {}: {}", chunk.name, cleanupEx.getMessage());
+            }
+            throw e;
+        } finally {
+            conn.setAutoCommit(originalAutoCommit);
+        }
+        LOGGER.info("Loaded chunk {} with {} lines in {} ms", chunk.name, chunk.lines, System.currentTimeMillis() - started);
+    }
+
+    private void unloadChunkInTransaction(String sourceName, String chunkName) throws SQLException {
+        try (Connection conn = openConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                unloadChunk(conn, chunkName);
+                try (PreparedStatement ps = conn.prepareStatement("DELETE FROM GATLING_ARCHIVE_CHUNKS WHERE SRC_FILENAME = ? AND CHUNK_NAME = ?")) {
+                    ps.setString(1, sourceName);
+                    ps.setString(2, chunkName);
+                    ps.executeUpdate();
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                try {
+                    conn.rollback();
+                } catch (SQLException rbEx) {
+                    LOGGER.error("Rollback failed: {}", rbEx.getMessage());
+                }
+                throw e;
+            }
+        }
+        LOGGER.info("Unloaded stale chunk {}, which is not part of the current split of {}", chunkName, sourceName);
+    }
+
+    private static void createLedgerIfNotExists(Connection conn) throws SQLException {
+        // Portable column types so the ledger can also be created in a local staging database
+        try (Statement st = conn.createStatement()) {
+            st.execute("""
+                CREATE TABLE IF NOT EXISTS GATLING_ARCHIVE_CHUNKS (
+                  SRC_FILENAME VARCHAR(1024),
+                  CHUNK_NAME VARCHAR(1024),
+                  CHUNK_INDEX INTEGER,
+                  CHUNK_LINES BIGINT,
+                  CHUNK_SHA256 VARCHAR(64),
+                  LOADED_AT TIMESTAMP
+                )
+                """);
+        }
+    }
+
+    private static Map<String, String> getLoadedChunks(Connection conn, String sourceName) throws SQLException {
+        Map<String, String> loaded = new HashMap<>();
+        try (PreparedStatement ps = conn.prepareStatement("SELECT CHUNK_NAME, CHUNK_SHA256 FROM GATLING_ARCHIVE_CHUNKS WHERE SRC_FILENAME = ?")) {
+            ps.setString(1, sourceName);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    loaded.put(rs.getString(1), rs.getString(2));
+                }
+            }
+        }
+        return loaded;
+    }
+
+    private static void recordChunk(Connection conn, Chunk chunk) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("DELETE FROM GATLING_ARCHIVE_CHUNKS WHERE SRC_FILENAME = ? AND CHUNK_NAME = ?")) {
+            ps.setString(1, chunk.sourceName);
+            ps.setString(2, chunk.name);
+            ps.executeUpdate();
+        }
+        try (PreparedStatement ps = conn.prepareStatement("""
+                INSERT INTO GATLING_ARCHIVE_CHUNKS (SRC_FILENAME, CHUNK_NAME, CHUNK_INDEX, CHUNK_LINES, CHUNK_SHA256, LOADED_AT)
+                VALUES (?, ?, ?, ?, ?, CURRENT_TIMESTAMP)
+                """)) {
+            ps.setString(1, chunk.sourceName);
+            ps.setString(2, chunk.name);
+            ps.setInt(3, chunk.index);
+            ps.setLong(4, chunk.lines);
+            ps.setString(5, chunk.sha256);
+            ps.executeUpdate();
+        }
+    }
+
+    /** Chunk names are stable for a given source file, which is what makes reloading idempotent per chunk. */
+    static String chunkName(String sourceName, int index) {
+        return String.format("%s.part-%05d.gz", sourceName, index);
+    }
+
+    /**
+     * Reads the stream in chunks of about chunkBytes.  Every chunk but the last ends on a line boundary,
+     * and a single line longer than chunkBytes becomes a chunk of its own.
+     */
+    void split(InputStream in, ChunkConsumer consumer) throws IOException, InterruptedException {
+        byte[] carry = new byte[0];
+        while (true) {
+            long target = carry.length < chunkBytes ? chunkBytes : carry.length * 2L;
+            byte[] buffer = Arrays.copyOf(carry, (int) Math.min(MAX_CHUNK_BYTES, target));
+            int filled = carry.length;
+            int read;
+            while (filled < buffer.length && (read = in.read(buffer, filled, buffer.length - filled)) >= 0) {
+                filled += read;
+            }
+            if (filled < buffer.length) {
+                if (filled > 0) {
+                    consumer.accept(Arrays.copyOf(buffer, filled));
+                }
+                return;
+            }
+            int end = lastLineEnd(buffer);
+            if (end < 0) {
+                if (buffer.length == MAX_CHUNK_BYTES) {
+                    throw new IOException("Run log line exceeds " + MAX_CHUNK_BYTES + " bytes");
+                }
+                carry = buffer;
+                continue;
+            }
+            consumer.accept(end == buffer.length ? buffer : Arrays.copyOf(buffer, end));
+            carry = Arrays.copyOfRange(buffer, end, buffer.length);
+        }
+    }
+
+    /** @return the offset just past the last newline, or -1 when the bytes hold no newline */
+    private static int lastLineEnd(byte[] bytes) {
+        for (int i = bytes.length - 1; i >= 0; i--) {
+            if (bytes[i] == '\n') {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    private static long countLines(byte[] bytes) {
+        long lines = 0;
+        for (byte b : bytes) {
+            if (b == '\n') {
+                lines++;
+            }
+        }
+        if (bytes.length > 0 && bytes[bytes.length - 1] != '\n') {
+            lines++;
+        }
+        return lines;
+    }
+
+    private static void writeCompressed(Path file, byte[] content) throws IOException {
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file), 64 * 1024)) {
+            out.write(content);
+        }
+    }
+
+    private static String sha256(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 algorithm not available", e);
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            LOGGER.warn("Failed to delete chunk file {}: {}", file, e.getMessage());
+        }
+    }
+
+    public enum ChunkStatus {
+        LOADED,
+        SKIPPED,
+        FAILED
+    }
+
+    interface ChunkConsumer {
+        void accept(byte[] chunk) throws InterruptedException;
+    }
+
+    private static final class Chunk {
+        private final String sourceName;
+        private final String name;
+        private final int index;
+        private final long lines;
+        private final String sha256;
+        private final Path file;
+
+        private Chunk(String sourceName, String name, int index, long lines, String sha256, Path file) {
+            this.sourceName = sourceName;
+            this.name = name;
+            this.index = index;
+            this.lines = lines;
+            this.sha256 = sha256;
+            this.file = file;
+        }
+    }
+
+    /** Outcome of each chunk of one archive, in file order. */
+    public static class Result {
+        private final List<String> chunkNames;
+        private final Map<String, ChunkStatus> statuses = new LinkedHashMap<>();
+
+        Result(Map<Integer, String> names, Map<Integer, ChunkStatus> statuses) {
+            this.chunkNames = new ArrayList<>(names.values());
+            names.forEach((index, name) -> this.statuses.put(name, statuses.getOrDefault(index, ChunkStatus.FAILED)));
+        }
+
+        public List<String> getChunkNames() {
+            return chunkNames;
+        }
+
+        public ChunkStatus getStatus(String chunkName) {
+            return statuses.get(chunkName);
+        }
+
+        public long getLoadedCount() {
+            return count(ChunkStatus.LOADED);
+        }
+
+        public long getSkippedCount() {
+            return count(ChunkStatus.SKIPPED);
+        }
+
+        public long getFailedCount() {
+            return count(ChunkStatus.FAILED);
+        }
+
+        private long count(ChunkStatus status) {
+            return statuses.values().stream().filter(s -> s == status).count();
+        }
+    }
+}
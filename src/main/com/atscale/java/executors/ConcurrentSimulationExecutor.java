@@ -1,139 +1,268 @@
 package com.atscale.java.executors;
 
+import com.atscale.java.metrics.MetricsAggregator;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import java.io.IOException;
-import java.nio.file.Paths;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
-import java.io.File;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ExecutionException;
 
+/**
+ * Runs simulation tasks in parallel, each in its own JVM.
+ * Tasks are admitted in the order they are defined.  A task starts only when a concurrency slot is free
+ * and, if a memory budget is configured, when its declared heap fits the remaining budget.
+ * The run finishes with a per-task status summary.
+ */
 @SuppressWarnings("unused")
 public abstract class ConcurrentSimulationExecutor<T> extends SimulationExecutor {
     private static final Logger LOGGER = LoggerFactory.getLogger(ConcurrentSimulationExecutor.class);
 
+    /**
+     * System property limiting the number of tasks that run at the same time.  Defaults to the number of tasks.
+     */
+    public static final String MAX_CONCURRENT_TASKS_PROPERTY = "atscale.executor.maxConcurrentTasks";
+    /**
+     * System property holding the host memory budget in MB shared by all running tasks.  Defaults to 0 (disabled).
+     */
+    public static final String MEMORY_BUDGET_MB_PROPERTY = "atscale.executor.memoryBudgetMb";
+    /**
+     * System property holding the port of the combined live metrics endpoint of the running tasks.  Defaults to
+     * unset (disabled).
+     */
+    public static final String METRICS_PORT_PROPERTY = "atscale.executor.metricsPort";
+    /**
+     * System property holding the address the combined live metrics endpoint listens on.  Defaults to 127.0.0.1.
+     */
+    public static final String METRICS_HOST_PROPERTY = "atscale.executor.metricsHost";
+
+    private final Map<MavenTaskDto<?>, Path> metricsPortFiles = new ConcurrentHashMap<>();
+
     protected void execute() {
+        List<TaskResult> results = new ArrayList<>();
+        MetricsAggregator metrics = startMetricsAggregator();
         try {
-        // This assumes that the Maven wrapper script (mvnw) is present in the project root directory
-        String projectRoot = getApplicationDirectory();
-        String mavenScript = getMavenWrapperScript();
-
-        // Get the Gatling simulation tasks and run each simulation in a separate JVM Process
-        // that means we have the capability to run multiple simulations in parallel and passing
-        // params via -D system properties is safe and isolated per process
-
-        List<Thread> taskThreads = new java.util.ArrayList<>();
-        List<MavenTaskDto<T>> tasks = getSimulationTasks();
-
-        for (MavenTaskDto<T> task : tasks) {
-                Thread taskThread = new Thread(() -> {
-                String osName = System.getProperty("os.name").toLowerCase();
-                LOGGER.info("OS is {}", osName);
-                LOGGER.info("Running task: {}", task.getTaskName());
-                LOGGER.info("Maven Command: {}", task.getMavenCommand());
-                LOGGER.info("Simulation Class: {}", task.getSimulationClass());
-                LOGGER.info("Run Description: {}", task.getRunDescription());
-
-                try {
-                    List<String> command = new java.util.ArrayList<>();
-                    command.add(mavenScript);
-
-                    String simClass = String.format("-D%s=%s", MavenTaskDto.GATLING_SIMULATION_CLASS, task.getSimulationClass());
-                    String runDesc = String.format("-D%s=%s", MavenTaskDto.GATLING_RUN_DESCRIPTION, task.getRunDescription());
-                    String catalog = String.format("-D%s=%s", MavenTaskDto.ATSCALE_CATALOG, task.getCatalogBase64());
-                    String model = String.format("-D%s=%s", MavenTaskDto.ATSCALE_MODEL, task.getModelBase64());
-                    String runId = String.format("-D%s=%s", MavenTaskDto.ATSCALE_RUN_ID, task.getRunIdBase64());
-                    String logFileName = String.format("-D%s=%s", MavenTaskDto.ATSCALE_LOG_FILE_NAME, task.getRunLogFileName());
-                    String logAppend = String.format("-D%s=%s", MavenTaskDto.GATLING_RUN_LOGAPPEND, task.isRunLogAppend());
-                    String injectionSteps = String.format("-D%s=%s", MavenTaskDto.GATLING_INJECTION_STEPS, task.getInjectionStepsAsBase64());
-                    String ingestFile = String.format("-D%s=%s", MavenTaskDto.ATSCALE_QUERY_INGESTION_FILE, task.getIngestionFileNameBase64());
-                    String ingestFileHasHeader = String.format("-D%s=%s", MavenTaskDto.ATSCALE_QUERY_INGESTION_FILE_HAS_HEADER, task.getIngestionFileHasHeader());
-                    String additionalProperties = String.format("-D%s=%s", MavenTaskDto.ADDITIONAL_PROPERTIES, task.getAdditionalPropertiesBase64());
-                    String alternatePropertiesFileName = task.getAlternatePropertiesFileName();
-
-                    LOGGER.debug("SimEx Using simulation class: {}", simClass);
-                    LOGGER.debug("SimEx Using run description: {}", runDesc);
-                    LOGGER.debug("SimEx Using catalog: {}", catalog);
-                    LOGGER.debug("SimEx Using model: {}", model);
-                    LOGGER.debug("SimEx Using run id: {}", runId);
-                    LOGGER.debug("SimEx Using log file name: {}", logFileName);
-                    LOGGER.debug("SimEx Logging as append: {}", logAppend);
-                    LOGGER.debug("SimEx Using injection steps: {}", injectionSteps);
-                    LOGGER.debug("SimEx Using ingestion file: {}", ingestFile);
-                    LOGGER.debug("SimEx Ingestion file has header: {}", ingestFileHasHeader);
-                    LOGGER.debug("SimEx Additional properties: {}", additionalProperties);
-                    LOGGER.debug("SimEx Using alternate properties file name: {}", alternatePropertiesFileName);
-
-
-                    command.add(simClass);
-                    command.add(runDesc);
-                    command.add(catalog);
-                    command.add(model);
-                    command.add(runId);
-                    command.add(logFileName);
-                    command.add(logAppend);
-                    command.add(injectionSteps);
-                    command.add(ingestFile);
-                    command.add(ingestFileHasHeader);
-                    command.add(additionalProperties);
-                    if(StringUtils.isNotEmpty(alternatePropertiesFileName)){
-                        String systemsPropertiesFileName = String.format("-D%s=%s", "systems.properties.file", alternatePropertiesFileName);
-                        command.add(systemsPropertiesFileName);
+            // In MAVEN launch mode this assumes that the Maven wrapper script (mvnw) is present in the project root directory
+            // In DIRECT launch mode this assumes the project has been compiled to target/classes and target/dependency
+            String projectRoot = getApplicationDirectory();
+
+            // Get the Gatling simulation tasks and run each simulation in a separate JVM Process
+            // that means we have the capability to run multiple simulations in parallel and passing
+            // params via -D system properties is safe and isolated per process
+            List<MavenTaskDto<T>> tasks = getSimulationTasks();
+            if (tasks.isEmpty()) {
+                LOGGER.warn("No simulation tasks to run.");
+                return;
+            }
+
+            int maxConcurrentTasks = getMaxConcurrentTasks(tasks.size());
+            long memoryBudgetMb = getMemoryBudgetMb();
+            LOGGER.info("Running {} tasks with at most {} concurrent tasks and a memory budget of {}",
+                    tasks.size(), maxConcurrentTasks, memoryBudgetMb > 0 ? memoryBudgetMb + " MB" : "unlimited");
+
+            Semaphore taskSlots = new Semaphore(maxConcurrentTasks, true);
+            Semaphore memoryMb = memoryBudgetMb > 0 ? new Semaphore((int) Math.min(memoryBudgetMb, Integer.MAX_VALUE), true) : null;
+            ExecutorService workers = Executors.newFixedThreadPool(maxConcurrentTasks);
+            List<Future<TaskResult>> running = new ArrayList<>();
+
+            try {
+                // Admit tasks in file order.  The dispatcher blocks on the task at the head of the queue,
+                // so a large task is never overtaken by smaller tasks defined after it.
+                for (MavenTaskDto<T> task : tasks) {
+                    long heapMb = getTaskHeapMb(task);
+                    if (memoryMb != null && heapMb > memoryBudgetMb) {
+                        LOGGER.error("Task {} declares a heap of {} MB which exceeds the memory budget of {} MB.  Task rejected.",
+                                task.getTaskName(), heapMb, memoryBudgetMb);
+                        running.add(CompletableFuture.completedFuture(new TaskResult(task.getTaskName(), TaskStatus.REJECTED, -1, 0L)));
+                        continue;
                     }
+                    int memoryPermits = memoryMb == null ? 0 : (int) heapMb;
 
-                    // Add the Maven goal (e.g., gatling:test)
-                    command.add(task.getMavenCommand());
-
-                    ProcessBuilder processBuilder = new ProcessBuilder(command);
-                    // Set working directory to project root where mvnw(.cmd) exists
-                    processBuilder.directory(new File(projectRoot));
-                    processBuilder.inheritIO(); // This will print output to console
-                    processBuilder.redirectErrorStream(true);
-
-                    LOGGER.info("Starting the test suite on a separate JVM.  Using command args: {}", command);
-                    Process process = processBuilder.start();
-                    process.waitFor(); // Wait for the process to complete
-                    if (process.exitValue() != 0) {
-                        LOGGER.error("Task {} failed with exit code: {}", task.getTaskName(), process.exitValue());
-                        throw new RuntimeException("Task failed");
+                    taskSlots.acquire();
+                    if (memoryMb != null) {
+                        LOGGER.info("Task {} waiting for {} MB of memory budget.  {} MB available.", task.getTaskName(), memoryPermits, memoryMb.availablePermits());
+                        memoryMb.acquire(memoryPermits);
                     }
-                    LOGGER.info("Task {} completed successfully.", task.getTaskName());
-                } catch (IOException | InterruptedException e) {
-                    throw new RuntimeException("Failed to run task: " + task.getTaskName(), e);
+                    LOGGER.info("Admitting task: {}", task.getTaskName());
+                    running.add(workers.submit(() -> {
+                        long start = System.currentTimeMillis();
+                        Path metricsPortFile = metrics == null ? null : metrics.addTask(task.getTaskName());
+                        if (metricsPortFile != null) {
+                            metricsPortFiles.put(task, metricsPortFile);
+                        }
+                        try {
+                            int exitCode = runTask(task, projectRoot);
+                            long duration = System.currentTimeMillis() - start;
+                            if (exitCode != 0) {
+                                LOGGER.error("Task {} failed with exit code: {}", task.getTaskName(), exitCode);
+                                return new TaskResult(task.getTaskName(), TaskStatus.FAILED, exitCode, duration);
+                            }
+                            LOGGER.info("Task {} completed successfully.", task.getTaskName());
+                            return new TaskResult(task.getTaskName(), TaskStatus.SUCCEEDED, exitCode, duration);
+                        } catch (RuntimeException e) {
+                            LOGGER.error("Task {} failed.", task.getTaskName(), e);
+                            return new TaskResult(task.getTaskName(), TaskStatus.FAILED, -1, System.currentTimeMillis() - start);
+                        } finally {
+                            if (metricsPortFile != null) {
+                                metrics.finishTask(metricsPortFile);
+                                metricsPortFiles.remove(task);
+                            }
+                            if (memoryMb != null) {
+                                memoryMb.release(memoryPermits);
+                            }
+                            taskSlots.release();
+                        }
+                    }));
                 }
-            });
-            taskThread.start();
-            taskThreads.add(taskThread);
-            }
 
-            // Have the current thread wait for all task threads to complete
-            for (Thread taskThread : taskThreads) {
-                try {
-                    taskThread.join();
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt(); // Restore interrupted status
+                // Have the current thread wait for all admitted tasks to complete
+                for (Future<TaskResult> future : running) {
+                    results.add(future.get());
                 }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt(); // Restore interrupted status
+                LOGGER.error("Interrupted while running simulation tasks.");
+            } catch (ExecutionException e) {
+                throw new RuntimeException("Failed to run simulation tasks", e);
+            } finally {
+                workers.shutdown();
             }
         } finally {
-            // Because of the way logging initializes early it produces some empty log files
-            // Delete all zero-byte files in the run_logs directory
-            String runLogPath = Paths.get(getApplicationDirectory(), "run_logs").toString();
-            LOGGER.info("Run Log Path: {}",  runLogPath);
-
-            File runLogsDir = new File(runLogPath);
-            if (runLogsDir.exists() && runLogsDir.isDirectory()) {
-                File[] files = runLogsDir.listFiles();
-                if (files != null) {
-                    for (File file : files) {
-                        if (file.isFile() && file.length() == 0) {
-                            //noinspection ResultOfMethodCallIgnored
-                            file.delete();
-                        }
-                    }
-                }
+            if (metrics != null) {
+                metrics.stop();
             }
+            logSummary(results);
+            deleteEmptyRunLogs();
+        }
+    }
+
+    /**
+     * Adds the file the task reports the port of its live metrics endpoint in when the combined endpoint is enabled.
+     */
+    @Override
+    protected <U> List<String> buildTaskSystemProperties(MavenTaskDto<U> task) {
+        List<String> properties = super.buildTaskSystemProperties(task);
+        Path metricsPortFile = metricsPortFiles.get(task);
+        if (metricsPortFile != null) {
+            properties.add(String.format("-D%s=%s", MavenTaskDto.ATSCALE_METRICS_PORT_FILE, metricsPortFile));
+        }
+        return properties;
+    }
+
+    /**
+     * Starts the combined live metrics endpoint when {@link #METRICS_PORT_PROPERTY} is set.  Each task then serves
+     * its own metrics on a free port it reports in a port file, and every request to the combined endpoint merges them.
+     *
+     * @return the aggregator, or {@code null} when the property is not set
+     */
+    protected MetricsAggregator startMetricsAggregator() {
+        String port = System.getProperty(METRICS_PORT_PROPERTY);
+        if (StringUtils.isBlank(port)) {
+            return null;
+        }
+        String host = System.getProperty(METRICS_HOST_PROPERTY, "127.0.0.1");
+        return new MetricsAggregator(host, Integer.parseInt(port.trim()));
+    }
+
+    /**
+     * Returns the maximum number of tasks that may run at the same time.
+     *
+     * @param taskCount the number of tasks to run
+     * @return the value of {@link #MAX_CONCURRENT_TASKS_PROPERTY}, or {@code taskCount} when not set
+     */
+    protected int getMaxConcurrentTasks(int taskCount) {
+        String value = System.getProperty(MAX_CONCURRENT_TASKS_PROPERTY);
+        if (StringUtils.isBlank(value)) {
+            return taskCount;
+        }
+        int maxConcurrentTasks = Integer.parseInt(value.trim());
+        if (maxConcurrentTasks < 1) {
+            throw new RuntimeException(String.format("%s must be at least 1 but was %s", MAX_CONCURRENT_TASKS_PROPERTY, value));
         }
+        return maxConcurrentTasks;
+    }
+
+    /**
+     * Returns the host memory budget in MB shared by all running tasks.
+     *
+     * @return the value of {@link #MEMORY_BUDGET_MB_PROPERTY}, or 0 when memory admission is disabled
+     */
+    protected long getMemoryBudgetMb() {
+        String value = System.getProperty(MEMORY_BUDGET_MB_PROPERTY);
+        if (StringUtils.isBlank(value)) {
+            return 0L;
+        }
+        return Long.parseLong(value.trim());
+    }
+
+    /**
+     * Returns the heap in MB that a task declares.  Used for memory budget admission.
+     *
+     * @param task the task to be admitted
+     * @return the task's maximum heap size in MB
+     */
+    protected long getTaskHeapMb(MavenTaskDto<T> task) {
+        return task.getMaxHeapSizeMb();
     }
 
     protected abstract List<MavenTaskDto<T>> getSimulationTasks();
+
+    private void logSummary(List<TaskResult> results) {
+        if (results.isEmpty()) {
+            return;
+        }
+        LOGGER.info("Task summary:");
+        for (TaskResult result : results) {
+            LOGGER.info("  {} status={} exitCode={} durationMs={}", result.getTaskName(), result.getStatus(), result.getExitCode(), result.getDurationMs());
+        }
+        long failed = results.stream().filter(r -> r.getStatus() != TaskStatus.SUCCEEDED).count();
+        if (failed > 0) {
+            LOGGER.error("{} of {} tasks did not complete successfully.", failed, results.size());
+        }
+    }
+
+    public enum TaskStatus {
+        SUCCEEDED,
+        FAILED,
+        REJECTED
+    }
+
+    public static class TaskResult {
+        private final String taskName;
+        private final TaskStatus status;
+        private final int exitCode;
+        private final long durationMs;
+
+        public TaskResult(String taskName, TaskStatus status, int exitCode, long durationMs) {
+            this.taskName = taskName;
+            this.status = status;
+            this.exitCode = exitCode;
+            this.durationMs = durationMs;
+        }
+
+        public String getTaskName() {
+            return taskName;
+        }
+
+        public TaskStatus getStatus() {
+            return status;
+        }
+
+        public int getExitCode() {
+            return exitCode;
+        }
+
+        public long getDurationMs() {
+            return durationMs;
+        }
+    }
 }
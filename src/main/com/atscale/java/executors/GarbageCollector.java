@@ -0,0 +1,48 @@
+package com.atscale.java.executors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Garbage collector used by the JVM that runs a simulation task.
+ * {@link #DEFAULT} leaves the choice to the JVM.
+ * {@link #GENERATIONAL_ZGC} requires JDK 21 or later.  {@code -XX:+ZGenerational} is only added on JDK 21 and 22,
+ * since ZGC is always generational from JDK 23, which deprecates the flag, and JDK 24 makes it obsolete.
+ * On earlier JDKs it falls back to ZGC with a warning.
+ */
+public enum GarbageCollector {
+    DEFAULT(List.of()),
+    G1(List.of("-XX:+UseG1GC")),
+    ZGC(List.of("-XX:+UseZGC")),
+    GENERATIONAL_ZGC(List.of("-XX:+UseZGC")),
+    PARALLEL(List.of("-XX:+UseParallelGC"));
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GarbageCollector.class);
+    private static final String ZGENERATIONAL_FLAG = "-XX:+ZGenerational";
+
+    private final List<String> jvmFlags;
+
+    GarbageCollector(List<String> jvmFlags) {
+        this.jvmFlags = jvmFlags;
+    }
+
+    /**
+     * @param javaFeatureVersion the feature version of the JDK that runs the task, for example 21
+     * @return the JVM flags that select this garbage collector on that JDK
+     */
+    public List<String> getJvmFlags(int javaFeatureVersion) {
+        if (this == GENERATIONAL_ZGC && javaFeatureVersion < 21) {
+            LOGGER.warn("{} requires JDK 21 or later, but the simulation runs on JDK {}.  Using ZGC without {}.",
+                    this, javaFeatureVersion, ZGENERATIONAL_FLAG);
+        }
+        if (this != GENERATIONAL_ZGC || javaFeatureVersion < 21 || javaFeatureVersion > 22) {
+            return jvmFlags;
+        }
+        List<String> flags = new ArrayList<>(jvmFlags);
+        flags.add(ZGENERATIONAL_FLAG);
+        return flags;
+    }
+}
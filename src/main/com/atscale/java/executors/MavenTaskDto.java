@@ -3,6 +3,7 @@ package com.atscale.java.executors;
 import java.net.URL;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -35,6 +36,14 @@ public class MavenTaskDto<T> {
     public static final String ATSCALE_QUERY_INGESTION_FILE = "query_ingestion_file";
     public static final String ATSCALE_QUERY_INGESTION_FILE_HAS_HEADER = "query_ingestion_file_has_header";
     public static final String ADDITIONAL_PROPERTIES = "additional_properties";
+    public static final String ATSCALE_METRICS_PORT = "atscale.metrics.port";
+    public static final String ATSCALE_METRICS_PORT_FILE = "atscale.metrics.portFile";
+    public static final String GATLING_JVM_INITIAL_HEAP = "gatling.jvm.xms"; //Do not change.  Referenced by the gatling-maven-plugin jvmArgs in the pom
+    public static final String GATLING_JVM_MAX_HEAP = "gatling.jvm.xmx";  //Do not change.  Referenced by the gatling-maven-plugin jvmArgs in the pom
+    public static final String GATLING_JVM_OPTIONS = "gatling.jvm.options";  //Do not change.  Referenced by the gatling-maven-plugin jvmArgs in the pom
+    public static final String DEFAULT_INITIAL_HEAP_SIZE = "2G";
+    public static final String DEFAULT_MAX_HEAP_SIZE = "8G";
+    private static final Pattern HEAP_SIZE_PATTERN = Pattern.compile("^([0-9]+)([kKmMgG]?)$");
 
     private final String taskName;
     private String mavenCommand;
@@ -51,6 +60,12 @@ public class MavenTaskDto<T> {
     @JsonSetter(nulls = Nulls.AS_EMPTY)
     private final Map<String, String> additionalProperties = new HashMap<>();
     private String alternatePropertiesFileName;
+    private String initialHeapSize = DEFAULT_INITIAL_HEAP_SIZE;
+    private String maxHeapSize = DEFAULT_MAX_HEAP_SIZE;
+    private GarbageCollector garbageCollector = GarbageCollector.DEFAULT;
+    private Integer javaVersion;
+    @JsonSetter(nulls = Nulls.AS_EMPTY)
+    private final List<String> jvmArgs = new ArrayList<>();
 
     public MavenTaskDto() {
         // Delegate to the single-arg constructor so all initialization logic is reused
@@ -271,6 +286,107 @@ public class MavenTaskDto<T> {
         this.alternatePropertiesFileName = alternatePropertiesFileName;
     }
 
+    public String getInitialHeapSize() {
+        return initialHeapSize;
+    }
+
+    /**
+     * Sets the initial heap (-Xms) of the JVM that runs the simulation, for example 512M or 2G.
+     * A null or empty value restores the default of {@value #DEFAULT_INITIAL_HEAP_SIZE}.
+     */
+    public void setInitialHeapSize(String initialHeapSize) {
+        this.initialHeapSize = validateHeapSize(initialHeapSize, DEFAULT_INITIAL_HEAP_SIZE);
+    }
+
+    public String getMaxHeapSize() {
+        return maxHeapSize;
+    }
+
+    /**
+     * Sets the maximum heap (-Xmx) of the JVM that runs the simulation, for example 1G or 16G.
+     * A null or empty value restores the default of {@value #DEFAULT_MAX_HEAP_SIZE}.
+     */
+    public void setMaxHeapSize(String maxHeapSize) {
+        this.maxHeapSize = validateHeapSize(maxHeapSize, DEFAULT_MAX_HEAP_SIZE);
+    }
+
+    @JsonIgnore
+    public long getMaxHeapSizeMb() {
+        return toMegabytes(this.maxHeapSize);
+    }
+
+    public GarbageCollector getGarbageCollector() {
+        return garbageCollector;
+    }
+
+    public void setGarbageCollector(GarbageCollector garbageCollector) {
+        this.garbageCollector = garbageCollector == null ? GarbageCollector.DEFAULT : garbageCollector;
+    }
+
+    public Integer getJavaVersion() {
+        return javaVersion;
+    }
+
+    /**
+     * Pins the feature version of the JDK that runs the simulation, for example 21, which selects the garbage collector
+     * flags.  When null the executor detects it from the JDK it launches.
+     */
+    public void setJavaVersion(Integer javaVersion) {
+        this.javaVersion = javaVersion;
+    }
+
+    public List<String> getJvmArgs() {
+        return jvmArgs;
+    }
+
+    /**
+     * Sets additional flags for the JVM that runs the simulation, for example -XX:+AlwaysPreTouch.
+     * Heap sizes and the garbage collector have dedicated settings and should not be repeated here.
+     */
+    @JsonSetter(nulls = Nulls.AS_EMPTY)
+    public void setJvmArgs(List<String> jvmArgs) {
+        this.jvmArgs.clear();
+        if (jvmArgs != null) {
+            this.jvmArgs.addAll(jvmArgs);
+        }
+    }
+
+    /**
+     * Returns the garbage collector flags followed by the additional JVM flags.  Heap sizes are not included.
+     *
+     * @param javaFeatureVersion the feature version of the JDK that runs the simulation
+     */
+    public List<String> getJvmTuningFlags(int javaFeatureVersion) {
+        List<String> flags = new ArrayList<>(this.garbageCollector.getJvmFlags(javaFeatureVersion));
+        flags.addAll(this.jvmArgs);
+        return flags;
+    }
+
+    private static String validateHeapSize(String heapSize, String defaultValue) {
+        if (StringUtils.isBlank(heapSize)) {
+            return defaultValue;
+        }
+        String value = heapSize.trim();
+        if (!HEAP_SIZE_PATTERN.matcher(value).matches()) {
+            throw new IllegalArgumentException("Invalid heap size: " + heapSize + ".  Use a number with an optional K, M or G suffix, for example 512M or 8G.");
+        }
+        return value;
+    }
+
+    private static long toMegabytes(String heapSize) {
+        java.util.regex.Matcher matcher = HEAP_SIZE_PATTERN.matcher(heapSize);
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Invalid heap size: " + heapSize);
+        }
+        long amount = Long.parseLong(matcher.group(1));
+        return switch (matcher.group(2).toUpperCase()) {
+            case "G" -> amount * 1024L;
+            case "M" -> amount;
+            case "K" -> Math.max(1L, amount / 1024L);
+            default -> Math.max(1L, amount / (1024L * 1024L));
+        };
+    }
+
     public static String encode(String input) {
         if(StringUtils.isEmpty(input)) {
             return input;
@@ -302,6 +418,11 @@ public class MavenTaskDto<T> {
         copy.setIngestionFileName(this.ingestionFileName, this.ingestionFileHasHeader);
         copy.setAdditionalProperties(this.additionalProperties);
         copy.setAlternatePropertiesFileName(this.alternatePropertiesFileName);
+        copy.setInitialHeapSize(this.initialHeapSize);
+        copy.setMaxHeapSize(this.maxHeapSize);
+        copy.setGarbageCollector(this.garbageCollector);
+        copy.setJavaVersion(this.javaVersion);
+        copy.setJvmArgs(this.jvmArgs);
         return copy;
     }
 }
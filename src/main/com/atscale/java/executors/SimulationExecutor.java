@@ -3,17 +3,36 @@ package com.atscale.java.executors;
 import com.atscale.java.utils.AwsSecretsManager;
 import com.atscale.java.utils.JsonUtil;
 import com.atscale.java.utils.SecretsManager;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 /**
  * Base executor for simulations.
  * Provides a factory for {@link SecretsManager} and utilities to load additional properties,
  * resolve the Maven wrapper script, and determine the application directory.
+ * Also builds and runs the per-task JVM command for the selected {@link SimulationLaunchMode}.
  */
 public abstract class SimulationExecutor {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SimulationExecutor.class);
+
+    /**
+     * System property used to select the {@link SimulationLaunchMode}, for example
+     * {@code -Datscale.executor.launchMode=DIRECT}.  Defaults to {@link SimulationLaunchMode#MAVEN}.
+     */
+    public static final String LAUNCH_MODE_PROPERTY = "atscale.executor.launchMode";
+    protected static final String GATLING_MAIN_CLASS = "io.gatling.app.Gatling";
+
     static {
         com.atscale.java.utils.Log4jShutdown.installHook();
     }
@@ -80,4 +99,301 @@ public abstract class SimulationExecutor {
         }
     }
 
+    /**
+     * Returns the launch mode used to start each simulation task.
+     * Override this method to hard wire a launch mode for an executor.
+     *
+     * @return the mode read from {@link #LAUNCH_MODE_PROPERTY}, or {@link SimulationLaunchMode#MAVEN} when not set
+     */
+    protected SimulationLaunchMode getLaunchMode() {
+        String mode = System.getProperty(LAUNCH_MODE_PROPERTY);
+        if (StringUtils.isBlank(mode)) {
+            return SimulationLaunchMode.MAVEN;
+        }
+        try {
+            return SimulationLaunchMode.valueOf(mode.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException(String.format("Unsupported value for %s: %s", LAUNCH_MODE_PROPERTY, mode), e);
+        }
+    }
+
+    /**
+     * Returns the JVM options applied to the Gatling JVM when running in {@link SimulationLaunchMode#DIRECT} mode:
+     * the task's heap sizes, garbage collector flags and additional JVM flags.
+     *
+     * @param task the task to run
+     * @return the list of JVM options
+     */
+    protected <T> List<String> getDirectJvmArgs(MavenTaskDto<T> task) {
+        List<String> jvmArgs = new ArrayList<>();
+        jvmArgs.add("-Xms" + task.getInitialHeapSize());
+        jvmArgs.add("-Xmx" + task.getMaxHeapSize());
+        jvmArgs.addAll(task.getJvmTuningFlags(getTaskJavaVersion(task)));
+        return jvmArgs;
+    }
+
+    /**
+     * Writes the garbage collector and additional JVM flags of a task to a java launcher argument file.
+     * In {@link SimulationLaunchMode#MAVEN} mode the file is passed as {@code @<file>} through the
+     * {@code gatling.jvm.options} property the gatling-maven-plugin jvmArgs interpolate, so only the forked Gatling
+     * JVM reads the flags and the Maven JVM does not bind the ports or agents they may configure.
+     *
+     * @param flags the JVM flags, one argument each
+     * @return the argument file, deleted when this JVM exits
+     */
+    protected Path writeJvmArgumentFile(List<String> flags) {
+        try {
+            Path file = Files.createTempFile("gatling-jvm-", ".args");
+            file.toFile().deleteOnExit();
+            List<String> lines = new ArrayList<>(flags.size());
+            for (String flag : flags) {
+                lines.add(quoteArgument(flag));
+            }
+            Files.write(file, lines, StandardCharsets.UTF_8);
+            return file;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write the JVM argument file of the task", e);
+        }
+    }
+
+    /** Quotes an argument file argument that holds whitespace, quotes or backslashes, which the launcher would split or unescape. */
+    private static String quoteArgument(String argument) {
+        if (!argument.matches(".*[\\s\"'\\\\].*")) {
+            return argument;
+        }
+        return "\"" + argument.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    /**
+     * Resolves the feature version of the JDK that runs the task.  A version pinned on the task wins.
+     * {@link SimulationLaunchMode#DIRECT} mode launches the JDK of this JVM.  {@link SimulationLaunchMode#MAVEN} mode
+     * launches the JDK that mvnw runs on, the one in JAVA_HOME, and falls back to the JDK of this JVM when JAVA_HOME is
+     * not set or has no release file.
+     *
+     * @param task the task to run
+     * @return the feature version, for example 21
+     */
+    protected <T> int getTaskJavaVersion(MavenTaskDto<T> task) {
+        if (task.getJavaVersion() != null) {
+            return task.getJavaVersion();
+        }
+        int runningVersion = Runtime.version().feature();
+        if (getLaunchMode() == SimulationLaunchMode.DIRECT) {
+            return runningVersion;
+        }
+        String javaHome = System.getenv("JAVA_HOME");
+        Integer version = StringUtils.isBlank(javaHome) ? null : readJavaFeatureVersion(Paths.get(javaHome));
+        if (version == null) {
+            LOGGER.info("Could not read the JDK version from JAVA_HOME {}.  Assuming mvnw runs JDK {}, set javaVersion on the task to override.", javaHome, runningVersion);
+            return runningVersion;
+        }
+        return version;
+    }
+
+    /**
+     * Reads the feature version from the JAVA_VERSION entry of the release file of a JDK, for example
+     * {@code JAVA_VERSION="21.0.1"} or {@code JAVA_VERSION="1.8.0_402"}.
+     *
+     * @param javaHome the JDK directory
+     * @return the feature version, or null when the release file is missing or unreadable
+     */
+    static Integer readJavaFeatureVersion(Path javaHome) {
+        Path release = javaHome.resolve("release");
+        if (!Files.isRegularFile(release)) {
+            return null;
+        }
+        try {
+            for (String line : Files.readAllLines(release, StandardCharsets.UTF_8)) {
+                if (line.startsWith("JAVA_VERSION=")) {
+                    String[] parts = line.substring("JAVA_VERSION=".length()).replace("\"", "").trim().split("[._+-]");
+                    int feature = Integer.parseInt(parts[0]);
+                    return feature == 1 && parts.length > 1 ? Integer.parseInt(parts[1]) : feature;
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            LOGGER.warn("Failed to read the JDK version from {}: {}", release, e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Resolves the java executable of the running JVM.
+     *
+     * @return the absolute path to the java executable
+     */
+    protected String getJavaExecutable() {
+        String osName = System.getProperty("os.name").toLowerCase();
+        String javaBin = osName.contains("win") ? "java.exe" : "java";
+        return Paths.get(System.getProperty("java.home"), "bin", javaBin).toString();
+    }
+
+    /**
+     * Builds the classpath used in {@link SimulationLaunchMode#DIRECT} mode from the compiled classes and the
+     * runtime dependencies that the maven-dependency-plugin copies to {@code target/dependency} during compile.
+     *
+     * @param projectRoot the application directory
+     * @return the classpath string
+     * @throws RuntimeException if the project has not been compiled
+     */
+    protected String getGatlingClasspath(String projectRoot) {
+        Path classes = Paths.get(projectRoot, "target", "classes");
+        Path dependencies = Paths.get(projectRoot, "target", "dependency");
+        if (! classes.toFile().isDirectory() || ! dependencies.toFile().isDirectory()) {
+            throw new RuntimeException(String.format("Launch mode %s requires a compiled project.  Run ./mvnw compile so that %s and %s exist.",
+                    SimulationLaunchMode.DIRECT, classes, dependencies));
+        }
+        return classes + File.pathSeparator + dependencies.resolve("*");
+    }
+
+    /**
+     * Builds the system properties passed to the JVM that runs the task.
+     *
+     * @param task the task to run
+     * @return the list of {@code -Dkey=value} arguments
+     */
+    protected <T> List<String> buildTaskSystemProperties(MavenTaskDto<T> task) {
+        String simClass = String.format("-D%s=%s", MavenTaskDto.GATLING_SIMULATION_CLASS, task.getSimulationClass());
+        String runDesc = String.format("-D%s=%s", MavenTaskDto.GATLING_RUN_DESCRIPTION, task.getRunDescription());
+        String catalog = String.format("-D%s=%s", MavenTaskDto.ATSCALE_CATALOG, task.getCatalogBase64());
+        String model = String.format("-D%s=%s", MavenTaskDto.ATSCALE_MODEL, task.getModelBase64());
+        String runId = String.format("-D%s=%s", MavenTaskDto.ATSCALE_RUN_ID, task.getRunIdBase64());
+        String logFileName = String.format("-D%s=%s", MavenTaskDto.ATSCALE_LOG_FILE_NAME, task.getRunLogFileName());
+        String logAppend = String.format("-D%s=%s", MavenTaskDto.GATLING_RUN_LOGAPPEND, task.isRunLogAppend());
+        String injectionSteps = String.format("-D%s=%s", MavenTaskDto.GATLING_INJECTION_STEPS, task.getInjectionStepsAsBase64());
+        String ingestFile = String.format("-D%s=%s", MavenTaskDto.ATSCALE_QUERY_INGESTION_FILE, task.getIngestionFileNameBase64());
+        String ingestFileHasHeader = String.format("-D%s=%s", MavenTaskDto.ATSCALE_QUERY_INGESTION_FILE_HAS_HEADER, task.getIngestionFileHasHeader());
+        String additionalProperties = String.format("-D%s=%s", MavenTaskDto.ADDITIONAL_PROPERTIES, task.getAdditionalPropertiesBase64());
+        String alternatePropertiesFileName = task.getAlternatePropertiesFileName();
+
+        LOGGER.debug("SimEx Using simulation class: {}", simClass);
+        LOGGER.debug("SimEx Using run description: {}", runDesc);
+        LOGGER.debug("SimEx Using catalog: {}", catalog);
+        LOGGER.debug("SimEx Using model: {}", model);
+        LOGGER.debug("SimEx Using run id: {}", runId);
+        LOGGER.debug("SimEx Using log file name: {}", logFileName);
+        LOGGER.debug("SimEx Logging as append: {}", logAppend);
+        LOGGER.debug("SimEx Using injection steps: {}", injectionSteps);
+        LOGGER.debug("SimEx Using ingestion file: {}", ingestFile);
+        LOGGER.debug("SimEx Ingestion file has header: {}", ingestFileHasHeader);
+        LOGGER.debug("SimEx Additional properties: {}", additionalProperties);
+        LOGGER.debug("SimEx Using alternate properties file name: {}", alternatePropertiesFileName);
+
+        List<String> properties = new ArrayList<>();
+        properties.add(simClass);
+        properties.add(runDesc);
+        properties.add(catalog);
+        properties.add(model);
+        properties.add(runId);
+        properties.add(logFileName);
+        properties.add(logAppend);
+        properties.add(injectionSteps);
+        properties.add(ingestFile);
+        properties.add(ingestFileHasHeader);
+        properties.add(additionalProperties);
+        if(StringUtils.isNotEmpty(alternatePropertiesFileName)){
+            properties.add(String.format("-D%s=%s", "systems.properties.file", alternatePropertiesFileName));
+        }
+        return properties;
+    }
+
+    /**
+     * Builds the command line that runs the task in a separate JVM for the current {@link SimulationLaunchMode}.
+     *
+     * @param task the task to run
+     * @param projectRoot the application directory
+     * @return the command and its arguments
+     */
+    protected <T> List<String> buildTaskCommand(MavenTaskDto<T> task, String projectRoot) {
+        List<String> command = new ArrayList<>();
+        SimulationLaunchMode launchMode = getLaunchMode();
+        if (launchMode == SimulationLaunchMode.DIRECT) {
+            command.add(getJavaExecutable());
+            command.addAll(getDirectJvmArgs(task));
+            command.addAll(buildTaskSystemProperties(task));
+            command.add("-cp");
+            command.add(getGatlingClasspath(projectRoot));
+            command.add(GATLING_MAIN_CLASS);
+            command.add("-s");
+            command.add(task.getSimulationClass());
+            if (StringUtils.isNotEmpty(task.getRunDescription())) {
+                command.add("-rd");
+                command.add(task.getRunDescription());
+            }
+            command.add("-rf");
+            command.add(Paths.get(projectRoot, "target", "gatling").toString());
+        } else {
+            command.add(getMavenWrapperScript());
+            command.addAll(buildTaskSystemProperties(task));
+            // Heap sizes and the argument file of the other flags are interpolated into the gatling-maven-plugin jvmArgs
+            command.add(String.format("-D%s=%s", MavenTaskDto.GATLING_JVM_INITIAL_HEAP, task.getInitialHeapSize()));
+            command.add(String.format("-D%s=%s", MavenTaskDto.GATLING_JVM_MAX_HEAP, task.getMaxHeapSize()));
+            List<String> flags = task.getJvmTuningFlags(getTaskJavaVersion(task));
+            if (!flags.isEmpty()) {
+                command.add(String.format("-D%s=@%s", MavenTaskDto.GATLING_JVM_OPTIONS, writeJvmArgumentFile(flags)));
+            }
+            // Add the Maven goal (e.g., gatling:test)
+            command.add(task.getMavenCommand());
+        }
+        return command;
+    }
+
+    /**
+     * Runs the task in a separate JVM process and waits for it to complete.
+     * Each task runs in its own process so that passing params via -D system properties is safe and isolated per process.
+     *
+     * @param task the task to run
+     * @param projectRoot the application directory
+     * @return the exit code of the process
+     * @throws RuntimeException if the process cannot be started or the wait is interrupted
+     */
+    protected <T> int runTask(MavenTaskDto<T> task, String projectRoot) {
+        String osName = System.getProperty("os.name").toLowerCase();
+        LOGGER.info("OS is {}", osName);
+        LOGGER.info("Running task: {}", task.getTaskName());
+        LOGGER.info("Launch Mode: {}", getLaunchMode());
+        LOGGER.info("Maven Command: {}", task.getMavenCommand());
+        LOGGER.info("Simulation Class: {}", task.getSimulationClass());
+        LOGGER.info("Run Description: {}", task.getRunDescription());
+        LOGGER.info("Heap: -Xms{} -Xmx{} Garbage Collector: {} JVM Args: {}", task.getInitialHeapSize(), task.getMaxHeapSize(), task.getGarbageCollector(), task.getJvmArgs());
+
+        try {
+            List<String> command = buildTaskCommand(task, projectRoot);
+            ProcessBuilder processBuilder = new ProcessBuilder(command);
+            // Set working directory to project root where mvnw(.cmd), target and run_logs exist
+            processBuilder.directory(new File(projectRoot));
+            processBuilder.inheritIO(); // This will print output to console
+            processBuilder.redirectErrorStream(true);
+
+            LOGGER.info("Starting the test suite on a separate JVM.  Using command args: {}", command);
+            Process process = processBuilder.start();
+            return process.waitFor(); // Wait for the process to complete
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to run task: " + task.getTaskName(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Failed to run task: " + task.getTaskName(), e);
+        }
+    }
+
+    /**
+     * Because of the way logging initializes early it produces some empty log files.
+     * Deletes all zero-byte files in the run_logs directory.
+     */
+    protected void deleteEmptyRunLogs() {
+        String runLogPath = Paths.get(getApplicationDirectory(), "run_logs").toString();
+        LOGGER.info("Run Log Path: {}",  runLogPath);
+
+        File runLogsDir = new File(runLogPath);
+        if (runLogsDir.exists() && runLogsDir.isDirectory()) {
+            File[] files = runLogsDir.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    if (file.isFile() && file.length() == 0) {
+                        //noinspection ResultOfMethodCallIgnored
+                        file.delete();
+                    }
+                }
+            }
+        }
+    }
 }
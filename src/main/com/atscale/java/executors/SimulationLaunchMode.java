@@ -0,0 +1,16 @@
+package com.atscale.java.executors;
+
+/**
+ * Controls how an executor starts the JVM that runs each Gatling simulation task.
+ * <ul>
+ *   <li>{@link #MAVEN} - runs {@code ./mvnw gatling:test} per task. Every task pays for Maven startup,
+ *   dependency resolution and compilation checks before the simulation starts.</li>
+ *   <li>{@link #DIRECT} - runs {@code io.gatling.app.Gatling} in a fresh JVM on the classpath that the
+ *   build already compiled to {@code target/classes} and {@code target/dependency}. Each task still gets
+ *   its own process, so system properties, log file names and custom properties stay isolated.</li>
+ * </ul>
+ */
+public enum SimulationLaunchMode {
+    MAVEN,
+    DIRECT
+}
@@ -0,0 +1,305 @@
+package com.atscale.java.injectionsteps;
+
+import io.gatling.javaapi.core.ChainBuilder;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static io.gatling.javaapi.core.CoreDsl.asLongAs;
+import static io.gatling.javaapi.core.CoreDsl.exec;
+import static io.gatling.javaapi.core.CoreDsl.pause;
+
+/**
+ * Runs the search of an {@link AdaptiveConcurrentUsersClosedInjectionStep}.  Every virtual user waits at the start of
+ * the scenario until it is admitted, and at most the current level of users is admitted at a time.  At the end of each
+ * level the throughput and p95 latency of the queries that started in its second half decide whether the next level
+ * adds users, backs off or holds.  The scenarios {@link #record} every query as it completes, so a level is scored on
+ * its own queries only: queries that started under the previous level, or that complete after the level was scored,
+ * are left out.
+ * <p>
+ * The search starts when the first user is admitted, so warm-up queries and protocol setup are not measured.
+ */
+public final class AdaptiveConcurrency {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AdaptiveConcurrency.class);
+    private static final Duration ADMISSION_POLL = Duration.ofMillis(100);
+    private static final long NOT_MEASURING = Long.MAX_VALUE;
+    private static volatile AdaptiveConcurrency current;
+
+    private final AdaptiveConcurrentUsersClosedInjectionStep step;
+    private final AtomicInteger admitted = new AtomicInteger();
+    private final Recorder levelLatency = new Recorder(3);
+    private final LongAdder levelFailed = new LongAdder();
+    private volatile long measuredFromNanos = NOT_MEASURING;
+    private volatile int limit;
+    private volatile boolean started;
+    private ScheduledExecutorService scheduler;
+    private boolean searching = true;
+    private int ceiling = Integer.MAX_VALUE;
+    private double previousThroughput;
+    private int sustainableUsers;
+    private double sustainableThroughput;
+    private long sustainableP95Micros;
+
+    AdaptiveConcurrency(AdaptiveConcurrentUsersClosedInjectionStep step) {
+        this.step = step;
+        this.limit = Math.min(step.getInitialUsers(), step.getMaxUsers());
+    }
+
+    /**
+     * Prepares the search when the steps hold an adaptive step.  Call it before the scenario is built, so the scenario
+     * gates its users.
+     *
+     * @throws IllegalArgumentException when the adaptive step is not the only step or its settings are invalid
+     */
+    public static void install(List<ClosedStep> steps) {
+        AdaptiveConcurrentUsersClosedInjectionStep adaptive = null;
+        for (ClosedStep step : steps) {
+            if (step instanceof AdaptiveConcurrentUsersClosedInjectionStep) {
+                adaptive = (AdaptiveConcurrentUsersClosedInjectionStep) step;
+            }
+        }
+        if (adaptive == null) {
+            return;
+        }
+        if (steps.size() != 1) {
+            LOGGER.error("AdaptiveConcurrentUsersClosedInjectionStep must be the only injection step, found {} steps.", steps.size());
+            throw new IllegalArgumentException("AdaptiveConcurrentUsersClosedInjectionStep must be the only injection step.");
+        }
+        validate(adaptive);
+        current = new AdaptiveConcurrency(adaptive);
+        LOGGER.info("Searching for the maximum sustainable concurrency from {} to {} users in steps of {}, with a p95 target of {} ms and a throughput gain of at least {}% per level of {} minutes",
+                adaptive.getInitialUsers(), adaptive.getMaxUsers(), adaptive.getAdditionalUsers(), adaptive.getTargetP95Millis(),
+                adaptive.getMinThroughputGainPercent(), adaptive.getLevelDurationMinutes());
+    }
+
+    /** @return the chains behind the admission gate of the search, or the chains as they are when there is no search */
+    public static List<ChainBuilder> gate(List<ChainBuilder> chains) {
+        AdaptiveConcurrency controller = current;
+        if (controller == null) {
+            return chains;
+        }
+        List<ChainBuilder> gated = new ArrayList<>(chains.size() + 2);
+        gated.add(asLongAs(session -> !controller.tryAdmit()).on(pause(ADMISSION_POLL)));
+        gated.addAll(chains);
+        gated.add(exec(session -> {
+            controller.release();
+            return session;
+        }));
+        return gated;
+    }
+
+    /**
+     * Records a completed query for the level it ran in.  Wait-free, so the virtual user that ran the query calls it.
+     * Does nothing when there is no search.
+     */
+    public static void record(boolean isSuccess, long startNanos, long endNanos) {
+        AdaptiveConcurrency controller = current;
+        if (controller != null) {
+            controller.recordQuery(isSuccess, startNanos, endNanos);
+        }
+    }
+
+    /** @return the running search, or null when there is none */
+    static AdaptiveConcurrency installed() {
+        return current;
+    }
+
+    /** Stops the search and reports the maximum sustainable concurrency it found. */
+    public static void stop() {
+        AdaptiveConcurrency controller = current;
+        current = null;
+        if (controller != null) {
+            controller.finish();
+        }
+    }
+
+    /** @return the largest level that met the targets, 0 until one did */
+    synchronized int getMaxSustainableUsers() {
+        return sustainableUsers;
+    }
+
+    int getLimit() {
+        return limit;
+    }
+
+    boolean tryAdmit() {
+        if (!started) {
+            startSearch();
+        }
+        while (true) {
+            int running = admitted.get();
+            if (running >= limit) {
+                return false;
+            }
+            if (admitted.compareAndSet(running, running + 1)) {
+                return true;
+            }
+        }
+    }
+
+    void release() {
+        admitted.decrementAndGet();
+    }
+
+    void recordQuery(boolean isSuccess, long startNanos, long endNanos) {
+        // Queries that started before the measured part of the level ran partly under the previous level
+        if (startNanos - measuredFromNanos < 0) {
+            return;
+        }
+        if (isSuccess) {
+            levelLatency.recordValue(Math.max(0, (endNanos - startNanos) / 1_000));
+        } else {
+            levelFailed.increment();
+        }
+    }
+
+    /** Starts measuring the current level, once its users have settled. */
+    synchronized void beginMeasurement(long nowNanos) {
+        // Not measuring until now, so only queries recorded just before the previous level was scored are cleared
+        levelLatency.reset();
+        levelFailed.reset();
+        measuredFromNanos = nowNanos;
+    }
+
+    /**
+     * Scores the current level on the queries that started since {@link #beginMeasurement} and have completed.
+     *
+     * @return whether the search goes on
+     */
+    synchronized boolean scoreLevel(long nowNanos) {
+        long from = measuredFromNanos;
+        measuredFromNanos = NOT_MEASURING;
+        if (from == NOT_MEASURING) {
+            return searching;
+        }
+        Histogram latency = levelLatency.getIntervalHistogram();
+        long failed = levelFailed.sumThenReset();
+        long completed = latency.getTotalCount() + failed;
+        double seconds = Math.max(1, nowNanos - from) / 1e9;
+        return evaluate(completed, completed / seconds, latency.getValueAtPercentile(95));
+    }
+
+    /**
+     * Decides the next level from the measurements of the current one.
+     *
+     * @param completed   the queries completed in the measured part of the level
+     * @param throughput  the queries completed per second in it
+     * @param p95Micros   the p95 latency of its succeeded queries
+     * @return whether the search goes on
+     */
+    synchronized boolean evaluate(long completed, double throughput, long p95Micros) {
+        if (!searching) {
+            return false;
+        }
+        int users = limit;
+        if (completed == 0) {
+            LOGGER.info("No queries completed at {} users, holding the level", users);
+            return true;
+        }
+        if (p95Micros > step.getTargetP95Millis() * 1_000) {
+            ceiling = Math.min(ceiling, users);
+            if (sustainableUsers > 0) {
+                LOGGER.info("p95 of {} ms at {} users is over the target of {} ms, backing off to {} users",
+                        p95Micros / 1_000, users, step.getTargetP95Millis(), sustainableUsers);
+                limit = sustainableUsers;
+                return finishSearch();
+            }
+            if (users <= 1) {
+                LOGGER.warn("p95 of {} ms at 1 user is over the target of {} ms, no level is sustainable", p95Micros / 1_000, step.getTargetP95Millis());
+                return finishSearch();
+            }
+            limit = Math.max(1, users - step.getAdditionalUsers());
+            LOGGER.info("p95 of {} ms at {} users is over the target of {} ms, backing off to {} users",
+                    p95Micros / 1_000, users, step.getTargetP95Millis(), limit);
+            return true;
+        }
+        if (previousThroughput > 0 && throughput < previousThroughput * (1 + step.getMinThroughputGainPercent() / 100)) {
+            LOGGER.info("Throughput of {} queries per second at {} users gained less than {}% over {} users, backing off",
+                    String.format("%.2f", throughput), users, step.getMinThroughputGainPercent(), sustainableUsers);
+            limit = sustainableUsers;
+            return finishSearch();
+        }
+        sustainableUsers = users;
+        sustainableThroughput = throughput;
+        sustainableP95Micros = p95Micros;
+        previousThroughput = throughput;
+        int next = Math.min(Math.min(step.getMaxUsers(), ceiling - 1), users + step.getAdditionalUsers());
+        if (next <= users) {
+            LOGGER.info("{} users met the targets and no larger level is left to try", users);
+            return finishSearch();
+        }
+        LOGGER.info("{} users met the targets with {} queries per second and a p95 of {} ms, raising to {} users",
+                users, String.format("%.2f", throughput), p95Micros / 1_000, next);
+        limit = next;
+        return true;
+    }
+
+    private static void validate(AdaptiveConcurrentUsersClosedInjectionStep step) {
+        if (step.getInitialUsers() < 1 || step.getAdditionalUsers() < 1 || step.getMaxUsers() < step.getInitialUsers()
+                || step.getLevelDurationMinutes() < 1 || step.getDurationMinutes() < step.getLevelDurationMinutes()) {
+            LOGGER.error("Invalid AdaptiveConcurrentUsersClosedInjectionStep: initialUsers and additionalUsers must be at least 1, maxUsers at least initialUsers, levelDurationMinutes at least 1 and durationMinutes at least levelDurationMinutes.");
+            throw new IllegalArgumentException("Invalid AdaptiveConcurrentUsersClosedInjectionStep settings.");
+        }
+    }
+
+    private synchronized void startSearch() {
+        if (started) {
+            return;
+        }
+        long levelNanos = TimeUnit.MINUTES.toNanos(step.getLevelDurationMinutes());
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "adaptive-concurrency");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // The first half of a level lets the new users settle, its second half is measured
+        scheduler.scheduleAtFixedRate(() -> beginMeasurement(System.nanoTime()), levelNanos / 2, levelNanos, TimeUnit.NANOSECONDS);
+        scheduler.scheduleAtFixedRate(() -> {
+            try {
+                scoreLevel(System.nanoTime());
+            } catch (RuntimeException e) {
+                LOGGER.error("Failed to evaluate the adaptive concurrency level", e);
+            }
+        }, levelNanos, levelNanos, TimeUnit.NANOSECONDS);
+        started = true;
+    }
+
+    private boolean finishSearch() {
+        searching = false;
+        report();
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+        return false;
+    }
+
+    synchronized void finish() {
+        if (searching) {
+            LOGGER.info("The run ended while still searching at {} users", limit);
+            searching = false;
+            report();
+        }
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private void report() {
+        if (sustainableUsers == 0) {
+            LOGGER.warn("No sustainable concurrency found within a p95 of {} ms", step.getTargetP95Millis());
+            return;
+        }
+        LOGGER.info("Maximum sustainable concurrency: {} users at {} queries per second with a p95 of {} ms",
+                sustainableUsers, String.format("%.2f", sustainableThroughput), sustainableP95Micros / 1_000);
+    }
+}
@@ -0,0 +1,94 @@
+package com.atscale.java.injectionsteps;
+
+import io.gatling.javaapi.core.ClosedInjectionStep;
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+
+import static io.gatling.javaapi.core.CoreDsl.constantConcurrentUsers;
+import java.time.Duration;
+
+/**
+ * Searches for the largest number of concurrent users the engine sustains.  The step starts with initialUsers and
+ * adds additionalUsers at the end of every level while throughput still rises by minThroughputGainPercent and the p95
+ * latency stays under targetP95Millis.  Once either stops holding, the users go back to the last sustainable level
+ * for the rest of the run, which is reported as the maximum sustainable concurrency.
+ * <p>
+ * Gatling injection profiles are fixed before the run starts, so the step injects maxUsers and
+ * {@link AdaptiveConcurrency} admits only as many of them into the queries as the current level allows.
+ * It must be the only step of a simulation.
+ */
+@SuppressWarnings("unused")
+public class AdaptiveConcurrentUsersClosedInjectionStep implements ClosedStep {
+    private int initialUsers;
+    private int additionalUsers;
+    private int maxUsers;
+    private long levelDurationMinutes;
+    private long durationMinutes;
+    private long targetP95Millis;
+    private double minThroughputGainPercent;
+
+    @SuppressWarnings("unused")
+    public AdaptiveConcurrentUsersClosedInjectionStep() {
+        this.initialUsers = 1;
+        this.additionalUsers = 1;
+        this.maxUsers = 10;
+        this.levelDurationMinutes = 1;
+        this.durationMinutes = 15;
+        this.targetP95Millis = 1000;
+        this.minThroughputGainPercent = 5;
+    }
+
+    public AdaptiveConcurrentUsersClosedInjectionStep(int initialUsers, int additionalUsers, int maxUsers, long levelDurationMinutes, long durationMinutes, long targetP95Millis, double minThroughputGainPercent) {
+        this.initialUsers = initialUsers;
+        this.additionalUsers = additionalUsers;
+        this.maxUsers = maxUsers;
+        this.levelDurationMinutes = levelDurationMinutes;
+        this.durationMinutes = durationMinutes;
+        this.targetP95Millis = targetP95Millis;
+        this.minThroughputGainPercent = minThroughputGainPercent;
+    }
+
+    public int getInitialUsers() { return initialUsers; }
+    public void setInitialUsers(int initialUsers) { this.initialUsers = initialUsers; }
+
+    public int getAdditionalUsers() { return additionalUsers; }
+    public void setAdditionalUsers(int additionalUsers) { this.additionalUsers = additionalUsers; }
+
+    public int getMaxUsers() { return maxUsers; }
+    public void setMaxUsers(int maxUsers) { this.maxUsers = maxUsers; }
+
+    public long getLevelDurationMinutes() { return levelDurationMinutes; }
+    public void setLevelDurationMinutes(long levelDurationMinutes) { this.levelDurationMinutes = levelDurationMinutes; }
+
+    public long getDurationMinutes() { return durationMinutes; }
+    public void setDurationMinutes(long durationMinutes) { this.durationMinutes = durationMinutes; }
+
+    public long getTargetP95Millis() { return targetP95Millis; }
+    public void setTargetP95Millis(long targetP95Millis) { this.targetP95Millis = targetP95Millis; }
+
+    public double getMinThroughputGainPercent() { return minThroughputGainPercent; }
+    public void setMinThroughputGainPercent(double minThroughputGainPercent) { this.minThroughputGainPercent = minThroughputGainPercent; }
+
+    @Override
+    public int maxConcurrentUsers() {
+        return maxUsers;
+    }
+
+    @Override
+    public ClosedInjectionStep toGatlingStep() {
+        // All users are injected up front, AdaptiveConcurrency decides how many of them run queries
+        return constantConcurrentUsers(maxUsers).during(Duration.ofMinutes(durationMinutes));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        return EqualsBuilder.reflectionEquals(this, o);
+    }
+
+    @Override
+    public int hashCode() {
+        return HashCodeBuilder.reflectionHashCode(this);
+    }
+}
@@ -19,6 +19,11 @@ public class AtOnceUsersOpenInjectionStep implements OpenStep {
     public int getUsers() { return users; }
     public void setUsers(int users) { this.users = users; }
 
+    @Override
+    public double[] arrivalsPerSecond() {
+        return new double[] {users};
+    }
+
     @Override
     public io.gatling.javaapi.core.OpenInjectionStep toGatlingStep() {
         return io.gatling.javaapi.core.OpenInjectionStep.atOnceUsers(users);
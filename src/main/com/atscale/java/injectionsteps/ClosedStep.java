@@ -2,6 +2,7 @@ package com.atscale.java.injectionsteps;
 
 import io.gatling.javaapi.core.ClosedInjectionStep;
 import java.io.Serializable;
+import java.util.List;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
 import com.fasterxml.jackson.annotation.JsonSubTypes;
 
@@ -14,12 +15,27 @@ import com.fasterxml.jackson.annotation.JsonSubTypes;
 @JsonSubTypes({
         @JsonSubTypes.Type(value = RampConcurrentUsersClosedInjectionStep.class, name = "RampConcurrentUsersClosedInjectionStep"),
         @JsonSubTypes.Type(value = ConstantConcurrentUsersClosedInjectionStep.class, name = "ConstantConcurrentUsersClosedInjectionStep"),
-        @JsonSubTypes.Type(value = IncrementConcurrentUsersClosedInjectionStep.class, name = "IncrementConcurrentUsersClosedInjectionStep")
+        @JsonSubTypes.Type(value = IncrementConcurrentUsersClosedInjectionStep.class, name = "IncrementConcurrentUsersClosedInjectionStep"),
+        @JsonSubTypes.Type(value = AdaptiveConcurrentUsersClosedInjectionStep.class, name = "AdaptiveConcurrentUsersClosedInjectionStep")
 })
 
 public interface ClosedStep extends Serializable {
     ClosedInjectionStep toGatlingStep();
 
+    /** @return the largest number of concurrent users this step runs */
+    int maxConcurrentUsers();
+
+    /** @return the largest number of concurrent users any of the steps runs, since closed steps run one after the other */
+    static int maxConcurrentUsers(List<ClosedStep> steps) {
+        int max = 0;
+        for (ClosedStep step : steps) {
+            if (step != null) {
+                max = Math.max(max, step.maxConcurrentUsers());
+            }
+        }
+        return max;
+    }
+
     default String getType() {
         return this.getClass().getSimpleName();
     }
@@ -29,6 +29,11 @@ public class ConstantConcurrentUsersClosedInjectionStep implements ClosedStep {
     public long getDurationMinutes() { return durationMinutes; }
     public void setDurationMinutes(long durationMinutes) { this.durationMinutes = durationMinutes; }
 
+    @Override
+    public int maxConcurrentUsers() {
+        return users;
+    }
+
     @Override
     public ClosedInjectionStep toGatlingStep() {
         return constantConcurrentUsers(users).during(Duration.ofMinutes(durationMinutes));
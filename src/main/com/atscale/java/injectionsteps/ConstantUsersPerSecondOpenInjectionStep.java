@@ -4,6 +4,8 @@ import io.gatling.javaapi.core.OpenInjectionStep;
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
 
+import java.util.Arrays;
+
 import static io.gatling.javaapi.core.CoreDsl.constantUsersPerSec;
 
 @SuppressWarnings("unused")
@@ -37,6 +39,13 @@ public class ConstantUsersPerSecondOpenInjectionStep implements OpenStep{
         this.durationMinutes = durationMinutes;
     }
 
+    @Override
+    public double[] arrivalsPerSecond() {
+        double[] arrivals = new double[(int) Math.min(Integer.MAX_VALUE, durationMinutes * 60)];
+        Arrays.fill(arrivals, users);
+        return arrivals;
+    }
+
     @Override
     public OpenInjectionStep toGatlingStep() {
         return constantUsersPerSec(users).during(java.time.Duration.ofMinutes(durationMinutes));
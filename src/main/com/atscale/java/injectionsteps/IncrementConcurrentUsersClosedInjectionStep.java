@@ -47,6 +47,12 @@ public class IncrementConcurrentUsersClosedInjectionStep implements ClosedStep {
     public long getRampDurationMinutes() { return rampDurationMinutes; }
     public void setRampDurationMinutes(long rampDurationMinutes) { this.rampDurationMinutes = rampDurationMinutes; }
 
+    @Override
+    public int maxConcurrentUsers() {
+        // Upper bound: none of the levels is more than times increments above the initial users
+        return initialUsers + additionalUsers * times;
+    }
+
     @Override
     public ClosedInjectionStep toGatlingStep() {
         return incrementConcurrentUsers(additionalUsers)
@@ -27,6 +27,11 @@ public class NothingForOpenInjectionStep implements OpenStep {
         this.durationMinutes = durationMinutes;
     }
 
+    @Override
+    public double[] arrivalsPerSecond() {
+        return new double[(int) Math.min(Integer.MAX_VALUE, durationMinutes * 60)];
+    }
+
     @Override
     public OpenInjectionStep toGatlingStep() {
         return nothingFor(java.time.Duration.ofMinutes(durationMinutes));
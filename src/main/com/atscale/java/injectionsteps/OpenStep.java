@@ -1,6 +1,8 @@
 package com.atscale.java.injectionsteps;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
 import com.fasterxml.jackson.annotation.JsonSubTypes;
 
@@ -21,6 +23,47 @@ import com.fasterxml.jackson.annotation.JsonSubTypes;
 public interface OpenStep extends Serializable {
     io.gatling.javaapi.core.OpenInjectionStep toGatlingStep();
 
+    /**
+     * @return the users this step injects in each second it lasts, which place it on the timeline of the steps.
+     * A step that injects its users at once lasts one second.
+     */
+    double[] arrivalsPerSecond();
+
+    /**
+     * Estimates the largest number of users of the steps that run at the same time.  Each user is assumed to run for
+     * userSeconds after it is injected, so the estimate is the largest number of users injected within any window of
+     * that many seconds, which also counts users of an earlier step still running during a later one.
+     *
+     * @param userSeconds how long one user is expected to run, or 0 when unknown
+     * @return the estimate, or the number of users the steps inject when userSeconds is 0
+     */
+    static int maxConcurrentUsers(List<OpenStep> steps, double userSeconds) {
+        List<double[]> timeline = new ArrayList<>();
+        int seconds = 0;
+        for (OpenStep step : steps) {
+            if (step != null) {
+                double[] arrivals = step.arrivalsPerSecond();
+                timeline.add(arrivals);
+                seconds += arrivals.length;
+            }
+        }
+        double[] injected = new double[seconds + 1];
+        int second = 0;
+        for (double[] arrivals : timeline) {
+            for (double users : arrivals) {
+                injected[second + 1] = injected[second] + users;
+                second++;
+            }
+        }
+        int window = userSeconds > 0 ? (int) Math.min(Integer.MAX_VALUE, Math.ceil(userSeconds)) : seconds;
+        double max = 0;
+        for (int end = 1; end <= seconds; end++) {
+            max = Math.max(max, injected[end] - injected[Math.max(0, end - window)]);
+        }
+        // Rates that do not divide evenly leave fractions of users in each second
+        return (int) Math.min(Integer.MAX_VALUE, Math.ceil(max - 1e-9));
+    }
+
     default String getType() {
         return this.getClass().getSimpleName();
     }
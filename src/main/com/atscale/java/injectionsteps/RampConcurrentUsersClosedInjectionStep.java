@@ -35,6 +35,11 @@ public class RampConcurrentUsersClosedInjectionStep implements ClosedStep {
     public long getDurationMinutes() { return durationMinutes; }
     public void setDurationMinutes(long durationMinutes) { this.durationMinutes = durationMinutes; }
 
+    @Override
+    public int maxConcurrentUsers() {
+        return Math.max(from, to);
+    }
+
     @Override
     public ClosedInjectionStep toGatlingStep() {
         return rampConcurrentUsers(from).to(to).during(Duration.ofMinutes(durationMinutes));
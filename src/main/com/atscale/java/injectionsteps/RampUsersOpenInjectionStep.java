@@ -4,6 +4,8 @@ import io.gatling.javaapi.core.OpenInjectionStep;
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
 
+import java.util.Arrays;
+
 import static io.gatling.javaapi.core.CoreDsl.rampUsers;
 import java.time.Duration;
 
@@ -29,6 +31,16 @@ public class RampUsersOpenInjectionStep implements OpenStep {
     public long getDurationMinutes() { return durationMinutes; }
     public void setDurationMinutes(long durationMinutes) { this.durationMinutes = durationMinutes; }
 
+    @Override
+    public double[] arrivalsPerSecond() {
+        if (durationMinutes <= 0) {
+            return new double[] {users};
+        }
+        double[] arrivals = new double[(int) Math.min(Integer.MAX_VALUE, durationMinutes * 60)];
+        Arrays.fill(arrivals, (double) users / arrivals.length);
+        return arrivals;
+    }
+
     @Override
     public OpenInjectionStep toGatlingStep() {
         return rampUsers(users).during(Duration.ofMinutes(durationMinutes));
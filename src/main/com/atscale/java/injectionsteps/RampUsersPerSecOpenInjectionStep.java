@@ -35,6 +35,15 @@ public class RampUsersPerSecOpenInjectionStep implements OpenStep {
     public long getDurationMinutes() { return durationMinutes; }
     public void setDurationMinutes(long durationMinutes) { this.durationMinutes = durationMinutes; }
 
+    @Override
+    public double[] arrivalsPerSecond() {
+        double[] arrivals = new double[(int) Math.min(Integer.MAX_VALUE, durationMinutes * 60)];
+        for (int i = 0; i < arrivals.length; i++) {
+            arrivals[i] = fromUsers + (toUsers - fromUsers) * (i + 0.5) / arrivals.length;
+        }
+        return arrivals;
+    }
+
     @Override
     public io.gatling.javaapi.core.OpenInjectionStep toGatlingStep() {
         return rampUsersPerSec(fromUsers).to(toUsers).during(Duration.ofMinutes(durationMinutes));
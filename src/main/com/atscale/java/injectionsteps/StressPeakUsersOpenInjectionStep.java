@@ -4,6 +4,8 @@ import io.gatling.javaapi.core.OpenInjectionStep;
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
 
+import java.util.Arrays;
+
 import static io.gatling.javaapi.core.CoreDsl.stressPeakUsers;
 
 @SuppressWarnings("unused")
@@ -38,6 +40,23 @@ public class StressPeakUsersOpenInjectionStep implements OpenStep {
         this.durationMinutes = durationMinutes;
     }
 
+    /**
+     * Gatling injects the users along a smoothed step, so most of them arrive around the middle of the duration.
+     * They are estimated to arrive evenly in its middle third, which is about the peak rate of the smoothed step.
+     */
+    @Override
+    public double[] arrivalsPerSecond() {
+        int seconds = (int) Math.min(Integer.MAX_VALUE, durationMinutes * 60);
+        if (seconds < 3) {
+            return new double[] {users};
+        }
+        double[] arrivals = new double[seconds];
+        int from = seconds / 3;
+        int to = seconds - from;
+        Arrays.fill(arrivals, from, to, (double) users / (to - from));
+        return arrivals;
+    }
+
     @Override
     public OpenInjectionStep toGatlingStep() {
         return stressPeakUsers(users).during(java.time.Duration.ofMinutes(durationMinutes));
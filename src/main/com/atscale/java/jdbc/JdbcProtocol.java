@@ -2,6 +2,7 @@ package com.atscale.java.jdbc;
 
 import com.atscale.java.utils.PropertiesManager;
 import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.util.DriverDataSource;
 import org.galaxio.gatling.javaapi.protocol.JdbcProtocolBuilder;
 import static org.galaxio.gatling.javaapi.JdbcDsl.DB;
 
@@ -21,14 +22,35 @@ public class JdbcProtocol {
      */
 
     public static JdbcProtocolBuilder forDatabase(String model) {
+        return forDatabase(model, null);
+    }
+
+    /**
+     * Creates a JdbcProtocolBuilder for the AtScale JDBC connection whose pool is sampled into the run log.
+     *
+     * @param gatlingRunId the run id written on the sqlPool lines, or null to not sample the pool
+     * @return JdbcProtocolBuilder configured with AtScale JDBC connection details.
+     */
+    public static JdbcProtocolBuilder forDatabase(String model, String gatlingRunId) {
+        return forDatabase(model, gatlingRunId, 0);
+    }
+
+    /**
+     * Creates a JdbcProtocolBuilder for the AtScale JDBC connection with a pool sized for the injection profile.
+     * The pool holds one connection per concurrent user, capped by atscale.&lt;model&gt;.jdbc.maxPoolSize, and all of
+     * them are opened when the pool starts, so the test neither queues for connections nor times connection setup.
+     *
+     * @param gatlingRunId        the run id written on the sqlPool lines, or null to not sample the pool
+     * @param peakConcurrentUsers the largest number of concurrent users of the injection steps, or 0 to use the cap
+     * @return JdbcProtocolBuilder configured with AtScale JDBC connection details.
+     */
+    public static JdbcProtocolBuilder forDatabase(String model, String gatlingRunId, int peakConcurrentUsers) {
         String url = getJdbcUrl(model);
         String userName = PropertiesManager.getAtScaleJdbcUserName(model);
         String password = PropertiesManager.getAtScaleJdbcPassword(model);
-        int maxPool = PropertiesManager.getAtScaleJdbcMaxPoolSize(model);
-        String useAggregates = PropertiesManager.getJdbcUseAggregates();
-        String useLocalCache = PropertiesManager.getJdbcUseLocalCache();
-        String createAggregates = PropertiesManager.getJdbcGenerateAggregates();
-        String initSql = String.format("set use_local_cache = %s; set create_aggregates = %s; set use_aggregates = %s", useLocalCache, createAggregates, useAggregates);
+        int maxPoolCap = PropertiesManager.getAtScaleJdbcMaxPoolSize(model);
+        int maxPool = poolSize(peakConcurrentUsers, maxPoolCap);
+        String initSql = getConnectionInitSql();
 
         LOGGER.debug("Initializing each connection with {}", initSql);
 
@@ -37,13 +59,74 @@ public class JdbcProtocol {
         hikariConfig.setUsername(userName);
         hikariConfig.setPassword(password);
         hikariConfig.setMaximumPoolSize(maxPool);
+        if (peakConcurrentUsers > 0) {
+            LOGGER.info("Sizing the connection pool of model {} to {} connections for {} concurrent users with a cap of {}", model, maxPool, peakConcurrentUsers, maxPoolCap);
+            hikariConfig.setMinimumIdle(maxPool);
+        }
         hikariConfig.setConnectionInitSql(initSql);
         hikariConfig.setConnectionTestQuery("SELECT 1");
+        long poolMetricsIntervalMs = PropertiesManager.getJdbcPoolMetricsIntervalMs();
+        if (gatlingRunId != null) {
+            hikariConfig.setMetricsTrackerFactory(new PoolMetricsSampler(gatlingRunId, model, poolMetricsIntervalMs));
+        }
+        if (PropertiesManager.getJdbcPreparedStatements(model)) {
+            configureStatementCache(hikariConfig, PropertiesManager.getJdbcStatementCacheSize(model));
+        }
+        if (gatlingRunId != null && PropertiesManager.getJdbcPhaseTimings(model)) {
+            configurePhaseTimings(hikariConfig, QueryPhaseTimer.forModel(gatlingRunId, model));
+            LOGGER.info("Timing the execution and fetch of the queries of model {}", model);
+        }
 
         return DB().hikariConfig(hikariConfig);
     }
 
-    private static String getJdbcUrl(String model) {
+    /**
+     * Asks the driver to prepare each query on the server the first time a connection runs it and to keep it in a
+     * per connection statement cache keyed by the query text.  The galaxio plugin prepares and closes a statement
+     * on every execution, so with the cache later executions on the same connection skip parsing and planning.
+     * The data source properties are handed to the driver as connection properties.
+     */
+    static void configureStatementCache(HikariConfig hikariConfig, int cacheSize) {
+        String url = hikariConfig.getJdbcUrl().toLowerCase();
+        if (url.startsWith("jdbc:postgresql:")) {
+            hikariConfig.addDataSourceProperty("prepareThreshold", "1");
+            hikariConfig.addDataSourceProperty("preparedStatementCacheQueries", String.valueOf(cacheSize));
+        } else if (url.startsWith("jdbc:mysql:") || url.startsWith("jdbc:mariadb:")) {
+            hikariConfig.addDataSourceProperty("useServerPrepStmts", "true");
+            hikariConfig.addDataSourceProperty("cachePrepStmts", "true");
+            hikariConfig.addDataSourceProperty("prepStmtCacheSize", String.valueOf(cacheSize));
+        } else {
+            LOGGER.warn("No statement cache settings are known for JDBC URL {}.  Queries are prepared on every execution.", hikariConfig.getJdbcUrl());
+            return;
+        }
+        LOGGER.info("Prepared statement cache of {} queries per connection enabled with {}", cacheSize, hikariConfig.getDataSourceProperties());
+    }
+
+    /**
+     * Makes Hikari open its connections through a data source the timer wraps, instead of its own driver data source.
+     * Call it once the URL, credentials and data source properties are set.
+     */
+    static void configurePhaseTimings(HikariConfig hikariConfig, QueryPhaseTimer timer) {
+        hikariConfig.setDataSource(timer.wrap(new DriverDataSource(hikariConfig.getJdbcUrl(), hikariConfig.getDriverClassName(),
+                hikariConfig.getDataSourceProperties(), hikariConfig.getUsername(), hikariConfig.getPassword())));
+    }
+
+    /** One connection per concurrent user, between 1 and the cap.  Without a known concurrency the cap is used. */
+    static int poolSize(int peakConcurrentUsers, int maxPoolCap) {
+        if (peakConcurrentUsers <= 0) {
+            return maxPoolCap;
+        }
+        return Math.max(1, Math.min(peakConcurrentUsers, maxPoolCap));
+    }
+
+    static String getConnectionInitSql() {
+        String useAggregates = PropertiesManager.getJdbcUseAggregates();
+        String useLocalCache = PropertiesManager.getJdbcUseLocalCache();
+        String createAggregates = PropertiesManager.getJdbcGenerateAggregates();
+        return String.format("set use_local_cache = %s; set create_aggregates = %s; set use_aggregates = %s", useLocalCache, createAggregates, useAggregates);
+    }
+
+    static String getJdbcUrl(String model) {
         String url = PropertiesManager.getAtScaleJdbcConnection(model);
         // Split the URL to encode only the database name for Hive
         if(url.toLowerCase().contains("hive")) {
@@ -0,0 +1,93 @@
+package com.atscale.java.jdbc;
+
+import com.atscale.java.jdbc.cases.NamedQueryActionBuilder;
+import com.atscale.java.utils.PropertiesManager;
+import io.gatling.javaapi.core.PopulationBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.*;
+import java.time.Duration;
+import java.util.Properties;
+
+import static io.gatling.javaapi.core.CoreDsl.*;
+
+/**
+ * Warms up a JDBC simulation before its measured injection steps.  The connection pool is filled to its target size,
+ * so the first virtual users do not pay for connection creation and the connection init SQL, and optionally a number
+ * of queries are run on a separate connection to warm up AtScale.  Neither shows up in the Gatling statistics or in
+ * the sqlLog records.
+ */
+public class JdbcWarmUp {
+    private static final Logger LOGGER = LoggerFactory.getLogger(JdbcWarmUp.class);
+    private static final String WARM_UP_START = "warmUpStart";
+
+    private JdbcWarmUp() {
+        // Prevent instantiation
+    }
+
+    /**
+     * A single user population that waits until the pool of the model holds the connections the injection steps need.
+     * Run the measured population after it with {@link PopulationBuilder#andThen}.
+     */
+    public static PopulationBuilder poolWarmUp(String model, int peakConcurrentUsers) {
+        int connections = JdbcProtocol.poolSize(peakConcurrentUsers, PropertiesManager.getAtScaleJdbcMaxPoolSize(model));
+        long timeoutMs = Duration.ofSeconds(PropertiesManager.getWarmUpTimeoutSeconds()).toMillis();
+        LOGGER.info("Warming up {} JDBC connections for model {} before the measured injection steps", connections, model);
+        return scenario("AtScale JDBC Warm-up")
+                .exec(session -> session.set(WARM_UP_START, System.currentTimeMillis()))
+                .asLongAs(session -> !isPoolReady(model, connections, session.getLong(WARM_UP_START), timeoutMs))
+                .on(pause(Duration.ofMillis(100)))
+                .injectOpen(atOnceUsers(1));
+    }
+
+    private static boolean isPoolReady(String model, int connections, long start, long timeoutMs) {
+        int total = PoolMetricsSampler.getTotalConnections(model);
+        if (total >= connections) {
+            LOGGER.info("Connection pool of model {} holds {} connections after {} ms", model, total, System.currentTimeMillis() - start);
+            return true;
+        }
+        if (System.currentTimeMillis() - start > timeoutMs) {
+            LOGGER.warn("Connection pool of model {} holds {} of {} connections after {} ms.  Starting the measured injection steps.", model, total, connections, timeoutMs);
+            return true;
+        }
+        return false;
+    }
+
+    /** Runs warm-up queries on a connection initialized like the pool connections.  Failures are logged and ignored. */
+    public static void runQueries(String model, NamedQueryActionBuilder[] queries, int count) {
+        Properties props = new Properties();
+        props.setProperty("user", PropertiesManager.getAtScaleJdbcUserName(model));
+        props.setProperty("password", PropertiesManager.getAtScaleJdbcPassword(model));
+        long start = System.currentTimeMillis();
+        try (Connection conn = DriverManager.getConnection(JdbcProtocol.getJdbcUrl(model), props)) {
+            try (Statement st = conn.createStatement()) {
+                st.execute(JdbcProtocol.getConnectionInitSql());
+            }
+            int succeeded = runQueries(conn, queries, count);
+            LOGGER.info("Ran {} of {} warm-up queries for model {} in {} ms", succeeded, count, model, System.currentTimeMillis() - start);
+        } catch (SQLException e) {
+            LOGGER.warn("Unable to run warm-up queries for model {}: {}", model, e.getMessage());
+        }
+    }
+
+    /**
+     * Runs {@code count} queries, cycling through the given ones, and reads every row.
+     * @return the number of queries that succeeded
+     */
+    static int runQueries(Connection conn, NamedQueryActionBuilder[] queries, int count) {
+        int succeeded = 0;
+        for (int i = 0; i < count && queries.length > 0; i++) {
+            NamedQueryActionBuilder query = queries[i % queries.length];
+            try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery(query.inboundQueryText)) {
+                while (rs.next()) {
+                    // Read the whole result like the measured queries do
+                }
+                succeeded++;
+            } catch (SQLException e) {
+                LOGGER.warn("Warm-up query {} with inbound hash {} failed: {}", query.queryName, query.inboundTextAsHash, e.getMessage());
+            }
+        }
+        return succeeded;
+    }
+}
@@ -0,0 +1,166 @@
+package com.atscale.java.jdbc;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Samples the Hikari connection pool of a model while a simulation runs and writes each sample to the SQL run log
+ * as a sqlPool line.  A sample holds the pool sizes at that moment and the connection acquire waits, connection
+ * creations and acquire timeouts since the previous sample.  The sampleMs timestamp lines up with the start and end
+ * of the sqlLog lines, so a latency jump can be told apart as time spent waiting for a pool connection or time
+ * spent in AtScale.  The pool of each model is also registered so the warm up can wait for it to fill.
+ */
+public class PoolMetricsSampler implements MetricsTrackerFactory {
+    private static final Logger SESSION_LOGGER = LoggerFactory.getLogger("SqlLogger");
+    private static final Logger LOGGER = LoggerFactory.getLogger(PoolMetricsSampler.class);
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "jdbc-pool-metrics");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final Map<String, PoolStats> POOLS = new ConcurrentHashMap<>();
+
+    private final String gatlingRunId;
+    private final String model;
+    private final long intervalMs;
+
+    public PoolMetricsSampler(String gatlingRunId, String model, long intervalMs) {
+        this.gatlingRunId = gatlingRunId;
+        this.model = model;
+        this.intervalMs = intervalMs;
+    }
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        Tracker tracker = new Tracker(poolStats);
+        POOLS.put(model, poolStats);
+        if (intervalMs > 0) {
+            tracker.task = SCHEDULER.scheduleAtFixedRate(() -> log(tracker.sample()), intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+            LOGGER.info("Sampling connection pool {} of model {} every {} ms", poolName, model, intervalMs);
+        }
+        return tracker;
+    }
+
+    /** @return the statistics of the open pool of each model */
+    public static Map<String, PoolStats> getPools() {
+        return Collections.unmodifiableMap(POOLS);
+    }
+
+    /** @return the number of open connections in the pool of the model, or -1 before the pool is created */
+    public static int getTotalConnections(String model) {
+        PoolStats poolStats = POOLS.get(model);
+        return poolStats == null ? -1 : poolStats.getTotalConnections();
+    }
+
+    private void log(Sample sample) {
+        SESSION_LOGGER.info("sqlPool gatlingRunId='{}' model='{}' sampleMs={} active={} idle={} pending={} total={} acquireCount={} acquireAvgUs={} acquireMaxUs={} createCount={} createAvgMs={} timeouts={}",
+                gatlingRunId, model, sample.sampleMs, sample.active, sample.idle, sample.pending, sample.total,
+                sample.acquireCount, sample.getAcquireAvgMicros(), sample.acquireMaxNanos / 1_000,
+                sample.createCount, sample.getCreateAvgMillis(), sample.timeouts);
+    }
+
+    /** Accumulates the pool events between two samples.  Hikari calls it on the threads that use the pool. */
+    class Tracker implements IMetricsTracker {
+        private final PoolStats poolStats;
+        private final LongAdder acquireCount = new LongAdder();
+        private final LongAdder acquireNanos = new LongAdder();
+        private final AtomicLong acquireMaxNanos = new AtomicLong();
+        private final LongAdder createCount = new LongAdder();
+        private final LongAdder createMillis = new LongAdder();
+        private final LongAdder timeouts = new LongAdder();
+        private volatile ScheduledFuture<?> task;
+
+        Tracker(PoolStats poolStats) {
+            this.poolStats = poolStats;
+        }
+
+        @Override
+        public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+            acquireCount.increment();
+            acquireNanos.add(elapsedAcquiredNanos);
+            acquireMaxNanos.accumulateAndGet(elapsedAcquiredNanos, Math::max);
+        }
+
+        @Override
+        public void recordConnectionCreatedMillis(long connectionCreatedMillis) {
+            createCount.increment();
+            createMillis.add(connectionCreatedMillis);
+        }
+
+        @Override
+        public void recordConnectionTimeout() {
+            timeouts.increment();
+        }
+
+        /** Takes a sample and starts the next interval. */
+        Sample sample() {
+            return new Sample(System.currentTimeMillis(),
+                    poolStats.getActiveConnections(), poolStats.getIdleConnections(),
+                    poolStats.getPendingThreads(), poolStats.getTotalConnections(),
+                    acquireCount.sumThenReset(), acquireNanos.sumThenReset(), acquireMaxNanos.getAndSet(0),
+                    createCount.sumThenReset(), createMillis.sumThenReset(), timeouts.sumThenReset());
+        }
+
+        /** Logs the events since the last sample when the pool shuts down. */
+        @Override
+        public void close() {
+            POOLS.remove(model, poolStats);
+            ScheduledFuture<?> scheduled = task;
+            if (scheduled != null) {
+                scheduled.cancel(false);
+                log(sample());
+            }
+        }
+    }
+
+    /** The pool state at one moment and the pool events since the previous sample. */
+    static final class Sample {
+        final long sampleMs;
+        final int active;
+        final int idle;
+        final int pending;
+        final int total;
+        final long acquireCount;
+        final long acquireNanos;
+        final long acquireMaxNanos;
+        final long createCount;
+        final long createMillis;
+        final long timeouts;
+
+        Sample(long sampleMs, int active, int idle, int pending, int total, long acquireCount, long acquireNanos,
+               long acquireMaxNanos, long createCount, long createMillis, long timeouts) {
+            this.sampleMs = sampleMs;
+            this.active = active;
+            this.idle = idle;
+            this.pending = pending;
+            this.total = total;
+            this.acquireCount = acquireCount;
+            this.acquireNanos = acquireNanos;
+            this.acquireMaxNanos = acquireMaxNanos;
+            this.createCount = createCount;
+            this.createMillis = createMillis;
+            this.timeouts = timeouts;
+        }
+
+        long getAcquireAvgMicros() {
+            return acquireCount == 0 ? 0 : acquireNanos / acquireCount / 1_000;
+        }
+
+        long getCreateAvgMillis() {
+            return createCount == 0 ? 0 : createMillis / createCount;
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package com.atscale.java.jdbc;
+
+import com.atscale.java.jdbc.cases.NamedQueryActionBuilder;
+import com.atscale.java.runlog.RunLogs;
+import com.atscale.java.runlog.RunRecordChannel;
+import com.atscale.java.utils.PropertiesManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Times the server execution and the result fetch of every JDBC query of a model, on the thread of the galaxio jdbc
+ * plugin that runs it.  The physical connections of the Hikari pool are wrapped, so a query is timed from the call
+ * that executes it until it returns, and its fetch from then until the last row is read or the result set is closed.
+ * Each execution of a registered query is written to the SQL run log as a sqlPhase line.  Its start is wall-clock
+ * time, only meant to line it up with the sqlLog line of the same execution; the durations are monotonic.
+ * <p>
+ * Statements whose text was not registered, such as the connection init SQL and the Hikari test query, are not timed.
+ * The time spent waiting for a pool connection is sampled separately on the sqlPool lines.
+ * <p>
+ * Executions are matched to queries by their text, so phase lines are per distinct query text.  When queries with
+ * different names share a text, every execution of that text is attributed to the last of them that was registered.
+ */
+public class QueryPhaseTimer {
+    private static final Logger SESSION_LOGGER = LoggerFactory.getLogger("SqlLogger");
+    private static final Logger LOGGER = LoggerFactory.getLogger(QueryPhaseTimer.class);
+    private static final Map<String, QueryPhaseTimer> TIMERS = new ConcurrentHashMap<>();
+
+    private final String gatlingRunId;
+    private final String model;
+    private final Map<String, RunRecordChannel.RecordWriter> writers = new ConcurrentHashMap<>();
+    private final Map<String, NamedQueryActionBuilder> queries = new ConcurrentHashMap<>();
+
+    QueryPhaseTimer(String gatlingRunId, String model) {
+        this.gatlingRunId = gatlingRunId;
+        this.model = model;
+    }
+
+    /** Returns the timer of the model, creating it for the run on first use. */
+    static QueryPhaseTimer forModel(String gatlingRunId, String model) {
+        return TIMERS.compute(model, (key, existing) ->
+                existing != null && existing.gatlingRunId.equals(gatlingRunId) ? existing : new QueryPhaseTimer(gatlingRunId, model));
+    }
+
+    /**
+     * Registers the queries of a scenario, so their executions are timed.  Does nothing when phase timings are
+     * not enabled for the model.
+     */
+    public static void register(String gatlingRunId, String model, NamedQueryActionBuilder[] queries) {
+        if (!PropertiesManager.getJdbcPhaseTimings(model)) {
+            return;
+        }
+        QueryPhaseTimer timer = forModel(gatlingRunId, model);
+        for (NamedQueryActionBuilder query : queries) {
+            timer.register(query);
+        }
+        LOGGER.info("Timing execution and fetch of {} queries of model {}", queries.length, model);
+    }
+
+    /** @return false when a query with another name or id and the same text was registered before */
+    boolean register(NamedQueryActionBuilder query) {
+        NamedQueryActionBuilder previous = queries.put(query.inboundQueryText, query);
+        boolean distinct = previous == null
+                || Objects.equals(previous.queryName, query.queryName) && Objects.equals(previous.atscaleQueryId, query.atscaleQueryId);
+        if (!distinct) {
+            LOGGER.warn("Queries {} ({}) and {} ({}) of model {} have the same text, so the sqlPhase lines of both are attributed to {}",
+                    previous.queryName, previous.atscaleQueryId, query.queryName, query.atscaleQueryId, model, query.queryName);
+        }
+        register(query.inboundQueryText, record -> SESSION_LOGGER.info(
+                "sqlPhase gatlingRunId='{}' model='{}' queryName='{}' atscaleQueryId='{}' inboundTextAsHash='{}' start={} executeUs={} fetchUs={} rows={}",
+                gatlingRunId, model, query.queryName, query.atscaleQueryId, query.inboundTextAsHash, record.getLong(0), record.getLong(1), record.getLong(2), record.getLong(3)));
+        return distinct;
+    }
+
+    /**
+     * Times the executions of a query text, replacing the writer of an earlier registration of the same text.
+     * The writer receives the wall-clock start, the execute and fetch
+     * microseconds and the row count of each execution on the run log writer thread.
+     */
+    void register(String sql, RunRecordChannel.RecordWriter writer) {
+        writers.put(sql, writer);
+    }
+
+    /** Wraps a data source so the queries run on its connections are timed. */
+    public DataSource wrap(DataSource dataSource) {
+        return proxy(DataSource.class, dataSource, (proxy, method, args) -> {
+            Object result = invoke(dataSource, method, args);
+            return result instanceof Connection connection ? proxy(Connection.class, connection, new ConnectionHandler(connection)) : result;
+        });
+    }
+
+    private void record(RunRecordChannel.RecordWriter writer, long startMs, long executeNanos, long fetchNanos, long rows) {
+        RunLogs.channel().publish(writer, startMs, executeNanos / 1_000, fetchNanos / 1_000, rows);
+    }
+
+    private final class ConnectionHandler implements InvocationHandler {
+        private final Connection connection;
+
+        ConnectionHandler(Connection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = QueryPhaseTimer.invoke(connection, method, args);
+            if (result instanceof PreparedStatement statement && method.getName().equals("prepareStatement")) {
+                RunRecordChannel.RecordWriter writer = writers.get((String) args[0]);
+                return writer == null ? result : proxy(PreparedStatement.class, statement, new StatementHandler(statement, writer));
+            }
+            if (result instanceof Statement statement && method.getName().equals("createStatement")) {
+                return proxy(Statement.class, statement, new StatementHandler(statement, null));
+            }
+            return result;
+        }
+    }
+
+    /** Times the executions of one statement.  Plain statements are matched by the text they execute. */
+    private final class StatementHandler implements InvocationHandler {
+        private final Statement statement;
+        private final RunRecordChannel.RecordWriter preparedWriter;
+        private Execution pending;
+
+        StatementHandler(Statement statement, RunRecordChannel.RecordWriter preparedWriter) {
+            this.statement = statement;
+            this.preparedWriter = preparedWriter;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (!name.startsWith("execute")) {
+                Object result = QueryPhaseTimer.invoke(statement, method, args);
+                if (name.equals("getResultSet") && result instanceof ResultSet resultSet && pending != null) {
+                    Execution execution = pending;
+                    pending = null;
+                    return proxy(ResultSet.class, resultSet, new ResultSetHandler(resultSet, execution));
+                }
+                if (name.equals("close") && pending != null) {
+                    pending.finish(0);
+                    pending = null;
+                }
+                return result;
+            }
+            RunRecordChannel.RecordWriter writer = preparedWriter;
+            if (writer == null && args != null && args.length > 0 && args[0] instanceof String sql) {
+                writer = writers.get(sql);
+            }
+            if (writer == null) {
+                return QueryPhaseTimer.invoke(statement, method, args);
+            }
+            if (pending != null) {
+                pending.finish(0);
+            }
+            long startMs = System.currentTimeMillis();
+            long startNanos = System.nanoTime();
+            Object result = QueryPhaseTimer.invoke(statement, method, args);
+            Execution execution = new Execution(writer, startMs, startNanos, System.nanoTime());
+            if (result instanceof ResultSet resultSet) {
+                pending = null;
+                return proxy(ResultSet.class, resultSet, new ResultSetHandler(resultSet, execution));
+            }
+            if (Boolean.TRUE.equals(result)) {
+                // The result set is fetched through getResultSet
+                pending = execution;
+            } else {
+                pending = null;
+                execution.finish(0);
+            }
+            return result;
+        }
+    }
+
+    private final class ResultSetHandler implements InvocationHandler {
+        private final ResultSet resultSet;
+        private final Execution execution;
+        private long rows;
+
+        ResultSetHandler(ResultSet resultSet, Execution execution) {
+            this.resultSet = resultSet;
+            this.execution = execution;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = QueryPhaseTimer.invoke(resultSet, method, args);
+            String name = method.getName();
+            if (name.equals("next")) {
+                if (Boolean.TRUE.equals(result)) {
+                    rows++;
+                } else {
+                    execution.finish(rows);
+                }
+            } else if (name.equals("close")) {
+                execution.finish(rows);
+            }
+            return result;
+        }
+    }
+
+    private final class Execution {
+        private final RunRecordChannel.RecordWriter writer;
+        private final long startMs;
+        private final long startNanos;
+        private final long executedNanos;
+        private boolean finished;
+
+        Execution(RunRecordChannel.RecordWriter writer, long startMs, long startNanos, long executedNanos) {
+            this.writer = writer;
+            this.startMs = startMs;
+            this.startNanos = startNanos;
+            this.executedNanos = executedNanos;
+        }
+
+        void finish(long rows) {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            record(writer, startMs, executedNanos - startNanos, System.nanoTime() - executedNanos, rows);
+        }
+    }
+
+    private static <T> T proxy(Class<T> type, T target, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(QueryPhaseTimer.class.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
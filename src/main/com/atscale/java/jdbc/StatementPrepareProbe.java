@@ -0,0 +1,93 @@
+package com.atscale.java.jdbc;
+
+import com.atscale.java.jdbc.cases.NamedQueryActionBuilder;
+import com.atscale.java.utils.PropertiesManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.*;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Times how long the queries of a model take to prepare, split into the driver parsing the query text on the client
+ * and the server parsing and describing it.  Compared with the sqlLog durations this shows how much of the query
+ * latency is spent before execution, which is the part a prepared statement cache saves on repeated executions.
+ */
+public class StatementPrepareProbe {
+    private static final Logger LOGGER = LoggerFactory.getLogger(StatementPrepareProbe.class);
+
+    private StatementPrepareProbe() {
+        // Prevent instantiation
+    }
+
+    /** The prepare timings of one query.  The server time is null when the driver cannot describe a statement. */
+    public static final class PrepareTiming {
+        private final long clientParseNanos;
+        private final Long serverPrepareNanos;
+
+        PrepareTiming(long clientParseNanos, Long serverPrepareNanos) {
+            this.clientParseNanos = clientParseNanos;
+            this.serverPrepareNanos = serverPrepareNanos;
+        }
+
+        public long getClientParseNanos() {
+            return clientParseNanos;
+        }
+
+        public Long getServerPrepareNanos() {
+            return serverPrepareNanos;
+        }
+    }
+
+    /**
+     * Opens one connection to the model, initialized like the pool connections, and probes every query on it.
+     * @return the timings by query name, or an empty map when the connection cannot be opened
+     */
+    public static Map<String, PrepareTiming> probe(String model, NamedQueryActionBuilder[] queries) {
+        Properties props = new Properties();
+        props.setProperty("user", PropertiesManager.getAtScaleJdbcUserName(model));
+        props.setProperty("password", PropertiesManager.getAtScaleJdbcPassword(model));
+        try (Connection conn = DriverManager.getConnection(JdbcProtocol.getJdbcUrl(model), props)) {
+            try (Statement st = conn.createStatement()) {
+                st.execute(JdbcProtocol.getConnectionInitSql());
+            }
+            return probe(conn, queries);
+        } catch (SQLException e) {
+            LOGGER.warn("Unable to time statement preparation for model {}: {}", model, e.getMessage());
+            return new LinkedHashMap<>();
+        }
+    }
+
+    /**
+     * Prepares and describes every query on the given connection without executing it.  Queries that fail to
+     * prepare are logged and left out.
+     * @return the timings by query name, in query order
+     */
+    public static Map<String, PrepareTiming> probe(Connection conn, NamedQueryActionBuilder[] queries) {
+        Map<String, PrepareTiming> timings = new LinkedHashMap<>();
+        boolean describeSupported = true;
+        for (NamedQueryActionBuilder query : queries) {
+            long start = System.nanoTime();
+            try (PreparedStatement ps = conn.prepareStatement(query.inboundQueryText)) {
+                long parsed = System.nanoTime();
+                Long serverPrepareNanos = null;
+                if (describeSupported) {
+                    try {
+                        // Most drivers defer the server round trip until the statement is described or executed
+                        ps.getMetaData();
+                        serverPrepareNanos = System.nanoTime() - parsed;
+                    } catch (SQLFeatureNotSupportedException e) {
+                        LOGGER.warn("The JDBC driver cannot describe prepared statements.  Only client parse times are reported.");
+                        describeSupported = false;
+                    }
+                }
+                timings.put(query.queryName, new PrepareTiming(parsed - start, serverPrepareNanos));
+            } catch (SQLException e) {
+                LOGGER.warn("Unable to prepare query {} with inbound hash {}: {}", query.queryName, query.inboundTextAsHash, e.getMessage());
+            }
+        }
+        return timings;
+    }
+}
@@ -1,9 +1,14 @@
 package com.atscale.java.jdbc.cases;
 
 import com.atscale.java.utils.CsvLoaderUtil;
+import com.atscale.java.utils.PropertiesManager;
 import org.galaxio.gatling.javaapi.actions.QueryActionBuilder;
+import org.galaxio.gatling.jdbc.internal.JdbcCheck;
 import com.atscale.java.utils.QueryHistoryFileUtil;
 import com.atscale.java.dao.QueryHistoryDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import scala.collection.immutable.Map;
 import static org.galaxio.gatling.javaapi.JdbcDsl.*;
 import java.io.FileNotFoundException;
 import java.io.IOException;
@@ -12,6 +17,10 @@ import java.util.List;
 import java.util.function.Function;
 
 public class AtScaleDynamicJdbcActions {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AtScaleDynamicJdbcActions.class);
+    public static final String RESULT_SET_KEY = "queryResultSet";
+    public static final String RESULT_SUMMARY_KEY = "queryResultSummary";
+
     private AtScaleDynamicJdbcActions() {
         // Prevent instantiation
     }
@@ -20,8 +29,44 @@ public class AtScaleDynamicJdbcActions {
     // If null, production code will use the real jdbc(...) builder.
     public static volatile Function<QueryHistoryDto, QueryActionBuilder> ACTION_BUILDER_FACTORY = null;
 
-    private static List<NamedQueryActionBuilder> createBuildersJdbc(List<QueryHistoryDto> history) {
+    /**
+     * Resolves the result check policy for the queries of a model.
+     * Logging result set rows requires {@link ResultCheckPolicy#FULL}, so a lighter policy is upgraded when rows are logged.
+     */
+    static ResultCheckPolicy resultCheckPolicy(String model) {
+        boolean logRows = PropertiesManager.getLogSqlQueryRows(model);
+        ResultCheckPolicy policy = ResultCheckPolicy.valueOf(PropertiesManager.getJdbcResultCheckPolicy(model));
+        if (logRows && !policy.keepsRows()) {
+            LOGGER.warn("Result set rows are logged for model {} which requires result check policy {}.  Ignoring policy {}.", model, ResultCheckPolicy.FULL, policy);
+            return ResultCheckPolicy.FULL;
+        }
+        return policy;
+    }
+
+    /**
+     * Builds the checks for a query.  The summary check only counts the rows as soon as the plugin hands them over,
+     * since checks run before the query end time is taken.  The rows are saved in the session when the policy hashes
+     * them, so the run log writer thread can hash them off the virtual user path.
+     */
+    private static List<Object> resultChecks(ResultCheckPolicy policy) {
+        List<Object> checks = new ArrayList<>();
+        // COUNT_AND_HASH hashes in the check so the rows are not kept once it completes
+        scala.Function1<scala.collection.immutable.List<Map<String, Object>>, ResultSetSummary> summary =
+                policy == ResultCheckPolicy.COUNT_AND_HASH ? ResultSetSummary::summarizeAndHash : ResultSetSummary::summarize;
+        checks.add(JdbcCheck.allResults().find()
+                .transform(summary)
+                .optional()
+                .saveAs(RESULT_SUMMARY_KEY));
+        if (policy.keepsRows()) {
+            checks.add(allResults().saveAs(RESULT_SET_KEY));
+        }
+        return checks;
+    }
+
+    private static List<NamedQueryActionBuilder> createBuildersJdbc(List<QueryHistoryDto> history, String model) {
         List<NamedQueryActionBuilder> builders = new ArrayList<>();
+        ResultCheckPolicy policy = resultCheckPolicy(model);
+        LOGGER.info("Using result check policy {} for model {}", policy, model);
 
         for (QueryHistoryDto query : history) {
             String queryName = query.getQueryName();
@@ -36,12 +81,10 @@ public class AtScaleDynamicJdbcActions {
             } else {
                 builder = jdbc(queryName)
                     .query(query.getInboundText())
-                    .check(
-                        allResults().saveAs("queryResultSet")
-                    );
+                    .check(resultChecks(policy));
             }
 
-            builders.add(new NamedQueryActionBuilder(builder, queryName, inboundTextAsHash, inboundTextAsBase64, atscaleQueryId, inboundText));
+            builders.add(new NamedQueryActionBuilder(builder, queryName, inboundTextAsHash, inboundTextAsBase64, atscaleQueryId, inboundText, policy));
         }
         return builders;
 
@@ -58,7 +101,7 @@ public class AtScaleDynamicJdbcActions {
                     query.bindJdbc(catalog, model);
                 }
             }
-            List<NamedQueryActionBuilder> builders = createBuildersJdbc(history);
+            List<NamedQueryActionBuilder> builders = createBuildersJdbc(history, model);
             return builders.toArray(new NamedQueryActionBuilder[0]);
 
         } catch(FileNotFoundException e) {
@@ -78,7 +121,7 @@ public class AtScaleDynamicJdbcActions {
         for(QueryHistoryDto query : history) {
             query.bindJdbc(catalog, model);
         }
-        List<NamedQueryActionBuilder> builders = createBuildersJdbc(history);
+        List<NamedQueryActionBuilder> builders = createBuildersJdbc(history, model);
 
         return builders.toArray(new NamedQueryActionBuilder[0]);
     }
@@ -9,14 +9,20 @@ public class NamedQueryActionBuilder {
     public final String inboundTextAsBase64;
     public final String atscaleQueryId;
     public final String inboundQueryText;
+    public final ResultCheckPolicy resultCheckPolicy;
 
     public NamedQueryActionBuilder(QueryActionBuilder builder, String queryName, String inboundTextAsHash, String inboundTextAsBase64, String atscaleQueryId, String inboundQueryText) {
+        this(builder, queryName, inboundTextAsHash, inboundTextAsBase64, atscaleQueryId, inboundQueryText, ResultCheckPolicy.FULL);
+    }
+
+    public NamedQueryActionBuilder(QueryActionBuilder builder, String queryName, String inboundTextAsHash, String inboundTextAsBase64, String atscaleQueryId, String inboundQueryText, ResultCheckPolicy resultCheckPolicy) {
         this.builder = builder;
         this.queryName = queryName;
         this.inboundTextAsHash = inboundTextAsHash;
         this.inboundTextAsBase64 = inboundTextAsBase64;
         this.atscaleQueryId = atscaleQueryId;
         this.inboundQueryText = inboundQueryText;
+        this.resultCheckPolicy = resultCheckPolicy;
     }
 
     public String getInboundQueryTextAsBase64() {
@@ -0,0 +1,25 @@
+package com.atscale.java.jdbc.cases;
+
+/**
+ * Controls how much of a JDBC result set a query keeps once the galaxio jdbc plugin has read it.
+ * <ul>
+ *   <li>{@link #COUNT_ONLY} - only the row count is kept in the Gatling session.</li>
+ *   <li>{@link #COUNT_AND_HASH} - the check hashes the rows into a digest of the result, and only the row count and
+ *   the digest are kept in the Gatling session.</li>
+ *   <li>{@link #FULL} - the rows are kept in the Gatling session and hashed on the run log writer thread, and are
+ *   logged with their row hashes when rows are logged.  Required when result set rows are logged.</li>
+ * </ul>
+ */
+public enum ResultCheckPolicy {
+    COUNT_ONLY,
+    COUNT_AND_HASH,
+    FULL;
+
+    public boolean computesHash() {
+        return this != COUNT_ONLY;
+    }
+
+    public boolean keepsRows() {
+        return this == FULL;
+    }
+}
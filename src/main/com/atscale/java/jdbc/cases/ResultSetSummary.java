@@ -0,0 +1,128 @@
+package com.atscale.java.jdbc.cases;
+
+import com.atscale.java.utils.HashUtil;
+import scala.collection.Iterator;
+import scala.collection.immutable.List;
+import scala.collection.immutable.Map;
+
+/**
+ * Row count of a JDBC result set, when it was received and, when the result is hashed in the check, its fingerprint.
+ * Built by a Gatling check as soon as the plugin hands over the rows, so the rows themselves need not be kept in the
+ * session.  The time spent hashing is recorded so it can be left out of the measured query time.
+ */
+public class ResultSetSummary {
+    private static final ResultSetSummary EMPTY = new ResultSetSummary(0L, 0L);
+
+    private final long rowCount;
+    private final long receivedNanos;
+    private final String resultHash;
+    private final long hashNanos;
+
+    public ResultSetSummary(long rowCount, long receivedNanos) {
+        this(rowCount, receivedNanos, null, 0L);
+    }
+
+    public ResultSetSummary(long rowCount, long receivedNanos, String resultHash, long hashNanos) {
+        this.rowCount = rowCount;
+        this.receivedNanos = receivedNanos;
+        this.resultHash = resultHash;
+        this.hashNanos = hashNanos;
+    }
+
+    public static ResultSetSummary empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Summarizes the rows returned by the galaxio jdbc plugin.
+     *
+     * @param rows the rows returned by the plugin
+     * @return the row count and the time the rows were received
+     */
+    public static ResultSetSummary summarize(List<Map<String, Object>> rows) {
+        long receivedNanos = System.nanoTime();
+        return new ResultSetSummary(rows == null ? 0L : rows.size(), receivedNanos);
+    }
+
+    /**
+     * Summarizes the rows returned by the galaxio jdbc plugin and hashes them into a fingerprint, so the rows can be
+     * dropped as soon as the check completes.
+     *
+     * @param rows the rows returned by the plugin
+     * @return the row count, the time the rows were received, the fingerprint and the time spent hashing
+     */
+    public static ResultSetSummary summarizeAndHash(List<Map<String, Object>> rows) {
+        long receivedNanos = System.nanoTime();
+        if (rows == null) {
+            return new ResultSetSummary(0L, receivedNanos);
+        }
+        HashUtil.ResultFingerprint fingerprint = HashUtil.newResultFingerprint();
+        Iterator<Map<String, Object>> iterator = rows.iterator();
+        while (iterator.hasNext()) {
+            addRow(fingerprint, iterator.next());
+        }
+        String resultHash = fingerprint.fingerprint();
+        return new ResultSetSummary(rows.size(), receivedNanos, resultHash, System.nanoTime() - receivedNanos);
+    }
+
+    /**
+     * Hashes the rows of a result in a single pass.
+     *
+     * @param rows the rows saved by the check of the query
+     * @param rowHashes receives the hash of each row in row order, or {@code null} when the row hashes are not needed
+     * @return the order-insensitive fingerprint of the rows
+     */
+    public static String fingerprint(java.util.List<?> rows, String[] rowHashes) {
+        HashUtil.ResultFingerprint fingerprint = HashUtil.newResultFingerprint();
+        int rownum = 0;
+        for (Object row : rows) {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> values = (Map<String, Object>) row;
+            addRow(fingerprint, values);
+            if (rowHashes != null) {
+                rowHashes[rownum++] = fingerprint.lastRowHash();
+            }
+        }
+        return fingerprint.fingerprint();
+    }
+
+    /**
+     * Hashes the column values of a row into the fingerprint and completes the row.
+     *
+     * @param fingerprint the fingerprint of the result the row belongs to
+     * @param row a row returned by the galaxio jdbc plugin
+     * @return the fingerprint, whose {@link HashUtil.ResultFingerprint#lastRowHash()} is the hash of this row
+     */
+    public static HashUtil.ResultFingerprint addRow(HashUtil.ResultFingerprint fingerprint, Map<String, Object> row) {
+        Iterator<Object> values = row.valuesIterator();
+        while (values.hasNext()) {
+            fingerprint.addValue(values.next());
+        }
+        return fingerprint.endRow();
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * @return the {@link System#nanoTime()} at which the plugin handed the rows to the checks, or 0 when unknown
+     */
+    public long getReceivedNanos() {
+        return receivedNanos;
+    }
+
+    /**
+     * @return the fingerprint of the rows computed by the check, or {@code null} when the check did not hash them
+     */
+    public String getResultHash() {
+        return resultHash;
+    }
+
+    /**
+     * @return the nanoseconds the check spent hashing the rows, which are not part of the measured query time
+     */
+    public long getHashNanos() {
+        return hashNanos;
+    }
+}
@@ -1,15 +1,28 @@
 package com.atscale.java.jdbc.scenarios;
 
+import com.atscale.java.jdbc.JdbcWarmUp;
+import com.atscale.java.jdbc.QueryPhaseTimer;
+import com.atscale.java.jdbc.StatementPrepareProbe;
 import com.atscale.java.jdbc.cases.AtScaleDynamicJdbcActions;
 import com.atscale.java.jdbc.cases.NamedQueryActionBuilder;
-import com.atscale.java.utils.HashUtil;
+import com.atscale.java.jdbc.cases.ResultSetSummary;
+import com.atscale.java.injectionsteps.AdaptiveConcurrency;
+import com.atscale.java.metrics.LiveMetrics;
+import com.atscale.java.metrics.QueryMetrics;
+import com.atscale.java.runlog.BinaryRunLogWriter;
+import com.atscale.java.runlog.LatencyHistograms;
+import com.atscale.java.runlog.RunLogs;
+import com.atscale.java.runlog.RunRecordChannel;
 import com.atscale.java.utils.PropertiesManager;
 import io.gatling.javaapi.core.*;
 import org.apache.commons.lang.StringUtils;
 
 import java.time.Duration;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -43,50 +56,143 @@ public class AtScaleDynamicQueryBuilderScenario {
         boolean logRows = PropertiesManager.getLogSqlQueryRows(model);
         boolean redactRawData = PropertiesManager.getRedactRawData(model);
         Long throttleBy = PropertiesManager.getAtScaleThrottleMs();
+        BinaryRunLogWriter binaryLog = RunLogs.binaryWriter(gatlingRunId);
+        if (binaryLog != null) {
+            binaryLog.writeRun(gatlingRunId, "SQL", model, null, catalog);
+        }
+        // Write the query text once per run, execution and row lines refer to it by inboundTextAsHash
+        Set<String> dictionary = new HashSet<>();
+        for (NamedQueryActionBuilder namedBuilder : namedBuilders) {
+            if (dictionary.add(namedBuilder.inboundTextAsHash)) {
+                SESSION_LOGGER.info("sqlDictionary gatlingRunId='{}' model='{}' queryName='{}' atscaleQueryId='{}' inboundTextAsHash='{}' inboundTextAsBase64='{}'", gatlingRunId, model, namedBuilder.queryName, namedBuilder.atscaleQueryId, namedBuilder.inboundTextAsHash, namedBuilder.getInboundQueryTextAsBase64());
+            }
+        }
+        if (PropertiesManager.getJdbcPreparedStatements(model)) {
+            // Record what preparing each query costs, so it can be compared with the execution durations
+            Map<String, StatementPrepareProbe.PrepareTiming> timings = StatementPrepareProbe.probe(model, namedBuilders);
+            for (NamedQueryActionBuilder namedBuilder : namedBuilders) {
+                StatementPrepareProbe.PrepareTiming timing = timings.get(namedBuilder.queryName);
+                if (timing != null) {
+                    SESSION_LOGGER.info("sqlPrepare gatlingRunId='{}' model='{}' queryName='{}' atscaleQueryId='{}' inboundTextAsHash='{}' clientParseUs={} serverPrepareUs={}", gatlingRunId, model, namedBuilder.queryName, namedBuilder.atscaleQueryId, namedBuilder.inboundTextAsHash, timing.getClientParseNanos() / 1_000, timing.getServerPrepareNanos() == null ? "" : timing.getServerPrepareNanos() / 1_000);
+                }
+            }
+        }
+        QueryPhaseTimer.register(gatlingRunId, model, namedBuilders);
+        if (PropertiesManager.getWarmUpEnabled() && PropertiesManager.getWarmUpQueries() > 0) {
+            // Unmeasured: runs outside Gatling and writes no sqlLog lines
+            JdbcWarmUp.runQueries(model, namedBuilders, PropertiesManager.getWarmUpQueries());
+        }
+        RunRecordChannel channel = RunLogs.channel();
+        LatencyHistograms histograms = LatencyHistograms.forRun(gatlingRunId, "sql");
+        QueryMetrics live = LiveMetrics.forProtocol("sql");
         // Create and return a ScenarioBuilder
         List<ChainBuilder> chains = Arrays.stream(namedBuilders)
-        .map(namedBuilder ->
-            exec(session -> {
-                        return session.set("queryStart", System.currentTimeMillis());
+        .map(namedBuilder -> {
+            // Query text goes into the binary run log dictionary once; execution records refer to it by id
+            int queryId = binaryLog == null ? -1 : binaryLog.defineQuery(namedBuilder.queryName, namedBuilder.atscaleQueryId, namedBuilder.inboundTextAsHash, namedBuilder.inboundQueryText);
+            boolean keepRows = logRows && namedBuilder.resultCheckPolicy.keepsRows();
+            boolean hashRows = namedBuilder.resultCheckPolicy.keepsRows();
+            LatencyHistograms.QueryRecorder latency = histograms == null ? null : histograms.query(namedBuilder.queryName);
+            RunRecordChannel.RecordWriter recordWriter = executionWriter(namedBuilder, queryId, binaryLog, latency, gatlingRunId, model, keepRows, redactRawData);
+            return exec(session -> {
+                        // Clear the results of the previous query so a failed query does not report them
+                        return session.set("queryStart", System.currentTimeMillis())
+                                .set("queryStartNanos", System.nanoTime())
+                                .remove(AtScaleDynamicJdbcActions.RESULT_SUMMARY_KEY)
+                                .remove(AtScaleDynamicJdbcActions.RESULT_SET_KEY);
                     }
             ).exec(
                     namedBuilder.builder
             ).exec(session -> {
-                long end = System.currentTimeMillis();
+                long endNanos = System.nanoTime();
                 Boolean isJdbcFailed = session.get("jdbcFailed");
                 String message = session.get("message");
-                if (isJdbcFailed == null) {
-                    LOGGER.error("""
-                            Unexpected state returned from the galaxio jdbc plugin!
-                            JDBC failed flag is null for queryName: {} with inbound hash: {}.
-                            Manually set failed state to TRUE, since we cannot detect true state from the plugin.
-                            """, namedBuilder.queryName, namedBuilder.inboundTextAsHash);
-                    isJdbcFailed = Boolean.TRUE;
-                } else if (isJdbcFailed) {
-                    LOGGER.error("Returned JDBC failed flag: {} for queryName: {} with inbound hash: {} with message: {}",
-                            isJdbcFailed, namedBuilder.queryName, namedBuilder.inboundTextAsHash, message);
+                ResultSetSummary summary = session.get(AtScaleDynamicJdbcActions.RESULT_SUMMARY_KEY);
+                if (summary != null) {
+                    // Hashing in the check is not part of the measured query time
+                    endNanos -= summary.getHashNanos();
                 }
-                List<?> resultSet = session.getList("queryResultSet");
-                long start = session.getLong("queryStart");
-                long duration = end - start;
-                int rowCount = resultSet.size();
-                String status = isJdbcFailed ? "FAILED" : "SUCCEEDED";
-                SESSION_LOGGER.info("sqlLog gatlingRunId='{}' status='{}' gatlingSessionId={} model='{}' queryName='{}' atscaleQueryId='{}' inboundTextAsHash='{}' inboundTextAsBase64='{}' start={} end={} duration={} rows={}", gatlingRunId, status, session.userId(), model, namedBuilder.queryName, namedBuilder.atscaleQueryId, namedBuilder.inboundTextAsHash, namedBuilder.getInboundQueryTextAsBase64(), start, end, duration, rowCount);
-                if (logRows) {
-                    int rownum = 0;
-                    if (redactRawData) {
-                        for (Object row : resultSet) {
-                            SESSION_LOGGER.info("sqlLog gatlingRunId='{}' status='{}' gatlingSessionId={} model='{}' queryName='{}' atscaleQueryId='{}' inboundTextAsHash='{}' inboundTextAsBase64='{}' rownumber={} row={} rowhash={}", gatlingRunId, status, session.userId(), model, namedBuilder.queryName, namedBuilder.atscaleQueryId, namedBuilder.inboundTextAsHash, namedBuilder.getInboundQueryTextAsBase64(), rownum++, "{REDACTED}", HashUtil.TO_SHA256(row.toString()));
-                        }
-                    } else {
-                        for (Object row : resultSet) {
-                            SESSION_LOGGER.info("sqlLog gatlingRunId='{}' status='{}' gatlingSessionId={} model='{}' queryName='{}' atscaleQueryId='{}' inboundTextAsHash='{}' inboundTextAsBase64='{}' rownumber={} row={} rowhash={}", gatlingRunId, status, session.userId(), model, namedBuilder.queryName, namedBuilder.atscaleQueryId, namedBuilder.inboundTextAsHash, namedBuilder.getInboundQueryTextAsBase64(), rownum++, row, HashUtil.TO_SHA256(row.toString()));
-                        }
-                    }
+                List<?> resultSet = hashRows && session.contains(AtScaleDynamicJdbcActions.RESULT_SET_KEY) ? session.getList(AtScaleDynamicJdbcActions.RESULT_SET_KEY) : null;
+                long startNanos = session.getLong("queryStartNanos");
+                boolean isSuccess = Boolean.FALSE.equals(isJdbcFailed);
+                if (live != null) {
+                    // Wait-free, and lands in the second the query completed whatever the run log writer is doing
+                    live.record(isSuccess, endNanos - startNanos);
                 }
+                AdaptiveConcurrency.record(isSuccess, startNanos, endNanos);
+                // Formatting, row hashing and writing happen on the run log writer thread
+                channel.publish(recordWriter, session.userId(), session.getLong("queryStart"), startNanos, endNanos, isJdbcFailed, message, summary, resultSet);
                 return session;
-        }).pause(Duration.ofMillis(throttleBy))).collect(Collectors.toList());
+            }).pause(Duration.ofMillis(throttleBy));
+        }).collect(Collectors.toList());
 
-        return scenario("AtScale Dynamic Query Builder Scenario").exec(chains);
+        return scenario("AtScale Dynamic Query Builder Scenario").exec(AdaptiveConcurrency.gate(live == null ? chains : LiveMetrics.countingActiveUsers(chains)));
+    }
+
+    /**
+     * Creates the writer of the execution and row records of one query.  It runs on the run log writer thread and
+     * receives the Gatling session id, wall-clock start, monotonic start and end, JDBC failed flag, message, result
+     * summary and, when the result check policy hashes them, the rows of an execution.  The rows are hashed here in a
+     * single pass that yields the result hash and, when rows are logged, the row hashes.  Succeeded executions are also recorded in the
+     * latency histogram of the query when latency histograms are enabled.  The live metrics are recorded by the virtual user.
+     * <p>
+     * The durations are monotonic.  jdbcUs runs until the plugin hands the rows to the checks, which covers waiting for
+     * a plugin thread and a pool connection, execution and fetch, and callbackUs from then until the virtual user runs
+     * again.  start is wall-clock time for correlation, and end is start plus the duration.
+     */
+    private static RunRecordChannel.RecordWriter executionWriter(NamedQueryActionBuilder namedBuilder, int queryId, BinaryRunLogWriter binaryLog,
+                                                                 LatencyHistograms.QueryRecorder latency, String gatlingRunId, String model, boolean logRows, boolean redactRawData) {
+        return record -> {
+            long sessionId = record.getLong(0);
+            long start = record.getLong(1);
+            long startNanos = record.getLong(2);
+            long endNanos = record.getLong(3);
+            Boolean isJdbcFailed = record.getObject(0);
+            String message = record.getObject(1);
+            ResultSetSummary summary = record.getObject(2);
+            List<?> resultSet = record.getObject(3);
+            if (isJdbcFailed == null) {
+                LOGGER.error("""
+                        Unexpected state returned from the galaxio jdbc plugin!
+                        JDBC failed flag is null for queryName: {} with inbound hash: {}.
+                        Manually set failed state to TRUE, since we cannot detect true state from the plugin.
+                        """, namedBuilder.queryName, namedBuilder.inboundTextAsHash);
+                isJdbcFailed = Boolean.TRUE;
+            } else if (isJdbcFailed) {
+                LOGGER.error("Returned JDBC failed flag: {} for queryName: {} with inbound hash: {} with message: {}",
+                        isJdbcFailed, namedBuilder.queryName, namedBuilder.inboundTextAsHash, message);
+            }
+            if (summary == null) {
+                summary = ResultSetSummary.empty();
+            }
+            long durationNanos = endNanos - startNanos;
+            long duration = durationNanos / 1_000_000;
+            long end = start + duration;
+            long received = summary.getReceivedNanos();
+            String jdbcUs = received == 0 ? "" : String.valueOf((received - startNanos) / 1_000);
+            String callbackUs = received == 0 ? "" : String.valueOf((endNanos - received) / 1_000);
+            long rowCount = summary.getRowCount();
+            String[] rowHashes = resultSet != null && logRows ? new String[resultSet.size()] : null;
+            String fingerprint = resultSet == null ? summary.getResultHash() : ResultSetSummary.fingerprint(resultSet, rowHashes);
+            String resultHash = fingerprint == null ? "" : fingerprint;
+            String status = isJdbcFailed ? "FAILED" : "SUCCEEDED";
+            SESSION_LOGGER.info("sqlLog gatlingRunId='{}' status='{}' gatlingSessionId={} model='{}' queryName='{}' atscaleQueryId='{}' inboundTextAsHash='{}' start={} end={} duration={} durationUs={} jdbcUs={} callbackUs={} rows={} resultHash='{}'", gatlingRunId, status, sessionId, model, namedBuilder.queryName, namedBuilder.atscaleQueryId, namedBuilder.inboundTextAsHash, start, end, duration, durationNanos / 1_000, jdbcUs, callbackUs, rowCount, resultHash);
+            if (latency != null && !isJdbcFailed) {
+                latency.record(durationNanos);
+            }
+            if (binaryLog != null) {
+                binaryLog.writeSqlExecution(queryId, sessionId, !isJdbcFailed, start, end, durationNanos / 1_000, rowCount, fingerprint);
+            }
+            if (rowHashes != null) {
+                int rownum = 0;
+                for (Object row : resultSet) {
+                    String rowHash = rowHashes[rownum];
+                    if (binaryLog != null) {
+                        binaryLog.writeSqlRow(queryId, sessionId, rownum, redactRawData ? null : row.toString(), rowHash);
+                    }
+                    SESSION_LOGGER.info("sqlLog gatlingRunId='{}' status='{}' gatlingSessionId={} model='{}' queryName='{}' atscaleQueryId='{}' inboundTextAsHash='{}' rownumber={} row={} rowhash={}", gatlingRunId, status, sessionId, model, namedBuilder.queryName, namedBuilder.atscaleQueryId, namedBuilder.inboundTextAsHash, rownum++, redactRawData ? "{REDACTED}" : row, rowHash);
+                }
+            }
+        };
     }
 }
@@ -72,12 +72,12 @@ public class AtScaleFeederScenario {
         ChainBuilder iterChain =
                 feed(cyclingFeeder) // Keep going as long as there is a builder
                 .exec(session -> {
-                long start = System.currentTimeMillis();
+                long start = System.nanoTime();
                 String queryName = ((NamedQueryActionBuilder) session.get("builderQuery")).queryName;
                 String querySql = ((NamedQueryActionBuilder) session.get("builderQuery")).inboundQueryText;
                 // Session is immutable — session.set(...) returns a new Session. Return that new session.
                 return session
-                        .set("queryStart", start)
+                        .set("queryStartNanos", start)
                         .set("dynamicQueryName", queryName)
                         .set("dynamicSql", querySql);
             })
@@ -89,10 +89,10 @@ public class AtScaleFeederScenario {
                         Boolean isJdbcFailed = session.get("jdbcFailed");
                         String status = session.isFailed()? "KO" : "OK";
                         NamedQueryActionBuilder namedBuilder = ((NamedQueryActionBuilder) session.get("builderQuery"));
-                        long end = System.currentTimeMillis();
+                        long end = System.nanoTime();
                         List<?> resultSet = session.getList("queryResultSet");
-                        long start = session.contains("queryStart") ? session.getLong("queryStart") : 0L;
-                        long duration = end - start;
+                        long start = session.contains("queryStartNanos") ? session.getLong("queryStartNanos") : end;
+                        long duration = (end - start) / 1_000_000;
                         int rowCount = resultSet == null ? 0 : resultSet.size();
                         //String status = (resultSet == null || resultSet.isEmpty()) ? "FAILED" : "SUCCEEDED";
 
@@ -1,5 +1,6 @@
 package com.atscale.java.jdbc.simulations;
 
+import com.atscale.java.injectionsteps.AdaptiveConcurrency;
 import com.atscale.java.injectionsteps.ClosedStep;
 import com.atscale.java.jdbc.JdbcProtocol;
 import com.atscale.java.jdbc.scenarios.AtScaleDynamicQueryBuilderScenario;
@@ -39,9 +40,11 @@ public class AtScaleClosedInjectionStepSimulation extends AtScaleSimulation{
             injectionSteps.add(constantConcurrentUsers(1).during(Duration.ofMinutes(1))); // Default to 1 user for 1 minute
         }
 
+        AdaptiveConcurrency.install(closedSteps);
         AtScaleDynamicQueryBuilderScenario scn = new AtScaleDynamicQueryBuilderScenario();
         ScenarioBuilder sb = scn.buildScenario(catalog, model, runId, ingestionFile, Boolean.parseBoolean(ingestionFileHasHeader));
 
-        setUp(sb.injectClosed(injectionSteps)).protocols(JdbcProtocol.forDatabase(model));
+        int peakConcurrentUsers = Math.max(1, ClosedStep.maxConcurrentUsers(closedSteps));
+        setUp(withWarmUp(sb.injectClosed(injectionSteps), peakConcurrentUsers)).protocols(JdbcProtocol.forDatabase(model, runId, peakConcurrentUsers));
     }
 }
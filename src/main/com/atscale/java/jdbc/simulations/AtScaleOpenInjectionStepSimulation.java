@@ -2,7 +2,9 @@ package com.atscale.java.jdbc.simulations;
 
 import com.atscale.java.jdbc.JdbcProtocol;
 import com.atscale.java.jdbc.scenarios.AtScaleDynamicQueryBuilderScenario;
+import com.atscale.java.runlog.LatencyHistograms;
 import com.atscale.java.utils.InjectionStepJsonUtil;
+import com.atscale.java.utils.PropertiesManager;
 import io.gatling.javaapi.core.OpenInjectionStep;
 import java.util.List;
 import java.util.ArrayList;
@@ -40,7 +42,10 @@ public class AtScaleOpenInjectionStepSimulation extends AtScaleSimulation{
 
         AtScaleDynamicQueryBuilderScenario scn = new AtScaleDynamicQueryBuilderScenario();
         ScenarioBuilder sb = scn.buildScenario(catalog, model, runId, ingestionFile, Boolean.parseBoolean(ingestionFileHasHeader));
+        LatencyHistograms.correctForOpenModel(runId);
 
-        setUp(sb.injectOpen(injectionSteps)).protocols(JdbcProtocol.forDatabase(model));
+        double expectedUserSeconds = PropertiesManager.getAtScaleJdbcExpectedUserSeconds(model);
+        int peakConcurrentUsers = Math.max(1, com.atscale.java.injectionsteps.OpenStep.maxConcurrentUsers(openSteps, expectedUserSeconds));
+        setUp(withWarmUp(sb.injectOpen(injectionSteps), peakConcurrentUsers)).protocols(JdbcProtocol.forDatabase(model, runId, peakConcurrentUsers));
     }
 }
@@ -1,8 +1,11 @@
 package com.atscale.java.jdbc.simulations;
 
+import com.atscale.java.injectionsteps.AtOnceUsersOpenInjectionStep;
+import com.atscale.java.injectionsteps.ConstantUsersPerSecondOpenInjectionStep;
 import com.atscale.java.jdbc.JdbcProtocol;
 import com.atscale.java.jdbc.scenarios.AtScaleFeederScenario;
 import com.atscale.java.utils.InjectionStepJsonUtil;
+import com.atscale.java.utils.PropertiesManager;
 import io.gatling.javaapi.core.OpenInjectionStep;
 import io.gatling.javaapi.core.PopulationBuilder;
 import org.slf4j.Logger;
@@ -26,6 +29,8 @@ public class AtScaleOpenInjectionStepSimulationFeeder extends AtScaleSimulation{
 
         List<com.atscale.java.injectionsteps.OpenStep> openSteps = InjectionStepJsonUtil.openInjectionStepsFromJson(steps);
         List<OpenInjectionStep> injectionSteps = new ArrayList<>();
+        // The steps actually injected, kept in step with injectionSteps to size the pool and the warm-up
+        List<com.atscale.java.injectionsteps.OpenStep> injectedSteps = new ArrayList<>();
         for (com.atscale.java.injectionsteps.OpenStep step : openSteps) {
             if (step == null) {
                 LOGGER.warn("Encountered null OpenStep, skipping.");
@@ -37,22 +42,28 @@ public class AtScaleOpenInjectionStepSimulationFeeder extends AtScaleSimulation{
                 continue;
             }
             injectionSteps.add(gatlingStep);
+            injectedSteps.add(step);
         }
 
         if(injectionSteps.isEmpty()) {
             LOGGER.warn("No valid injection steps provided. Defaulting to atOnceUsers(1)");
             injectionSteps.add(atOnceUsers(1));
+            injectedSteps.add(new AtOnceUsersOpenInjectionStep(1));
         }
 
         //TODO remove these two lines
         injectionSteps.remove(0);
+        injectedSteps.remove(0);
         //injectionSteps.add(atOnceUsers(3));
         injectionSteps.add(constantUsersPerSec(2).during(java.time.Duration.ofMinutes(1)));
+        injectedSteps.add(new ConstantUsersPerSecondOpenInjectionStep(2, 1));
 
 
         AtScaleFeederScenario scn = new AtScaleFeederScenario();
         PopulationBuilder popBuilder = scn.buildScenario(catalog, model, runId, ingestionFile, Boolean.parseBoolean(ingestionFileHasHeader), injectionSteps, null);
 
-        setUp(popBuilder).protocols(JdbcProtocol.forDatabase(model));
+        double expectedUserSeconds = PropertiesManager.getAtScaleJdbcExpectedUserSeconds(model);
+        int peakConcurrentUsers = Math.max(1, com.atscale.java.injectionsteps.OpenStep.maxConcurrentUsers(injectedSteps, expectedUserSeconds));
+        setUp(withWarmUp(popBuilder, peakConcurrentUsers)).protocols(JdbcProtocol.forDatabase(model, runId, peakConcurrentUsers));
     }
 }
@@ -1,8 +1,13 @@
 package com.atscale.java.jdbc.simulations;
 
 import com.atscale.java.executors.MavenTaskDto;
+import com.atscale.java.injectionsteps.AdaptiveConcurrency;
+import com.atscale.java.jdbc.JdbcWarmUp;
+import com.atscale.java.metrics.LiveMetrics;
+import com.atscale.java.runlog.RunLogs;
 import com.atscale.java.utils.JsonUtil;
 import com.atscale.java.utils.PropertiesManager;
+import io.gatling.javaapi.core.PopulationBuilder;
 import io.gatling.javaapi.core.Simulation;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
@@ -79,4 +84,20 @@ abstract class AtScaleSimulation extends Simulation {
             }
         }
     }
+
+    /** Runs the warm up before the measured population when atscale.warmup.enabled is true. */
+    PopulationBuilder withWarmUp(PopulationBuilder measured, int peakConcurrentUsers) {
+        if (!PropertiesManager.getWarmUpEnabled()) {
+            return measured;
+        }
+        return JdbcWarmUp.poolWarmUp(model, peakConcurrentUsers).andThen(measured);
+    }
+
+    @Override
+    public void after() {
+        // Flush structured run logs once the simulation completes
+        RunLogs.closeAll();
+        AdaptiveConcurrency.stop();
+        LiveMetrics.stop();
+    }
 }
@@ -0,0 +1,145 @@
+package com.atscale.java.metrics;
+
+import com.atscale.java.executors.MavenTaskDto;
+import com.atscale.java.jdbc.PoolMetricsSampler;
+import com.atscale.java.utils.PropertiesManager;
+import com.zaxxer.hikari.metrics.PoolStats;
+import io.gatling.javaapi.core.ChainBuilder;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static io.gatling.javaapi.core.CoreDsl.exec;
+
+/**
+ * Exposes the throughput, error rate, active users, JDBC pool sizes and rolling latency percentiles of the running
+ * simulation while it runs.  Enabled by setting {@code atscale.metrics.port}, either in the properties file or as a
+ * system property.  The concurrent executor instead sets {@code atscale.metrics.portFile}, and the endpoint then binds
+ * a free port and writes it to that file.
+ * <p>
+ * Queries are recorded by the virtual user that ran them, as soon as they complete, so every query lands in the
+ * second it finished in even when the run log writer thread falls behind or drops records.  Throughput, error ratio
+ * and percentiles cover the last {@code atscale.metrics.windowSeconds} seconds.
+ */
+public final class LiveMetrics {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LiveMetrics.class);
+    private static final Map<String, QueryMetrics> PROTOCOLS = new ConcurrentHashMap<>();
+    private static final LongAdder STARTED_USERS = new LongAdder();
+    private static final LongAdder FINISHED_USERS = new LongAdder();
+    private static MetricsServer server;
+    private static ScheduledExecutorService ticker;
+
+    private LiveMetrics() {
+        // Prevent instantiation
+    }
+
+    /**
+     * Returns the query metrics of a protocol, starting the metrics endpoint on first use.
+     *
+     * @param protocol sql or xmla
+     * @return the metrics, or {@code null} when live metrics are disabled
+     */
+    public static QueryMetrics forProtocol(String protocol) {
+        int port = getPort();
+        String portFile = System.getProperty(MavenTaskDto.ATSCALE_METRICS_PORT_FILE);
+        if (port <= 0 && StringUtils.isBlank(portFile)) {
+            return null;
+        }
+        start(Math.max(port, 0), portFile);
+        return PROTOCOLS.computeIfAbsent(protocol, key -> new QueryMetrics(PropertiesManager.getLiveMetricsWindowSeconds()));
+    }
+
+    /**
+     * Counts the virtual users that run the chains as active users, from the first chain until the last completes.
+     * Active users are the users that started less the users that finished.  Users that Gatling stops before their
+     * last chain, at the end of the run or when the max duration is reached, never finish, so {@link #stop()} counts
+     * them as finished.
+     */
+    public static List<ChainBuilder> countingActiveUsers(List<ChainBuilder> chains) {
+        List<ChainBuilder> counted = new ArrayList<>(chains.size() + 2);
+        counted.add(exec(session -> {
+            STARTED_USERS.increment();
+            return session;
+        }));
+        counted.addAll(chains);
+        counted.add(exec(session -> {
+            FINISHED_USERS.increment();
+            return session;
+        }));
+        return counted;
+    }
+
+    /** @return the users that started the counted chains less the users that finished them */
+    static long activeUsers() {
+        // Finished is read first, so a user finishing between the two reads can only overstate the active users
+        long finished = FINISHED_USERS.sum();
+        return Math.max(0, STARTED_USERS.sum() - finished);
+    }
+
+    /** @return the current metrics of this JVM */
+    public static MetricsSnapshot snapshot() {
+        MetricsSnapshot snapshot = new MetricsSnapshot();
+        snapshot.setActiveUsers(activeUsers());
+        Map<String, MetricsSnapshot.QuerySnapshot> protocols = new HashMap<>();
+        PROTOCOLS.forEach((protocol, metrics) -> protocols.put(protocol, metrics.snapshot()));
+        snapshot.setProtocols(protocols);
+        Map<String, MetricsSnapshot.PoolSnapshot> pools = new HashMap<>();
+        for (Map.Entry<String, PoolStats> pool : PoolMetricsSampler.getPools().entrySet()) {
+            PoolStats stats = pool.getValue();
+            pools.put(pool.getKey(), new MetricsSnapshot.PoolSnapshot(stats.getActiveConnections(), stats.getIdleConnections(),
+                    stats.getPendingThreads(), stats.getTotalConnections()));
+        }
+        snapshot.setPools(pools);
+        return snapshot;
+    }
+
+    /**
+     * Counts the users that are still active as finished, since the run is over, and stops the metrics endpoint.
+     * The HTTP server would otherwise keep the JVM alive.
+     */
+    public static synchronized void stop() {
+        FINISHED_USERS.add(activeUsers());
+        if (server != null) {
+            server.stop();
+            server = null;
+        }
+        if (ticker != null) {
+            ticker.shutdownNow();
+            ticker = null;
+        }
+    }
+
+    /** @return the port of the system property set by the concurrent executor, else of the properties file */
+    static int getPort() {
+        String port = System.getProperty(MavenTaskDto.ATSCALE_METRICS_PORT);
+        return StringUtils.isNotBlank(port) ? Integer.parseInt(port.trim()) : PropertiesManager.getLiveMetricsPort();
+    }
+
+    private static synchronized void start(int port, String portFile) {
+        if (server != null) {
+            return;
+        }
+        server = new MetricsServer(PropertiesManager.getLiveMetricsHost(), port, LiveMetrics::snapshot);
+        if (StringUtils.isNotBlank(portFile)) {
+            MetricsAggregator.writePortFile(Paths.get(portFile.trim()), server.getPort());
+        }
+        ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "live-metrics-window");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(() -> PROTOCOLS.values().forEach(QueryMetrics::tick), 1, 1, TimeUnit.SECONDS);
+        LOGGER.info("Live metrics cover a rolling window of {} seconds", PropertiesManager.getLiveMetricsWindowSeconds());
+    }
+}
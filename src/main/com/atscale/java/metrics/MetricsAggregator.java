@@ -0,0 +1,170 @@
+package com.atscale.java.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Serves the combined live metrics of the simulation JVMs of a concurrent run.  Each task is given a port file, and
+ * the task binds its own metrics endpoint to a free port and writes that port to the file, so no other process can
+ * take the port between choosing and binding it.  Every request to the aggregator fetches the snapshots of the running tasks in parallel and
+ * merges them, so throughput and active users add up and the percentiles come from the merged latency histograms.
+ * <p>
+ * The query counters of a task that finished, or did not answer in time, stay in the totals as they were last
+ * fetched, so the combined counters never go backwards.
+ */
+public class MetricsAggregator {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MetricsAggregator.class);
+    private static final Duration FETCH_TIMEOUT = Duration.ofSeconds(2);
+
+    private final MetricsServer server;
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(FETCH_TIMEOUT).build();
+    private final Map<Path, Task> tasks = new ConcurrentHashMap<>();
+    private final AtomicInteger taskCount = new AtomicInteger();
+    private final Path portFiles;
+
+    public MetricsAggregator(String host, int port) {
+        try {
+            this.portFiles = Files.createTempDirectory("live-metrics");
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to create the live metrics port file directory", e);
+        }
+        this.server = new MetricsServer(host, port, this::snapshot);
+    }
+
+    /**
+     * Registers a task that is about to start.
+     *
+     * @return the file the task writes the port of its metrics endpoint to
+     */
+    public Path addTask(String taskName) {
+        Path portFile = portFiles.resolve("task-" + taskCount.incrementAndGet() + ".port");
+        tasks.put(portFile, new Task(taskName));
+        LOGGER.info("Task {} reports its live metrics port in {}", taskName, portFile);
+        return portFile;
+    }
+
+    /** Stops fetching the metrics of a task.  Its last query counters stay in the totals. */
+    public void finishTask(Path portFile) {
+        Task task = tasks.get(portFile);
+        if (task != null) {
+            task.finished = true;
+        }
+    }
+
+    /**
+     * Writes the port a task serves its metrics on to its port file.  The file is moved into place so the aggregator
+     * never reads a partly written port.
+     */
+    static void writePortFile(Path portFile, int port) {
+        try {
+            Path written = Files.writeString(portFile.resolveSibling(portFile.getFileName() + ".tmp"), String.valueOf(port), StandardCharsets.UTF_8);
+            Files.move(written, portFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write the live metrics port to " + portFile, e);
+        }
+    }
+
+    public int getPort() {
+        return server.getPort();
+    }
+
+    public void stop() {
+        server.stop();
+        try (Stream<Path> paths = Files.walk(portFiles)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        } catch (IOException | UncheckedIOException e) {
+            LOGGER.warn("Failed to delete the live metrics port files in {}", portFiles, e);
+        }
+    }
+
+    /** @return the merged metrics of the tasks */
+    MetricsSnapshot snapshot() {
+        Map<Path, CompletableFuture<HttpResponse<String>>> responses = new ConcurrentHashMap<>();
+        tasks.forEach((portFile, task) -> {
+            int port = task.finished ? 0 : readPort(task, portFile);
+            if (port > 0) {
+                HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + "/snapshot"))
+                        .timeout(FETCH_TIMEOUT).GET().build();
+                responses.put(portFile, client.sendAsync(request, HttpResponse.BodyHandlers.ofString()));
+            }
+        });
+        MetricsSnapshot combined = new MetricsSnapshot();
+        combined.setTasks(0);
+        tasks.forEach((portFile, task) -> {
+            CompletableFuture<HttpResponse<String>> response = responses.get(portFile);
+            MetricsSnapshot fetched = response == null ? null : fetch(task, response);
+            if (fetched != null) {
+                task.counters = fetched.countersOnly();
+                combined.merge(fetched);
+            } else if (task.counters != null) {
+                combined.merge(task.counters);
+            }
+        });
+        return combined;
+    }
+
+    private static MetricsSnapshot fetch(Task task, CompletableFuture<HttpResponse<String>> response) {
+        try {
+            HttpResponse<String> received = response.get(FETCH_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+            if (received.statusCode() != 200) {
+                LOGGER.debug("Task {} answered the live metrics request with status {}", task.name, received.statusCode());
+                return null;
+            }
+            return MetricsServer.fromJson(received.body());
+        } catch (ExecutionException | TimeoutException | RuntimeException e) {
+            // A task that is still starting up has no endpoint yet
+            LOGGER.debug("Unable to fetch the live metrics of task {}: {}", task.name, e.toString());
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    /** @return the port of the task's metrics endpoint, or 0 while the task has not written it yet */
+    private static int readPort(Task task, Path portFile) {
+        if (task.port == 0 && Files.exists(portFile)) {
+            try {
+                task.port = Integer.parseInt(Files.readString(portFile, StandardCharsets.UTF_8).trim());
+                LOGGER.info("Task {} serves live metrics on port {}", task.name, task.port);
+            } catch (IOException | NumberFormatException e) {
+                LOGGER.debug("Unable to read the live metrics port of task {}: {}", task.name, e.toString());
+            }
+        }
+        return task.port;
+    }
+
+    private static final class Task {
+        private final String name;
+        private volatile int port;
+        private volatile boolean finished;
+        private volatile MetricsSnapshot counters;
+
+        Task(String name) {
+            this.name = name;
+        }
+    }
+}
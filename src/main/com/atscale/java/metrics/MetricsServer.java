@@ -0,0 +1,97 @@
+package com.atscale.java.metrics;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Serves live metrics over HTTP with the HTTP server of the JDK.  {@code /metrics} answers in the Prometheus text
+ * format and {@code /snapshot} answers with the JSON the concurrent executor merges.  Requests are answered on one
+ * daemon thread, and every request takes a fresh snapshot.
+ */
+public class MetricsServer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MetricsServer.class);
+    static final String PROMETHEUS_CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    public MetricsServer(String host, int port, Supplier<MetricsSnapshot> snapshots) {
+        try {
+            this.server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        } catch (IOException e) {
+            throw new RuntimeException(String.format("Failed to serve live metrics on %s:%d", host, port), e);
+        }
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "live-metrics-http");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.createContext("/metrics", exchange -> respond(exchange, PROMETHEUS_CONTENT_TYPE, () -> snapshots.get().toPrometheus()));
+        server.createContext("/snapshot", exchange -> respond(exchange, "application/json", () -> toJson(snapshots.get())));
+        server.setExecutor(executor);
+        server.start();
+        LOGGER.info("Serving live metrics on http://{}:{}/metrics", host, getPort());
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    static String toJson(MetricsSnapshot snapshot) {
+        try {
+            return MAPPER.writeValueAsString(snapshot);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to write live metrics snapshot", e);
+        }
+    }
+
+    static MetricsSnapshot fromJson(String json) {
+        try {
+            return MAPPER.readValue(json, MetricsSnapshot.class);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to read live metrics snapshot", e);
+        }
+    }
+
+    private static void respond(HttpExchange exchange, String contentType, Supplier<String> body) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] bytes;
+            try {
+                bytes = body.get().getBytes(StandardCharsets.UTF_8);
+            } catch (RuntimeException e) {
+                LOGGER.error("Failed to take live metrics snapshot for {}", exchange.getRequestURI(), e);
+                exchange.sendResponseHeaders(500, -1);
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Type", contentType);
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+}
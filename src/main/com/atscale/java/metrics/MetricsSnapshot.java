@@ -0,0 +1,305 @@
+package com.atscale.java.metrics;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.HdrHistogram.Histogram;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.DataFormatException;
+
+/**
+ * The live metrics of one simulation JVM, or of all the simulation JVMs of a concurrent run once merged.  Simulation
+ * JVMs serve it as JSON, so the concurrent executor can merge the latency histograms of its tasks instead of
+ * averaging their percentiles, and both render it in the Prometheus text format.
+ */
+public class MetricsSnapshot {
+    static final double[] QUANTILES = {0.5, 0.95, 0.99};
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private int tasks = 1;
+    private long activeUsers;
+    private Map<String, QuerySnapshot> protocols = new TreeMap<>();
+    private Map<String, PoolSnapshot> pools = new TreeMap<>();
+
+    public int getTasks() {
+        return tasks;
+    }
+
+    public void setTasks(int tasks) {
+        this.tasks = tasks;
+    }
+
+    public long getActiveUsers() {
+        return activeUsers;
+    }
+
+    public void setActiveUsers(long activeUsers) {
+        this.activeUsers = activeUsers;
+    }
+
+    /** @return the query metrics of each protocol, sql or xmla */
+    public Map<String, QuerySnapshot> getProtocols() {
+        return protocols;
+    }
+
+    public void setProtocols(Map<String, QuerySnapshot> protocols) {
+        this.protocols = new TreeMap<>(protocols);
+    }
+
+    /** @return the JDBC connection pool of each model */
+    public Map<String, PoolSnapshot> getPools() {
+        return pools;
+    }
+
+    public void setPools(Map<String, PoolSnapshot> pools) {
+        this.pools = new TreeMap<>(pools);
+    }
+
+    /** Adds the metrics of another JVM to these.  Latency histograms are merged, so percentiles stay exact. */
+    public void merge(MetricsSnapshot other) {
+        tasks += other.tasks;
+        activeUsers += other.activeUsers;
+        other.protocols.forEach((protocol, query) -> protocols.computeIfAbsent(protocol, key -> new QuerySnapshot()).merge(query));
+        other.pools.forEach((model, pool) -> pools.computeIfAbsent(model, key -> new PoolSnapshot()).merge(pool));
+    }
+
+    /** @return a copy with only the query counters, which is what a finished task adds to the totals */
+    MetricsSnapshot countersOnly() {
+        MetricsSnapshot counters = new MetricsSnapshot();
+        counters.tasks = 0;
+        protocols.forEach((protocol, query) -> {
+            QuerySnapshot copy = new QuerySnapshot();
+            copy.succeeded = query.succeeded;
+            copy.failed = query.failed;
+            counters.protocols.put(protocol, copy);
+        });
+        return counters;
+    }
+
+    /** Renders the metrics in the Prometheus text exposition format. */
+    public String toPrometheus() {
+        StringBuilder out = new StringBuilder(2_048);
+        header(out, "atscale_tasks", "gauge", "Simulation JVMs whose metrics are included.");
+        sample(out, "atscale_tasks", "", tasks);
+        header(out, "atscale_active_users", "gauge", "Virtual users running a scenario.");
+        sample(out, "atscale_active_users", "", activeUsers);
+        if (!protocols.isEmpty()) {
+            header(out, "atscale_queries_total", "counter", "Queries completed since the simulation started.");
+            protocols.forEach((protocol, query) -> {
+                sample(out, "atscale_queries_total", labels("protocol", protocol, "status", "succeeded"), query.succeeded);
+                sample(out, "atscale_queries_total", labels("protocol", protocol, "status", "failed"), query.failed);
+            });
+            header(out, "atscale_query_throughput", "gauge", "Queries completed per second over the rolling window.");
+            protocols.forEach((protocol, query) -> sample(out, "atscale_query_throughput", labels("protocol", protocol), query.getThroughput()));
+            header(out, "atscale_query_error_ratio", "gauge", "Share of the queries completed over the rolling window that failed.");
+            protocols.forEach((protocol, query) -> sample(out, "atscale_query_error_ratio", labels("protocol", protocol), query.getErrorRatio()));
+            header(out, "atscale_query_latency_seconds", "gauge", "Response time percentiles of the queries that succeeded over the rolling window.");
+            protocols.forEach((protocol, query) -> {
+                for (double quantile : QUANTILES) {
+                    sample(out, "atscale_query_latency_seconds", labels("protocol", protocol, "quantile", String.valueOf(quantile)),
+                            query.getLatencyMicros(quantile) / 1_000_000.0);
+                }
+                sample(out, "atscale_query_latency_seconds", labels("protocol", protocol, "quantile", "1.0"), query.latency.getMaxValue() / 1_000_000.0);
+            });
+        }
+        if (!pools.isEmpty()) {
+            header(out, "atscale_jdbc_pool_connections", "gauge", "Connections of the JDBC connection pool of each model.");
+            pools.forEach((model, pool) -> {
+                sample(out, "atscale_jdbc_pool_connections", labels("model", model, "state", "active"), pool.active);
+                sample(out, "atscale_jdbc_pool_connections", labels("model", model, "state", "idle"), pool.idle);
+                sample(out, "atscale_jdbc_pool_connections", labels("model", model, "state", "total"), pool.total);
+            });
+            header(out, "atscale_jdbc_pool_pending_threads", "gauge", "Threads waiting for a connection of the JDBC connection pool of each model.");
+            pools.forEach((model, pool) -> sample(out, "atscale_jdbc_pool_pending_threads", labels("model", model), pool.pending));
+        }
+        return out.toString();
+    }
+
+    private static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, long value) {
+        out.append(name).append(labels).append(' ').append(value).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, double value) {
+        out.append(name).append(labels).append(' ').append(String.format(Locale.ROOT, "%.6f", value)).append('\n');
+    }
+
+    static String labels(String... namesAndValues) {
+        StringBuilder labels = new StringBuilder("{");
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            if (i > 0) {
+                labels.append(',');
+            }
+            labels.append(namesAndValues[i]).append("=\"").append(namesAndValues[i + 1]
+                    .replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n")).append('"');
+        }
+        return labels.append('}').toString();
+    }
+
+    /** The queries of one protocol.  The window counts and the latency histogram cover the rolling window. */
+    public static class QuerySnapshot {
+        private long succeeded;
+        private long failed;
+        private long windowSucceeded;
+        private long windowFailed;
+        private long windowSeconds;
+        private Histogram latency = new Histogram(SIGNIFICANT_DIGITS);
+
+        public long getSucceeded() {
+            return succeeded;
+        }
+
+        public void setSucceeded(long succeeded) {
+            this.succeeded = succeeded;
+        }
+
+        public long getFailed() {
+            return failed;
+        }
+
+        public void setFailed(long failed) {
+            this.failed = failed;
+        }
+
+        public long getWindowSucceeded() {
+            return windowSucceeded;
+        }
+
+        public void setWindowSucceeded(long windowSucceeded) {
+            this.windowSucceeded = windowSucceeded;
+        }
+
+        public long getWindowFailed() {
+            return windowFailed;
+        }
+
+        public void setWindowFailed(long windowFailed) {
+            this.windowFailed = windowFailed;
+        }
+
+        /** @return the length of the rolling window, shorter than configured while a simulation starts */
+        public long getWindowSeconds() {
+            return windowSeconds;
+        }
+
+        public void setWindowSeconds(long windowSeconds) {
+            this.windowSeconds = windowSeconds;
+        }
+
+        /** @return the latency histogram of the window in microseconds, compressed and base64 encoded */
+        public String getLatencyHistogram() {
+            ByteBuffer buffer = ByteBuffer.allocate(latency.getNeededByteBufferCapacity());
+            int length = latency.encodeIntoCompressedByteBuffer(buffer);
+            return Base64.getEncoder().encodeToString(Arrays.copyOf(buffer.array(), length));
+        }
+
+        public void setLatencyHistogram(String encoded) {
+            try {
+                latency = Histogram.decodeFromCompressedByteBuffer(ByteBuffer.wrap(Base64.getDecoder().decode(encoded)), 0);
+            } catch (DataFormatException | IllegalArgumentException e) {
+                throw new RuntimeException("Failed to decode latency histogram", e);
+            }
+        }
+
+        @JsonIgnore
+        Histogram getLatency() {
+            return latency;
+        }
+
+        void setLatency(Histogram latency) {
+            this.latency = latency;
+        }
+
+        /** @return the queries completed per second over the window */
+        @JsonIgnore
+        public double getThroughput() {
+            return windowSeconds == 0 ? 0 : (double) (windowSucceeded + windowFailed) / windowSeconds;
+        }
+
+        /** @return the share of the queries completed over the window that failed */
+        @JsonIgnore
+        public double getErrorRatio() {
+            long completed = windowSucceeded + windowFailed;
+            return completed == 0 ? 0 : (double) windowFailed / completed;
+        }
+
+        /** @return the latency at a quantile between 0 and 1 over the window, in microseconds */
+        public long getLatencyMicros(double quantile) {
+            return latency.getValueAtPercentile(quantile * 100);
+        }
+
+        void merge(QuerySnapshot other) {
+            succeeded += other.succeeded;
+            failed += other.failed;
+            windowSucceeded += other.windowSucceeded;
+            windowFailed += other.windowFailed;
+            windowSeconds = Math.max(windowSeconds, other.windowSeconds);
+            latency.add(other.latency);
+        }
+    }
+
+    /** The JDBC connection pool of one model. */
+    public static class PoolSnapshot {
+        private int active;
+        private int idle;
+        private int pending;
+        private int total;
+
+        public PoolSnapshot() {
+        }
+
+        PoolSnapshot(int active, int idle, int pending, int total) {
+            this.active = active;
+            this.idle = idle;
+            this.pending = pending;
+            this.total = total;
+        }
+
+        public int getActive() {
+            return active;
+        }
+
+        public void setActive(int active) {
+            this.active = active;
+        }
+
+        public int getIdle() {
+            return idle;
+        }
+
+        public void setIdle(int idle) {
+            this.idle = idle;
+        }
+
+        public int getPending() {
+            return pending;
+        }
+
+        public void setPending(int pending) {
+            this.pending = pending;
+        }
+
+        public int getTotal() {
+            return total;
+        }
+
+        public void setTotal(int total) {
+            this.total = total;
+        }
+
+        void merge(PoolSnapshot other) {
+            active += other.active;
+            idle += other.idle;
+            pending += other.pending;
+            total += other.total;
+        }
+    }
+}
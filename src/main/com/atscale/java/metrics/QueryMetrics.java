@@ -0,0 +1,80 @@
+package com.atscale.java.metrics;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the queries of one protocol and keeps their latencies over a rolling window.  The window is a ring of one
+ * second histograms that {@link #tick()} advances, so percentiles follow the current load instead of the whole run.
+ * Recording is wait-free and does not allocate.
+ */
+public class QueryMetrics {
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final Recorder recorder = new Recorder(SIGNIFICANT_DIGITS);
+    private final LongAdder succeeded = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final Histogram[] seconds;
+    private final long[] failedSeconds;
+    private Histogram recycled;
+    private long failedAtLastTick;
+    private long ticks;
+
+    QueryMetrics(int windowSeconds) {
+        if (windowSeconds < 1) {
+            throw new IllegalArgumentException("Live metrics window must be at least one second: " + windowSeconds);
+        }
+        this.seconds = new Histogram[windowSeconds];
+        this.failedSeconds = new long[windowSeconds];
+    }
+
+    /** Records a completed query.  Only the latencies of succeeded queries go into the percentiles. */
+    public void record(boolean isSuccess, long durationNanos) {
+        if (isSuccess) {
+            succeeded.increment();
+            recorder.recordValue(Math.max(0, durationNanos / 1_000));
+        } else {
+            failed.increment();
+        }
+    }
+
+    /** Closes the current second of the window and drops the oldest. */
+    synchronized void tick() {
+        int slot = (int) (ticks % seconds.length);
+        Histogram second = recorder.getIntervalHistogram(recycled);
+        recycled = seconds[slot];
+        seconds[slot] = second;
+        long failedNow = failed.sum();
+        failedSeconds[slot] = failedNow - failedAtLastTick;
+        failedAtLastTick = failedNow;
+        ticks++;
+    }
+
+    synchronized MetricsSnapshot.QuerySnapshot snapshot() {
+        return snapshot(seconds.length);
+    }
+
+    /** @return the counters, with the window narrowed to its most recent seconds */
+    synchronized MetricsSnapshot.QuerySnapshot snapshot(int lastSeconds) {
+        MetricsSnapshot.QuerySnapshot snapshot = new MetricsSnapshot.QuerySnapshot();
+        Histogram window = new Histogram(SIGNIFICANT_DIGITS);
+        long windowFailed = 0;
+        int covered = (int) Math.min(Math.min(lastSeconds, seconds.length), ticks);
+        for (int i = 1; i <= covered; i++) {
+            int slot = (int) ((ticks - i) % seconds.length);
+            if (seconds[slot] != null) {
+                window.add(seconds[slot]);
+            }
+            windowFailed += failedSeconds[slot];
+        }
+        snapshot.setSucceeded(succeeded.sum());
+        snapshot.setFailed(failed.sum());
+        snapshot.setWindowSucceeded(window.getTotalCount());
+        snapshot.setWindowFailed(windowFailed);
+        snapshot.setWindowSeconds(covered);
+        snapshot.setLatency(window);
+        return snapshot;
+    }
+}
@@ -0,0 +1,172 @@
+package com.atscale.java.runlog;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reads a binary run log as the {@link RunLogLine}s that the text run log of the same runs parses to, so the archive
+ * executors load either format the same way.  Query definitions become sqlDictionary and xmlaDictionary lines, and
+ * execution and row records become sqlLog and xmlaLog lines carrying the model, query and run of their definitions.
+ * <p>
+ * Lines have no raw text.  Their timestamp is the wall-clock start of the execution, and their source row number is
+ * the position of the record in the file.
+ */
+public final class BinaryRunLogLines {
+    private static final String SQL_LOGGER = "SqlLogger";
+    private static final String XMLA_LOGGER = "XmlaLogger";
+
+    private BinaryRunLogLines() {
+        // Prevent instantiation
+    }
+
+    /**
+     * @return the Gatling run ids of the run records of a binary run log, in file order
+     */
+    public static List<String> readGatlingRunIds(Path file) throws IOException {
+        Set<String> runIds = new LinkedHashSet<>();
+        try (BinaryRunLogReader reader = new BinaryRunLogReader(file)) {
+            RunLogRecord record;
+            while ((record = reader.next()) != null) {
+                if (record.getType() == RunLogRecordType.RUN && record.getGatlingRunId() != null) {
+                    runIds.add(record.getGatlingRunId());
+                }
+            }
+        }
+        return new ArrayList<>(runIds);
+    }
+
+    /**
+     * Reads a binary run log and hands its lines to the handler in batches of {@code batchSize}, in file order.
+     */
+    public static void read(Path file, int batchSize, RunLogLineParser.BatchHandler handler) throws IOException, SQLException {
+        try (BinaryRunLogReader reader = new BinaryRunLogReader(file)) {
+            Converter converter = new Converter();
+            List<RunLogLine> batch = new ArrayList<>(batchSize);
+            long srcRowNumber = 0;
+            RunLogRecord record;
+            while ((record = reader.next()) != null) {
+                RunLogLine line = converter.convert(record, ++srcRowNumber);
+                if (line == null) {
+                    continue;
+                }
+                batch.add(line);
+                if (batch.size() == batchSize) {
+                    handler.accept(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                handler.accept(batch);
+            }
+        }
+    }
+
+    /** Tracks the current run and its query definitions, which later records refer to. */
+    private static final class Converter {
+        private RunLogRecord run;
+        private final Map<Integer, RunLogRecord> queries = new HashMap<>();
+
+        RunLogLine convert(RunLogRecord record, long srcRowNumber) {
+            if (record.getType() == RunLogRecordType.RUN) {
+                // Query ids are scoped to the run record that precedes them
+                run = record;
+                queries.clear();
+                return null;
+            }
+            if (run == null) {
+                return null;
+            }
+            if (record.getType() == RunLogRecordType.QUERY_DEFINITION) {
+                queries.put(record.getQueryId(), record);
+                RunLogLine line = newLine(record, srcRowNumber, isXmla() ? RunLogLineParser.XMLA_DICTIONARY : RunLogLineParser.SQL_DICTIONARY);
+                line.setQueryBase64(record.getInboundText() == null ? null
+                        : Base64.getEncoder().encodeToString(record.getInboundText().getBytes(StandardCharsets.UTF_8)));
+                return line;
+            }
+            RunLogRecord query = queries.get(record.getQueryId());
+            if (query == null) {
+                return null;
+            }
+            return switch (record.getType()) {
+                case SQL_EXECUTION -> {
+                    RunLogLine line = newExecutionLine(query, record, srcRowNumber, RunLogLineParser.SQL_LOG);
+                    line.setRowsReturned(record.getCount());
+                    line.setResultHash(record.getHash());
+                    yield line;
+                }
+                case SQL_ROW -> {
+                    RunLogLine line = newLine(query, srcRowNumber, RunLogLineParser.SQL_LOG);
+                    line.setGatlingSessionId(String.valueOf(record.getGatlingSessionId()));
+                    line.setRowNumber(record.getRowNumber());
+                    line.setRowMapRaw(rowMapRaw(record.getPayload()));
+                    line.setRowHash(record.getHash());
+                    yield line;
+                }
+                case XMLA_EXECUTION -> {
+                    RunLogLine line = newExecutionLine(query, record, srcRowNumber, RunLogLineParser.XMLA_LOG);
+                    line.setResponseSize(record.getCount());
+                    line.setResponseHash(record.getHash());
+                    line.setResponse(record.getPayload() == null && record.getHash() != null ? "REDACTED" : record.getPayload());
+                    yield line;
+                }
+                default -> null;
+            };
+        }
+
+        private boolean isXmla() {
+            return "XMLA".equals(run.getProtocol());
+        }
+
+        private RunLogLine newLine(RunLogRecord query, long srcRowNumber, String messageKind) {
+            RunLogLine line = new RunLogLine();
+            line.setMessageKind(messageKind);
+            line.setLevel("INFO");
+            line.setLogger(isXmla() ? XMLA_LOGGER : SQL_LOGGER);
+            line.setGatlingRunId(run.getGatlingRunId());
+            line.setModel(run.getModel());
+            line.setCube(run.getCube());
+            line.setCatalog(run.getCatalog());
+            line.setQueryName(query.getQueryName());
+            line.setAtscaleQueryId(query.getAtscaleQueryId());
+            line.setQueryHash(query.getInboundTextAsHash());
+            line.setSrcRowNumber(srcRowNumber);
+            return line;
+        }
+
+        private RunLogLine newExecutionLine(RunLogRecord query, RunLogRecord record, long srcRowNumber, String messageKind) {
+            RunLogLine line = newLine(query, srcRowNumber, messageKind);
+            line.setTs(LocalDateTime.ofInstant(Instant.ofEpochMilli(record.getStart()), ZoneId.systemDefault()).truncatedTo(ChronoUnit.SECONDS));
+            line.setStatus(record.isSucceeded() ? "SUCCEEDED" : "FAILED");
+            line.setGatlingSessionId(String.valueOf(record.getGatlingSessionId()));
+            line.setStartMs(record.getStart());
+            line.setEndMs(record.getEnd());
+            line.setDurationMs(record.getEnd() - record.getStart());
+            line.setDurationUs(record.getDurationUs() < 0 ? null : record.getDurationUs());
+            return line;
+        }
+
+        /** Rows are written as the text of the row map, which the text run log shows as row=Map(...), or null when redacted. */
+        private static String rowMapRaw(String row) {
+            if (row == null) {
+                return "REDACTED";
+            }
+            if (row.startsWith("Map(") && row.endsWith(")")) {
+                return row.substring("Map(".length(), row.length() - 1);
+            }
+            return row;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.atscale.java.runlog;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Reads the records written by {@link BinaryRunLogWriter}.  Records of unknown types are skipped.
+ */
+public class BinaryRunLogReader implements Closeable {
+    private final DataInputStream in;
+    private final byte version;
+    private byte[] buffer = new byte[1024];
+
+    public BinaryRunLogReader(Path path) throws IOException {
+        this(Files.newInputStream(path));
+    }
+
+    public BinaryRunLogReader(InputStream stream) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(stream, 64 * 1024));
+        byte[] magic = new byte[BinaryRunLogWriter.MAGIC.length];
+        in.readFully(magic);
+        if (!Arrays.equals(magic, BinaryRunLogWriter.MAGIC)) {
+            throw new IOException("Not a binary run log");
+        }
+        this.version = in.readByte();
+        if (version < 1 || version > BinaryRunLogWriter.VERSION) {
+            throw new IOException("Unsupported binary run log version: " + version);
+        }
+    }
+
+    /**
+     * @return the next record, or {@code null} at the end of the run log
+     */
+    public RunLogRecord next() throws IOException {
+        while (true) {
+            int code = in.read();
+            if (code < 0) {
+                return null;
+            }
+            int length;
+            try {
+                length = in.readInt();
+                if (buffer.length < length) {
+                    buffer = new byte[Math.max(length, buffer.length * 2)];
+                }
+                in.readFully(buffer, 0, length);
+            } catch (EOFException e) {
+                // A record cut short, for example by a killed simulation, ends the run log
+                return null;
+            }
+            RunLogRecordType type = RunLogRecordType.fromCode((byte) code);
+            if (type != null) {
+                return decode(type, new DataInputStream(new ByteArrayInputStream(buffer, 0, length)));
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private RunLogRecord decode(RunLogRecordType type, DataInputStream payload) throws IOException {
+        RunLogRecord record = new RunLogRecord();
+        record.setType(type);
+        switch (type) {
+            case RUN -> {
+                record.setGatlingRunId(readString(payload));
+                record.setProtocol(readString(payload));
+                record.setModel(readString(payload));
+                record.setCube(readString(payload));
+                record.setCatalog(readString(payload));
+            }
+            case QUERY_DEFINITION -> {
+                record.setQueryId(payload.readInt());
+                record.setQueryName(readString(payload));
+                record.setAtscaleQueryId(readString(payload));
+                record.setInboundTextAsHash(readString(payload));
+                record.setInboundText(readString(payload));
+            }
+            case SQL_EXECUTION -> {
+                record.setQueryId(payload.readInt());
+                record.setGatlingSessionId(payload.readLong());
+                record.setSucceeded(payload.readBoolean());
+                record.setStart(payload.readLong());
+                record.setEnd(payload.readLong());
+                record.setDurationUs(readDurationUs(payload));
+                record.setCount(payload.readLong());
+                record.setHash(readString(payload));
+            }
+            case SQL_ROW -> {
+                record.setQueryId(payload.readInt());
+                record.setGatlingSessionId(payload.readLong());
+                record.setRowNumber(payload.readLong());
+                record.setPayload(readString(payload));
+                record.setHash(readString(payload));
+            }
+            case XMLA_EXECUTION -> {
+                record.setQueryId(payload.readInt());
+                record.setGatlingSessionId(payload.readLong());
+                record.setSucceeded(payload.readBoolean());
+                record.setStart(payload.readLong());
+                record.setEnd(payload.readLong());
+                record.setDurationUs(readDurationUs(payload));
+                record.setCount(payload.readLong());
+                record.setHash(readString(payload));
+                record.setPayload(readString(payload));
+            }
+        }
+        return record;
+    }
+
+    /** Version 1 execution records have no monotonic duration. */
+    private long readDurationUs(DataInputStream payload) throws IOException {
+        return version < 2 ? -1L : payload.readLong();
+    }
+
+    private static String readString(DataInputStream payload) throws IOException {
+        int length = payload.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        payload.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,186 @@
+package com.atscale.java.runlog;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes a binary run log: a file header followed by length-prefixed records.
+ * <p>
+ * File layout (big endian): the magic bytes {@code ATSRLOG}, a format version byte, then records.
+ * Each record is a type byte (see {@link RunLogRecordType}), an int payload length and the payload.
+ * Strings are written as an int byte length (-1 for null) followed by UTF-8 bytes.
+ * Version 2 adds the monotonic duration in microseconds to execution records.
+ * <p>
+ * Query text is dictionary encoded: {@link #defineQuery} writes the text once per run and returns an id
+ * that execution and row records refer to.  Query ids are scoped to the preceding {@code RUN} record, so several runs
+ * can append to the same file.  Methods are synchronized so simulation threads can share a writer.
+ */
+public class BinaryRunLogWriter implements Closeable {
+    static final byte[] MAGIC = "ATSRLOG".getBytes(StandardCharsets.US_ASCII);
+    static final byte VERSION = 2;
+
+    private final DataOutputStream out;
+    private final ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream(1024);
+    private final DataOutputStream payload = new DataOutputStream(payloadBytes);
+    private final Map<String, Integer> queryIds = new HashMap<>();
+    private boolean closed;
+
+    public BinaryRunLogWriter(Path path, boolean append) throws IOException {
+        boolean writeHeader = !append || !Files.exists(path) || Files.size(path) == 0;
+        OutputStream stream = append
+                ? Files.newOutputStream(path, StandardOpenOption.CREATE, StandardOpenOption.APPEND)
+                : Files.newOutputStream(path);
+        this.out = new DataOutputStream(new BufferedOutputStream(stream, 64 * 1024));
+        if (writeHeader) {
+            out.write(MAGIC);
+            out.writeByte(VERSION);
+        }
+    }
+
+    public BinaryRunLogWriter(OutputStream stream) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(stream, 64 * 1024));
+        out.write(MAGIC);
+        out.writeByte(VERSION);
+    }
+
+    public synchronized void writeRun(String gatlingRunId, String protocol, String model, String cube, String catalog) {
+        try {
+            payloadBytes.reset();
+            writeString(gatlingRunId);
+            writeString(protocol);
+            writeString(model);
+            writeString(cube);
+            writeString(catalog);
+            writeRecord(RunLogRecordType.RUN);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write run record to binary run log", e);
+        }
+    }
+
+    /**
+     * Defines a query in the dictionary of this run log.  The query text is written only the first time a
+     * query name and hash combination is seen.
+     *
+     * @return the id that execution and row records use to refer to the query
+     */
+    public synchronized int defineQuery(String queryName, String atscaleQueryId, String inboundTextAsHash, String inboundText) {
+        String key = queryName + '\u0000' + inboundTextAsHash;
+        Integer existing = queryIds.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        int queryId = queryIds.size();
+        try {
+            payloadBytes.reset();
+            payload.writeInt(queryId);
+            writeString(queryName);
+            writeString(atscaleQueryId);
+            writeString(inboundTextAsHash);
+            writeString(inboundText);
+            writeRecord(RunLogRecordType.QUERY_DEFINITION);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write query definition to binary run log", e);
+        }
+        queryIds.put(key, queryId);
+        return queryId;
+    }
+
+    public synchronized void writeSqlExecution(int queryId, long gatlingSessionId, boolean succeeded, long start, long end, long durationUs, long rows, String resultHash) {
+        try {
+            payloadBytes.reset();
+            payload.writeInt(queryId);
+            payload.writeLong(gatlingSessionId);
+            payload.writeBoolean(succeeded);
+            payload.writeLong(start);
+            payload.writeLong(end);
+            payload.writeLong(durationUs);
+            payload.writeLong(rows);
+            writeString(resultHash);
+            writeRecord(RunLogRecordType.SQL_EXECUTION);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write SQL execution to binary run log", e);
+        }
+    }
+
+    /**
+     * @param row the row as text, or {@code null} when raw data is redacted
+     */
+    public synchronized void writeSqlRow(int queryId, long gatlingSessionId, long rowNumber, String row, String rowHash) {
+        try {
+            payloadBytes.reset();
+            payload.writeInt(queryId);
+            payload.writeLong(gatlingSessionId);
+            payload.writeLong(rowNumber);
+            writeString(row);
+            writeString(rowHash);
+            writeRecord(RunLogRecordType.SQL_ROW);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write SQL row to binary run log", e);
+        }
+    }
+
+    /**
+     * @param response the response body, or {@code null} when it is not logged
+     */
+    public synchronized void writeXmlaExecution(int queryId, long gatlingSessionId, boolean succeeded, long start, long end, long durationUs, long responseSize, String responseHash, String response) {
+        try {
+            payloadBytes.reset();
+            payload.writeInt(queryId);
+            payload.writeLong(gatlingSessionId);
+            payload.writeBoolean(succeeded);
+            payload.writeLong(start);
+            payload.writeLong(end);
+            payload.writeLong(durationUs);
+            payload.writeLong(responseSize);
+            writeString(responseHash);
+            writeString(response);
+            writeRecord(RunLogRecordType.XMLA_EXECUTION);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write XMLA execution to binary run log", e);
+        }
+    }
+
+    public synchronized void flush() throws IOException {
+        if (!closed) {
+            out.flush();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        out.close();
+    }
+
+    private void writeRecord(RunLogRecordType type) throws IOException {
+        if (closed) {
+            throw new IOException("Binary run log is closed");
+        }
+        out.writeByte(type.getCode());
+        out.writeInt(payloadBytes.size());
+        payloadBytes.writeTo(out);
+    }
+
+    private void writeString(String value) throws IOException {
+        if (value == null) {
+            payload.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        payload.writeInt(bytes.length);
+        payload.write(bytes);
+    }
+}
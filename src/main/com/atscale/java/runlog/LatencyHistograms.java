@@ -0,0 +1,230 @@
+package com.atscale.java.runlog;
+
+import com.atscale.java.utils.PropertiesManager;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+import org.HdrHistogram.Recorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the response times of every query of a run into HdrHistograms inside the injector, so percentiles can be
+ * watched while a soak test runs instead of after Gatling writes its report.  Enabled with
+ * {@code atscale.latency.histograms.enabled=true}.
+ * <p>
+ * Each query name has its own recorder.  Every {@code atscale.latency.histograms.intervalMs} and when the run ends the
+ * histograms of the interval are written to {@code run_logs/<run log file name>.<gatling run id>.<protocol>.hlog} in
+ * the HdrHistogram interval log format, one compressed histogram per query tagged with the query name.  Values are
+ * microseconds, and the max column of the log is milliseconds.  Read the log with HistogramLogReader or
+ * HistogramLogProcessor.
+ * <p>
+ * Only succeeded executions are recorded, from the run log writer thread, so virtual users do no extra work.  Open
+ * injection models can correct for coordinated omission with {@code atscale.latency.histograms.expectedIntervalMs}:
+ * a response time longer than the expected interval between the queries of a virtual user also records the
+ * executions that the stalled virtual user would have sent meanwhile.
+ */
+public final class LatencyHistograms {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LatencyHistograms.class);
+    private static final Map<String, LatencyHistograms> RUNS = new ConcurrentHashMap<>();
+    private static final Set<String> OPEN_MODEL_RUNS = ConcurrentHashMap.newKeySet();
+    private static final int SIGNIFICANT_DIGITS = 3;
+    private static final double MICROS_PER_MILLI = 1_000.0;
+    private static volatile ScheduledExecutorService scheduler;
+
+    private final String description;
+    private final Path path;
+    private final HistogramLogWriter logWriter;
+    private final PrintStream out;
+    private final long baseTimeMs;
+    private final Map<String, QueryRecorder> queries = new ConcurrentHashMap<>();
+    private final ScheduledFuture<?> intervals;
+    private volatile long expectedIntervalUs;
+    private boolean closed;
+
+    /**
+     * @param intervalMs how often the histograms are written, or 0 to write them only when closed
+     */
+    LatencyHistograms(String description, Path path, long intervalMs) {
+        this.description = description;
+        this.path = path;
+        try {
+            Files.createDirectories(path.toAbsolutePath().getParent());
+            this.out = new PrintStream(new BufferedOutputStream(Files.newOutputStream(path)), false, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open latency histogram log: " + path, e);
+        }
+        this.logWriter = new HistogramLogWriter(out);
+        this.baseTimeMs = System.currentTimeMillis();
+        logWriter.outputComment("Latency histograms of " + description + ", values in microseconds");
+        logWriter.outputLogFormatVersion();
+        logWriter.outputStartTime(baseTimeMs);
+        logWriter.setBaseTime(baseTimeMs);
+        logWriter.outputLegend();
+        out.flush();
+        this.intervals = intervalMs > 0
+                ? scheduler().scheduleAtFixedRate(this::writeIntervalSafely, intervalMs, intervalMs, TimeUnit.MILLISECONDS)
+                : null;
+    }
+
+    /**
+     * Returns the histograms of a Gatling run and protocol, opening their log on first use.
+     *
+     * @param gatlingRunId the Gatling run id
+     * @param protocol sql or xmla, which names the log
+     * @return the histograms, or {@code null} when latency histograms are disabled
+     */
+    public static LatencyHistograms forRun(String gatlingRunId, String protocol) {
+        if (!PropertiesManager.getLatencyHistogramsEnabled()) {
+            return null;
+        }
+        return RUNS.computeIfAbsent(gatlingRunId + '.' + protocol, key -> {
+            Path path = RunLogs.runLogPath(gatlingRunId, protocol + ".hlog");
+            long intervalMs = PropertiesManager.getLatencyHistogramsIntervalMs();
+            LatencyHistograms histograms = new LatencyHistograms("run " + gatlingRunId + " " + protocol, path, intervalMs);
+            if (OPEN_MODEL_RUNS.contains(gatlingRunId)) {
+                histograms.setExpectedIntervalMs(PropertiesManager.getLatencyHistogramsExpectedIntervalMs());
+            }
+            LOGGER.info("Writing latency histograms every {} ms to {}", intervalMs, path.toAbsolutePath());
+            return histograms;
+        });
+    }
+
+    /**
+     * Marks a run as injected with an open model, so its histograms correct for coordinated omission when
+     * {@code atscale.latency.histograms.expectedIntervalMs} is above zero.
+     */
+    public static void correctForOpenModel(String gatlingRunId) {
+        long expectedIntervalMs = PropertiesManager.getLatencyHistogramsExpectedIntervalMs();
+        if (!PropertiesManager.getLatencyHistogramsEnabled() || expectedIntervalMs <= 0) {
+            return;
+        }
+        OPEN_MODEL_RUNS.add(gatlingRunId);
+        String prefix = gatlingRunId + '.';
+        for (Map.Entry<String, LatencyHistograms> entry : RUNS.entrySet()) {
+            if (entry.getKey().startsWith(prefix)) {
+                entry.getValue().setExpectedIntervalMs(expectedIntervalMs);
+            }
+        }
+        LOGGER.info("Correcting latency histograms of run {} for coordinated omission with an expected interval of {} ms", gatlingRunId, expectedIntervalMs);
+    }
+
+    /** Writes the last interval and closes the logs of all runs. */
+    public static void closeAll() {
+        for (String key : RUNS.keySet()) {
+            LatencyHistograms histograms = RUNS.remove(key);
+            if (histograms != null) {
+                histograms.close();
+            }
+        }
+        OPEN_MODEL_RUNS.clear();
+    }
+
+    /** Returns the recorder of a query, creating it on first use.  Look it up once per query, not per execution. */
+    public QueryRecorder query(String queryName) {
+        return queries.computeIfAbsent(queryName, QueryRecorder::new);
+    }
+
+    void setExpectedIntervalMs(long expectedIntervalMs) {
+        this.expectedIntervalUs = Math.max(0, expectedIntervalMs) * 1_000;
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    /** Writes the histograms recorded since the last interval.  Queries without executions are left out. */
+    synchronized void writeInterval() {
+        if (closed) {
+            return;
+        }
+        for (QueryRecorder query : queries.values()) {
+            Histogram histogram = query.recorder.getIntervalHistogram(query.recycled);
+            query.recycled = histogram;
+            if (histogram.getTotalCount() == 0) {
+                continue;
+            }
+            histogram.setTag(query.tag);
+            logWriter.outputIntervalHistogram((histogram.getStartTimeStamp() - baseTimeMs) / 1_000.0,
+                    (histogram.getEndTimeStamp() - baseTimeMs) / 1_000.0, histogram, MICROS_PER_MILLI);
+        }
+        out.flush();
+    }
+
+    synchronized void close() {
+        if (closed) {
+            return;
+        }
+        if (intervals != null) {
+            intervals.cancel(false);
+        }
+        writeInterval();
+        closed = true;
+        logWriter.close();
+        if (out.checkError()) {
+            LOGGER.error("Failed to write latency histogram log {}", path);
+        }
+    }
+
+    private void writeIntervalSafely() {
+        try {
+            writeInterval();
+        } catch (RuntimeException e) {
+            LOGGER.error("Failed to write latency histograms of {}", description, e);
+        }
+    }
+
+    private static ScheduledExecutorService scheduler() {
+        ScheduledExecutorService current = scheduler;
+        if (current == null) {
+            synchronized (LatencyHistograms.class) {
+                current = scheduler;
+                if (current == null) {
+                    current = Executors.newSingleThreadScheduledExecutor(r -> {
+                        Thread thread = new Thread(r, "latency-histogram-log");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                    scheduler = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /** The recorder of one query.  Recording is wait-free and does not allocate. */
+    public final class QueryRecorder {
+        private final String tag;
+        private final Recorder recorder = new Recorder(SIGNIFICANT_DIGITS);
+        private Histogram recycled;
+
+        private QueryRecorder(String queryName) {
+            // The log format ends a tag at the first comma and splits values on whitespace
+            this.tag = queryName.replaceAll("[,\\s]", "_");
+        }
+
+        /** Records the monotonic duration of a succeeded execution. */
+        public void record(long durationNanos) {
+            long micros = Math.max(0, durationNanos / 1_000);
+            long expected = expectedIntervalUs;
+            if (expected > 0) {
+                recorder.recordValueWithExpectedInterval(micros, expected);
+            } else {
+                recorder.recordValue(micros);
+            }
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package com.atscale.java.runlog;
+
+import java.time.LocalDateTime;
+
+/**
+ * One line of a text run log parsed into typed fields by {@link RunLogLineParser}.
+ * Fields that the line does not carry are {@code null}.  The gatlingSessionId is kept as logged so that
+ * keys hashed from it match the keys built from the raw line.
+ */
+public class RunLogLine {
+    private LocalDateTime ts;
+    private String level;
+    private String logger;
+    private String messageKind;
+    private String gatlingRunId;
+    private String status;
+    private String gatlingSessionId;
+    private String model;
+    private String cube;
+    private String catalog;
+    private String queryName;
+    private String atscaleQueryId;
+    private String queryHash;
+    private String queryBase64;
+    private Long startMs;
+    private Long endMs;
+    private Long durationMs;
+    private Long durationUs;
+    private Long jdbcUs;
+    private Long callbackUs;
+    private Long responseMs;
+    private Long executeUs;
+    private Long fetchUs;
+    private Long rowsReturned;
+    private String resultHash;
+    private Long rowNumber;
+    private String rowMapRaw;
+    private String rowHash;
+    private Long responseSize;
+    private String responseHash;
+    private String response;
+    private long srcRowNumber;
+    private String rawLine;
+
+    public LocalDateTime getTs() {
+        return ts;
+    }
+
+    public void setTs(LocalDateTime ts) {
+        this.ts = ts;
+    }
+
+    public String getLevel() {
+        return level;
+    }
+
+    public void setLevel(String level) {
+        this.level = level;
+    }
+
+    public String getLogger() {
+        return logger;
+    }
+
+    public void setLogger(String logger) {
+        this.logger = logger;
+    }
+
+    public String getMessageKind() {
+        return messageKind;
+    }
+
+    public void setMessageKind(String messageKind) {
+        this.messageKind = messageKind;
+    }
+
+    public String getGatlingRunId() {
+        return gatlingRunId;
+    }
+
+    public void setGatlingRunId(String gatlingRunId) {
+        this.gatlingRunId = gatlingRunId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public String getGatlingSessionId() {
+        return gatlingSessionId;
+    }
+
+    public void setGatlingSessionId(String gatlingSessionId) {
+        this.gatlingSessionId = gatlingSessionId;
+    }
+
+    public String getModel() {
+        return model;
+    }
+
+    public void setModel(String model) {
+        this.model = model;
+    }
+
+    public String getCube() {
+        return cube;
+    }
+
+    public void setCube(String cube) {
+        this.cube = cube;
+    }
+
+    public String getCatalog() {
+        return catalog;
+    }
+
+    public void setCatalog(String catalog) {
+        this.catalog = catalog;
+    }
+
+    public String getQueryName() {
+        return queryName;
+    }
+
+    public void setQueryName(String queryName) {
+        this.queryName = queryName;
+    }
+
+    public String getAtscaleQueryId() {
+        return atscaleQueryId;
+    }
+
+    public void setAtscaleQueryId(String atscaleQueryId) {
+        this.atscaleQueryId = atscaleQueryId;
+    }
+
+    public String getQueryHash() {
+        return queryHash;
+    }
+
+    public void setQueryHash(String queryHash) {
+        this.queryHash = queryHash;
+    }
+
+    public String getQueryBase64() {
+        return queryBase64;
+    }
+
+    public void setQueryBase64(String queryBase64) {
+        this.queryBase64 = queryBase64;
+    }
+
+    public Long getStartMs() {
+        return startMs;
+    }
+
+    public void setStartMs(Long startMs) {
+        this.startMs = startMs;
+    }
+
+    public Long getEndMs() {
+        return endMs;
+    }
+
+    public void setEndMs(Long endMs) {
+        this.endMs = endMs;
+    }
+
+    public Long getDurationMs() {
+        return durationMs;
+    }
+
+    public void setDurationMs(Long durationMs) {
+        this.durationMs = durationMs;
+    }
+
+    public Long getDurationUs() {
+        return durationUs;
+    }
+
+    public void setDurationUs(Long durationUs) {
+        this.durationUs = durationUs;
+    }
+
+    public Long getJdbcUs() {
+        return jdbcUs;
+    }
+
+    public void setJdbcUs(Long jdbcUs) {
+        this.jdbcUs = jdbcUs;
+    }
+
+    public Long getCallbackUs() {
+        return callbackUs;
+    }
+
+    public void setCallbackUs(Long callbackUs) {
+        this.callbackUs = callbackUs;
+    }
+
+    public Long getResponseMs() {
+        return responseMs;
+    }
+
+    public void setResponseMs(Long responseMs) {
+        this.responseMs = responseMs;
+    }
+
+    public Long getExecuteUs() {
+        return executeUs;
+    }
+
+    public void setExecuteUs(Long executeUs) {
+        this.executeUs = executeUs;
+    }
+
+    public Long getFetchUs() {
+        return fetchUs;
+    }
+
+    public void setFetchUs(Long fetchUs) {
+        this.fetchUs = fetchUs;
+    }
+
+    public Long getRowsReturned() {
+        return rowsReturned;
+    }
+
+    public void setRowsReturned(Long rowsReturned) {
+        this.rowsReturned = rowsReturned;
+    }
+
+    public String getResultHash() {
+        return resultHash;
+    }
+
+    public void setResultHash(String resultHash) {
+        this.resultHash = resultHash;
+    }
+
+    public Long getRowNumber() {
+        return rowNumber;
+    }
+
+    public void setRowNumber(Long rowNumber) {
+        this.rowNumber = rowNumber;
+    }
+
+    public String getRowMapRaw() {
+        return rowMapRaw;
+    }
+
+    public void setRowMapRaw(String rowMapRaw) {
+        this.rowMapRaw = rowMapRaw;
+    }
+
+    public String getRowHash() {
+        return rowHash;
+    }
+
+    public void setRowHash(String rowHash) {
+        this.rowHash = rowHash;
+    }
+
+    public Long getResponseSize() {
+        return responseSize;
+    }
+
+    public void setResponseSize(Long responseSize) {
+        this.responseSize = responseSize;
+    }
+
+    public String getResponseHash() {
+        return responseHash;
+    }
+
+    public void setResponseHash(String responseHash) {
+        this.responseHash = responseHash;
+    }
+
+    public String getResponse() {
+        return response;
+    }
+
+    public void setResponse(String response) {
+        this.response = response;
+    }
+
+    public long getSrcRowNumber() {
+        return srcRowNumber;
+    }
+
+    public void setSrcRowNumber(long srcRowNumber) {
+        this.srcRowNumber = srcRowNumber;
+    }
+
+    public String getRawLine() {
+        return rawLine;
+    }
+
+    public void setRawLine(String rawLine) {
+        this.rawLine = rawLine;
+    }
+
+    /** @return true for sqlDictionary and xmlaDictionary lines, which hold the query text of a run */
+    public boolean isDictionary() {
+        return RunLogLineParser.SQL_DICTIONARY.equals(messageKind) || RunLogLineParser.XMLA_DICTIONARY.equals(messageKind);
+    }
+}
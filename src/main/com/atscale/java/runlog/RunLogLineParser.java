@@ -0,0 +1,259 @@
+package com.atscale.java.runlog;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Parses the sqlLog, sqlDictionary, sqlPhase, xmlaLog and xmlaDictionary lines of the text run logs into {@link RunLogLine}s.
+ * The fields are extracted the same way the Snowflake archive SQL extracts them from the raw line, so archives
+ * parsed locally and archives parsed in the warehouse hold the same values.
+ * Lines are expected in the log4j2 layout {@code %d{yyyy-MM-dd HH:mm:ss} %-5p %c{1}:%L - %m}.
+ */
+public final class RunLogLineParser {
+    public static final String SQL_LOG = "sqlLog";
+    public static final String SQL_DICTIONARY = "sqlDictionary";
+    public static final String SQL_PHASE = "sqlPhase";
+    public static final String XMLA_LOG = "xmlaLog";
+    public static final String XMLA_DICTIONARY = "xmlaDictionary";
+    private static final Set<String> MESSAGE_KINDS = Set.of(SQL_LOG, SQL_DICTIONARY, SQL_PHASE, XMLA_LOG, XMLA_DICTIONARY);
+    private static final DateTimeFormatter TS_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final int TS_LENGTH = 19;
+    private static final String SOAP_ENVELOPE_START = "<soap:Envelope";
+    private static final String SOAP_ENVELOPE_END = "</soap:Envelope>";
+
+    private RunLogLineParser() {
+        // Prevent instantiation
+    }
+
+    /** Receives parsed lines in file order. */
+    @FunctionalInterface
+    public interface BatchHandler {
+        void accept(List<RunLogLine> lines) throws SQLException;
+    }
+
+    /** Reads the lines of a run log, text or binary, and hands them to a handler in file order. */
+    @FunctionalInterface
+    public interface Source {
+        void read(BatchHandler handler) throws IOException, SQLException;
+    }
+
+    /**
+     * Parses a run log on {@code threads} threads.  Batches of {@code batchSize} lines are parsed concurrently and
+     * handed to the handler on the calling thread in file order, so the handler does not need to be thread safe.
+     * Lines that are not run log lines are left out.
+     */
+    public static void parse(Path file, int threads, int batchSize, BatchHandler handler) throws IOException, SQLException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        Deque<Future<List<RunLogLine>>> pending = new ArrayDeque<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            List<String> batch = new ArrayList<>(batchSize);
+            long rowNumber = 0;
+            long batchStart = 1;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                batch.add(line);
+                rowNumber++;
+                if (batch.size() == batchSize) {
+                    pending.add(submit(pool, batch, batchStart));
+                    batch = new ArrayList<>(batchSize);
+                    batchStart = rowNumber + 1;
+                    // Bound the parsed lines held in memory
+                    while (pending.size() > threads * 2) {
+                        handler.accept(await(pending.removeFirst()));
+                    }
+                }
+            }
+            if (!batch.isEmpty()) {
+                pending.add(submit(pool, batch, batchStart));
+            }
+            while (!pending.isEmpty()) {
+                handler.accept(await(pending.removeFirst()));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static Future<List<RunLogLine>> submit(ExecutorService pool, List<String> lines, long firstRowNumber) {
+        return pool.submit(() -> {
+            List<RunLogLine> parsed = new ArrayList<>(lines.size());
+            long rowNumber = firstRowNumber;
+            for (String line : lines) {
+                RunLogLine runLogLine = parse(line, rowNumber++);
+                if (runLogLine != null) {
+                    parsed.add(runLogLine);
+                }
+            }
+            return parsed;
+        });
+    }
+
+    private static List<RunLogLine> await(Future<List<RunLogLine>> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while parsing run log", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Failed to parse run log", e.getCause());
+        }
+    }
+
+    /**
+     * Parses one run log line.
+     *
+     * @param line         the raw line
+     * @param srcRowNumber the 1-based line number in the source file
+     * @return the parsed line, or {@code null} when the line is not a run log line
+     */
+    public static RunLogLine parse(String line, long srcRowNumber) {
+        int separator = line.indexOf(" - ");
+        if (separator < TS_LENGTH) {
+            return null;
+        }
+        int kindStart = separator + 3;
+        int kindEnd = kindStart;
+        while (kindEnd < line.length() && isWordChar(line.charAt(kindEnd))) {
+            kindEnd++;
+        }
+        String messageKind = line.substring(kindStart, kindEnd);
+        if (!MESSAGE_KINDS.contains(messageKind)) {
+            return null;
+        }
+
+        RunLogLine parsed = new RunLogLine();
+        parsed.setMessageKind(messageKind);
+        parsed.setRawLine(line);
+        parsed.setSrcRowNumber(srcRowNumber);
+        try {
+            parsed.setTs(LocalDateTime.parse(line.substring(0, TS_LENGTH), TS_FORMAT));
+        } catch (DateTimeParseException e) {
+            parsed.setTs(null);
+        }
+        String[] header = line.substring(TS_LENGTH, separator).trim().split("\\s+");
+        if (header.length > 0) {
+            parsed.setLevel(header[0]);
+        }
+        if (header.length > 1) {
+            int colon = header[1].indexOf(':');
+            parsed.setLogger(colon < 0 ? header[1] : header[1].substring(0, colon));
+        }
+
+        int from = kindEnd;
+        parsed.setGatlingRunId(quoted(line, from, "gatlingRunId"));
+        parsed.setStatus(quoted(line, from, "status"));
+        parsed.setGatlingSessionId(token(line, from, "gatlingSessionId"));
+        parsed.setModel(quoted(line, from, "model"));
+        parsed.setCube(quoted(line, from, "cube"));
+        parsed.setCatalog(quoted(line, from, "catalog"));
+        parsed.setQueryName(quoted(line, from, "queryName"));
+        parsed.setAtscaleQueryId(quoted(line, from, "atscaleQueryId"));
+        parsed.setQueryHash(quoted(line, from, "inboundTextAsHash"));
+        parsed.setQueryBase64(quoted(line, from, "inboundTextAsBase64"));
+        parsed.setStartMs(number(line, from, "start"));
+        parsed.setEndMs(number(line, from, "end"));
+        parsed.setDurationMs(number(line, from, "duration"));
+        parsed.setDurationUs(number(line, from, "durationUs"));
+        parsed.setJdbcUs(number(line, from, "jdbcUs"));
+        parsed.setCallbackUs(number(line, from, "callbackUs"));
+        parsed.setResponseMs(number(line, from, "responseMs"));
+        parsed.setExecuteUs(number(line, from, "executeUs"));
+        parsed.setFetchUs(number(line, from, "fetchUs"));
+        parsed.setRowsReturned(number(line, from, "rows"));
+        parsed.setResultHash(quoted(line, from, "resultHash"));
+        parsed.setRowNumber(number(line, from, "rownumber"));
+        parsed.setRowMapRaw(row(line, from));
+        parsed.setRowHash(token(line, from, "rowhash"));
+        parsed.setResponseSize(number(line, from, "responseSize"));
+        parsed.setResponseHash(quoted(line, from, "responseHash"));
+        parsed.setResponse(response(line, from));
+        return parsed;
+    }
+
+    /** The value of {@code key='value'}, up to the next single quote. */
+    private static String quoted(String line, int from, String key) {
+        int start = valueStart(line, from, key + "='");
+        if (start < 0) {
+            return null;
+        }
+        int end = line.indexOf('\'', start);
+        return end < 0 ? null : line.substring(start, end);
+    }
+
+    /** The value of {@code key=value}, up to the next whitespace. */
+    private static String token(String line, int from, String key) {
+        int start = valueStart(line, from, key + "=");
+        if (start < 0) {
+            return null;
+        }
+        int end = start;
+        while (end < line.length() && !Character.isWhitespace(line.charAt(end))) {
+            end++;
+        }
+        return end == start ? null : line.substring(start, end);
+    }
+
+    /** The leading digits of {@code key=value}. */
+    private static Long number(String line, int from, String key) {
+        int start = valueStart(line, from, key + "=");
+        if (start < 0) {
+            return null;
+        }
+        int end = start;
+        while (end < line.length() && Character.isDigit(line.charAt(end)) && end - start < 18) {
+            end++;
+        }
+        return end == start ? null : Long.parseLong(line, start, end, 10);
+    }
+
+    /** The content of {@code row=Map(...)} or {@code row={...}}. */
+    private static String row(String line, int from) {
+        int start = valueStart(line, from, "row=Map(");
+        if (start >= 0) {
+            int end = line.indexOf(')', start);
+            return end < 0 ? null : line.substring(start, end);
+        }
+        start = valueStart(line, from, "row={");
+        if (start >= 0) {
+            int end = line.indexOf('}', start);
+            return end < 0 ? null : line.substring(start, end);
+        }
+        return null;
+    }
+
+    /** The SOAP envelope of an XMLA response, or the quoted response when there is none, for example when redacted. */
+    private static String response(String line, int from) {
+        int start = line.indexOf(SOAP_ENVELOPE_START, from);
+        int end = line.lastIndexOf(SOAP_ENVELOPE_END);
+        if (start >= 0 && end > start) {
+            return line.substring(start, end + SOAP_ENVELOPE_END.length());
+        }
+        return quoted(line, from, "response");
+    }
+
+    /** Keys are matched after a space so that, for example, {@code rows=} does not match inside {@code rownumber=}. */
+    private static int valueStart(String line, int from, String keyAndDelimiter) {
+        int index = line.indexOf(" " + keyAndDelimiter, from);
+        return index < 0 ? -1 : index + 1 + keyAndDelimiter.length();
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+}
@@ -0,0 +1,196 @@
+package com.atscale.java.runlog;
+
+/**
+ * A record read back from a binary run log.
+ * Which fields are populated depends on the {@link RunLogRecordType}:
+ * <ul>
+ *   <li>{@code RUN} - gatlingRunId, protocol, model, cube, catalog</li>
+ *   <li>{@code QUERY_DEFINITION} - queryId, queryName, atscaleQueryId, inboundTextAsHash, inboundText</li>
+ *   <li>{@code SQL_EXECUTION} - queryId, gatlingSessionId, succeeded, start, end, durationUs, count (rows), hash (result hash)</li>
+ *   <li>{@code SQL_ROW} - queryId, gatlingSessionId, rowNumber, payload (row, null when redacted), hash (row hash)</li>
+ *   <li>{@code XMLA_EXECUTION} - queryId, gatlingSessionId, succeeded, start, end, durationUs, count (response size), hash (response hash), payload (response)</li>
+ * </ul>
+ * durationUs is -1 in run logs written before it was recorded.
+ */
+public class RunLogRecord {
+    private RunLogRecordType type;
+    private String gatlingRunId;
+    private String protocol;
+    private String model;
+    private String cube;
+    private String catalog;
+    private int queryId;
+    private String queryName;
+    private String atscaleQueryId;
+    private String inboundTextAsHash;
+    private String inboundText;
+    private long gatlingSessionId;
+    private boolean succeeded;
+    private long start;
+    private long end;
+    private long durationUs;
+    private long count;
+    private long rowNumber;
+    private String hash;
+    private String payload;
+
+    public RunLogRecordType getType() {
+        return type;
+    }
+
+    public void setType(RunLogRecordType type) {
+        this.type = type;
+    }
+
+    public String getGatlingRunId() {
+        return gatlingRunId;
+    }
+
+    public void setGatlingRunId(String gatlingRunId) {
+        this.gatlingRunId = gatlingRunId;
+    }
+
+    public String getProtocol() {
+        return protocol;
+    }
+
+    public void setProtocol(String protocol) {
+        this.protocol = protocol;
+    }
+
+    public String getModel() {
+        return model;
+    }
+
+    public void setModel(String model) {
+        this.model = model;
+    }
+
+    public String getCube() {
+        return cube;
+    }
+
+    public void setCube(String cube) {
+        this.cube = cube;
+    }
+
+    public String getCatalog() {
+        return catalog;
+    }
+
+    public void setCatalog(String catalog) {
+        this.catalog = catalog;
+    }
+
+    public int getQueryId() {
+        return queryId;
+    }
+
+    public void setQueryId(int queryId) {
+        this.queryId = queryId;
+    }
+
+    public String getQueryName() {
+        return queryName;
+    }
+
+    public void setQueryName(String queryName) {
+        this.queryName = queryName;
+    }
+
+    public String getAtscaleQueryId() {
+        return atscaleQueryId;
+    }
+
+    public void setAtscaleQueryId(String atscaleQueryId) {
+        this.atscaleQueryId = atscaleQueryId;
+    }
+
+    public String getInboundTextAsHash() {
+        return inboundTextAsHash;
+    }
+
+    public void setInboundTextAsHash(String inboundTextAsHash) {
+        this.inboundTextAsHash = inboundTextAsHash;
+    }
+
+    public String getInboundText() {
+        return inboundText;
+    }
+
+    public void setInboundText(String inboundText) {
+        this.inboundText = inboundText;
+    }
+
+    public long getGatlingSessionId() {
+        return gatlingSessionId;
+    }
+
+    public void setGatlingSessionId(long gatlingSessionId) {
+        this.gatlingSessionId = gatlingSessionId;
+    }
+
+    public boolean isSucceeded() {
+        return succeeded;
+    }
+
+    public void setSucceeded(boolean succeeded) {
+        this.succeeded = succeeded;
+    }
+
+    public long getStart() {
+        return start;
+    }
+
+    public void setStart(long start) {
+        this.start = start;
+    }
+
+    public long getEnd() {
+        return end;
+    }
+
+    public void setEnd(long end) {
+        this.end = end;
+    }
+
+    public long getDurationUs() {
+        return durationUs;
+    }
+
+    public void setDurationUs(long durationUs) {
+        this.durationUs = durationUs;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public long getRowNumber() {
+        return rowNumber;
+    }
+
+    public void setRowNumber(long rowNumber) {
+        this.rowNumber = rowNumber;
+    }
+
+    public String getHash() {
+        return hash;
+    }
+
+    public void setHash(String hash) {
+        this.hash = hash;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public void setPayload(String payload) {
+        this.payload = payload;
+    }
+}
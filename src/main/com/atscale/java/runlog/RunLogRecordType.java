@@ -0,0 +1,34 @@
+package com.atscale.java.runlog;
+
+/**
+ * Record types of the binary run log.  The code is the first byte of every record.
+ */
+public enum RunLogRecordType {
+    RUN((byte) 1),
+    QUERY_DEFINITION((byte) 2),
+    SQL_EXECUTION((byte) 3),
+    SQL_ROW((byte) 4),
+    XMLA_EXECUTION((byte) 5);
+
+    private final byte code;
+
+    RunLogRecordType(byte code) {
+        this.code = code;
+    }
+
+    public byte getCode() {
+        return code;
+    }
+
+    /**
+     * @return the record type for the code, or {@code null} when the code is unknown
+     */
+    public static RunLogRecordType fromCode(byte code) {
+        for (RunLogRecordType type : values()) {
+            if (type.code == code) {
+                return type;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,120 @@
+package com.atscale.java.runlog;
+
+import com.atscale.java.executors.MavenTaskDto;
+import com.atscale.java.utils.PropertiesManager;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds the structured run log sinks of the simulation JVM.
+ * The binary run log sits next to the log4j2 SQL and XMLA run logs and is enabled with
+ * {@code atscale.runlog.binary.enabled=true}.  It is written to {@code run_logs/<run log file name>.<gatling run id>.runlog}.
+ * <p>
+ * Scenarios publish their per query records to the {@link #channel() run record channel}, which writes both run logs
+ * on its own thread.
+ */
+public final class RunLogs {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RunLogs.class);
+    private static final Map<String, BinaryRunLogWriter> BINARY_WRITERS = new ConcurrentHashMap<>();
+    private static final long FLUSH_TIMEOUT_SECONDS = 30;
+    private static volatile RunRecordChannel channel;
+    private static final Thread SHUTDOWN_HOOK = new Thread(RunLogs::closeAll, "runlog-shutdown-hook");
+
+    static {
+        Runtime.getRuntime().addShutdownHook(SHUTDOWN_HOOK);
+    }
+
+    private RunLogs() {
+        // Prevent instantiation
+    }
+
+    /**
+     * Returns the binary run log writer of a Gatling run, opening it on first use.
+     *
+     * @param gatlingRunId the Gatling run id
+     * @return the writer, or {@code null} when the binary run log is disabled
+     */
+    public static BinaryRunLogWriter binaryWriter(String gatlingRunId) {
+        if (!PropertiesManager.getBinaryRunLogEnabled()) {
+            return null;
+        }
+        return BINARY_WRITERS.computeIfAbsent(gatlingRunId, RunLogs::openBinaryWriter);
+    }
+
+    /**
+     * Returns the run record channel of the simulation JVM, starting its writer thread on first use.  Its capacity and
+     * overflow policy are read from {@code atscale.runlog.channel.capacity} and {@code atscale.runlog.channel.overflowPolicy}.
+     */
+    public static RunRecordChannel channel() {
+        RunRecordChannel current = channel;
+        if (current == null) {
+            synchronized (RunLogs.class) {
+                current = channel;
+                if (current == null) {
+                    int capacity = PropertiesManager.getRunLogChannelCapacity();
+                    RunRecordChannel.OverflowPolicy policy = RunRecordChannel.OverflowPolicy.valueOf(
+                            PropertiesManager.getRunLogChannelOverflowPolicy());
+                    current = new RunRecordChannel("runlog-writer", capacity, policy);
+                    LOGGER.info("Writing run records through a channel of {} slots with overflow policy {}", current.getCapacity(), policy);
+                    channel = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Writes the records published to the run record channel, then flushes and closes all open run log sinks,
+     * including the latency histogram logs.
+     */
+    public static void closeAll() {
+        RunRecordChannel current = channel;
+        if (current != null) {
+            current.flush(FLUSH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
+        LatencyHistograms.closeAll();
+        for (Map.Entry<String, BinaryRunLogWriter> entry : BINARY_WRITERS.entrySet()) {
+            try {
+                entry.getValue().close();
+            } catch (IOException e) {
+                LOGGER.error("Failed to close binary run log for run {}", entry.getKey(), e);
+            }
+        }
+        BINARY_WRITERS.clear();
+    }
+
+    static Path binaryRunLogPath(String gatlingRunId) {
+        return runLogPath(gatlingRunId, "runlog");
+    }
+
+    /** Returns {@code run_logs/<run log file name>.<gatling run id>.<extension>}. */
+    static Path runLogPath(String gatlingRunId, String extension) {
+        String logFileName = System.getProperty(MavenTaskDto.ATSCALE_LOG_FILE_NAME);
+        String baseName = StringUtils.isEmpty(logFileName) ? "gatling" : logFileName;
+        if (baseName.endsWith(".log")) {
+            baseName = baseName.substring(0, baseName.length() - ".log".length());
+        }
+        return Paths.get("run_logs", String.format("%s.%s.%s", baseName, gatlingRunId, extension));
+    }
+
+    private static BinaryRunLogWriter openBinaryWriter(String gatlingRunId) {
+        Path path = binaryRunLogPath(gatlingRunId);
+        boolean append = Boolean.parseBoolean(System.getProperty(MavenTaskDto.ATSCALE_LOG_APPEND, "false"));
+        try {
+            Files.createDirectories(path.getParent());
+            LOGGER.info("Writing binary run log to {}", path.toAbsolutePath());
+            return new BinaryRunLogWriter(path, append);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open binary run log: " + path, e);
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package com.atscale.java.runlog;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hands run records from Gatling threads to a single writer thread, so formatting and writing the run logs never
+ * runs on, or blocks, a virtual user.
+ * <p>
+ * The channel is a bounded lock-free ring of reused slots that many threads publish to and one daemon thread drains.
+ * Every slot holds a preallocated {@link Record} of primitive and reference fields, so publishing allocates nothing:
+ * it claims a slot with one compare and set and stores the writer and its values; the writer thread runs
+ * {@link RecordWriter#write} later, in the order the slots were claimed.  When the ring is full,
+ * {@link OverflowPolicy#BLOCK} makes the publishing thread wait for a free slot and {@link OverflowPolicy#DROP}
+ * discards the record and counts it.
+ */
+public final class RunRecordChannel {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RunRecordChannel.class);
+    private static final long IDLE_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
+    private static final long FULL_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    /** What publishing does when the ring is full. */
+    public enum OverflowPolicy {
+        /** Wait for the writer thread to free a slot.  No record is lost. */
+        BLOCK,
+        /** Discard the record and count it.  Virtual users never wait. */
+        DROP
+    }
+
+    /** Writes one record on the writer thread.  Writers are created once per query, not per record. */
+    @FunctionalInterface
+    public interface RecordWriter {
+        /** The record is reused for the next one, so it must not be kept after this call returns. */
+        void write(Record record);
+    }
+
+    /** The values of one record, in the order they were published. */
+    public static final class Record {
+        static final int LONGS = 6;
+        static final int OBJECTS = 4;
+
+        private final long[] longs = new long[LONGS];
+        private final Object[] objects = new Object[OBJECTS];
+
+        public long getLong(int index) {
+            return longs[index];
+        }
+
+        public int getInt(int index) {
+            return (int) longs[index];
+        }
+
+        @SuppressWarnings("unchecked")
+        public <T> T getObject(int index) {
+            return (T) objects[index];
+        }
+
+        private void moveTo(Record target) {
+            System.arraycopy(longs, 0, target.longs, 0, LONGS);
+            System.arraycopy(objects, 0, target.objects, 0, OBJECTS);
+            // Let the published objects be collected while the slot waits to be reused
+            Arrays.fill(objects, null);
+        }
+    }
+
+    private static final class Slot {
+        volatile long sequence;
+        RecordWriter writer;
+        final Record record = new Record();
+
+        Slot(long sequence) {
+            this.sequence = sequence;
+        }
+    }
+
+    private final Slot[] slots;
+    private final int mask;
+    private final OverflowPolicy policy;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final Thread writerThread;
+    private volatile boolean running = true;
+
+    /**
+     * @param capacity the number of slots, rounded up to a power of two
+     */
+    RunRecordChannel(String name, int capacity, OverflowPolicy policy) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Run record channel capacity must be positive: " + capacity);
+        }
+        int size = Integer.highestOneBit(Math.min(capacity, 1 << 30));
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.slots = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot(i);
+        }
+        this.mask = size - 1;
+        this.policy = policy;
+        this.writerThread = new Thread(this::drain, name);
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Publishes a record of four longs.
+     *
+     * @return false when the record was dropped because the ring was full or the channel is stopped
+     */
+    public boolean publish(RecordWriter writer, long l0, long l1, long l2, long l3) {
+        return publish(writer, l0, l1, l2, l3, 0, 0, null, null, null, null);
+    }
+
+    /**
+     * Publishes a record of four longs and four objects.  The objects are handed to the writer as they are, so they
+     * must not be changed afterwards.
+     *
+     * @return false when the record was dropped because the ring was full or the channel is stopped
+     */
+    public boolean publish(RecordWriter writer, long l0, long l1, long l2, long l3, Object o0, Object o1, Object o2, Object o3) {
+        return publish(writer, l0, l1, l2, l3, 0, 0, o0, o1, o2, o3);
+    }
+
+    /**
+     * Publishes a record of six longs and two objects.  The objects are handed to the writer as they are, so they
+     * must not be changed afterwards.
+     *
+     * @return false when the record was dropped because the ring was full or the channel is stopped
+     */
+    public boolean publish(RecordWriter writer, long l0, long l1, long l2, long l3, long l4, long l5, Object o0, Object o1) {
+        return publish(writer, l0, l1, l2, l3, l4, l5, o0, o1, null, null);
+    }
+
+    private boolean publish(RecordWriter writer, long l0, long l1, long l2, long l3, long l4, long l5,
+                            Object o0, Object o1, Object o2, Object o3) {
+        while (true) {
+            long position = tail.get();
+            Slot slot = slots[(int) (position & mask)];
+            long difference = slot.sequence - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slot.writer = writer;
+                    long[] longs = slot.record.longs;
+                    longs[0] = l0;
+                    longs[1] = l1;
+                    longs[2] = l2;
+                    longs[3] = l3;
+                    longs[4] = l4;
+                    longs[5] = l5;
+                    Object[] objects = slot.record.objects;
+                    objects[0] = o0;
+                    objects[1] = o1;
+                    objects[2] = o2;
+                    objects[3] = o3;
+                    slot.sequence = position + 1;
+                    return true;
+                }
+            } else if (difference < 0) {
+                if (policy == OverflowPolicy.DROP || !running) {
+                    dropped.increment();
+                    return false;
+                }
+                LockSupport.parkNanos(FULL_PARK_NANOS);
+            }
+            // Otherwise another thread claimed this slot first, so try the next one
+        }
+    }
+
+    /**
+     * Waits until every record published before this call has been written.
+     *
+     * @return false when the records were not written within the timeout
+     */
+    public boolean flush(long timeout, TimeUnit unit) {
+        long target = tail.get();
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (head.get() < target) {
+            if (System.nanoTime() - deadline > 0 || !writerThread.isAlive()) {
+                LOGGER.warn("Run record channel {} did not write {} records within {} {}",
+                        writerThread.getName(), target - head.get(), timeout, unit);
+                return false;
+            }
+            LockSupport.parkNanos(IDLE_PARK_NANOS);
+        }
+        long droppedRecords = dropped.sumThenReset();
+        if (droppedRecords > 0) {
+            LOGGER.warn("Run record channel {} dropped {} records because it was full.  Raise atscale.runlog.channel.capacity or use the BLOCK policy.",
+                    writerThread.getName(), droppedRecords);
+        }
+        return true;
+    }
+
+    /** Writes the published records and stops the writer thread. */
+    void close(long timeout, TimeUnit unit) {
+        flush(timeout, unit);
+        running = false;
+        LockSupport.unpark(writerThread);
+    }
+
+    /** @return the records dropped since the last flush */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /** @return the records whose writer threw */
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    /** @return the number of slots */
+    public int getCapacity() {
+        return slots.length;
+    }
+
+    private void drain() {
+        long position = head.get();
+        // Owned by the writer thread, so a slot can be freed before its record is written
+        Record current = new Record();
+        while (true) {
+            Slot slot = slots[(int) (position & mask)];
+            if (slot.sequence != position + 1) {
+                if (!running) {
+                    return;
+                }
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+            RecordWriter writer = slot.writer;
+            slot.writer = null;
+            slot.record.moveTo(current);
+            // Free the slot before writing, so publishers wait no longer than they have to
+            slot.sequence = position + slots.length;
+            try {
+                writer.write(current);
+            } catch (RuntimeException e) {
+                failed.increment();
+                LOGGER.error("Failed to write run record on {}", writerThread.getName(), e);
+            } finally {
+                Arrays.fill(current.objects, null);
+            }
+            head.lazySet(++position);
+        }
+    }
+}
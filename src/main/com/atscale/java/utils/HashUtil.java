@@ -1,35 +1,199 @@
 package com.atscale.java.utils;
 
+import java.math.BigDecimal;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.nio.charset.StandardCharsets;
-import java.math.BigInteger;
+import java.util.HexFormat;
 
 public class HashUtil {
+    private static final String SHA_256 = "SHA-256";
+    private static final int SHA_256_LENGTH = 32;
+    private static final HexFormat HEX = HexFormat.of();
+
+    // MessageDigest instances are not thread safe, so each thread reuses its own
+    private static final ThreadLocal<MessageDigest> SHA_256_DIGEST = ThreadLocal.withInitial(HashUtil::newSha256);
 
     public static String TO_SHA256(String input) {
+        MessageDigest digest = SHA_256_DIGEST.get();
+        digest.reset();
+
+        // Generate the hash as a byte array
+        // The input string is converted to bytes using UTF-8 charset
+        byte[] hash = digest.digest(input.getBytes(StandardCharsets.UTF_8));
+
+        // Convert the message digest into a zero padded hexadecimal string of 64 characters (256 bits)
+        return HEX.formatHex(hash);
+    }
+
+    /**
+     * Creates a fingerprint that hashes result values straight into a digest.
+     * The fingerprint is not thread safe and is meant to be confined to the thread that reads the result.
+     *
+     * @return a new, empty fingerprint
+     */
+    public static ResultFingerprint newResultFingerprint() {
+        return new ResultFingerprint();
+    }
+
+    private static MessageDigest newSha256() {
         try {
-            // Get the SHA-256 MessageDigest object
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return MessageDigest.getInstance(SHA_256);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("Error generating SHA-256 hash", e);
+        }
+    }
 
-            // Generate the hash as a byte array
-            // The input string is converted to bytes using UTF-8 charset
-            byte[] hash = digest.digest(input.getBytes(StandardCharsets.UTF_8));
+    /**
+     * Incremental, order-insensitive fingerprint of a result made of rows of column values.
+     * <p>
+     * Column values are written into a SHA-256 digest with a type tag, without building a String for the row.
+     * Each completed row yields a row hash.  Row hashes are added together modulo 2^256, so the fingerprint of the
+     * whole result does not depend on row order but does count duplicate rows.  Within a row, column order matters.
+     * <p>
+     * Instances reuse their buffers and are not thread safe.
+     */
+    public static final class ResultFingerprint {
+        private static final byte NULL_TAG = 0;
+        private static final byte STRING_TAG = 1;
+        private static final byte LONG_TAG = 2;
+        private static final byte DOUBLE_TAG = 3;
+        private static final byte BOOLEAN_TAG = 4;
+        private static final byte DECIMAL_TAG = 5;
+        private static final byte OTHER_TAG = 6;
 
-            // Convert the byte array into a signum representation BigInteger
-            BigInteger number = new BigInteger(1, hash);
+        private final MessageDigest digest = newSha256();
+        private final byte[] buffer = new byte[512];
+        private final byte[] rowHash = new byte[SHA_256_LENGTH];
+        private final byte[] sum = new byte[SHA_256_LENGTH];
+        private int position;
+        private long rowCount;
 
-            // Convert the message digest into a hexadecimal string
-            StringBuilder hexString = new StringBuilder(number.toString(16));
+        private ResultFingerprint() {
+        }
 
-            // Pad with leading zeros to ensure a fixed length of 64 characters (256 bits)
-            while (hexString.length() < 64) {
-                hexString.insert(0, '0');
+        /**
+         * Adds the next column value of the current row.
+         */
+        public ResultFingerprint addValue(Object value) {
+            if (value == null) {
+                put(NULL_TAG);
+            } else if (value instanceof CharSequence chars) {
+                put(STRING_TAG);
+                putUtf8(chars);
+            } else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                put(LONG_TAG);
+                putLong(((Number) value).longValue());
+            } else if (value instanceof Double || value instanceof Float) {
+                put(DOUBLE_TAG);
+                putLong(Double.doubleToLongBits(((Number) value).doubleValue()));
+            } else if (value instanceof Boolean bool) {
+                put(BOOLEAN_TAG);
+                put(bool ? (byte) 1 : (byte) 0);
+            } else if (value instanceof BigDecimal decimal) {
+                // Strip trailing zeros so 1.50 and 1.5 hash the same
+                put(DECIMAL_TAG);
+                putUtf8(decimal.stripTrailingZeros().toPlainString());
+            } else {
+                put(OTHER_TAG);
+                putUtf8(value.toString());
             }
+            // Separate values so adjacent values cannot run together
+            put((byte) 0x1F);
+            return this;
+        }
 
-            return hexString.toString();
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException("Error generating SHA-256 hash", e);
+        /**
+         * Completes the current row and adds its hash to the fingerprint.
+         */
+        public ResultFingerprint endRow() {
+            flush();
+            try {
+                digest.digest(rowHash, 0, SHA_256_LENGTH);
+            } catch (java.security.DigestException e) {
+                throw new RuntimeException("Error generating SHA-256 hash", e);
+            }
+            // Add the row hash to the running sum modulo 2^256 (big endian)
+            int carry = 0;
+            for (int i = SHA_256_LENGTH - 1; i >= 0; i--) {
+                int total = (sum[i] & 0xFF) + (rowHash[i] & 0xFF) + carry;
+                sum[i] = (byte) total;
+                carry = total >>> 8;
+            }
+            rowCount++;
+            return this;
+        }
+
+        /**
+         * @return the hash of the last completed row as a 64 character hexadecimal string
+         */
+        public String lastRowHash() {
+            return HEX.formatHex(rowHash);
+        }
+
+        /**
+         * @return the first 8 bytes of the hash of the last completed row, a compact key for the row
+         */
+        public long lastRowKey() {
+            long key = 0;
+            for (int i = 0; i < Long.BYTES; i++) {
+                key = (key << 8) | (rowHash[i] & 0xFF);
+            }
+            return key;
+        }
+
+        public long getRowCount() {
+            return rowCount;
+        }
+
+        /**
+         * @return the order-insensitive fingerprint of all completed rows as a 64 character hexadecimal string
+         */
+        public String fingerprint() {
+            return HEX.formatHex(sum);
+        }
+
+        private void put(byte b) {
+            if (position == buffer.length) {
+                flush();
+            }
+            buffer[position++] = b;
+        }
+
+        private void putLong(long value) {
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                put((byte) (value >>> shift));
+            }
+        }
+
+        private void putUtf8(CharSequence chars) {
+            int length = chars.length();
+            for (int i = 0; i < length; i++) {
+                char c = chars.charAt(i);
+                if (c < 0x80) {
+                    put((byte) c);
+                } else if (c < 0x800) {
+                    put((byte) (0xC0 | (c >> 6)));
+                    put((byte) (0x80 | (c & 0x3F)));
+                } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(chars.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, chars.charAt(++i));
+                    put((byte) (0xF0 | (codePoint >> 18)));
+                    put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                    put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                    put((byte) (0x80 | (codePoint & 0x3F)));
+                } else {
+                    put((byte) (0xE0 | (c >> 12)));
+                    put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                    put((byte) (0x80 | (c & 0x3F)));
+                }
+            }
+        }
+
+        private void flush() {
+            if (position > 0) {
+                digest.update(buffer, 0, position);
+                position = 0;
+            }
         }
     }
 }
@@ -164,10 +164,107 @@ public class PropertiesManager {
         return Long.parseLong(getProperty("atscale.gatling.throttle.ms", "5"));
     }
 
+    public static boolean getBinaryRunLogEnabled() {
+        return Boolean.parseBoolean(getProperty("atscale.runlog.binary.enabled", "false"));
+    }
+
+    /** Returns the number of run records that can wait for the run log writer thread. */
+    public static int getRunLogChannelCapacity() {
+        return Integer.parseInt(getProperty("atscale.runlog.channel.capacity", "65536"));
+    }
+
+    /** Returns BLOCK or DROP, what virtual users do when the run log writer thread falls behind. */
+    public static String getRunLogChannelOverflowPolicy() {
+        String key = "atscale.runlog.channel.overflowPolicy";
+        return getOneOf(key, "", getProperty(key, "BLOCK"), "BLOCK", "DROP");
+    }
+
+    public static boolean getLatencyHistogramsEnabled() {
+        return Boolean.parseBoolean(getProperty("atscale.latency.histograms.enabled", "false"));
+    }
+
+    /** Returns how often the latency histograms are written to their log. */
+    public static long getLatencyHistogramsIntervalMs() {
+        return Long.parseLong(getProperty("atscale.latency.histograms.intervalMs", "10000"));
+    }
+
+    /**
+     * Returns the expected interval between the queries of a virtual user that open models correct coordinated
+     * omission with, or 0 to not correct.
+     */
+    public static long getLatencyHistogramsExpectedIntervalMs() {
+        return Long.parseLong(getProperty("atscale.latency.histograms.expectedIntervalMs", "0"));
+    }
+
+    /** Returns the port of the live metrics endpoint, or 0 to not serve live metrics. */
+    public static int getLiveMetricsPort() {
+        return Integer.parseInt(getProperty("atscale.metrics.port", "0"));
+    }
+
+    /** Returns the address the live metrics endpoint listens on. */
+    public static String getLiveMetricsHost() {
+        return getProperty("atscale.metrics.host", "127.0.0.1");
+    }
+
+    /** Returns the number of seconds the live throughput, error ratio and percentiles cover. */
+    public static int getLiveMetricsWindowSeconds() {
+        return Integer.parseInt(getProperty("atscale.metrics.windowSeconds", "60"));
+    }
+
+    /** Returns how often the JDBC connection pool is sampled into the run log, or 0 to not sample it. */
+    public static long getJdbcPoolMetricsIntervalMs() {
+        return Long.parseLong(getProperty("atscale.jdbc.poolMetrics.intervalMs", "5000"));
+    }
+
+    /** Returns true when simulations warm up connections, and optionally AtScale, before the measured injection steps. */
+    public static boolean getWarmUpEnabled() {
+        return Boolean.parseBoolean(getProperty("atscale.warmup.enabled", "false"));
+    }
+
+    /** Returns the number of unmeasured queries sent during the warm up. */
+    public static int getWarmUpQueries() {
+        return Integer.parseInt(getProperty("atscale.warmup.queries", "0"));
+    }
+
+    /** Returns how long the warm up waits for the JDBC connection pool to fill. */
+    public static long getWarmUpTimeoutSeconds() {
+        return Long.parseLong(getProperty("atscale.warmup.timeoutSeconds", "120"));
+    }
+
     public static Integer getAtScaleXmlaMaxConnectionsPerHost() {
         return Integer.parseInt(getProperty("atscale.xmla.maxConnectionsPerHost", "20"));
     }
 
+    public static Integer getAtScaleXmlaMaxConnectionsPerHost(String model) {
+        String key = String.format("atscale.%s.xmla.maxConnectionsPerHost", clean(model));
+        return Integer.parseInt(getProperty(key, String.valueOf(getAtScaleXmlaMaxConnectionsPerHost())));
+    }
+
+    public static boolean getXmlaHttp2(String model) {
+        String key = String.format("atscale.%s.xmla.http2", clean(model));
+        return Boolean.parseBoolean(getProperty(key, "false"));
+    }
+
+    public static boolean getXmlaShareConnections(String model) {
+        String key = String.format("atscale.%s.xmla.shareConnections", clean(model));
+        return Boolean.parseBoolean(getProperty(key, "false"));
+    }
+
+    public static boolean getXmlaKeepAlive(String model) {
+        String key = String.format("atscale.%s.xmla.keepAlive", clean(model));
+        return Boolean.parseBoolean(getProperty(key, "true"));
+    }
+
+    public static boolean getXmlaConnectionStats(String model) {
+        String key = String.format("atscale.%s.xmla.connectionStats", clean(model));
+        return Boolean.parseBoolean(getProperty(key, "false"));
+    }
+
+    public static String getXmlaAcceptEncoding(String model) {
+        String key = String.format("atscale.%s.xmla.acceptEncoding", clean(model));
+        return getProperty(key, "");
+    }
+
     public static String getJdbcUseAggregates() {
         String prop =  getProperty("atscale.jdbc.useAggregates", "true");
         if (prop.equals("true") || prop.equals("false")){
@@ -282,6 +379,12 @@ public class PropertiesManager {
         return Integer.parseInt(getProperty(key, "10"));
     }
 
+    /** Returns how long a virtual user of an open injection step is expected to run its queries, or 0 when unknown. */
+    public static double getAtScaleJdbcExpectedUserSeconds(String model) {
+        String key = String.format("atscale.%s.jdbc.expectedUserSeconds", clean(model));
+        return Double.parseDouble(getProperty(key, "0"));
+    }
+
     public static boolean getRedactRawData(String model) {
         String key = String.format("atscale.%s.redactRawdata", clean(model));
         return Boolean.parseBoolean(getProperty(key, "true"));
@@ -307,6 +410,41 @@ public class PropertiesManager {
         return Boolean.parseBoolean(getProperty(key, "false"));
     }
 
+    /**
+     * Returns the result check policy for JDBC queries: COUNT_ONLY, COUNT_AND_HASH or FULL.
+     * Defaults to FULL when result set rows are logged, otherwise COUNT_ONLY.
+     */
+    public static String getJdbcResultCheckPolicy(String model) {
+        String key = String.format("atscale.%s.jdbc.resultCheckPolicy", clean(model));
+        String property = getProperty(key, getLogSqlQueryRows(model) ? "FULL" : "COUNT_ONLY");
+        return getOneOf(key, "for model " + model + " ", property, "COUNT_ONLY", "COUNT_AND_HASH", "FULL");
+    }
+
+    /**
+     * Returns true when JDBC queries of the model are prepared on the server once per connection and reused
+     * from the driver statement cache.
+     */
+    public static boolean getJdbcPreparedStatements(String model) {
+        String key = String.format("atscale.%s.jdbc.preparedStatements", clean(model));
+        return Boolean.parseBoolean(getProperty(key, "false"));
+    }
+
+    public static int getJdbcStatementCacheSize(String model) {
+        String key = String.format("atscale.%s.jdbc.statementCacheSize", clean(model));
+        return Integer.parseInt(getProperty(key, "256"));
+    }
+
+    /** Returns true when the server execution and result fetch of each JDBC query of the model are timed. */
+    public static boolean getJdbcPhaseTimings(String model) {
+        String key = String.format("atscale.%s.jdbc.phaseTimings", clean(model));
+        return Boolean.parseBoolean(getProperty(key, "false"));
+    }
+
+    public static boolean getXmlaCellsetFingerprint(String model) {
+        String key = String.format("atscale.%s.xmla.cellsetFingerprint", clean(model));
+        return Boolean.parseBoolean(getProperty(key, "false"));
+    }
+
     public static boolean getLogXmlaResponseBody(String model) {
         String key = String.format("atscale.%s.xmla.log.responsebody", clean(model));
         return Boolean.parseBoolean(getProperty(key, "false"));
@@ -326,6 +464,10 @@ public class PropertiesManager {
         return getProperty(key);
     }
 
+    public static long getAtScaleXmlaAuthTokenLifetimeSeconds() {
+        return Long.parseLong(getProperty("atscale.xmla.auth.tokenLifetimeSeconds", "3600"));
+    }
+
     public static String getAtScaleXmlaAuthUserName(String model) {
         String key = String.format("atscale.%s.xmla.auth.username", clean(model));
         return getProperty(key);
@@ -360,6 +502,18 @@ public class PropertiesManager {
         return property;
     }
 
+    /**
+     * Returns the trimmed upper case value of a property that must be one of the allowed values.
+     */
+    private static String getOneOf(String key, String context, String property, String... allowedValues) {
+        String value = property.trim().toUpperCase();
+        if (!Arrays.asList(allowedValues).contains(value)) {
+            throw new RuntimeException("Invalid value " + property + " for property " + key + " " + context + "in properties file: "
+                    + instance.propertiesFileName + " expected one of " + String.join(", ", allowedValues));
+        }
+        return value;
+    }
+
     @SuppressWarnings("all")
     private static String getProperty(String key, String defaultValue) {
         if(! instance.properties.containsKey(key)) {
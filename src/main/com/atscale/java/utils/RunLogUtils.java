@@ -1,32 +1,211 @@
 package com.atscale.java.utils;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
-import java.util.ArrayList;
-import java.util.LinkedHashSet;
-import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class RunLogUtils {
-    private static final Pattern RUN_ID = Pattern.compile("gatlingRunId='([^']+)'");
+    private static final byte[] RUN_ID = "gatlingRunId='".getBytes(StandardCharsets.US_ASCII);
+    private static final long DEFAULT_CHUNK_BYTES = 64L * 1024 * 1024;
+    private static final int BOUNDARY_READ_BYTES = 64 * 1024;
 
     /** Return unique run ids preserving first-seen order. */
     public static List<String> extractGatlingRunIds(Path filePath){
-        File file = filePath.toFile();
-        LinkedHashSet<String> ids = new LinkedHashSet<>();
-        try (BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                Matcher m = RUN_ID.matcher(line);
-                while (m.find()) {
-                    ids.add(m.group(1));
+        return new ArrayList<>(scanGatlingRunIds(filePath).keySet());
+    }
+
+    /**
+     * Scans a run log for gatlingRunId='...' on all available processors.
+     * @return the statistics of each run id, in first-seen order
+     */
+    public static Map<String, RunIdStats> scanGatlingRunIds(Path filePath) {
+        return scanGatlingRunIds(filePath, Runtime.getRuntime().availableProcessors(), DEFAULT_CHUNK_BYTES);
+    }
+
+    /**
+     * Scans a run log for gatlingRunId='...'.  The file is split on line boundaries into chunks of about
+     * {@code chunkBytes}, each chunk is memory mapped and searched byte by byte on one of {@code threads} threads,
+     * and the per chunk results are merged in file order.
+     * @return the statistics of each run id, in first-seen order
+     */
+    public static Map<String, RunIdStats> scanGatlingRunIds(Path filePath, int threads, long chunkBytes) {
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            List<long[]> chunks = splitOnLines(channel, Math.min(chunkBytes, Integer.MAX_VALUE));
+            Map<String, RunIdStats> merged = new LinkedHashMap<>();
+            if (chunks.isEmpty()) {
+                return merged;
+            }
+            ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, chunks.size())));
+            try {
+                List<Future<Map<String, RunIdStats>>> futures = new ArrayList<>(chunks.size());
+                for (long[] chunk : chunks) {
+                    futures.add(pool.submit(() -> scanChunk(channel, chunk[0], chunk[1])));
+                }
+                for (Future<Map<String, RunIdStats>> future : futures) {
+                    for (RunIdStats stats : future.get().values()) {
+                        merged.merge(stats.getRunId(), stats, RunIdStats::merge);
+                    }
                 }
+            } finally {
+                pool.shutdownNow();
             }
+            return merged;
         } catch (IOException e) {
             throw new UncheckedIOException("Error reading file: " + filePath, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while scanning file: " + filePath, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw new UncheckedIOException("Error reading file: " + filePath, io);
+            }
+            throw new RuntimeException("Error scanning file: " + filePath, e.getCause());
+        }
+    }
+
+    /** Splits the file into [start, end) ranges that end just after a newline or at the end of the file. */
+    private static List<long[]> splitOnLines(FileChannel channel, long chunkBytes) throws IOException {
+        long size = channel.size();
+        List<long[]> chunks = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.allocate(BOUNDARY_READ_BYTES);
+        long start = 0;
+        while (start < size) {
+            long end = Math.min(size, start + chunkBytes);
+            while (end < size && !endsLine(channel, end, buffer)) {
+                end = nextLineStart(channel, end, size, buffer);
+            }
+            if (end - start > Integer.MAX_VALUE) {
+                throw new IOException("A line starting at byte " + start + " is too long to be mapped");
+            }
+            chunks.add(new long[]{start, end});
+            start = end;
+        }
+        return chunks;
+    }
+
+    /** True when the byte before {@code position} is a newline. */
+    private static boolean endsLine(FileChannel channel, long position, ByteBuffer buffer) throws IOException {
+        buffer.clear().limit(1);
+        channel.read(buffer, position - 1);
+        return buffer.get(0) == '\n';
+    }
+
+    /** The position just after the next newline at or after {@code position}, or the file size when there is none. */
+    private static long nextLineStart(FileChannel channel, long position, long size, ByteBuffer buffer) throws IOException {
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    private static Map<String, RunIdStats> scanChunk(FileChannel channel, long start, long end) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        Map<String, RunIdStats> found = new LinkedHashMap<>();
+        List<String> lineIds = new ArrayList<>(1);
+        int length = buffer.limit();
+        int lineStart = 0;
+        int i = 0;
+        while (i < length) {
+            byte b = buffer.get(i);
+            if (b == '\n') {
+                countLine(found, lineIds);
+                lineStart = ++i;
+            } else if (b == RUN_ID[0] && matchesAt(buffer, i, length)) {
+                int idStart = i + RUN_ID.length;
+                int idEnd = idStart;
+                byte c;
+                while (idEnd < length && (c = buffer.get(idEnd)) != '\'' && c != '\n' && c != '\r') {
+                    idEnd++;
+                }
+                if (idEnd < length && buffer.get(idEnd) == '\'' && idEnd > idStart) {
+                    byte[] id = new byte[idEnd - idStart];
+                    buffer.get(idStart, id);
+                    String runId = new String(id, StandardCharsets.UTF_8);
+                    if (!lineIds.contains(runId)) {
+                        lineIds.add(runId);
+                    }
+                    i = idEnd + 1;
+                } else {
+                    i = idEnd;
+                }
+            } else {
+                i++;
+            }
+        }
+        if (lineStart < length) {
+            countLine(found, lineIds);
+        }
+        return found;
+    }
+
+    private static boolean matchesAt(ByteBuffer buffer, int position, int length) {
+        if (position + RUN_ID.length > length) {
+            return false;
+        }
+        for (int j = 1; j < RUN_ID.length; j++) {
+            if (buffer.get(position + j) != RUN_ID[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void countLine(Map<String, RunIdStats> found, List<String> lineIds) {
+        for (String runId : lineIds) {
+            found.computeIfAbsent(runId, RunIdStats::new).addLine();
+        }
+        lineIds.clear();
+    }
+
+    /** The lines of one run id in a run log. */
+    public static final class RunIdStats {
+        private final String runId;
+        private long lineCount;
+
+        RunIdStats(String runId) {
+            this.runId = runId;
+        }
+
+        private void addLine() {
+            lineCount++;
+        }
+
+        private RunIdStats merge(RunIdStats later) {
+            lineCount += later.lineCount;
+            return this;
+        }
+
+        public String getRunId() {
+            return runId;
+        }
+
+        /** @return the number of lines that carry this run id */
+        public long getLineCount() {
+            return lineCount;
+        }
+
+        @Override
+        public String toString() {
+            return "RunIdStats{runId='" + runId + "', lineCount=" + lineCount + '}';
         }
-        return new ArrayList<>(ids);
     }
 }
@@ -0,0 +1,180 @@
+package com.atscale.java.xmla;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches the bearer tokens of the installer XMLA endpoint by auth URL and user, and refreshes each token on a
+ * background thread before it expires.  Virtual users only read the current token, so a refresh never blocks a
+ * request and soak tests that outlast the token lifetime keep sending valid tokens.
+ * <p>
+ * The expiry is read from the exp claim when the token is a JWT.  Other tokens are assumed to live for the default
+ * lifetime.  A token is refreshed once {@value #REFRESH_AT_PERCENT}% of its lifetime has passed.  A failed refresh is
+ * retried while the current token stays in use.
+ */
+public class BearerTokenManager {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BearerTokenManager.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    static final int REFRESH_AT_PERCENT = 80;
+    private static final long MIN_REFRESH_DELAY_MS = 1_000;
+    private static final long MAX_RETRY_DELAY_MS = 30_000;
+    private static volatile BearerTokenManager shared;
+
+    /** Fetches a token.  Returns the Authorization header value, for example "Bearer abc". */
+    @FunctionalInterface
+    interface TokenFetcher {
+        String fetch(String authUrl, String username, String password);
+    }
+
+    private final Map<String, CachedToken> tokens = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+    private final TokenFetcher fetcher;
+    private final long defaultLifetimeMs;
+
+    BearerTokenManager(TokenFetcher fetcher, long defaultLifetimeMs) {
+        this.fetcher = fetcher;
+        this.defaultLifetimeMs = defaultLifetimeMs;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "xmla-token-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @return the manager shared by the simulations of this JVM.  The default lifetime is taken from the first call.
+     */
+    public static BearerTokenManager getShared(long defaultLifetimeMs) {
+        BearerTokenManager manager = shared;
+        if (manager == null) {
+            synchronized (BearerTokenManager.class) {
+                manager = shared;
+                if (manager == null) {
+                    manager = new BearerTokenManager(XmlaProtocol::getBearerToken, defaultLifetimeMs);
+                    shared = manager;
+                }
+            }
+        }
+        return manager;
+    }
+
+    /**
+     * Returns the cached token of the user, fetching it on the calling thread the first time.
+     * @throws RuntimeException when the first fetch fails
+     */
+    public CachedToken getToken(String authUrl, String username, String password) {
+        String key = authUrl + '\u0000' + username;
+        return tokens.computeIfAbsent(key, k -> {
+            CachedToken token = new CachedToken(authUrl, username, password);
+            token.refresh();
+            return token;
+        });
+    }
+
+    /** Stops refreshing tokens.  Cached tokens keep their current value. */
+    void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * @return the expiry of a JWT in epoch milliseconds, or null when the token is not a JWT or has no exp claim
+     */
+    static Long parseJwtExpiry(String authorizationHeader) {
+        String token = authorizationHeader.startsWith("Bearer ") ? authorizationHeader.substring(7).trim() : authorizationHeader;
+        String[] parts = token.split("\\.");
+        if (parts.length != 3) {
+            return null;
+        }
+        try {
+            JsonNode claims = MAPPER.readTree(Base64.getUrlDecoder().decode(parts[1]));
+            JsonNode exp = claims.get("exp");
+            return exp != null && exp.canConvertToLong() ? exp.asLong() * 1_000 : null;
+        } catch (IllegalArgumentException | IOException e) {
+            return null;
+        }
+    }
+
+    /** The current token of one user.  Reading it is a volatile read and never blocks. */
+    public final class CachedToken {
+        private final String authUrl;
+        private final String username;
+        private final String password;
+        private volatile String authorizationHeader;
+        private volatile long expiresAtMillis;
+        private volatile long refreshCount;
+        private long retryDelayMs = MIN_REFRESH_DELAY_MS;
+
+        private CachedToken(String authUrl, String username, String password) {
+            this.authUrl = authUrl;
+            this.username = Objects.requireNonNull(username, "username");
+            this.password = password;
+        }
+
+        /** @return the Authorization header value of the current token */
+        public String getAuthorizationHeader() {
+            return authorizationHeader;
+        }
+
+        public long getExpiresAtMillis() {
+            return expiresAtMillis;
+        }
+
+        /** @return the number of tokens fetched, including the first */
+        public long getRefreshCount() {
+            return refreshCount;
+        }
+
+        private void refresh() {
+            long fetchedAt = System.currentTimeMillis();
+            String header = fetcher.fetch(authUrl, username, password);
+            Long jwtExpiry = parseJwtExpiry(header);
+            long expiresAt = jwtExpiry != null ? jwtExpiry : fetchedAt + defaultLifetimeMs;
+            authorizationHeader = header;
+            expiresAtMillis = expiresAt;
+            refreshCount++;
+            retryDelayMs = MIN_REFRESH_DELAY_MS;
+            long delay = Math.max(MIN_REFRESH_DELAY_MS, (expiresAt - fetchedAt) * REFRESH_AT_PERCENT / 100);
+            LOGGER.info("Obtained bearer token for user {} from {}.  It expires in {} s and is refreshed in {} s.",
+                    username, authUrl, (expiresAt - fetchedAt) / 1_000, delay / 1_000);
+            schedule(delay);
+        }
+
+        private void scheduledRefresh() {
+            try {
+                refresh();
+            } catch (RuntimeException e) {
+                long remaining = expiresAtMillis - System.currentTimeMillis();
+                LOGGER.warn("Unable to refresh bearer token for user {} from {}, retrying in {} ms.  The current token expires in {} s: {}",
+                        username, authUrl, retryDelayMs, remaining / 1_000, e.getMessage());
+                schedule(retryDelayMs);
+                retryDelayMs = Math.min(MAX_RETRY_DELAY_MS, retryDelayMs * 2);
+            }
+        }
+
+        private void schedule(long delayMs) {
+            try {
+                scheduler.schedule(this::scheduledRefresh, delayMs, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                LOGGER.debug("Token refresh for user {} is not scheduled after shutdown", username);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "CachedToken{authUrl='" + authUrl + "', username='" + username + "', expiresAtMillis=" + expiresAtMillis
+                    + ", refreshCount=" + refreshCount + '}';
+        }
+    }
+}
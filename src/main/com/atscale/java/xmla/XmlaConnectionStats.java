@@ -0,0 +1,167 @@
+package com.atscale.java.xmla;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.LoggerContext;
+import org.apache.logging.log4j.core.appender.AbstractAppender;
+import org.apache.logging.log4j.core.config.Configuration;
+import org.apache.logging.log4j.core.config.LoggerConfig;
+import org.apache.logging.log4j.core.config.Property;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the connections the Gatling HTTP client opens and reuses, so a run can tell TLS handshakes apart from
+ * AtScale time.  Gatling does not expose connection events through its API, so the counts come from the debug events
+ * of its HTTP client and connection pool, which an appender installed here matches by their message text.
+ * <p>
+ * The loggers are raised to debug for this appender only.  Their events reach the other appenders only when the
+ * logging configuration already logs them at debug, as the bundled log4j2.xml does for io.gatling.  Every request
+ * then creates log events on the Netty event loop, and the counts depend on the wording of Gatling internal messages,
+ * so counting is only installed for models that set atscale.&lt;model&gt;.xmla.connectionStats.
+ */
+public class XmlaConnectionStats {
+    private static final Logger LOGGER = LoggerFactory.getLogger(XmlaConnectionStats.class);
+    private static final Logger SESSION_LOGGER = LoggerFactory.getLogger("XmlaLogger");
+    static final String CLIENT_LOGGER = "io.gatling.http.client.impl.DefaultHttpClient";
+    static final String POOL_LOGGER = "io.gatling.http.client.pool.ChannelPool";
+    private static final AtomicBoolean INSTALLED = new AtomicBoolean();
+    private static final LongAdder OPENED = new LongAdder();
+    private static final LongAdder TLS_HANDSHAKES = new LongAdder();
+    private static final LongAdder REUSED = new LongAdder();
+    private static final LongAdder POOL_MISSES = new LongAdder();
+
+    private XmlaConnectionStats() {
+        // Prevent instantiation
+    }
+
+    /** Starts counting.  Later calls do nothing. */
+    public static void install() {
+        if (!INSTALLED.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            LoggerContext context = (LoggerContext) LogManager.getContext(false);
+            Configuration config = context.getConfiguration();
+            CountingAppender appender = new CountingAppender();
+            appender.start();
+            config.addAppender(appender);
+            for (String name : new String[]{CLIENT_LOGGER, POOL_LOGGER}) {
+                LoggerConfig existing = config.getLoggerConfig(name);
+                if (name.equals(existing.getName())) {
+                    // Configured explicitly, so its level is left as it is
+                    existing.addAppender(appender, Level.DEBUG, null);
+                    if (existing.getLevel().isMoreSpecificThan(Level.INFO)) {
+                        LOGGER.warn("Logger {} is configured above debug, so its connection events are not counted", name);
+                    }
+                } else {
+                    boolean parentLogsDebug = existing.getLevel().isLessSpecificThan(Level.DEBUG);
+                    LoggerConfig loggerConfig = LoggerConfig.newBuilder()
+                            .withLoggerName(name)
+                            .withLevel(Level.DEBUG)
+                            .withAdditivity(parentLogsDebug)
+                            .withConfig(config)
+                            .build();
+                    loggerConfig.addAppender(appender, Level.DEBUG, null);
+                    config.addLogger(name, loggerConfig);
+                }
+            }
+            context.updateLoggers();
+        } catch (ClassCastException | NoClassDefFoundError e) {
+            LOGGER.warn("Connection reuse is not counted because log4j-core is not the logging backend: {}", e.getMessage());
+        }
+    }
+
+    /** @return the counts since the last reset */
+    public static Counts snapshot() {
+        return new Counts(OPENED.sum(), TLS_HANDSHAKES.sum(), REUSED.sum(), POOL_MISSES.sum());
+    }
+
+    public static void reset() {
+        OPENED.reset();
+        TLS_HANDSHAKES.reset();
+        REUSED.reset();
+        POOL_MISSES.reset();
+    }
+
+    /** Writes the counts of the run to the XMLA run log as an xmlaConnections line. */
+    public static void logRun(String gatlingRunId, String model) {
+        if (!INSTALLED.get()) {
+            return;
+        }
+        Counts counts = snapshot();
+        SESSION_LOGGER.info("xmlaConnections gatlingRunId='{}' model='{}' opened={} tlsHandshakes={} reused={} poolMisses={} reusePercent={}",
+                gatlingRunId, model, counts.opened, counts.tlsHandshakes, counts.reused, counts.poolMisses, counts.getReusePercent());
+    }
+
+    static void count(String loggerName, String message) {
+        if (message == null) {
+            return;
+        }
+        if (CLIENT_LOGGER.equals(loggerName)) {
+            if (message.startsWith("Opening new channel")) {
+                OPENED.increment();
+            } else if (message.startsWith("TLS handshake successful")) {
+                TLS_HANDSHAKES.increment();
+            }
+        } else if (POOL_LOGGER.equals(loggerName)) {
+            if (message.startsWith("Retrieved ")) {
+                REUSED.increment();
+            } else if (message.startsWith("No channel in the pool")) {
+                POOL_MISSES.increment();
+            }
+        }
+    }
+
+    /** The connection counts of a run. */
+    public static final class Counts {
+        final long opened;
+        final long tlsHandshakes;
+        final long reused;
+        final long poolMisses;
+
+        Counts(long opened, long tlsHandshakes, long reused, long poolMisses) {
+            this.opened = opened;
+            this.tlsHandshakes = tlsHandshakes;
+            this.reused = reused;
+            this.poolMisses = poolMisses;
+        }
+
+        public long getOpened() {
+            return opened;
+        }
+
+        public long getTlsHandshakes() {
+            return tlsHandshakes;
+        }
+
+        public long getReused() {
+            return reused;
+        }
+
+        public long getPoolMisses() {
+            return poolMisses;
+        }
+
+        /** @return the share of requests that reused a pooled connection, out of those that opened or reused one */
+        public long getReusePercent() {
+            long total = opened + reused;
+            return total == 0 ? 0 : reused * 100 / total;
+        }
+    }
+
+    private static final class CountingAppender extends AbstractAppender {
+        CountingAppender() {
+            super("XmlaConnectionStats", null, null, true, Property.EMPTY_ARRAY);
+        }
+
+        @Override
+        public void append(LogEvent event) {
+            count(event.getLoggerName(), event.getMessage().getFormattedMessage());
+        }
+    }
+}
@@ -17,33 +17,65 @@ import java.util.Base64;
 @SuppressWarnings("unused")
 public class XmlaProtocol {
     private static final Logger LOGGER = LoggerFactory.getLogger(XmlaProtocol.class);
+    private static final int TOKEN_TIMEOUT_MS = 30_000;
 
     public static HttpProtocolBuilder forXmla(String model) {
         String url = PropertiesManager.getAtScaleXmlaConnection(model);
-        Integer maxConnections = PropertiesManager.getAtScaleXmlaMaxConnectionsPerHost();
+        Integer maxConnections = PropertiesManager.getAtScaleXmlaMaxConnectionsPerHost(model);
+        if (PropertiesManager.getXmlaConnectionStats(model)) {
+            XmlaConnectionStats.install();
+        }
+
+        HttpProtocolBuilder protocol = http.baseUrl(url)
+                .contentTypeHeader("text/xml; charset=UTF-8")
+                .acceptHeader("text/xml")
+                .maxConnectionsPerHost(maxConnections);
+        protocol = configureConnections(protocol, model);
 
         if (PropertiesManager.isContainerVersion(model)) {
             LOGGER.info("Configured for container version.  Auth token is part of the URL.");
             LOGGER.info("Configured for max connections per host: {}", maxConnections);
-            return http.baseUrl(url)
-                    .contentTypeHeader("text/xml; charset=UTF-8")
-                    .acceptHeader("text/xml")
-                    .maxConnectionsPerHost(maxConnections);
+            return protocol;
         } else {
             LOGGER.info("Configured for installer version.  Will obtain bearer auth token.");
             LOGGER.info("Configured for max connections per host: {}", maxConnections);
             String authUrl = PropertiesManager.getAtScaleXmlaAuthConnection(model);
             String tokenUserName = PropertiesManager.getAtScaleXmlaAuthUserName(model);
             String tokenPassword = PropertiesManager.getAtScaleXmlaAuthPassword(model);
-            String bearerToken = getBearerToken(authUrl, tokenUserName, tokenPassword);
+            long tokenLifetimeMs = PropertiesManager.getAtScaleXmlaAuthTokenLifetimeSeconds() * 1_000L;
+            BearerTokenManager.CachedToken bearerToken = BearerTokenManager.getShared(tokenLifetimeMs)
+                    .getToken(authUrl, tokenUserName, tokenPassword);
             LOGGER.info("Obtained bearer token for user {} and model {}.", tokenUserName, model);
 
-            return http.baseUrl(url)
-                    .contentTypeHeader("text/xml; charset=UTF-8")
-                    .acceptHeader("text/xml")
-                    .authorizationHeader(bearerToken)
-                    .maxConnectionsPerHost(maxConnections);
+            // Every request reads the current token, which is refreshed in the background before it expires
+            return protocol.authorizationHeader(session -> bearerToken.getAuthorizationHeader());
+        }
+    }
+
+    /**
+     * Applies the connection settings of the model.  HTTP/2 multiplexes the requests of a virtual user over one
+     * connection when the server supports it, and shared connections let all virtual users draw from one pool, so
+     * fewer TLS handshakes land inside the measured response times.
+     */
+    static HttpProtocolBuilder configureConnections(HttpProtocolBuilder protocol, String model) {
+        if (PropertiesManager.getXmlaHttp2(model)) {
+            LOGGER.info("HTTP/2 enabled for model {}", model);
+            protocol = protocol.enableHttp2();
+        }
+        if (PropertiesManager.getXmlaShareConnections(model)) {
+            LOGGER.info("Connections are shared across virtual users for model {}", model);
+            protocol = protocol.shareConnections();
+        }
+        if (!PropertiesManager.getXmlaKeepAlive(model)) {
+            LOGGER.info("Keep-alive disabled for model {}.  Every request opens a new connection.", model);
+            protocol = protocol.connectionHeader("close");
+        }
+        String acceptEncoding = PropertiesManager.getXmlaAcceptEncoding(model);
+        if (!acceptEncoding.isEmpty()) {
+            LOGGER.info("Requesting {} encoded responses for model {}", acceptEncoding, model);
+            protocol = protocol.acceptEncodingHeader(acceptEncoding);
         }
+        return protocol;
     }
 
     public static String getBearerToken(String urlString, String username, String password) {
@@ -52,6 +84,8 @@ public class XmlaProtocol {
             URL url = new URL(urlString);
             HttpURLConnection conn = (HttpURLConnection) url.openConnection();
             conn.setRequestMethod("GET");
+            conn.setConnectTimeout(TOKEN_TIMEOUT_MS);
+            conn.setReadTimeout(TOKEN_TIMEOUT_MS);
             String auth = username + ":" + password;
             String encodedAuth = Base64.getEncoder().encodeToString(auth.getBytes(StandardCharsets.UTF_8));
             conn.setRequestProperty("Authorization", "Basic " + encodedAuth);
@@ -11,20 +11,32 @@ import static io.gatling.javaapi.core.CoreDsl.*;
 import static io.gatling.javaapi.http.HttpDsl.*;
 import io.gatling.javaapi.core.Session;
 import io.gatling.http.response.Response;
+import io.netty.handler.codec.http.HttpHeaders;
 import java.nio.charset.StandardCharsets;
+import java.util.HexFormat;
 import java.util.function.BiFunction;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
 
 @SuppressWarnings("unused")
 public class AtScaleDynamicXmlaActions {
     private static final Logger LOGGER = LoggerFactory.getLogger(AtScaleDynamicXmlaActions.class);
+    /** The session attribute that holds the canonical cellset fingerprint of the last response, for run log lines. */
+    public static final String CELLSET_FINGERPRINT = "cellsetFingerprint";
+    /** The session attribute that holds the Gatling response time of the last request in milliseconds. */
+    public static final String RESPONSE_TIME = "responseTimeMs";
+    // The transformer hands the fingerprint to the checks in a response header it adds
+    private static final String CELLSET_HEADER = "X-AtScale-Gatling-Cellset";
 
     public AtScaleDynamicXmlaActions() {
         super();
@@ -32,14 +44,18 @@ public class AtScaleDynamicXmlaActions {
 
     private List<NamedHttpRequestActionBuilder> createXmlaPayloads(List<QueryHistoryDto> history, String cubeName, String catalog, String model) {
         List<NamedHttpRequestActionBuilder> builders = new ArrayList<>();
+        // The envelope around the statement is the same for every query, so its properties are resolved once
+        SoapEnvelope envelope = new SoapEnvelope(cubeName, catalog);
         for (QueryHistoryDto query : history) {
                 String queryName = query.getQueryName();
                 String inboundTextAsHash = query.getInboundTextAsHash();
-                String body = injectXmlaQuery(query.getInboundText(), cubeName, catalog);
+                String statement = org.apache.commons.text.StringEscapeUtils.escapeXml11(query.getInboundText());
+                String body = envelope.wrap(statement);
+                byte[] bodyBytes = envelope.wrapAsBytes(statement);
                 String atscaleQueryId = query.getAtscaleQueryId();
                 String inboundText = query.getInboundText();
                 String inboundTextAsBase64 = query.getInboundTextAsBase64();
-                builders.add(new NamedHttpRequestActionBuilder(httpRequest(queryName, body, model), queryName, inboundTextAsHash, inboundTextAsBase64, body, atscaleQueryId, inboundText));
+                builders.add(new NamedHttpRequestActionBuilder(httpRequest(queryName, bodyBytes, model), queryName, inboundTextAsHash, inboundTextAsBase64, body, bodyBytes, atscaleQueryId, inboundText));
                 LOGGER.debug("Created XMLA payload for query: {} hash: {} and body {}", queryName, query.getInboundTextAsHash(), body);
             }
             return builders;
@@ -83,42 +99,51 @@ public class AtScaleDynamicXmlaActions {
     }
 
     // Make this protected so tests can override it to avoid initializing Gatling DSL in unit tests
-    protected HttpRequestActionBuilder httpRequest(String queryName, String body, String model) {
+    protected HttpRequestActionBuilder httpRequest(String queryName, byte[] body, String model) {
         try {
-            if (PropertiesManager.getRedactRawData(model)) {
-                return http(queryName)
-                        .post("")
-                        .body(StringBody(body)).asXml()
-                        .transformResponse(new SoapTransformerFactory().createTransformer())
-                        .check(
-                                status().saveAs("responseStatus"),
-                                status().is(200),
-                                bodyString().saveAs("responseBody")
-                        );
-            } else {
-                return http(queryName)
-                        .post("")
-                        .body(StringBody(body)).asXml()
-                        .requestTimeout(java.time.Duration.ofSeconds(120))
-                        .check(
-                                status().saveAs("responseStatus"),
-                                status().is(200),
-                                bodyString().saveAs("responseBody")
-                        );
+            boolean redactRawData = PropertiesManager.getRedactRawData(model);
+            boolean fingerprintCellset = PropertiesManager.getXmlaCellsetFingerprint(model);
+            HttpRequestActionBuilder request = http(queryName)
+                    .post("")
+                    .body(ByteArrayBody(body)).asXml();
+            if (redactRawData || fingerprintCellset) {
+                request = request.transformResponse(new SoapTransformerFactory(redactRawData, fingerprintCellset).createTransformer());
+            }
+            if (!redactRawData) {
+                request = request.requestTimeout(java.time.Duration.ofSeconds(120));
+            }
+            if (fingerprintCellset) {
+                request = request.check(header(CELLSET_HEADER).optional().saveAs(CELLSET_FINGERPRINT));
             }
+            return request.check(
+                    status().saveAs("responseStatus"),
+                    responseTimeInMillis().saveAs(RESPONSE_TIME),
+                    status().is(200),
+                    bodyString().saveAs("responseBody")
+            );
         } catch (Exception e) {
             throw new RuntimeException("Error during HTTP request for XMLA query: " + queryName, e);
         }
     }
 
-    private String injectXmlaQuery(String queryBody, String cube, String catalog) {
-        queryBody = org.apache.commons.text.StringEscapeUtils.escapeXml11(queryBody);
-        return String.format("""
+    /**
+     * The SOAP Execute envelope of one cube, split around the statement.  Payloads are built once into immutable
+     * UTF-8 byte arrays and sent as a ByteArrayBody, so Gatling does not encode the body again on every request.
+     */
+    static final class SoapEnvelope {
+        private static final String STATEMENT_START = "<Statement>";
+        private final String prefix;
+        private final String suffix;
+        private final byte[] prefixBytes;
+        private final byte[] suffixBytes;
+
+        SoapEnvelope(String cube, String catalog) {
+            String envelope = String.format("""
                 <Envelope xmlns="http://schemas.xmlsoap.org/soap/envelope/">
                     <Body>
                         <Execute xmlns="urn:schemas-microsoft-com:xml-analysis">
                             <Command>
-                                <Statement>%s</Statement>
+                                <Statement></Statement>
                             </Command>
                             <Properties>
                                 <PropertyList>
@@ -133,17 +158,54 @@ public class AtScaleDynamicXmlaActions {
                         </Execute>
                     </Body>
                 </Envelope>
-                """, queryBody, cube, catalog, PropertiesManager.getXmlaUseAggregates(),
-                PropertiesManager.getXmlaGenerateAggregates(),
-                PropertiesManager.getXmlaUseQueryCache(),
-                PropertiesManager.getXmlaUseAggregateCache());
-    }
+                """, cube, catalog, PropertiesManager.getXmlaUseAggregates(),
+                    PropertiesManager.getXmlaGenerateAggregates(),
+                    PropertiesManager.getXmlaUseQueryCache(),
+                    PropertiesManager.getXmlaUseAggregateCache());
+            int split = envelope.indexOf(STATEMENT_START) + STATEMENT_START.length();
+            this.prefix = envelope.substring(0, split);
+            this.suffix = envelope.substring(split);
+            this.prefixBytes = prefix.getBytes(StandardCharsets.UTF_8);
+            this.suffixBytes = suffix.getBytes(StandardCharsets.UTF_8);
+        }
 
+        /** @param statement the XML escaped statement */
+        String wrap(String statement) {
+            return prefix + statement + suffix;
+        }
+
+        /** @param statement the XML escaped statement */
+        byte[] wrapAsBytes(String statement) {
+            byte[] statementBytes = statement.getBytes(StandardCharsets.UTF_8);
+            byte[] body = new byte[prefixBytes.length + statementBytes.length + suffixBytes.length];
+            System.arraycopy(prefixBytes, 0, body, 0, prefixBytes.length);
+            System.arraycopy(statementBytes, 0, body, prefixBytes.length, statementBytes.length);
+            System.arraycopy(suffixBytes, 0, body, prefixBytes.length + statementBytes.length, suffixBytes.length);
+            return body;
+        }
+    }
 
     protected static class SoapTransformerFactory {
+        private static final SAXParserFactory PARSER_FACTORY = SAXParserFactory.newNSInstance();
+        // Responses are transformed on the Netty threads, so each thread reuses its own parser and handlers
+        private static final ThreadLocal<SAXParser> PARSER = ThreadLocal.withInitial(SoapTransformerFactory::newParser);
+        private static final ThreadLocal<HashingSaxHandler> HANDLER = ThreadLocal.withInitial(SoapTransformerFactory::newHandler);
+        private static final ThreadLocal<CellsetFingerprintHandler> CELLSET_HANDLER = ThreadLocal.withInitial(SoapTransformerFactory::newCellsetHandler);
+        private final boolean redactBody;
+        private final boolean fingerprintCellset;
 
         public SoapTransformerFactory (){
+            this(true, false);
+        }
+
+        /**
+         * @param redactBody replace the response body with its hash
+         * @param fingerprintCellset add the canonical cellset fingerprint of the response as a header for the checks
+         */
+        public SoapTransformerFactory(boolean redactBody, boolean fingerprintCellset) {
             super();
+            this.redactBody = redactBody;
+            this.fingerprintCellset = fingerprintCellset;
             LOGGER.debug("Initialized SOAP Transformer Factory");
         }
 
@@ -158,35 +220,107 @@ public class AtScaleDynamicXmlaActions {
                             response.endTimestamp(),
                             response.status(),
                             response.headers(),
-                            new StringResponseBody("", StandardCharsets.UTF_8),
+                            redactBody ? new StringResponseBody("", StandardCharsets.UTF_8) : response.body(),
                             response.checksums(),
                             response.isHttp2()
                     );
                 }
+                HttpHeaders headers = response.headers();
                 try (var inputStream = response.body().stream()) {
-                    final HashingSaxHandler handler = new HashingSaxHandler();
-                    SAXParserFactory.newNSInstance().newSAXParser().parse(inputStream, handler);
-                    hash = handler.getHash();
-                    LOGGER.debug("Computed SOAP response hash: {}", hash);
+                    if (fingerprintCellset) {
+                        CellsetFingerprintHandler.CellsetFingerprint cellset = fingerprint(inputStream);
+                        hash = cellset.getResponseHash();
+                        headers = headers.copy().set(CELLSET_HEADER, cellset.toLogString());
+                        LOGGER.debug("Computed SOAP response hash: {} and cellset {}", hash, cellset);
+                    } else {
+                        hash = hash(inputStream);
+                        LOGGER.debug("Computed SOAP response hash: {}", hash);
+                    }
                 } catch (Exception e) {
                     throw new RuntimeException("Error computing SOAP response hash: " + e.getMessage(), e);
                 }
-                ResponseBody newBody = new StringResponseBody(hash, StandardCharsets.UTF_8);
+                ResponseBody newBody = redactBody ? new StringResponseBody(hash, StandardCharsets.UTF_8) : response.body();
                 return response.copy(response.request(),
                         response.startTimestamp(),
                         response.endTimestamp(),
                         response.status(),
-                        response.headers(),
+                        headers,
                         newBody,
                         response.checksums(),
                         response.isHttp2()
                         );
             };
         }
+
+        /**
+         * Hashes a SOAP response with the parser and handler of the calling thread.  Both are reset before the
+         * method returns, including when parsing fails, so the next response starts clean.
+         */
+        static String hash(InputStream inputStream) throws SAXException, IOException {
+            SAXParser parser = PARSER.get();
+            HashingSaxHandler handler = HANDLER.get();
+            try {
+                parser.parse(inputStream, handler);
+                return handler.getHash();
+            } finally {
+                parser.reset();
+                handler.reset();
+            }
+        }
+
+        /** Fingerprints a SOAP response with the parser and cellset handler of the calling thread. */
+        static CellsetFingerprintHandler.CellsetFingerprint fingerprint(InputStream inputStream) throws SAXException, IOException {
+            SAXParser parser = PARSER.get();
+            CellsetFingerprintHandler handler = CELLSET_HANDLER.get();
+            try {
+                parser.parse(inputStream, handler);
+                return handler.getCellset();
+            } finally {
+                parser.reset();
+                handler.reset();
+            }
+        }
+
+        private static SAXParser newParser() {
+            try {
+                return PARSER_FACTORY.newSAXParser();
+            } catch (ParserConfigurationException | SAXException e) {
+                throw new RuntimeException("Error creating SAX parser: " + e.getMessage(), e);
+            }
+        }
+
+        private static HashingSaxHandler newHandler() {
+            try {
+                return new HashingSaxHandler();
+            } catch (java.security.NoSuchAlgorithmException e) {
+                throw new RuntimeException("Error creating SOAP response hash handler: " + e.getMessage(), e);
+            }
+        }
+
+        private static CellsetFingerprintHandler newCellsetHandler() {
+            try {
+                return new CellsetFingerprintHandler();
+            } catch (java.security.NoSuchAlgorithmException e) {
+                throw new RuntimeException("Error creating SOAP response hash handler: " + e.getMessage(), e);
+            }
+        }
     }
 
+    /**
+     * Hashes the text content of an XMLA response with SHA-256, skipping the SOAP header and the LastDataUpdate
+     * timestamp so that identical cellsets hash the same.  Characters are encoded as UTF-8 straight into a reusable
+     * byte buffer that is fed to the digest when full, so large cellsets are hashed without a String per text chunk.
+     */
     protected static class HashingSaxHandler extends org.xml.sax.helpers.DefaultHandler {
+        private static final HexFormat HEX = HexFormat.of();
+        private static final int BUFFER_SIZE = 8192;
+        // Replacement written for an unpaired surrogate, as String.getBytes(UTF_8) does
+        private static final byte REPLACEMENT = (byte) '?';
         private final java.security.MessageDigest digest;
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private int position;
+        // A high surrogate at the end of one text chunk may be completed by the first char of the next chunk
+        private char pendingHighSurrogate;
         private boolean isTimestampElement = false;
         private boolean isHeaderElement = false;
         private final String IGNORED_URI = "http://schemas.microsoft.com/analysisservices/2003/engine";
@@ -198,6 +332,7 @@ public class AtScaleDynamicXmlaActions {
 
         @Override
         public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            endPendingSurrogate();
             if (IGNORED_URI.equals(uri) && IGNORED_LOCAL_NAME.equals(localName)) {
                 isTimestampElement = true;
             }
@@ -208,6 +343,7 @@ public class AtScaleDynamicXmlaActions {
 
         @Override
         public void endElement(String uri, String localName, String qName) {
+            endPendingSurrogate();
             if (IGNORED_URI.equals(uri) && IGNORED_LOCAL_NAME.equals(localName)) {
                 isTimestampElement = false;
             }
@@ -219,19 +355,103 @@ public class AtScaleDynamicXmlaActions {
         @Override
         public void characters(char[] ch, int start, int length) {
             if (!isTimestampElement && !isHeaderElement) {
-                String content = new String(ch, start, length);
-                // Feed content directly to SHA256 digest
-                digest.update(content.getBytes(StandardCharsets.UTF_8));
+                encode(ch, start, start + length);
             }
         }
 
         public String getHash() {
-            byte[] hashBytes = digest.digest();
-            StringBuilder sb = new StringBuilder();
-            for (byte b : hashBytes) {
-                sb.append(String.format("%02x", b));
+            endPendingSurrogate();
+            flush();
+            return HEX.formatHex(digest.digest());
+        }
+
+        /** Clears the digest and the element state so the handler can hash another response. */
+        public void reset() {
+            digest.reset();
+            position = 0;
+            pendingHighSurrogate = 0;
+            isTimestampElement = false;
+            isHeaderElement = false;
+        }
+
+        private void encode(char[] ch, int from, int to) {
+            int i = from;
+            if (pendingHighSurrogate != 0 && i < to) {
+                if (Character.isLowSurrogate(ch[i])) {
+                    putCodePoint(Character.toCodePoint(pendingHighSurrogate, ch[i++]));
+                } else {
+                    put(REPLACEMENT);
+                }
+                pendingHighSurrogate = 0;
+            }
+            while (i < to) {
+                // Fast path for runs of ASCII, which is nearly all of a cellset
+                int room = BUFFER_SIZE - position;
+                int asciiEnd = Math.min(to, i + room);
+                while (i < asciiEnd && ch[i] < 0x80) {
+                    buffer[position++] = (byte) ch[i++];
+                }
+                if (i == to) {
+                    break;
+                }
+                char c = ch[i++];
+                if (c < 0x80) {
+                    // The buffer filled up during the ASCII run
+                    put((byte) c);
+                } else if (c < 0x800) {
+                    ensureRoom(2);
+                    buffer[position++] = (byte) (0xC0 | (c >> 6));
+                    buffer[position++] = (byte) (0x80 | (c & 0x3F));
+                } else if (Character.isHighSurrogate(c)) {
+                    if (i == to) {
+                        pendingHighSurrogate = c;
+                    } else if (Character.isLowSurrogate(ch[i])) {
+                        putCodePoint(Character.toCodePoint(c, ch[i++]));
+                    } else {
+                        put(REPLACEMENT);
+                    }
+                } else if (Character.isLowSurrogate(c)) {
+                    put(REPLACEMENT);
+                } else {
+                    ensureRoom(3);
+                    buffer[position++] = (byte) (0xE0 | (c >> 12));
+                    buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    buffer[position++] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+        }
+
+        private void endPendingSurrogate() {
+            if (pendingHighSurrogate != 0) {
+                put(REPLACEMENT);
+                pendingHighSurrogate = 0;
+            }
+        }
+
+        private void putCodePoint(int codePoint) {
+            ensureRoom(4);
+            buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+            buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+            buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+            buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+        }
+
+        private void put(byte b) {
+            ensureRoom(1);
+            buffer[position++] = b;
+        }
+
+        private void ensureRoom(int bytes) {
+            if (position + bytes > BUFFER_SIZE) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            if (position > 0) {
+                digest.update(buffer, 0, position);
+                position = 0;
             }
-            return sb.toString();
         }
     }
 }
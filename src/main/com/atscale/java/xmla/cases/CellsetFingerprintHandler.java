@@ -0,0 +1,429 @@
+package com.atscale.java.xmla.cases;
+
+import com.atscale.java.utils.HashUtil;
+import org.xml.sax.Attributes;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Reduces an XMLA response to a canonical fingerprint of its answer while it streams through the parser, on top of
+ * the character data hash of {@link AtScaleDynamicXmlaActions.HashingSaxHandler}.
+ * <p>
+ * For a multidimensional cellset, each tuple is keyed by the unique names of its members and each cell is hashed
+ * with the keys of the tuples at its coordinates and its canonical value.  Cell hashes are added together, so the
+ * fingerprint does not change when AtScale returns the tuples of an axis in another order, or when values differ
+ * only in whitespace, formatting or numeric type ({@code 5}, {@code 5.0} and {@code 5E0} are the same value).
+ * Captions, formatted values and the other member properties are left out.  Rows of a tabular rowset are hashed the
+ * same way, by column name and canonical value.
+ * <p>
+ * Memory is bounded by the number of tuples, one long per tuple, rather than by the number of cells.  Instances are
+ * not thread safe and are reused through {@link #reset()}.
+ */
+public class CellsetFingerprintHandler extends AtScaleDynamicXmlaActions.HashingSaxHandler {
+    private static final String XSI_URI = "http://www.w3.org/2001/XMLSchema-instance";
+    private static final Set<String> NUMERIC_TYPES = Set.of("double", "float", "decimal", "integer", "long", "int",
+            "short", "byte", "unsignedLong", "unsignedInt", "unsignedShort", "unsignedByte");
+    private static final String SLICER_AXIS = "SlicerAxis";
+
+    private final StringBuilder text = new StringBuilder();
+    private List<AxisBuilder> axes = new ArrayList<>();
+    private HashUtil.ResultFingerprint cells = HashUtil.newResultFingerprint();
+    private HashUtil.ResultFingerprint rows = HashUtil.newResultFingerprint();
+    private AxisBuilder axis;
+    private boolean inAxes;
+    private boolean inTuple;
+    private boolean inMember;
+    private boolean capturing;
+    private boolean inCellData;
+    private long cellOrdinal = -1;
+    private String valueType;
+    private Object cellValue;
+    private boolean cellHasValue;
+    private long numericCells;
+    private BigDecimal numericSum = BigDecimal.ZERO;
+    private int rowDepth = -1;
+    private int depth;
+    private String columnType;
+
+    public CellsetFingerprintHandler() throws java.security.NoSuchAlgorithmException {
+        super();
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes attributes) {
+        super.startElement(uri, localName, qName, attributes);
+        depth++;
+        if (rowDepth >= 0) {
+            // A column of a rowset row
+            startCapture();
+            columnType = attributes.getValue(XSI_URI, "type");
+            return;
+        }
+        switch (localName) {
+            case "Axes" -> inAxes = true;
+            case "Axis" -> {
+                if (inAxes) {
+                    axis = new AxisBuilder(attributes.getValue("name"));
+                    axes.add(axis);
+                }
+            }
+            case "Tuple" -> {
+                if (axis != null) {
+                    inTuple = true;
+                }
+            }
+            case "Member" -> {
+                if (axis != null) {
+                    inMember = true;
+                    axis.addHierarchy(attributes.getValue("Hierarchy"));
+                }
+            }
+            case "UName" -> {
+                if (inMember) {
+                    startCapture();
+                }
+            }
+            case "CellData" -> inCellData = true;
+            case "Cell" -> {
+                if (inCellData) {
+                    String ordinal = attributes.getValue("CellOrdinal");
+                    cellOrdinal = ordinal == null ? cellOrdinal + 1 : Long.parseLong(ordinal.trim());
+                    cellValue = null;
+                    cellHasValue = false;
+                }
+            }
+            case "Value" -> {
+                if (cellOrdinal >= 0) {
+                    valueType = attributes.getValue(XSI_URI, "type");
+                    startCapture();
+                }
+            }
+            case "row" -> rowDepth = depth;
+            default -> {
+            }
+        }
+    }
+
+    @Override
+    public void endElement(String uri, String localName, String qName) {
+        super.endElement(uri, localName, qName);
+        depth--;
+        if (rowDepth >= 0) {
+            if (depth >= rowDepth) {
+                rows.addValue(localName).addValue(canonicalValue(columnType, text));
+                capturing = false;
+            } else {
+                rows.endRow();
+                rowDepth = -1;
+            }
+            return;
+        }
+        switch (localName) {
+            case "Axes" -> {
+                inAxes = false;
+                axis = null;
+            }
+            case "Axis" -> axis = null;
+            case "Tuple" -> {
+                if (inTuple) {
+                    axis.endTuple();
+                    inTuple = false;
+                }
+            }
+            case "Member" -> {
+                if (inMember) {
+                    inMember = false;
+                    // A Members set has no Tuple elements, so each member is a tuple of its own
+                    if (!inTuple) {
+                        axis.endTuple();
+                    }
+                }
+            }
+            case "UName" -> {
+                if (capturing) {
+                    axis.addMember(text);
+                    capturing = false;
+                }
+            }
+            case "Value" -> {
+                if (capturing) {
+                    cellValue = canonicalValue(valueType, text);
+                    cellHasValue = true;
+                    capturing = false;
+                }
+            }
+            case "Cell" -> {
+                if (cellOrdinal >= 0) {
+                    addCell();
+                }
+            }
+            case "CellData" -> {
+                inCellData = false;
+                cellOrdinal = -1;
+            }
+            default -> {
+            }
+        }
+    }
+
+    @Override
+    public void characters(char[] ch, int start, int length) {
+        super.characters(ch, start, length);
+        if (capturing) {
+            text.append(ch, start, length);
+        }
+    }
+
+    /**
+     * Completes the fingerprint of the response parsed since the last reset.  Like {@link #getHash()}, which it
+     * calls, it can be called once per response.
+     */
+    public CellsetFingerprint getCellset() {
+        List<AxisSummary> summaries = new ArrayList<>(axes.size());
+        StringBuilder canonical = new StringBuilder("cells=").append(cells.fingerprint()).append(';');
+        for (AxisBuilder builder : axes) {
+            AxisSummary summary = builder.summarize();
+            summaries.add(summary);
+            canonical.append(summary.getName()).append('=').append(summary.getTupleFingerprint()).append(';');
+        }
+        canonical.append("rows=").append(rows.fingerprint());
+        return new CellsetFingerprint(HashUtil.TO_SHA256(canonical.toString()), getHash(), summaries, cells.getRowCount(),
+                numericCells, numericSum, rows.getRowCount());
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        text.setLength(0);
+        axes = new ArrayList<>();
+        cells = HashUtil.newResultFingerprint();
+        rows = HashUtil.newResultFingerprint();
+        axis = null;
+        inAxes = false;
+        inTuple = false;
+        inMember = false;
+        capturing = false;
+        inCellData = false;
+        cellOrdinal = -1;
+        valueType = null;
+        cellValue = null;
+        cellHasValue = false;
+        numericCells = 0;
+        numericSum = BigDecimal.ZERO;
+        rowDepth = -1;
+        depth = 0;
+        columnType = null;
+    }
+
+    private void startCapture() {
+        text.setLength(0);
+        capturing = true;
+    }
+
+    /** Hashes the current cell with the keys of its tuples, Axis0 first, as its CellOrdinal encodes them. */
+    private void addCell() {
+        long ordinal = cellOrdinal;
+        for (AxisBuilder builder : axes) {
+            if (builder.isSlicer() || builder.tupleCount == 0) {
+                continue;
+            }
+            cells.addValue(builder.tupleKeys[(int) (ordinal % builder.tupleCount)]);
+            ordinal /= builder.tupleCount;
+        }
+        Object value = cellHasValue ? cellValue : null;
+        cells.addValue(value).endRow();
+        if (value instanceof BigDecimal decimal) {
+            numericCells++;
+            numericSum = numericSum.add(decimal);
+        }
+    }
+
+    /**
+     * Numbers of any xsd numeric type become a BigDecimal, other values are trimmed.
+     * Values that are typed as numbers but do not parse, such as NaN or INF, are kept as text.
+     */
+    static Object canonicalValue(String xsiType, CharSequence value) {
+        String trimmed = value.toString().strip();
+        if (xsiType != null && NUMERIC_TYPES.contains(xsiType.substring(xsiType.indexOf(':') + 1))) {
+            try {
+                return new BigDecimal(trimmed);
+            } catch (NumberFormatException e) {
+                return trimmed;
+            }
+        }
+        return trimmed;
+    }
+
+    /** The tuples of one axis as they are read. */
+    private static final class AxisBuilder {
+        private final String name;
+        private final HashUtil.ResultFingerprint tuples = HashUtil.newResultFingerprint();
+        private final List<String> hierarchies = new ArrayList<>();
+        private long[] tupleKeys = new long[16];
+        private int tupleCount;
+        private int members;
+        private long orderKey;
+
+        AxisBuilder(String name) {
+            this.name = name == null ? "" : name;
+        }
+
+        boolean isSlicer() {
+            return SLICER_AXIS.equals(name);
+        }
+
+        void addHierarchy(String hierarchy) {
+            // The members of the first tuple name the hierarchies of the axis
+            if (tupleCount == 0 && hierarchy != null) {
+                hierarchies.add(hierarchy);
+            }
+        }
+
+        void addMember(CharSequence uniqueName) {
+            tuples.addValue(uniqueName.toString().strip());
+            members++;
+        }
+
+        void endTuple() {
+            tuples.endRow();
+            long key = tuples.lastRowKey();
+            if (tupleCount == tupleKeys.length) {
+                tupleKeys = Arrays.copyOf(tupleKeys, tupleCount * 2);
+            }
+            tupleKeys[tupleCount++] = key;
+            orderKey = orderKey * 31 + key;
+        }
+
+        AxisSummary summarize() {
+            return new AxisSummary(name, tupleCount, members, hierarchies, tuples.fingerprint(), Long.toHexString(orderKey));
+        }
+    }
+
+    /** The summary of one axis of a cellset. */
+    public static final class AxisSummary {
+        private final String name;
+        private final int tupleCount;
+        private final int memberCount;
+        private final List<String> hierarchies;
+        private final String tupleFingerprint;
+        private final String orderKey;
+
+        AxisSummary(String name, int tupleCount, int memberCount, List<String> hierarchies, String tupleFingerprint, String orderKey) {
+            this.name = name;
+            this.tupleCount = tupleCount;
+            this.memberCount = memberCount;
+            this.hierarchies = Collections.unmodifiableList(new ArrayList<>(hierarchies));
+            this.tupleFingerprint = tupleFingerprint;
+            this.orderKey = orderKey;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getTupleCount() {
+            return tupleCount;
+        }
+
+        public int getMemberCount() {
+            return memberCount;
+        }
+
+        public List<String> getHierarchies() {
+            return hierarchies;
+        }
+
+        /** @return the fingerprint of the set of tuples on the axis, whatever their order */
+        public String getTupleFingerprint() {
+            return tupleFingerprint;
+        }
+
+        /** @return a key of the order of the tuples, which differs between runs that return them in another order */
+        public String getOrderKey() {
+            return orderKey;
+        }
+
+        @Override
+        public String toString() {
+            return name + ":" + tupleCount + "x" + hierarchies.size() + ":" + tupleFingerprint.substring(0, 16) + ":" + orderKey;
+        }
+    }
+
+    /** The canonical fingerprint of one XMLA response with its axis and cell summaries. */
+    public static final class CellsetFingerprint {
+        private final String fingerprint;
+        private final String responseHash;
+        private final List<AxisSummary> axes;
+        private final long cellCount;
+        private final long numericCellCount;
+        private final BigDecimal numericSum;
+        private final long rowCount;
+
+        CellsetFingerprint(String fingerprint, String responseHash, List<AxisSummary> axes, long cellCount,
+                           long numericCellCount, BigDecimal numericSum, long rowCount) {
+            this.fingerprint = fingerprint;
+            this.responseHash = responseHash;
+            this.axes = Collections.unmodifiableList(axes);
+            this.cellCount = cellCount;
+            this.numericCellCount = numericCellCount;
+            this.numericSum = numericSum;
+            this.rowCount = rowCount;
+        }
+
+        /** @return a 64 character hexadecimal fingerprint that only changes when the answer changes */
+        public String getFingerprint() {
+            return fingerprint;
+        }
+
+        /** @return the character data hash of the response, as the SOAP transformer logs it */
+        public String getResponseHash() {
+            return responseHash;
+        }
+
+        public List<AxisSummary> getAxes() {
+            return axes;
+        }
+
+        /** @return the number of cells in the response, empty cells excluded */
+        public long getCellCount() {
+            return cellCount;
+        }
+
+        public long getNumericCellCount() {
+            return numericCellCount;
+        }
+
+        public BigDecimal getNumericSum() {
+            return numericSum;
+        }
+
+        /** @return the number of rows of a tabular rowset response */
+        public long getRowCount() {
+            return rowCount;
+        }
+
+        /** @return the fingerprint and summaries formatted for a run log line */
+        public String toLogString() {
+            StringBuilder axisText = new StringBuilder();
+            for (AxisSummary summary : axes) {
+                if (!axisText.isEmpty()) {
+                    axisText.append(',');
+                }
+                axisText.append(summary);
+            }
+            return "cellsetFingerprint='" + fingerprint + "' cells=" + cellCount + " numericCells=" + numericCellCount
+                    + " numericSum=" + numericSum.stripTrailingZeros().toPlainString() + " rows=" + rowCount
+                    + " axes='" + axisText + "'";
+        }
+
+        @Override
+        public String toString() {
+            return toLogString();
+        }
+    }
+}
@@ -8,15 +8,22 @@ public class NamedHttpRequestActionBuilder {
     public final String inboundTextAsHash;
     public final String inboundTextAsBase64;
     public final String xmlPayload;
+    // The payload encoded once as UTF-8.  Treat it as immutable, it is the body Gatling sends.
+    public final byte[] xmlPayloadBytes;
     public final String atscaleQueryId;
     public final String inboundQueryText;
 
     public NamedHttpRequestActionBuilder(HttpRequestActionBuilder builder, String queryName, String inboundTextAsHash, String inboundTextAsBase64, String xmlPayload, String atscaleQueryId, String inboundQueryText) {
+        this(builder, queryName, inboundTextAsHash, inboundTextAsBase64, xmlPayload, xmlPayload.getBytes(java.nio.charset.StandardCharsets.UTF_8), atscaleQueryId, inboundQueryText);
+    }
+
+    public NamedHttpRequestActionBuilder(HttpRequestActionBuilder builder, String queryName, String inboundTextAsHash, String inboundTextAsBase64, String xmlPayload, byte[] xmlPayloadBytes, String atscaleQueryId, String inboundQueryText) {
         this.builder = builder;
         this.queryName = queryName;
         this.inboundTextAsHash = inboundTextAsHash;
         this.inboundTextAsBase64 = inboundTextAsBase64;
         this.xmlPayload = xmlPayload;
+        this.xmlPayloadBytes = xmlPayloadBytes;
         this.atscaleQueryId = atscaleQueryId;
         this.inboundQueryText = inboundQueryText;
     }
@@ -1,5 +1,12 @@
 package com.atscale.java.xmla.scenarios;
 
+import com.atscale.java.injectionsteps.AdaptiveConcurrency;
+import com.atscale.java.metrics.LiveMetrics;
+import com.atscale.java.metrics.QueryMetrics;
+import com.atscale.java.runlog.BinaryRunLogWriter;
+import com.atscale.java.runlog.LatencyHistograms;
+import com.atscale.java.runlog.RunLogs;
+import com.atscale.java.runlog.RunRecordChannel;
 import com.atscale.java.utils.PropertiesManager;
 import com.atscale.java.xmla.cases.AtScaleDynamicXmlaActions;
 import com.atscale.java.xmla.cases.NamedHttpRequestActionBuilder;
@@ -10,11 +17,16 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Arrays;
+import java.util.Set;
 import java.util.stream.Collectors;
 import static io.gatling.javaapi.core.CoreDsl.exec;
+import static io.gatling.javaapi.core.CoreDsl.ByteArrayBody;
 import static io.gatling.javaapi.core.CoreDsl.scenario;
+import static io.gatling.javaapi.http.HttpDsl.http;
 
 public class AtScaleXmlaScenario {
     private static final Logger LOGGER = LoggerFactory.getLogger(AtScaleXmlaScenario.class);
@@ -31,56 +43,154 @@ public class AtScaleXmlaScenario {
      * @return A ScenarioBuilder instance representing the dynamic query execution scenario.
      */
     public ScenarioBuilder buildScenario(String model, String cube, String catalog, String gatlingRunId, String ingestionFile, boolean ingestionFileHasHeader) {
-        NamedHttpRequestActionBuilder[] builders;
+        NamedHttpRequestActionBuilder[] builders = createBuilders(model, cube, catalog, ingestionFile, ingestionFileHasHeader);
         boolean logResponseBody = PropertiesManager.getLogXmlaResponseBody(model);
         boolean redactRawData = PropertiesManager.getRedactRawData(model);
         Long throttleBy = PropertiesManager.getAtScaleThrottleMs();
-        AtScaleDynamicXmlaActions xmlaActions = new AtScaleDynamicXmlaActions();
 
-        if(StringUtils.isNotEmpty(ingestionFile)) {
-            builders = xmlaActions.createPayloadsIngestedXmlaQueries(model, cube, catalog, ingestionFile, ingestionFileHasHeader);
-        } else {
-            builders = xmlaActions.createPayloadsXmlaQueries(model, cube, catalog);
+        BinaryRunLogWriter binaryLog = RunLogs.binaryWriter(gatlingRunId);
+        if (binaryLog != null) {
+            binaryLog.writeRun(gatlingRunId, "XMLA", model, cube, catalog);
         }
 
+        // Write the query text once per run, execution lines refer to it by inboundTextAsHash
+        Set<String> dictionary = new HashSet<>();
+        for (NamedHttpRequestActionBuilder namedBuilder : builders) {
+            if (dictionary.add(namedBuilder.inboundTextAsHash)) {
+                SESSION_LOGGER.info("xmlaDictionary gatlingRunId='{}' model='{}' cube='{}' catalog='{}' queryName='{}' atscaleQueryId='{}' inboundTextAsHash='{}' inboundTextAsBase64='{}'",
+                        gatlingRunId, model, cube, catalog, namedBuilder.queryName, namedBuilder.atscaleQueryId, namedBuilder.inboundTextAsHash, namedBuilder.getInboundQueryTextAsBase64());
+            }
+        }
+
+        RunRecordChannel channel = RunLogs.channel();
+        LatencyHistograms histograms = LatencyHistograms.forRun(gatlingRunId, "xmla");
+        QueryMetrics live = LiveMetrics.forProtocol("xmla");
         List<ChainBuilder> chains = Arrays.stream(builders)
-                .map(namedBuilder ->
-                        exec(session -> session
+                .map(namedBuilder -> {
+                    // Query text goes into the binary run log dictionary once; execution records refer to it by id
+                    int queryId = binaryLog == null ? -1 : binaryLog.defineQuery(namedBuilder.queryName, namedBuilder.atscaleQueryId, namedBuilder.inboundTextAsHash, namedBuilder.inboundQueryText);
+                    LatencyHistograms.QueryRecorder latency = histograms == null ? null : histograms.query(namedBuilder.queryName);
+                    RunRecordChannel.RecordWriter recordWriter = executionWriter(namedBuilder, queryId, binaryLog, latency, gatlingRunId, model, cube, catalog, logResponseBody, redactRawData);
+                    return exec(session -> session
                                 .set("queryStart", System.currentTimeMillis())
+                                .set("queryStartNanos", System.nanoTime())
                         )
                                 .exec(namedBuilder.builder)
                                 .exec(session -> {
-                                    long end = System.currentTimeMillis();
+                                    long endNanos = System.nanoTime();
                                     String response = session.getString("responseBody");
                                     int statusCode = session.getInt("responseStatus");
-                                    boolean isSuccess = statusCode >= 200 && statusCode < 300;
-                                    String status = isSuccess ? "SUCCEEDED" : "FAILED";
                                     long start = session.getLong("queryStart");
-                                    long duration = end - start;
-                                    int responseSize = response == null? 0: response.length();
-                                    if(isSuccess) {
-                                        LOGGER.info("Query '{}' with QueryId'{}' with hash '{}' returned status code {} and is marked as {}",
-                                                namedBuilder.queryName, namedBuilder.atscaleQueryId, namedBuilder.inboundTextAsHash, statusCode, status);
-                                    } else {
-                                            LOGGER.error("Query '{}' with QueryId'{}' with hash '{}' returned status code {} and is marked as {}",
-                                                    namedBuilder.queryName, namedBuilder.atscaleQueryId, namedBuilder.inboundTextAsHash, statusCode, status);
-                                    }
-                                    if(logResponseBody) {
-                                        // Since we are streaming the data from atscale we can only stream once before the stream is exhausted.
-                                        // therefore, we can get either to raw response or its hash, but not both.
-                                        if(redactRawData) {
-                                            SESSION_LOGGER.info("xmlaLog gatlingRunId='{}' status='{}' gatlingSessionId={} model='{}' cube='{}' catalog='{}' queryName='{}' atscaleQueryId='{}' inboundTextAsHash='{}' inboundTextAsBase64='{}' start={} end={} duration={} responseSize={} responseHash='{}' response='{}'",
-                                                    gatlingRunId, status, session.userId(), model, cube, catalog, namedBuilder.queryName, namedBuilder.atscaleQueryId, namedBuilder.inboundTextAsHash, namedBuilder.getInboundQueryTextAsBase64(), start, end, duration, responseSize, response, "REDACTED");
-                                        } else {
-                                            SESSION_LOGGER.info("xmlaLog gatlingRunId='{}' status='{}' gatlingSessionId={} model='{}' cube='{}' catalog='{}' queryName='{}' atscaleQueryId='{}' inboundTextAsHash='{}' inboundTextAsBase64='{}' start={} end={} duration={} responseSize={} responseHash='{}' response='{}'",
-                                                    gatlingRunId, status, session.userId(), model, cube, catalog, namedBuilder.queryName, namedBuilder.atscaleQueryId, namedBuilder.inboundTextAsHash, namedBuilder.getInboundQueryTextAsBase64(), start, end, duration, responseSize, "REDACTED", response);
-                                        }
-                                    } else {
-                                        SESSION_LOGGER.info("xmlaLog gatlingRunId='{}' status='{}' gatlingSessionId={} model='{}' cube='{}' catalog='{}' queryName='{}' atscaleQueryId='{}' inboundTextAsHash='{}' inboundTextAsBase64='{}' start={} end={} duration={} responseSize={}",
-                                                gatlingRunId, status, session.userId(), model, cube, catalog, namedBuilder.queryName, namedBuilder.atscaleQueryId, namedBuilder.inboundTextAsHash, namedBuilder.getInboundQueryTextAsBase64(), start, end, duration, responseSize);
+                                    long startNanos = session.getLong("queryStartNanos");
+                                    long responseMs = session.contains(AtScaleDynamicXmlaActions.RESPONSE_TIME) ? session.getInt(AtScaleDynamicXmlaActions.RESPONSE_TIME) : -1;
+                                    String cellset = session.contains(AtScaleDynamicXmlaActions.CELLSET_FINGERPRINT) ? session.getString(AtScaleDynamicXmlaActions.CELLSET_FINGERPRINT) : null;
+                                    boolean isSuccess = statusCode >= 200 && statusCode < 300;
+                                    if (live != null) {
+                                        // Wait-free, and lands in the second the query completed whatever the run log writer is doing
+                                        live.record(isSuccess, endNanos - startNanos);
                                     }
-                                    return session;
-                                }).pause(Duration.ofMillis(throttleBy))).collect(Collectors.toList());
-        return scenario("AtScale XMLA Scenario").exec(chains).pause(Duration.ofMillis(10));
+                                    AdaptiveConcurrency.record(isSuccess, startNanos, endNanos);
+                                    // Formatting and writing happen on the run log writer thread
+                                    channel.publish(recordWriter, statusCode, session.userId(), start, startNanos, endNanos, responseMs, response, cellset);
+                                    // Clear them so a failed request does not log the values of the previous one
+                                    return session.remove(AtScaleDynamicXmlaActions.CELLSET_FINGERPRINT)
+                                            .remove(AtScaleDynamicXmlaActions.RESPONSE_TIME);
+                                }).pause(Duration.ofMillis(throttleBy));
+                }).collect(Collectors.toList());
+        return scenario("AtScale XMLA Scenario").exec(AdaptiveConcurrency.gate(live == null ? chains : LiveMetrics.countingActiveUsers(chains))).pause(Duration.ofMillis(10));
+    }
+
+    /**
+     * Creates the writer of the execution records of one query.  It runs on the run log writer thread and receives the
+     * status code, Gatling session id, wall-clock start, monotonic start and end, Gatling response time, response and
+     * cellset fingerprint of an execution, with a response time of -1 when Gatling did not report one.  Succeeded executions are also recorded in the latency histogram of the
+     * query when latency histograms are enabled.  The live metrics are recorded by the virtual user.
+     * <p>
+     * durationUs is monotonic and runs from before the request is scheduled until the virtual user runs again.
+     * responseMs is the Gatling response time of the request, so the difference is time spent waiting for a connection
+     * and for the virtual user to be scheduled.  start is wall-clock time for correlation, and end is start plus the
+     * duration.
+     */
+    private static RunRecordChannel.RecordWriter executionWriter(NamedHttpRequestActionBuilder namedBuilder, int queryId, BinaryRunLogWriter binaryLog,
+                                                                 LatencyHistograms.QueryRecorder latency, String gatlingRunId, String model, String cube, String catalog,
+                                                                 boolean logResponseBody, boolean redactRawData) {
+        return record -> {
+            int statusCode = record.getInt(0);
+            long sessionId = record.getLong(1);
+            long start = record.getLong(2);
+            long startNanos = record.getLong(3);
+            long endNanos = record.getLong(4);
+            long responseMs = record.getLong(5);
+            String response = record.getObject(0);
+            String cellset = record.getObject(1);
+            boolean isSuccess = statusCode >= 200 && statusCode < 300;
+            String status = isSuccess ? "SUCCEEDED" : "FAILED";
+            long durationNanos = endNanos - startNanos;
+            long duration = durationNanos / 1_000_000;
+            long end = start + duration;
+            long durationUs = durationNanos / 1_000;
+            String responseTime = responseMs < 0 ? "" : String.valueOf(responseMs);
+            int responseSize = response == null? 0: response.length();
+            if(isSuccess) {
+                LOGGER.info("Query '{}' with QueryId'{}' with hash '{}' returned status code {} and is marked as {}",
+                        namedBuilder.queryName, namedBuilder.atscaleQueryId, namedBuilder.inboundTextAsHash, statusCode, status);
+            } else {
+                LOGGER.error("Query '{}' with QueryId'{}' with hash '{}' returned status code {} and is marked as {}",
+                        namedBuilder.queryName, namedBuilder.atscaleQueryId, namedBuilder.inboundTextAsHash, statusCode, status);
+            }
+            if(latency != null && isSuccess) {
+                latency.record(durationNanos);
+            }
+            if(binaryLog != null) {
+                String responseHash = logResponseBody && redactRawData ? response : null;
+                String responseBody = logResponseBody && !redactRawData ? response : null;
+                binaryLog.writeXmlaExecution(queryId, sessionId, isSuccess, start, end, durationUs, responseSize, responseHash, responseBody);
+            }
+            if(logResponseBody) {
+                // Since we are streaming the data from atscale we can only stream once before the stream is exhausted.
+                // therefore, we can get either to raw response or its hash, but not both.
+                if(redactRawData) {
+                    SESSION_LOGGER.info("xmlaLog gatlingRunId='{}' status='{}' gatlingSessionId={} model='{}' cube='{}' catalog='{}' queryName='{}' atscaleQueryId='{}' inboundTextAsHash='{}' start={} end={} duration={} durationUs={} responseMs={} responseSize={} responseHash='{}' response='{}'",
+                            gatlingRunId, status, sessionId, model, cube, catalog, namedBuilder.queryName, namedBuilder.atscaleQueryId, namedBuilder.inboundTextAsHash, start, end, duration, durationUs, responseTime, responseSize, response, "REDACTED");
+                } else {
+                    SESSION_LOGGER.info("xmlaLog gatlingRunId='{}' status='{}' gatlingSessionId={} model='{}' cube='{}' catalog='{}' queryName='{}' atscaleQueryId='{}' inboundTextAsHash='{}' start={} end={} duration={} durationUs={} responseMs={} responseSize={} responseHash='{}' response='{}'",
+                            gatlingRunId, status, sessionId, model, cube, catalog, namedBuilder.queryName, namedBuilder.atscaleQueryId, namedBuilder.inboundTextAsHash, start, end, duration, durationUs, responseTime, responseSize, "REDACTED", response);
+                }
+            } else {
+                SESSION_LOGGER.info("xmlaLog gatlingRunId='{}' status='{}' gatlingSessionId={} model='{}' cube='{}' catalog='{}' queryName='{}' atscaleQueryId='{}' inboundTextAsHash='{}' start={} end={} duration={} durationUs={} responseMs={} responseSize={}",
+                        gatlingRunId, status, sessionId, model, cube, catalog, namedBuilder.queryName, namedBuilder.atscaleQueryId, namedBuilder.inboundTextAsHash, start, end, duration, durationUs, responseTime, responseSize);
+            }
+            if(cellset != null) {
+                SESSION_LOGGER.info("xmlaCellset gatlingRunId='{}' gatlingSessionId={} model='{}' cube='{}' catalog='{}' queryName='{}' atscaleQueryId='{}' inboundTextAsHash='{}' start={} {}",
+                        gatlingRunId, sessionId, model, cube, catalog, namedBuilder.queryName, namedBuilder.atscaleQueryId, namedBuilder.inboundTextAsHash, start, cellset);
+            }
+        };
+    }
+
+    /**
+     * Builds a scenario that sends {@code queries} warm-up requests, cycling through the queries of the model.
+     * The requests are silent, so they are left out of the Gatling statistics, and they write no xmlaLog lines.
+     */
+    public ScenarioBuilder buildWarmUpScenario(String model, String cube, String catalog, String ingestionFile, boolean ingestionFileHasHeader, int queries) {
+        NamedHttpRequestActionBuilder[] builders = createBuilders(model, cube, catalog, ingestionFile, ingestionFileHasHeader);
+        List<ChainBuilder> chains = new ArrayList<>();
+        for (int i = 0; i < queries; i++) {
+            NamedHttpRequestActionBuilder namedBuilder = builders[i % builders.length];
+            chains.add(exec(http("Warm-up " + namedBuilder.queryName)
+                    .post("")
+                    .body(ByteArrayBody(namedBuilder.xmlPayloadBytes)).asXml()
+                    .silent()));
+        }
+        LOGGER.info("Warming up model {} with {} XMLA queries before the measured injection steps", model, queries);
+        return scenario("AtScale XMLA Warm-up").exec(chains);
+    }
+
+    private NamedHttpRequestActionBuilder[] createBuilders(String model, String cube, String catalog, String ingestionFile, boolean ingestionFileHasHeader) {
+        AtScaleDynamicXmlaActions xmlaActions = new AtScaleDynamicXmlaActions();
+        if(StringUtils.isNotEmpty(ingestionFile)) {
+            return xmlaActions.createPayloadsIngestedXmlaQueries(model, cube, catalog, ingestionFile, ingestionFileHasHeader);
+        } else {
+            return xmlaActions.createPayloadsXmlaQueries(model, cube, catalog);
+        }
     }
 }
@@ -1,9 +1,12 @@
 package com.atscale.java.xmla.simulations;
 
+import com.atscale.java.injectionsteps.AdaptiveConcurrency;
 import com.atscale.java.injectionsteps.ClosedStep;
 import com.atscale.java.utils.InjectionStepJsonUtil;
 import com.atscale.java.xmla.XmlaProtocol;
+import io.gatling.javaapi.http.HttpProtocolBuilder;
 import io.gatling.javaapi.core.ClosedInjectionStep;
+import io.gatling.javaapi.core.ScenarioBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import java.util.ArrayList;
@@ -37,6 +40,9 @@ public class AtScaleXmlaClosedInjectionStepSimulation extends AtScaleXmlaSimulat
             injectionSteps.add(constantConcurrentUsers(1).during(java.time.Duration.ofMinutes(1)));
         }
 
-        setUp(sb.injectClosed(injectionSteps).protocols(XmlaProtocol.forXmla(model)));
+        AdaptiveConcurrency.install(ClosedSteps);
+        ScenarioBuilder sb = buildScenario();
+        HttpProtocolBuilder protocol = XmlaProtocol.forXmla(model);
+        setUp(withWarmUp(sb.injectClosed(injectionSteps).protocols(protocol), protocol));
     }
 }
@@ -1,9 +1,12 @@
 package com.atscale.java.xmla.simulations;
 
 import com.atscale.java.injectionsteps.OpenStep;
+import com.atscale.java.runlog.LatencyHistograms;
 import com.atscale.java.utils.InjectionStepJsonUtil;
 import com.atscale.java.xmla.XmlaProtocol;
+import io.gatling.javaapi.http.HttpProtocolBuilder;
 import io.gatling.javaapi.core.OpenInjectionStep;
+import io.gatling.javaapi.core.ScenarioBuilder;
 import static io.gatling.javaapi.core.OpenInjectionStep.atOnceUsers;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -37,6 +40,9 @@ public class AtScaleXmlaOpenInjectionStepSimulation extends AtScaleXmlaSimulatio
             injectionSteps.add(atOnceUsers(1));
         }
 
-        setUp(sb.injectOpen(injectionSteps).protocols(XmlaProtocol.forXmla(model)));
+        ScenarioBuilder sb = buildScenario();
+        HttpProtocolBuilder protocol = XmlaProtocol.forXmla(model);
+        LatencyHistograms.correctForOpenModel(runId);
+        setUp(withWarmUp(sb.injectOpen(injectionSteps).protocols(protocol), protocol));
     }
 }
@@ -1,19 +1,27 @@
 package com.atscale.java.xmla.simulations;
 
 import com.atscale.java.executors.MavenTaskDto;
+import com.atscale.java.injectionsteps.AdaptiveConcurrency;
+import com.atscale.java.metrics.LiveMetrics;
+import com.atscale.java.runlog.RunLogs;
 import com.atscale.java.utils.JsonUtil;
 import com.atscale.java.utils.PropertiesManager;
+import com.atscale.java.xmla.XmlaConnectionStats;
 import com.atscale.java.xmla.scenarios.AtScaleXmlaScenario;
+import io.gatling.javaapi.core.PopulationBuilder;
 import io.gatling.javaapi.core.ScenarioBuilder;
+import io.gatling.javaapi.http.HttpProtocolBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import io.gatling.javaapi.core.Simulation;
 
+import static io.gatling.javaapi.core.OpenInjectionStep.atOnceUsers;
+
 /** Abstract base class for AtScale XMLA simulations.
  * The intent here is to have a common base class for AtScale JDBC simulations
  * that handles shared configuration and setup logic.
  * This abstract class reads configuration properties, initializes logging,
- * and builds the common scenario using AtScaleXmlaScenario.
+ * and builds the common scenario using AtScaleXmlaScenario once the subclass has read its injection steps.
  * Specific simulation implementations can extend this class to define their
  * own injection steps and protocols.
  * This class and it's members are 'package-private' by intent.
@@ -31,7 +39,6 @@ abstract class AtScaleXmlaSimulation extends Simulation {
     String additionalProperties;
     String cube;
     String catalog;
-    ScenarioBuilder sb;
 
     AtScaleXmlaSimulation() {
         model = System.getProperties().getProperty(MavenTaskDto.ATSCALE_MODEL);
@@ -68,8 +75,33 @@ abstract class AtScaleXmlaSimulation extends Simulation {
             LOGGER.error("AtScale model is not specified. Please set the 'atscale.model' system property.");
             throw new IllegalArgumentException("AtScale model is required.");
         }
+    }
 
+    /** Builds the measured scenario.  Adaptive injection steps must be installed before it is built. */
+    ScenarioBuilder buildScenario() {
         AtScaleXmlaScenario scn = new AtScaleXmlaScenario();
-        sb = scn.buildScenario(model, cube, catalog, runId, ingestionFile, Boolean.parseBoolean(ingestionFileHasHeader));
+        return scn.buildScenario(model, cube, catalog, runId, ingestionFile, Boolean.parseBoolean(ingestionFileHasHeader));
+    }
+
+    /**
+     * Runs the warm-up requests before the measured population when atscale.warmup.enabled is true and
+     * atscale.warmup.queries is above zero.  The bearer token is already fetched when the protocol is built.
+     */
+    PopulationBuilder withWarmUp(PopulationBuilder measured, HttpProtocolBuilder protocol) {
+        int queries = PropertiesManager.getWarmUpQueries();
+        if (!PropertiesManager.getWarmUpEnabled() || queries <= 0) {
+            return measured;
+        }
+        ScenarioBuilder warmUp = new AtScaleXmlaScenario().buildWarmUpScenario(model, cube, catalog, ingestionFile, Boolean.parseBoolean(ingestionFileHasHeader), queries);
+        return warmUp.injectOpen(atOnceUsers(1)).protocols(protocol).andThen(measured);
+    }
+
+    @Override
+    public void after() {
+        XmlaConnectionStats.logRun(runId, model);
+        // Flush structured run logs once the simulation completes
+        RunLogs.closeAll();
+        AdaptiveConcurrency.stop();
+        LiveMetrics.stop();
     }
 }
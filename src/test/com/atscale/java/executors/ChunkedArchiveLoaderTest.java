@@ -0,0 +1,226 @@
+package com.atscale.java.executors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the chunked archive pipeline against an in-memory H2 staging schema.  The stage is a local directory and the
+ * COPY is a plain insert of the chunk lines, so the chunking, the parallel loads and the ledger are what is tested.
+ */
+public class ChunkedArchiveLoaderTest {
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    @TempDir
+    Path dir;
+    private String url;
+    private Path stage;
+    private Path workDir;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        url = "jdbc:h2:mem:archive" + DATABASES.incrementAndGet() + ";DB_CLOSE_DELAY=-1";
+        stage = Files.createDirectory(dir.resolve("stage"));
+        workDir = Files.createDirectory(dir.resolve("work"));
+        try (Connection conn = DriverManager.getConnection(url); Statement st = conn.createStatement()) {
+            st.execute("CREATE TABLE GATLING_RAW_SQL_LOGS (RAW_LINE VARCHAR(100000), SRC_FILENAME VARCHAR(1024), SRC_ROW_NUMBER BIGINT)");
+        }
+    }
+
+    @Test
+    public void testLoadsEveryLineAcrossChunks() throws Exception {
+        Path log = writeLog("run.log", 0, 1000);
+        StagingLoader loader = new StagingLoader(4096, 4);
+
+        ChunkedArchiveLoader.Result result = loader.load(log);
+
+        assertTrue(result.getChunkNames().size() > 1);
+        assertEquals(result.getChunkNames().size(), result.getLoadedCount());
+        assertEquals("run.log.part-00001.gz", result.getChunkNames().get(0));
+        assertEquals(Files.readAllLines(log), loadedLines());
+        assertEquals(result.getChunkNames().size(), ledgerCount());
+        try (var files = Files.list(workDir)) {
+            assertEquals(0, files.count(), "local chunk files are deleted once loaded");
+        }
+    }
+
+    @Test
+    public void testSecondLoadSkipsLoadedChunks() throws Exception {
+        Path log = writeLog("run.log", 0, 500);
+        new StagingLoader(2048, 3).load(log);
+        StagingLoader again = new StagingLoader(2048, 3);
+
+        ChunkedArchiveLoader.Result result = again.load(log);
+
+        assertEquals(0, result.getLoadedCount());
+        assertEquals(result.getChunkNames().size(), result.getSkippedCount());
+        assertTrue(again.uploaded.isEmpty());
+        assertEquals(Files.readAllLines(log), loadedLines());
+    }
+
+    @Test
+    public void testFailedChunkIsLoadedOnRetry() throws Exception {
+        Path log = writeLog("run.log", 0, 500);
+        StagingLoader failing = new StagingLoader(2048, 2);
+        failing.failChunk = ChunkedArchiveLoader.chunkName("run.log", 2);
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> failing.load(log));
+        assertTrue(e.getMessage().contains("1 of"));
+        assertTrue(loadedLines().size() < 500);
+
+        ChunkedArchiveLoader.Result result = new StagingLoader(2048, 2).load(log);
+
+        assertEquals(1, result.getLoadedCount());
+        assertEquals(ChunkedArchiveLoader.ChunkStatus.LOADED, result.getStatus(failing.failChunk));
+        assertEquals(Files.readAllLines(log), loadedLines());
+    }
+
+    @Test
+    public void testAppendedLogReloadsChangedChunks() throws Exception {
+        Path log = writeLog("run.log", 0, 300);
+        new StagingLoader(4096, 2).load(log);
+        Files.write(log, lines(300, 100), StandardOpenOption.APPEND);
+
+        ChunkedArchiveLoader.Result result = new StagingLoader(4096, 2).load(log);
+
+        assertTrue(result.getSkippedCount() > 0);
+        assertTrue(result.getLoadedCount() > 0);
+        assertEquals(Files.readAllLines(log), loadedLines());
+    }
+
+    @Test
+    public void testLargerChunkSizeUnloadsStaleChunks() throws Exception {
+        Path log = writeLog("run.log", 0, 500);
+        ChunkedArchiveLoader.Result small = new StagingLoader(2048, 2).load(log);
+
+        ChunkedArchiveLoader.Result large = new StagingLoader(8192, 2).load(log);
+
+        assertTrue(large.getChunkNames().size() < small.getChunkNames().size());
+        assertEquals(Files.readAllLines(log), loadedLines());
+        assertEquals(large.getChunkNames().size(), ledgerCount());
+    }
+
+    @Test
+    public void testLineLongerThanChunk() throws Exception {
+        Path log = dir.resolve("long.log");
+        String longLine = "x".repeat(10_000);
+        Files.write(log, List.of("first", longLine, "last"));
+
+        ChunkedArchiveLoader.Result result = new StagingLoader(1024, 2).load(log);
+
+        assertEquals(List.of("first", longLine, "last"), loadedLines());
+        assertEquals(result.getChunkNames().size(), result.getLoadedCount());
+    }
+
+    private Path writeLog(String name, int from, int count) throws IOException {
+        return Files.write(dir.resolve(name), lines(from, count));
+    }
+
+    private static List<String> lines(int from, int count) {
+        List<String> lines = new ArrayList<>();
+        for (int i = from; i < from + count; i++) {
+            lines.add(String.format("2025-01-01 00:00:00 INFO  SqlLogger:1 - sqlLog gatlingRunId='run-1' gatlingSessionId=%d", i));
+        }
+        return lines;
+    }
+
+    private List<String> loadedLines() throws SQLException {
+        List<String> lines = new ArrayList<>();
+        try (Connection conn = DriverManager.getConnection(url); Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT RAW_LINE FROM GATLING_RAW_SQL_LOGS ORDER BY SRC_FILENAME, SRC_ROW_NUMBER")) {
+            while (rs.next()) {
+                lines.add(rs.getString(1));
+            }
+        }
+        return lines;
+    }
+
+    private int ledgerCount() throws SQLException {
+        try (Connection conn = DriverManager.getConnection(url); Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM " + ChunkedArchiveLoader.LEDGER_TABLE)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    /** Stages chunks in a local directory and copies them line by line into the raw table. */
+    private class StagingLoader extends ChunkedArchiveLoader {
+        final Set<String> uploaded = ConcurrentHashMap.newKeySet();
+        String failChunk;
+
+        StagingLoader(long chunkBytes, int parallelism) {
+            super(chunkBytes, parallelism, workDir);
+        }
+
+        @Override
+        protected Connection openConnection() throws SQLException {
+            return DriverManager.getConnection(url);
+        }
+
+        @Override
+        protected void uploadChunk(Connection conn, Path chunkFile) throws SQLException {
+            try {
+                Files.copy(chunkFile, stage.resolve(chunkFile.getFileName()), java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+                uploaded.add(chunkFile.getFileName().toString());
+            } catch (IOException e) {
+                throw new SQLException("PUT failed", e);
+            }
+        }
+
+        @Override
+        protected void loadChunk(Connection conn, String chunkName) throws SQLException {
+            unloadChunk(conn, chunkName);
+            try (PreparedStatement ps = conn.prepareStatement("INSERT INTO GATLING_RAW_SQL_LOGS (RAW_LINE, SRC_FILENAME, SRC_ROW_NUMBER) VALUES (?, ?, ?)");
+                 BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(Files.newInputStream(stage.resolve(chunkName))), StandardCharsets.UTF_8))) {
+                String line;
+                long row = 0;
+                while ((line = reader.readLine()) != null) {
+                    ps.setString(1, line);
+                    ps.setString(2, chunkName);
+                    ps.setLong(3, ++row);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            } catch (IOException e) {
+                throw new SQLException("COPY failed", e);
+            }
+            if (chunkName.equals(failChunk)) {
+                throw new SQLException("Simulated COPY failure for " + chunkName);
+            }
+        }
+
+        @Override
+        protected void unloadChunk(Connection conn, String chunkName) throws SQLException {
+            try (PreparedStatement ps = conn.prepareStatement("DELETE FROM GATLING_RAW_SQL_LOGS WHERE SRC_FILENAME = ?")) {
+                ps.setString(1, chunkName);
+                ps.executeUpdate();
+            }
+        }
+
+        @Override
+        protected void removeChunk(Connection conn, String chunkName) throws SQLException {
+            try {
+                Files.deleteIfExists(stage.resolve(chunkName));
+            } catch (IOException e) {
+                throw new SQLException("REMOVE failed", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.atscale.java.executors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ConcurrentSimulationExecutorTest {
+
+    @AfterEach
+    public void clearProperties() {
+        System.clearProperty(ConcurrentSimulationExecutor.MAX_CONCURRENT_TASKS_PROPERTY);
+        System.clearProperty(ConcurrentSimulationExecutor.MEMORY_BUDGET_MB_PROPERTY);
+    }
+
+    @Test
+    public void testConcurrencyLimitIsRespected() {
+        System.setProperty(ConcurrentSimulationExecutor.MAX_CONCURRENT_TASKS_PROPERTY, "2");
+        RecordingExecutor exec = new RecordingExecutor(6, 1024L);
+
+        exec.execute();
+
+        assertEquals(6, exec.started.size());
+        assertTrue(exec.maxRunning.get() <= 2, "More than 2 tasks ran at the same time: " + exec.maxRunning.get());
+    }
+
+    @Test
+    public void testMemoryBudgetLimitsConcurrencyAndKeepsFileOrder() {
+        System.setProperty(ConcurrentSimulationExecutor.MEMORY_BUDGET_MB_PROPERTY, "2048");
+        RecordingExecutor exec = new RecordingExecutor(4, 1024L);
+
+        exec.execute();
+
+        assertEquals(4, exec.started.size());
+        // task-2 and task-3 can only be admitted after one of the first two tasks released its memory
+        assertEquals(Set.of("task-0", "task-1"), Set.copyOf(exec.started.subList(0, 2)));
+        assertTrue(exec.maxRunning.get() <= 2, "Memory budget admitted too many tasks: " + exec.maxRunning.get());
+    }
+
+    @Test
+    public void testTaskLargerThanBudgetIsRejected() {
+        System.setProperty(ConcurrentSimulationExecutor.MEMORY_BUDGET_MB_PROPERTY, "512");
+        RecordingExecutor exec = new RecordingExecutor(2, 1024L);
+
+        exec.execute();
+
+        assertFalse(exec.started.contains("task-0"));
+        assertFalse(exec.started.contains("task-1"));
+    }
+
+    private static class RecordingExecutor extends ConcurrentSimulationExecutor<Object> {
+        private final int taskCount;
+        private final long heapMb;
+        private final List<String> started = Collections.synchronizedList(new ArrayList<>());
+        private final AtomicInteger running = new AtomicInteger();
+        private final AtomicInteger maxRunning = new AtomicInteger();
+
+        RecordingExecutor(int taskCount, long heapMb) {
+            this.taskCount = taskCount;
+            this.heapMb = heapMb;
+        }
+
+        @Override
+        protected List<MavenTaskDto<Object>> getSimulationTasks() {
+            List<MavenTaskDto<Object>> tasks = new ArrayList<>();
+            for (int i = 0; i < taskCount; i++) {
+                tasks.add(new MavenTaskDto<>("task-" + i));
+            }
+            return tasks;
+        }
+
+        @Override
+        protected long getTaskHeapMb(MavenTaskDto<Object> task) {
+            return heapMb;
+        }
+
+        @Override
+        protected <U> int runTask(MavenTaskDto<U> task, String projectRoot) {
+            started.add(task.getTaskName());
+            int now = running.incrementAndGet();
+            maxRunning.accumulateAndGet(now, Math::max);
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            running.decrementAndGet();
+            return 0;
+        }
+    }
+}
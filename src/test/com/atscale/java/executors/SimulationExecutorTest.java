@@ -2,9 +2,18 @@ package com.atscale.java.executors;
 
 import com.atscale.java.utils.SecretsManager;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mockito;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class SimulationExecutorTest {
 
@@ -24,6 +33,144 @@ public class SimulationExecutorTest {
         Mockito.verify(mockUtil, Mockito.times(1)).loadSecrets(Mockito.eq(testRegion), Mockito.eq(testKey));
     }
 
+    @Test
+    public void testBuildTaskCommandMavenMode() {
+        SimulationExecutor exec = new LaunchModeSimulationExecutor(SimulationLaunchMode.MAVEN);
+        MavenTaskDto<Object> task = createTask();
+
+        List<String> command = exec.buildTaskCommand(task, "unused");
+
+        assertEquals(exec.getMavenWrapperScript(), command.get(0));
+        assertEquals("gatling:test", command.get(command.size() - 1));
+        assertTrue(command.contains("-Dgatling.simulationClass=com.example.TestSimulation"));
+        assertTrue(command.contains("-Dgatling_run_logFileName=" + task.getRunLogFileName()));
+        assertTrue(command.contains("-Dgatling.jvm.xms=1G"));
+        assertTrue(command.contains("-Dgatling.jvm.xmx=4G"));
+    }
+
+    @Test
+    public void testMavenModePassesJvmFlagsToGatlingJvmOnly() throws Exception {
+        SimulationExecutor exec = new LaunchModeSimulationExecutor(SimulationLaunchMode.MAVEN);
+        MavenTaskDto<Object> task = createTask();
+        task.setJvmArgs(List.of("-XX:+AlwaysPreTouch", "-Dpath=C:\\Program Files\\x"));
+
+        List<String> command = exec.buildTaskCommand(task, "unused");
+
+        String prefix = "-D" + MavenTaskDto.GATLING_JVM_OPTIONS + "=@";
+        String options = command.stream().filter(arg -> arg.startsWith(prefix)).findFirst().orElseThrow();
+        List<String> lines = Files.readAllLines(Path.of(options.substring(prefix.length())));
+        List<String> expected = new ArrayList<>(GarbageCollector.GENERATIONAL_ZGC.getJvmFlags(exec.getTaskJavaVersion(task)));
+        expected.add("-XX:+AlwaysPreTouch");
+        expected.add("\"-Dpath=C:\\\\Program Files\\\\x\"");
+        assertEquals(expected, lines);
+        assertFalse(command.contains("-XX:+UseZGC"));
+    }
+
+    @Test
+    public void testMavenModeWithoutJvmFlagsHasNoArgumentFile() {
+        SimulationExecutor exec = new LaunchModeSimulationExecutor(SimulationLaunchMode.MAVEN);
+        MavenTaskDto<Object> task = createTask();
+        task.setGarbageCollector(GarbageCollector.DEFAULT);
+        task.setJvmArgs(List.of());
+
+        List<String> command = exec.buildTaskCommand(task, "unused");
+
+        assertTrue(command.stream().noneMatch(arg -> arg.startsWith("-D" + MavenTaskDto.GATLING_JVM_OPTIONS)));
+    }
+
+    @Test
+    public void testBuildTaskCommandDirectMode(@TempDir Path projectRoot) throws Exception {
+        Files.createDirectories(projectRoot.resolve("target").resolve("classes"));
+        Files.createDirectories(projectRoot.resolve("target").resolve("dependency"));
+        SimulationExecutor exec = new LaunchModeSimulationExecutor(SimulationLaunchMode.DIRECT);
+        MavenTaskDto<Object> task = createTask();
+
+        List<String> command = exec.buildTaskCommand(task, projectRoot.toString());
+
+        assertEquals(exec.getJavaExecutable(), command.get(0));
+        assertTrue(command.contains("-Dgatling.simulationClass=com.example.TestSimulation"));
+        assertTrue(command.contains("-Datscale.model=" + task.getModelBase64()));
+        assertTrue(command.contains("-Xms1G"));
+        assertTrue(command.contains("-Xmx4G"));
+        assertTrue(command.containsAll(GarbageCollector.GENERATIONAL_ZGC.getJvmFlags(Runtime.version().feature())));
+        assertTrue(command.contains("-XX:+AlwaysPreTouch"));
+        assertTrue(command.contains(SimulationExecutor.GATLING_MAIN_CLASS));
+        int simulationIndex = command.indexOf("-s");
+        assertEquals("com.example.TestSimulation", command.get(simulationIndex + 1));
+        assertTrue(command.indexOf(SimulationExecutor.GATLING_MAIN_CLASS) > command.indexOf("-Dgatling.simulationClass=com.example.TestSimulation"));
+        assertFalse(command.contains("gatling:test"));
+    }
+
+    @Test
+    public void testBuildTaskCommandDirectModeRequiresCompiledProject(@TempDir Path projectRoot) {
+        SimulationExecutor exec = new LaunchModeSimulationExecutor(SimulationLaunchMode.DIRECT);
+        MavenTaskDto<Object> task = createTask();
+
+        assertThrows(RuntimeException.class, () -> exec.buildTaskCommand(task, projectRoot.toString()));
+    }
+
+    @Test
+    public void testGenerationalZgcFlagOnlyWhereSupported() {
+        assertEquals(List.of("-XX:+UseZGC", "-XX:+ZGenerational"), GarbageCollector.GENERATIONAL_ZGC.getJvmFlags(21));
+        assertEquals(List.of("-XX:+UseZGC", "-XX:+ZGenerational"), GarbageCollector.GENERATIONAL_ZGC.getJvmFlags(22));
+        // ZGC is always generational from JDK 23, where the flag is deprecated and later obsolete
+        assertEquals(List.of("-XX:+UseZGC"), GarbageCollector.GENERATIONAL_ZGC.getJvmFlags(23));
+        assertEquals(List.of("-XX:+UseZGC"), GarbageCollector.GENERATIONAL_ZGC.getJvmFlags(25));
+        assertEquals(List.of("-XX:+UseZGC"), GarbageCollector.ZGC.getJvmFlags(21));
+    }
+
+    @Test
+    public void testPinnedJavaVersionSelectsGarbageCollectorFlags() throws Exception {
+        SimulationExecutor exec = new LaunchModeSimulationExecutor(SimulationLaunchMode.MAVEN);
+        MavenTaskDto<Object> task = createTask();
+        task.setJavaVersion(20);
+
+        List<String> command = exec.buildTaskCommand(task, "unused");
+
+        String prefix = "-D" + MavenTaskDto.GATLING_JVM_OPTIONS + "=@";
+        String options = command.stream().filter(arg -> arg.startsWith(prefix)).findFirst().orElseThrow();
+        assertEquals(List.of("-XX:+UseZGC", "-XX:+AlwaysPreTouch"), Files.readAllLines(Path.of(options.substring(prefix.length()))));
+    }
+
+    @Test
+    public void testReadJavaFeatureVersion(@TempDir Path javaHome) throws Exception {
+        assertNull(SimulationExecutor.readJavaFeatureVersion(javaHome));
+
+        Files.writeString(javaHome.resolve("release"), "IMPLEMENTOR=\"Eclipse Adoptium\"\nJAVA_VERSION=\"21.0.1\"\n");
+        assertEquals(21, SimulationExecutor.readJavaFeatureVersion(javaHome));
+
+        Files.writeString(javaHome.resolve("release"), "JAVA_VERSION=\"1.8.0_402\"\n");
+        assertEquals(8, SimulationExecutor.readJavaFeatureVersion(javaHome));
+
+        Files.writeString(javaHome.resolve("release"), "JAVA_VERSION=\"20\"\n");
+        assertEquals(20, SimulationExecutor.readJavaFeatureVersion(javaHome));
+    }
+
+    private MavenTaskDto<Object> createTask() {
+        MavenTaskDto<Object> task = new MavenTaskDto<>("Test Task");
+        task.setMavenCommand("gatling:test");
+        task.setSimulationClass("com.example.TestSimulation");
+        task.setRunDescription("Test Run");
+        task.setCatalog("Test Catalog");
+        task.setModel("Test Model");
+        task.setInitialHeapSize("1G");
+        task.setMaxHeapSize("4G");
+        task.setGarbageCollector(GarbageCollector.GENERATIONAL_ZGC);
+        task.setJvmArgs(List.of("-XX:+AlwaysPreTouch"));
+        return task;
+    }
+
+    public static class LaunchModeSimulationExecutor extends SimulationExecutor {
+        private final SimulationLaunchMode launchMode;
+
+        public LaunchModeSimulationExecutor(SimulationLaunchMode launchMode) {
+            this.launchMode = launchMode;
+        }
+
+        @Override
+        protected SimulationLaunchMode getLaunchMode() { return launchMode; }
+    }
+
     public static class TestSimulationExecutor extends SimulationExecutor {
         private final SecretsManager util;
 
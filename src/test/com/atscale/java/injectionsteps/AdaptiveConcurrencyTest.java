@@ -0,0 +1,136 @@
+package com.atscale.java.injectionsteps;
+
+import io.gatling.javaapi.core.ChainBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static io.gatling.javaapi.core.CoreDsl.exec;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdaptiveConcurrencyTest {
+
+    @Test
+    public void testBacksOffWhenP95GoesOverTarget() {
+        AdaptiveConcurrency controller = new AdaptiveConcurrency(new AdaptiveConcurrentUsersClosedInjectionStep(2, 2, 20, 1, 30, 500, 10));
+
+        assertTrue(controller.evaluate(200, 10.0, 100_000));
+        assertEquals(4, controller.getLimit());
+        assertTrue(controller.evaluate(400, 20.0, 200_000));
+        assertEquals(6, controller.getLimit());
+        // 6 users push p95 to 800 ms, over the 500 ms target
+        assertFalse(controller.evaluate(500, 25.0, 800_000));
+
+        assertEquals(4, controller.getLimit());
+        assertEquals(4, controller.getMaxSustainableUsers());
+        // The search is over, later levels hold
+        assertFalse(controller.evaluate(400, 20.0, 100_000));
+        assertEquals(4, controller.getLimit());
+    }
+
+    @Test
+    public void testStopsWhenThroughputStopsRising() {
+        AdaptiveConcurrency controller = new AdaptiveConcurrency(new AdaptiveConcurrentUsersClosedInjectionStep(1, 1, 20, 1, 30, 1000, 5));
+
+        assertTrue(controller.evaluate(100, 10.0, 100_000));
+        assertTrue(controller.evaluate(190, 19.0, 100_000));
+        // Less than 5% more throughput for the third user
+        assertFalse(controller.evaluate(195, 19.5, 120_000));
+
+        assertEquals(2, controller.getMaxSustainableUsers());
+        assertEquals(2, controller.getLimit());
+    }
+
+    @Test
+    public void testSearchesBelowInitialUsersAndNeverReturnsToSlowLevel() {
+        AdaptiveConcurrency controller = new AdaptiveConcurrency(new AdaptiveConcurrentUsersClosedInjectionStep(4, 2, 20, 1, 30, 500, 5));
+
+        assertTrue(controller.evaluate(0, 0, 0));
+        assertEquals(4, controller.getLimit());
+        assertTrue(controller.evaluate(100, 5.0, 900_000));
+        assertEquals(2, controller.getLimit());
+        // 4 users were too slow, so the search only tries the levels below them
+        assertTrue(controller.evaluate(100, 5.0, 300_000));
+        assertEquals(3, controller.getLimit());
+        assertFalse(controller.evaluate(120, 6.0, 400_000));
+
+        assertEquals(3, controller.getMaxSustainableUsers());
+        assertEquals(3, controller.getLimit());
+    }
+
+    @Test
+    public void testAdmitsUpToTheLimit() {
+        AdaptiveConcurrency controller = new AdaptiveConcurrency(new AdaptiveConcurrentUsersClosedInjectionStep(2, 1, 3, 1, 30, 1000, 5));
+        try {
+            assertTrue(controller.tryAdmit());
+            assertTrue(controller.tryAdmit());
+            assertFalse(controller.tryAdmit());
+
+            controller.release();
+            assertTrue(controller.tryAdmit());
+            assertTrue(controller.evaluate(10, 1.0, 1_000));
+            assertTrue(controller.tryAdmit());
+            assertFalse(controller.tryAdmit());
+        } finally {
+            controller.finish();
+        }
+    }
+
+    @Test
+    public void testLevelsAreScoredOnTheirOwnQueries() {
+        AdaptiveConcurrency.install(List.of(new AdaptiveConcurrentUsersClosedInjectionStep(1, 1, 5, 1, 30, 500, 5)));
+        try {
+            AdaptiveConcurrency controller = AdaptiveConcurrency.installed();
+            List<ChainBuilder> chains = List.of(exec(session -> session));
+            assertEquals(3, AdaptiveConcurrency.gate(chains).size());
+            assertTrue(controller.tryAdmit());
+            long t0 = System.nanoTime();
+
+            // Queries are recorded the way the scenarios record them, from the virtual user
+            controller.beginMeasurement(t0);
+            // Started before the measured part of the level, so its 6 s are not held against the level
+            AdaptiveConcurrency.record(true, t0 - seconds(5), t0 + seconds(1));
+            for (int i = 0; i < 10; i++) {
+                AdaptiveConcurrency.record(true, t0 + seconds(i), t0 + seconds(i) + millis(100));
+            }
+            assertTrue(controller.scoreLevel(t0 + seconds(10)));
+            assertEquals(2, controller.getLimit());
+
+            // Completes after its level was scored, then after the next level started measuring
+            AdaptiveConcurrency.record(true, t0 + seconds(9), t0 + seconds(12));
+            controller.beginMeasurement(t0 + seconds(30));
+            AdaptiveConcurrency.record(false, t0 + seconds(9), t0 + seconds(31));
+            for (int i = 0; i < 20; i++) {
+                AdaptiveConcurrency.record(true, t0 + seconds(30) + millis(500L * i), t0 + seconds(30) + millis(500L * i + 200));
+            }
+            assertTrue(controller.scoreLevel(t0 + seconds(40)));
+            assertEquals(3, controller.getLimit());
+            assertEquals(2, controller.getMaxSustainableUsers());
+
+            // Nothing completed in the level, so it holds instead of being scored on earlier queries
+            controller.beginMeasurement(t0 + seconds(70));
+            assertTrue(controller.scoreLevel(t0 + seconds(80)));
+            assertEquals(3, controller.getLimit());
+        } finally {
+            AdaptiveConcurrency.stop();
+        }
+        assertNull(AdaptiveConcurrency.installed());
+    }
+
+    @Test
+    public void testAdaptiveStepMustBeTheOnlyStep() {
+        List<ClosedStep> steps = List.of(new ConstantConcurrentUsersClosedInjectionStep(5, 1), new AdaptiveConcurrentUsersClosedInjectionStep());
+
+        assertThrows(IllegalArgumentException.class, () -> AdaptiveConcurrency.install(steps));
+        assertThrows(IllegalArgumentException.class, () -> AdaptiveConcurrency.install(List.of(new AdaptiveConcurrentUsersClosedInjectionStep(5, 1, 4, 1, 30, 1000, 5))));
+    }
+
+    private static long seconds(long seconds) {
+        return TimeUnit.SECONDS.toNanos(seconds);
+    }
+
+    private static long millis(long millis) {
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+}
@@ -1,5 +1,6 @@
 package com.atscale.java.injectionsteps;
 
+import io.gatling.javaapi.core.ClosedInjectionStep;
 import io.gatling.javaapi.core.OpenInjectionStep;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
@@ -84,4 +85,52 @@ public class InjectionStepMarshallerTest{
         assertInstanceOf(RampConcurrentUsersClosedInjectionStep.class, steps.get(2));
     }
 
+    @Test
+    public void testAdaptiveClosedInjectionStepFromJson() {
+        ClosedStep step = new AdaptiveConcurrentUsersClosedInjectionStep(2, 2, 20, 1, 30, 500, 10);
+
+        String json = InjectionStepJsonUtil.closedInjectionStepsAsJson(List.of(step));
+
+        assertTrue(json.contains("\"type\":\"AdaptiveConcurrentUsersClosedInjectionStep\""));
+        List<ClosedStep> steps = InjectionStepJsonUtil.closedInjectionStepsFromJson(json);
+        assertEquals(List.of(step), steps);
+        assertEquals(20, steps.get(0).maxConcurrentUsers());
+        assertInstanceOf(ClosedInjectionStep.class, steps.get(0).toGatlingStep());
+    }
+
+
+    @Test
+    public void testMaxConcurrentUsers() {
+        List<ClosedStep> closedSteps = List.of(
+                new ConstantConcurrentUsersClosedInjectionStep(5, 1),
+                new RampConcurrentUsersClosedInjectionStep(5, 200, 10),
+                new RampConcurrentUsersClosedInjectionStep(50, 20, 10));
+        List<OpenStep> openSteps = List.of(
+                new AtOnceUsersOpenInjectionStep(5),
+                new NothingForOpenInjectionStep(1),
+                new RampUsersOpenInjectionStep(10, 2));
+
+        assertEquals(200, ClosedStep.maxConcurrentUsers(closedSteps));
+        assertEquals(15, OpenStep.maxConcurrentUsers(openSteps, 0));
+
+        String json = InjectionStepJsonUtil.closedInjectionStepsAsJson(closedSteps);
+        assertFalse(json.contains("maxConcurrentUsers"));
+        assertEquals(closedSteps, InjectionStepJsonUtil.closedInjectionStepsFromJson(json));
+    }
+
+    @Test
+    public void testOpenMaxConcurrentUsersFromArrivalRate() {
+        List<OpenStep> constant = List.of(new ConstantUsersPerSecondOpenInjectionStep(5, 10));
+        List<OpenStep> atOnceThenConstant = List.of(
+                new AtOnceUsersOpenInjectionStep(5),
+                new ConstantUsersPerSecondOpenInjectionStep(5, 10));
+        List<OpenStep> ramp = List.of(new RampUsersPerSecOpenInjectionStep(1, 10, 10));
+
+        assertEquals(3000, OpenStep.maxConcurrentUsers(constant, 0));
+        assertEquals(20, OpenStep.maxConcurrentUsers(constant, 4));
+        assertEquals(20, OpenStep.maxConcurrentUsers(atOnceThenConstant, 4));
+        assertEquals(25, OpenStep.maxConcurrentUsers(atOnceThenConstant, 5));
+        assertEquals(100, OpenStep.maxConcurrentUsers(ramp, 10));
+        assertEquals(300, OpenStep.maxConcurrentUsers(List.of(new StressPeakUsersOpenInjectionStep(300, 1)), 20));
+    }
 }
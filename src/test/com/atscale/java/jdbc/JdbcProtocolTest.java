@@ -0,0 +1,63 @@
+package com.atscale.java.jdbc;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JdbcProtocolTest {
+
+    @Test
+    public void testStatementCacheForPostgres() {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl("jdbc:postgresql://host:15432/catalog");
+
+        JdbcProtocol.configureStatementCache(config, 100);
+
+        assertEquals("1", config.getDataSourceProperties().getProperty("prepareThreshold"));
+        assertEquals("100", config.getDataSourceProperties().getProperty("preparedStatementCacheQueries"));
+    }
+
+    @Test
+    public void testNoStatementCacheForUnknownDriver() {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl("jdbc:hive2://host:11111/catalog");
+
+        JdbcProtocol.configureStatementCache(config, 100);
+
+        assertTrue(config.getDataSourceProperties().isEmpty());
+    }
+
+    @Test
+    public void testPoolSizeFollowsConcurrencyUpToCap() {
+        assertEquals(1, JdbcProtocol.poolSize(1, 50));
+        assertEquals(20, JdbcProtocol.poolSize(20, 50));
+        assertEquals(50, JdbcProtocol.poolSize(200, 50));
+        assertEquals(50, JdbcProtocol.poolSize(0, 50));
+    }
+
+    @Test
+    public void testPhaseTimingsKeepPoolSettings() throws Exception {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl("jdbc:h2:mem:phaseTimings");
+        config.setUsername("sa");
+        config.setPassword("");
+        config.setMaximumPoolSize(1);
+        config.setConnectionInitSql("SET @INIT = 1");
+
+        JdbcProtocol.configurePhaseTimings(config, new QueryPhaseTimer("run-1", "model"));
+
+        try (HikariDataSource pool = new HikariDataSource(config);
+             Connection conn = pool.getConnection();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT @INIT")) {
+            assertTrue(rs.next());
+            assertEquals(1, rs.getInt(1));
+        }
+    }
+}
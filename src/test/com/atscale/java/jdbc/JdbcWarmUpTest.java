@@ -0,0 +1,41 @@
+package com.atscale.java.jdbc;
+
+import com.atscale.java.jdbc.cases.NamedQueryActionBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JdbcWarmUpTest {
+
+    @Test
+    public void testRunQueriesCyclesAndSkipsFailures() throws Exception {
+        try (Connection conn = DriverManager.getConnection("jdbc:h2:mem:warmUp;DB_CLOSE_DELAY=-1")) {
+            try (Statement st = conn.createStatement()) {
+                st.execute("CREATE TABLE WARM_UP_RUNS (ID INT AUTO_INCREMENT)");
+            }
+            NamedQueryActionBuilder[] queries = {
+                    query("q1", "SELECT COUNT(*) FROM WARM_UP_RUNS"),
+                    query("broken", "SELECT * FROM MISSING_TABLE")
+            };
+
+            assertEquals(3, JdbcWarmUp.runQueries(conn, queries, 5));
+            assertEquals(0, JdbcWarmUp.runQueries(conn, new NamedQueryActionBuilder[0], 5));
+            assertEquals(0, JdbcWarmUp.runQueries(conn, queries, 0));
+
+            try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM WARM_UP_RUNS")) {
+                assertTrue(rs.next());
+                assertEquals(0, rs.getInt(1), "warm-up queries only read");
+                st.execute("DROP TABLE WARM_UP_RUNS");
+            }
+        }
+    }
+
+    private static NamedQueryActionBuilder query(String name, String sql) {
+        return new NamedQueryActionBuilder(null, name, name + "-hash", null, name + "-id", sql);
+    }
+}
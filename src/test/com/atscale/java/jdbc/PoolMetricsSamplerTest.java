@@ -0,0 +1,67 @@
+package com.atscale.java.jdbc;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.PoolStats;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PoolMetricsSamplerTest {
+
+    @Test
+    public void testSampleReportsPoolStateAndResetsCounters() throws Exception {
+        CapturingSampler sampler = new CapturingSampler();
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl("jdbc:h2:mem:poolMetrics;DB_CLOSE_DELAY=-1");
+        config.setMaximumPoolSize(3);
+        config.setMinimumIdle(3);
+        config.setMetricsTrackerFactory(sampler);
+
+        try (HikariDataSource dataSource = new HikariDataSource(config)) {
+            assertNotNull(sampler.tracker);
+            assertEquals(-1, PoolMetricsSampler.getTotalConnections("other model"));
+            try (Connection first = dataSource.getConnection(); Connection second = dataSource.getConnection()) {
+                assertTrue(first.isValid(1));
+                assertTrue(second.isValid(1));
+                // PoolStats refreshes at most once a second
+                Thread.sleep(1_100);
+
+                PoolMetricsSampler.Sample sample = sampler.tracker.sample();
+
+                assertEquals(2, sample.acquireCount);
+                assertEquals(2, sample.active);
+                assertEquals(3, sample.total);
+                assertEquals(3, PoolMetricsSampler.getTotalConnections("model"));
+                assertEquals(0, sample.pending);
+                assertEquals(0, sample.timeouts);
+                assertTrue(sample.createCount >= 1);
+                assertTrue(sample.acquireMaxNanos > 0);
+                assertTrue(sample.acquireMaxNanos >= sample.getAcquireAvgMicros() * 1_000);
+            }
+
+            PoolMetricsSampler.Sample next = sampler.tracker.sample();
+            assertEquals(0, next.acquireCount);
+            assertEquals(0, next.acquireMaxNanos);
+            assertEquals(0, next.getAcquireAvgMicros());
+        }
+        assertEquals(-1, PoolMetricsSampler.getTotalConnections("model"), "closed pools are unregistered");
+    }
+
+    private static class CapturingSampler extends PoolMetricsSampler {
+        Tracker tracker;
+
+        CapturingSampler() {
+            super("run-1", "model", 0);
+        }
+
+        @Override
+        public IMetricsTracker create(String poolName, PoolStats poolStats) {
+            tracker = (Tracker) super.create(poolName, poolStats);
+            return tracker;
+        }
+    }
+}
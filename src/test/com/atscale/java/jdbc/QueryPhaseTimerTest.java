@@ -0,0 +1,114 @@
+package com.atscale.java.jdbc;
+
+import com.atscale.java.jdbc.cases.NamedQueryActionBuilder;
+import com.atscale.java.runlog.RunLogs;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class QueryPhaseTimerTest {
+    private static final String QUERY = "SELECT ID, AMOUNT FROM SALES ORDER BY ID";
+    private final List<long[]> records = new CopyOnWriteArrayList<>();
+    private DataSource dataSource;
+    private Connection keepAlive;
+
+    @BeforeEach
+    void createTable() throws Exception {
+        JdbcDataSource h2 = new JdbcDataSource();
+        h2.setURL("jdbc:h2:mem:phaseTimer;DB_CLOSE_DELAY=-1");
+        keepAlive = h2.getConnection();
+        try (Statement st = keepAlive.createStatement()) {
+            st.execute("CREATE TABLE SALES (ID INT, AMOUNT DECIMAL(10,2))");
+            st.execute("INSERT INTO SALES VALUES (1, 10.00), (2, 20.00), (3, 30.00)");
+        }
+        QueryPhaseTimer timer = new QueryPhaseTimer("run-1", "model");
+        // Records are reused by the channel, so their values are copied
+        timer.register(QUERY, record -> records.add(new long[]{record.getLong(0), record.getLong(1), record.getLong(2), record.getLong(3)}));
+        dataSource = timer.wrap(h2);
+    }
+
+    @AfterEach
+    void dropTable() throws Exception {
+        try (Statement st = keepAlive.createStatement()) {
+            st.execute("DROP TABLE SALES");
+        }
+        keepAlive.close();
+    }
+
+    @Test
+    public void testPreparedQueryIsTimedUntilLastRow() throws Exception {
+        long before = System.currentTimeMillis();
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(QUERY);
+             ResultSet rs = ps.executeQuery()) {
+            int rows = 0;
+            while (rs.next()) {
+                rows++;
+            }
+            assertEquals(3, rows);
+        }
+
+        List<long[]> written = flush();
+        assertEquals(1, written.size());
+        long[] record = written.get(0);
+        assertTrue(record[0] >= before);
+        assertTrue(record[1] >= 0);
+        assertTrue(record[2] >= 0);
+        assertEquals(3L, record[3]);
+    }
+
+    @Test
+    public void testPlainStatementIsMatchedByText() throws Exception {
+        try (Connection conn = dataSource.getConnection(); Statement st = conn.createStatement()) {
+            assertTrue(st.execute(QUERY));
+            try (ResultSet rs = st.getResultSet()) {
+                assertTrue(rs.next());
+                // Closing before the last row still ends the fetch
+            }
+            try (ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM SALES")) {
+                assertTrue(rs.next());
+            }
+        }
+
+        List<long[]> written = flush();
+        assertEquals(1, written.size());
+        assertEquals(1L, written.get(0)[3]);
+    }
+
+    @Test
+    public void testUnregisteredQueriesAreNotTimed() throws Exception {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT COUNT(*) FROM SALES");
+             ResultSet rs = ps.executeQuery()) {
+            assertTrue(rs.next());
+        }
+
+        assertTrue(flush().isEmpty());
+    }
+
+    @Test
+    public void testSameTextOfAnotherQueryIsDetected() {
+        QueryPhaseTimer timer = new QueryPhaseTimer("run-1", "model");
+
+        assertTrue(timer.register(new NamedQueryActionBuilder(null, "first", "hash", "", "1", QUERY)));
+        assertTrue(timer.register(new NamedQueryActionBuilder(null, "first", "hash", "", "1", QUERY)));
+        assertFalse(timer.register(new NamedQueryActionBuilder(null, "second", "hash", "", "2", QUERY)));
+    }
+
+    private List<long[]> flush() {
+        assertTrue(RunLogs.channel().flush(5, TimeUnit.SECONDS));
+        return records;
+    }
+}
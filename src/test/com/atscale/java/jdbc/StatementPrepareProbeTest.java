@@ -0,0 +1,45 @@
+package com.atscale.java.jdbc;
+
+import com.atscale.java.jdbc.cases.NamedQueryActionBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StatementPrepareProbeTest {
+
+    @Test
+    public void testProbeTimesEveryPreparableQuery() throws Exception {
+        try (Connection conn = DriverManager.getConnection("jdbc:h2:mem:prepareProbe;DB_CLOSE_DELAY=-1")) {
+            try (Statement st = conn.createStatement()) {
+                st.execute("CREATE TABLE SALES (ID INT, AMOUNT DECIMAL(10,2))");
+            }
+            NamedQueryActionBuilder[] queries = {
+                    query("q1", "SELECT ID, SUM(AMOUNT) FROM SALES GROUP BY ID"),
+                    query("broken", "SELECT FROM WHERE"),
+                    query("q2", "SELECT COUNT(*) FROM SALES")
+            };
+
+            Map<String, StatementPrepareProbe.PrepareTiming> timings = StatementPrepareProbe.probe(conn, queries);
+
+            assertEquals(List.of("q1", "q2"), List.copyOf(timings.keySet()));
+            for (StatementPrepareProbe.PrepareTiming timing : timings.values()) {
+                assertTrue(timing.getClientParseNanos() >= 0);
+                assertNotNull(timing.getServerPrepareNanos());
+                assertTrue(timing.getServerPrepareNanos() >= 0);
+            }
+            try (Statement st = conn.createStatement()) {
+                st.execute("DROP TABLE SALES");
+            }
+        }
+    }
+
+    private static NamedQueryActionBuilder query(String name, String sql) {
+        return new NamedQueryActionBuilder(null, name, name + "-hash", null, name + "-id", sql);
+    }
+}
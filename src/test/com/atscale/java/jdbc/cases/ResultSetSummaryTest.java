@@ -0,0 +1,80 @@
+package com.atscale.java.jdbc.cases;
+
+import org.junit.jupiter.api.Test;
+import scala.collection.immutable.List;
+import scala.collection.immutable.Map;
+import scala.jdk.javaapi.CollectionConverters;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResultSetSummaryTest {
+
+    @SafeVarargs
+    private static List<Map<String, Object>> rows(Map<String, Object>... rows) {
+        return CollectionConverters.asScala(java.util.List.of(rows)).toList();
+    }
+
+    private static Map<String, Object> row(Object id, Object name) {
+        return new Map.Map2<>("id", id, "name", name);
+    }
+
+    @Test
+    void testSummaryOnlyCounts() {
+        ResultSetSummary summary = ResultSetSummary.summarize(rows(row(1, "a"), row(2, "b")));
+
+        assertEquals(2L, summary.getRowCount());
+    }
+
+    @Test
+    void testFingerprintIsStableAndDetectsChanges() {
+        String first = ResultSetSummary.fingerprint(java.util.List.of(row(1, "a"), row(2, "b")), null);
+        String second = ResultSetSummary.fingerprint(java.util.List.of(row(1, "a"), row(2, "b")), null);
+        String changed = ResultSetSummary.fingerprint(java.util.List.of(row(1, "a"), row(2, "c")), null);
+
+        assertEquals(64, first.length());
+        assertEquals(first, second);
+        assertNotEquals(first, changed);
+    }
+
+    @Test
+    void testFingerprintReturnsRowHashesFromTheSamePass() {
+        String[] rowHashes = new String[2];
+
+        String fingerprint = ResultSetSummary.fingerprint(java.util.List.of(row(1, "a"), row(2, "b")), rowHashes);
+
+        assertEquals(ResultSetSummary.fingerprint(java.util.List.of(row(1, "a"), row(2, "b")), null), fingerprint);
+        assertEquals(64, rowHashes[0].length());
+        assertNotEquals(rowHashes[0], rowHashes[1]);
+        String[] single = new String[1];
+        ResultSetSummary.fingerprint(java.util.List.of(row(2, "b")), single);
+        assertEquals(single[0], rowHashes[1]);
+    }
+
+    @Test
+    void testNullRowsIsEmpty() {
+        ResultSetSummary summary = ResultSetSummary.summarize(null);
+
+        assertEquals(0L, summary.getRowCount());
+    }
+
+    @Test
+    void testSummaryRecordsWhenRowsWereReceived() {
+        long before = System.nanoTime();
+        ResultSetSummary summary = ResultSetSummary.summarize(rows(row(1, "a")));
+
+        assertTrue(summary.getReceivedNanos() - before >= 0);
+        assertTrue(System.nanoTime() - summary.getReceivedNanos() >= 0);
+        assertEquals(0L, ResultSetSummary.empty().getReceivedNanos());
+    }
+
+    @Test
+    void testSummarizeAndHashKeepsOnlyTheFingerprint() {
+        ResultSetSummary summary = ResultSetSummary.summarizeAndHash(rows(row(2, "b"), row(1, "a")));
+
+        assertEquals(2L, summary.getRowCount());
+        assertEquals(ResultSetSummary.fingerprint(java.util.List.of(row(1, "a"), row(2, "b")), null), summary.getResultHash());
+        assertTrue(summary.getHashNanos() >= 0);
+        assertNull(ResultSetSummary.summarize(rows(row(1, "a"))).getResultHash());
+        assertEquals(0L, ResultSetSummary.summarizeAndHash(null).getRowCount());
+    }
+}
@@ -0,0 +1,120 @@
+package com.atscale.java.metrics;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetricsAggregatorTest {
+    private MetricsAggregator aggregator;
+    private final List<MetricsServer> tasks = new ArrayList<>();
+
+    @BeforeEach
+    void startAggregator() {
+        aggregator = new MetricsAggregator("127.0.0.1", 0);
+    }
+
+    @AfterEach
+    void stop() {
+        tasks.forEach(MetricsServer::stop);
+        aggregator.stop();
+    }
+
+    @Test
+    public void testTasksAreMerged() throws Exception {
+        startTask(aggregator.addTask("fast"), 100, 1_000_000L, 1, 4);
+        startTask(aggregator.addTask("slow"), 100, 100_000_000L, 0, 6);
+
+        String metrics = get(aggregator.getPort());
+
+        assertTrue(metrics.contains("atscale_tasks 2\n"), metrics);
+        assertTrue(metrics.contains("atscale_active_users 10\n"), metrics);
+        assertTrue(metrics.contains("atscale_queries_total{protocol=\"sql\",status=\"succeeded\"} 200\n"), metrics);
+        assertTrue(metrics.contains("atscale_queries_total{protocol=\"sql\",status=\"failed\"} 1\n"), metrics);
+        assertTrue(metrics.contains("atscale_jdbc_pool_connections{model=\"model\",state=\"total\"} 10\n"), metrics);
+        // The percentiles come from the merged histograms, not from averaging the percentiles of the tasks
+        MetricsSnapshot.QuerySnapshot sql = aggregator.snapshot().getProtocols().get("sql");
+        assertEquals(1_000, sql.getLatencyMicros(0.5), 1);
+        assertEquals(100_000, sql.getLatencyMicros(0.95), 100);
+    }
+
+    @Test
+    public void testFinishedTaskKeepsItsCounters() throws Exception {
+        Path portFile = aggregator.addTask("done");
+        MetricsServer task = startTask(portFile, 10, 1_000_000L, 2, 1);
+        assertEquals(10, aggregator.snapshot().getProtocols().get("sql").getSucceeded());
+
+        aggregator.finishTask(portFile);
+        task.stop();
+
+        MetricsSnapshot snapshot = aggregator.snapshot();
+        assertEquals(0, snapshot.getTasks());
+        assertEquals(0, snapshot.getActiveUsers());
+        assertEquals(10, snapshot.getProtocols().get("sql").getSucceeded());
+        assertEquals(2, snapshot.getProtocols().get("sql").getFailed());
+        assertEquals(0, snapshot.getProtocols().get("sql").getWindowSucceeded());
+    }
+
+    @Test
+    public void testTaskWithoutEndpointIsSkipped() {
+        Path portFile = aggregator.addTask("starting");
+
+        MetricsSnapshot snapshot = aggregator.snapshot();
+
+        assertFalse(Files.exists(portFile));
+        assertEquals(0, snapshot.getTasks());
+        assertTrue(snapshot.getProtocols().isEmpty());
+    }
+
+    @Test
+    public void testPortFilesAreDeletedOnStop() throws Exception {
+        Path portFile = aggregator.addTask("done");
+        startTask(portFile, 1, 1_000_000L, 0, 1);
+        assertEquals("" + tasks.get(0).getPort(), Files.readString(portFile));
+
+        aggregator.stop();
+
+        assertFalse(Files.exists(portFile.getParent()));
+        aggregator = new MetricsAggregator("127.0.0.1", 0);
+    }
+
+    /** Starts a task endpoint on a free port and reports it in the port file, as the simulation JVM of a task does. */
+    private MetricsServer startTask(Path portFile, int queries, long durationNanos, int failures, long users) {
+        QueryMetrics metrics = new QueryMetrics(60);
+        for (int i = 0; i < queries; i++) {
+            metrics.record(true, durationNanos);
+        }
+        for (int i = 0; i < failures; i++) {
+            metrics.record(false, durationNanos);
+        }
+        metrics.tick();
+        MetricsServer server = new MetricsServer("127.0.0.1", 0, () -> {
+            MetricsSnapshot snapshot = new MetricsSnapshot();
+            snapshot.setActiveUsers(users);
+            snapshot.getProtocols().put("sql", metrics.snapshot());
+            snapshot.getPools().put("model", new MetricsSnapshot.PoolSnapshot((int) users, 0, 0, (int) users));
+            return snapshot;
+        });
+        tasks.add(server);
+        MetricsAggregator.writePortFile(portFile, server.getPort());
+        return server;
+    }
+
+    private static String get(int port) throws Exception {
+        HttpResponse<String> response = HttpClient.newHttpClient().send(
+                HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + "/metrics")).build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode());
+        assertEquals(MetricsServer.PROMETHEUS_CONTENT_TYPE, response.headers().firstValue("Content-Type").orElse(null));
+        return response.body();
+    }
+}
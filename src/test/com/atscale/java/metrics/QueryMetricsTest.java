@@ -0,0 +1,81 @@
+package com.atscale.java.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class QueryMetricsTest {
+
+    @Test
+    public void testWindowRollsOverOldSeconds() {
+        QueryMetrics metrics = new QueryMetrics(2);
+        for (int i = 1; i <= 100; i++) {
+            metrics.record(true, i * 1_000_000L);
+        }
+        metrics.record(false, 5_000_000L);
+        metrics.tick();
+
+        MetricsSnapshot.QuerySnapshot first = metrics.snapshot();
+        assertEquals(100, first.getSucceeded());
+        assertEquals(1, first.getFailed());
+        assertEquals(1, first.getWindowSeconds());
+        assertEquals(101.0, first.getThroughput(), 0.001);
+        assertEquals(1.0 / 101, first.getErrorRatio(), 0.0001);
+        assertEquals(95_000, first.getLatencyMicros(0.95), 95);
+
+        metrics.record(true, 500_000_000L);
+        metrics.tick();
+        metrics.tick();
+
+        // The first second left the two second window, the counters keep it
+        MetricsSnapshot.QuerySnapshot later = metrics.snapshot();
+        assertEquals(101, later.getSucceeded());
+        assertEquals(1, later.getWindowSucceeded());
+        assertEquals(0, later.getWindowFailed());
+        assertEquals(2, later.getWindowSeconds());
+        assertEquals(500_000, later.getLatencyMicros(0.5), 500);
+    }
+
+    @Test
+    public void testSnapshotOfLastSeconds() {
+        QueryMetrics metrics = new QueryMetrics(60);
+        metrics.record(true, 100_000_000L);
+        metrics.tick();
+        metrics.record(true, 2_000_000L);
+        metrics.record(false, 2_000_000L);
+        metrics.tick();
+
+        MetricsSnapshot.QuerySnapshot last = metrics.snapshot(1);
+        assertEquals(1, last.getWindowSeconds());
+        assertEquals(1, last.getWindowSucceeded());
+        assertEquals(1, last.getWindowFailed());
+        assertEquals(2_000, last.getLatencyMicros(1.0), 2);
+
+        // Asking for more seconds than have passed covers what there is
+        MetricsSnapshot.QuerySnapshot all = metrics.snapshot(10);
+        assertEquals(2, all.getWindowSeconds());
+        assertEquals(2, all.getWindowSucceeded());
+        assertEquals(100_000, all.getLatencyMicros(1.0), 100);
+    }
+
+    @Test
+    public void testSnapshotSurvivesJson() {
+        QueryMetrics metrics = new QueryMetrics(60);
+        metrics.record(true, 2_000_000L);
+        metrics.record(true, 4_000_000L);
+        metrics.tick();
+        MetricsSnapshot snapshot = new MetricsSnapshot();
+        snapshot.setActiveUsers(3);
+        snapshot.getProtocols().put("sql", metrics.snapshot());
+        snapshot.getPools().put("model", new MetricsSnapshot.PoolSnapshot(2, 1, 0, 3));
+
+        MetricsSnapshot read = MetricsServer.fromJson(MetricsServer.toJson(snapshot));
+
+        assertEquals(3, read.getActiveUsers());
+        assertEquals(3, read.getPools().get("model").getTotal());
+        MetricsSnapshot.QuerySnapshot sql = read.getProtocols().get("sql");
+        assertEquals(2, sql.getSucceeded());
+        assertEquals(2, sql.getLatency().getTotalCount());
+        assertEquals(4_000, sql.getLatencyMicros(1.0), 4);
+    }
+}
@@ -0,0 +1,95 @@
+package com.atscale.java.runlog;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BinaryRunLogLinesTest {
+
+    @Test
+    public void testSqlRecordsReadAsRunLogLines(@TempDir Path dir) throws Exception {
+        Path path = dir.resolve("sql.runlog");
+        try (BinaryRunLogWriter writer = new BinaryRunLogWriter(path, false)) {
+            writer.writeRun("run-1", "SQL", "Sales", null, "catalog");
+            int q0 = writer.defineQuery("q0", "42", "hash0", "SELECT 1");
+            writer.writeSqlExecution(q0, 7L, true, 1_000L, 1_250L, 250_123L, 2L, "resulthash");
+            writer.writeSqlRow(q0, 7L, 0L, "Map(one -> 1)", "rowhash0");
+            writer.writeSqlRow(q0, 7L, 1L, null, "rowhash1");
+        }
+
+        List<RunLogLine> lines = readAll(path, 2);
+
+        assertEquals(List.of("run-1"), BinaryRunLogLines.readGatlingRunIds(path));
+        assertEquals(4, lines.size());
+        RunLogLine dictionary = lines.get(0);
+        assertEquals(RunLogLineParser.SQL_DICTIONARY, dictionary.getMessageKind());
+        assertEquals("hash0", dictionary.getQueryHash());
+        assertEquals(Base64.getEncoder().encodeToString("SELECT 1".getBytes(StandardCharsets.UTF_8)), dictionary.getQueryBase64());
+
+        RunLogLine execution = lines.get(1);
+        assertEquals(RunLogLineParser.SQL_LOG, execution.getMessageKind());
+        assertEquals("run-1", execution.getGatlingRunId());
+        assertEquals("Sales", execution.getModel());
+        assertEquals("q0", execution.getQueryName());
+        assertEquals("42", execution.getAtscaleQueryId());
+        assertEquals("SUCCEEDED", execution.getStatus());
+        assertEquals("7", execution.getGatlingSessionId());
+        assertEquals(250L, execution.getDurationMs());
+        assertEquals(250_123L, execution.getDurationUs());
+        assertEquals(2L, execution.getRowsReturned());
+        assertEquals("resulthash", execution.getResultHash());
+        assertNull(execution.getRowNumber());
+        assertNotNull(execution.getTs());
+        assertEquals(3, execution.getSrcRowNumber());
+
+        assertEquals(0L, lines.get(2).getRowNumber());
+        assertEquals("one -> 1", lines.get(2).getRowMapRaw());
+        assertEquals("rowhash0", lines.get(2).getRowHash());
+        assertEquals("REDACTED", lines.get(3).getRowMapRaw());
+    }
+
+    @Test
+    public void testXmlaRecordsReadAsRunLogLines(@TempDir Path dir) throws Exception {
+        Path path = dir.resolve("xmla.runlog");
+        try (BinaryRunLogWriter writer = new BinaryRunLogWriter(path, false)) {
+            writer.writeRun("run-1", "XMLA", "Sales", "Cube", "catalog");
+            int q0 = writer.defineQuery("q0", "42", "hash0", "SELECT {} ON 0 FROM [Cube]");
+            writer.writeXmlaExecution(q0, 8L, false, 2_000L, 2_100L, 100_456L, 512L, null, "<soap/>");
+            writer.writeXmlaExecution(q0, 9L, true, 3_000L, 3_100L, 100_000L, 512L, "responsehash", null);
+            writer.writeRun("run-2", "XMLA", "Sales", "Cube", "catalog");
+            // Query ids are scoped to their run, so an execution of an undefined query is left out
+            writer.writeXmlaExecution(q0, 9L, true, 3_000L, 3_100L, 100_000L, 512L, null, null);
+        }
+
+        List<RunLogLine> lines = readAll(path, 10);
+
+        assertEquals(List.of("run-1", "run-2"), BinaryRunLogLines.readGatlingRunIds(path));
+        assertEquals(3, lines.size());
+        assertEquals(RunLogLineParser.XMLA_DICTIONARY, lines.get(0).getMessageKind());
+        RunLogLine failed = lines.get(1);
+        assertEquals(RunLogLineParser.XMLA_LOG, failed.getMessageKind());
+        assertEquals("Cube", failed.getCube());
+        assertEquals("FAILED", failed.getStatus());
+        assertEquals(512L, failed.getResponseSize());
+        assertEquals(100_456L, failed.getDurationUs());
+        assertEquals("<soap/>", failed.getResponse());
+        assertEquals("responsehash", lines.get(2).getResponseHash());
+        assertEquals("REDACTED", lines.get(2).getResponse());
+    }
+
+    private static List<RunLogLine> readAll(Path path, int batchSize) throws Exception {
+        List<RunLogLine> lines = new ArrayList<>();
+        BinaryRunLogLines.read(path, batchSize, batch -> {
+            assertTrue(batch.size() <= batchSize);
+            lines.addAll(batch);
+        });
+        return lines;
+    }
+}
@@ -0,0 +1,111 @@
+package com.atscale.java.runlog;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BinaryRunLogWriterTest {
+
+    @Test
+    public void testRoundTrip(@TempDir Path dir) throws Exception {
+        Path path = dir.resolve("test.runlog");
+        try (BinaryRunLogWriter writer = new BinaryRunLogWriter(path, false)) {
+            writer.writeRun("run-1", "SQL", "model", null, "catalog");
+            int q0 = writer.defineQuery("q0", "42", "hash0", "SELECT 1");
+            int q1 = writer.defineQuery("q1", "43", "hash1", "SELECT 'é'");
+            assertEquals(q0, writer.defineQuery("q0", "42", "hash0", "SELECT 1"));
+            writer.writeSqlExecution(q0, 7L, true, 1000L, 1250L, 250_123L, 2L, "resulthash");
+            writer.writeSqlRow(q0, 7L, 0L, "Map(one -> 1)", "rowhash0");
+            writer.writeSqlRow(q0, 7L, 1L, null, "rowhash1");
+            writer.writeXmlaExecution(q1, 8L, false, 2000L, 2100L, 100_456L, 512L, null, "<soap/>");
+        }
+
+        List<RunLogRecord> records = readAll(path);
+
+        assertEquals(7, records.size());
+        assertEquals(RunLogRecordType.RUN, records.get(0).getType());
+        assertEquals("run-1", records.get(0).getGatlingRunId());
+        assertNull(records.get(0).getCube());
+
+        assertEquals(RunLogRecordType.QUERY_DEFINITION, records.get(1).getType());
+        assertEquals("SELECT 1", records.get(1).getInboundText());
+        assertEquals("SELECT 'é'", records.get(2).getInboundText());
+        assertEquals(1, records.get(2).getQueryId());
+
+        RunLogRecord execution = records.get(3);
+        assertEquals(RunLogRecordType.SQL_EXECUTION, execution.getType());
+        assertEquals(0, execution.getQueryId());
+        assertEquals(7L, execution.getGatlingSessionId());
+        assertTrue(execution.isSucceeded());
+        assertEquals(250L, execution.getEnd() - execution.getStart());
+        assertEquals(250_123L, execution.getDurationUs());
+        assertEquals(2L, execution.getCount());
+        assertEquals("resulthash", execution.getHash());
+
+        assertEquals("Map(one -> 1)", records.get(4).getPayload());
+        assertNull(records.get(5).getPayload());
+        assertEquals(1L, records.get(5).getRowNumber());
+
+        RunLogRecord xmla = records.get(6);
+        assertEquals(RunLogRecordType.XMLA_EXECUTION, xmla.getType());
+        assertFalse(xmla.isSucceeded());
+        assertEquals(512L, xmla.getCount());
+        assertEquals(100_456L, xmla.getDurationUs());
+        assertNull(xmla.getHash());
+        assertEquals("<soap/>", xmla.getPayload());
+    }
+
+    @Test
+    public void testAppendKeepsSingleHeader(@TempDir Path dir) throws Exception {
+        Path path = dir.resolve("append.runlog");
+        try (BinaryRunLogWriter writer = new BinaryRunLogWriter(path, true)) {
+            writer.writeRun("run-1", "SQL", "model", null, "catalog");
+        }
+        try (BinaryRunLogWriter writer = new BinaryRunLogWriter(path, true)) {
+            writer.writeRun("run-2", "SQL", "model", null, "catalog");
+        }
+
+        List<RunLogRecord> records = readAll(path);
+
+        assertEquals(2, records.size());
+        assertEquals("run-2", records.get(1).getGatlingRunId());
+    }
+
+    @Test
+    public void testTruncatedRecordEndsRunLog(@TempDir Path dir) throws Exception {
+        Path path = dir.resolve("truncated.runlog");
+        try (BinaryRunLogWriter writer = new BinaryRunLogWriter(path, false)) {
+            writer.writeRun("run-1", "SQL", "model", null, "catalog");
+            writer.defineQuery("q0", "42", "hash0", "SELECT 1");
+        }
+        byte[] bytes = Files.readAllBytes(path);
+        Files.write(path, java.util.Arrays.copyOf(bytes, bytes.length - 3));
+
+        assertEquals(1, readAll(path).size());
+    }
+
+    @Test
+    public void testRejectsOtherFiles(@TempDir Path dir) throws Exception {
+        Path path = dir.resolve("text.log");
+        Files.writeString(path, "2025-01-01 00:00:00 INFO  SqlLogger:1 - sqlLog gatlingRunId='run-1'");
+
+        assertThrows(java.io.IOException.class, () -> new BinaryRunLogReader(path));
+    }
+
+    private static List<RunLogRecord> readAll(Path path) throws Exception {
+        List<RunLogRecord> records = new ArrayList<>();
+        try (BinaryRunLogReader reader = new BinaryRunLogReader(path)) {
+            RunLogRecord record;
+            while ((record = reader.next()) != null) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+}
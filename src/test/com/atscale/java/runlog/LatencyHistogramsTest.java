@@ -0,0 +1,89 @@
+package com.atscale.java.runlog;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogReader;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.FileNotFoundException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LatencyHistogramsTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    public void testIntervalsAreWrittenPerQuery() throws Exception {
+        LatencyHistograms histograms = new LatencyHistograms("run test sql", dir.resolve("test.sql.hlog"), 0);
+        LatencyHistograms.QueryRecorder fast = histograms.query("fast query");
+        LatencyHistograms.QueryRecorder slow = histograms.query("slow,query");
+        assertSame(fast, histograms.query("fast query"));
+        for (int i = 1; i <= 100; i++) {
+            fast.record(i * 1_000_000L);
+        }
+        slow.record(2_000_000_000L);
+        histograms.writeInterval();
+        fast.record(5_000_000L);
+        histograms.close();
+
+        List<Histogram> intervals = read(histograms.getPath());
+        assertEquals(3, intervals.size());
+        Map<String, Long> counts = new HashMap<>();
+        for (Histogram interval : intervals) {
+            counts.merge(interval.getTag(), interval.getTotalCount(), Long::sum);
+        }
+        assertEquals(Map.of("fast_query", 101L, "slow_query", 1L), counts);
+
+        Histogram first = intervals.get(0).getTag().equals("fast_query") ? intervals.get(0) : intervals.get(1);
+        assertEquals(99_000, first.getValueAtPercentile(99.0), 99);
+        assertEquals(50_000, first.getValueAtPercentile(50.0), 50);
+    }
+
+    @Test
+    public void testExpectedIntervalCorrectsCoordinatedOmission() throws Exception {
+        LatencyHistograms histograms = new LatencyHistograms("run test xmla", dir.resolve("test.xmla.hlog"), 0);
+        histograms.setExpectedIntervalMs(100);
+        LatencyHistograms.QueryRecorder query = histograms.query("stalled");
+        query.record(50_000_000L);
+        query.record(1_000_000_000L);
+        histograms.close();
+
+        List<Histogram> intervals = read(histograms.getPath());
+        assertEquals(1, intervals.size());
+        // The one second stall also records the nine executions that would have been sent every 100 ms meanwhile
+        assertEquals(11, intervals.get(0).getTotalCount());
+        assertEquals(500_000, intervals.get(0).getValueAtPercentile(50.0), 500);
+    }
+
+    @Test
+    public void testIntervalsAreWrittenOnSchedule() throws Exception {
+        LatencyHistograms histograms = new LatencyHistograms("run test sql", dir.resolve("scheduled.sql.hlog"), 50);
+        try {
+            histograms.query("q").record(1_000_000L);
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (read(histograms.getPath()).isEmpty() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertEquals(1, read(histograms.getPath()).size());
+        } finally {
+            histograms.close();
+        }
+        assertEquals(1, read(histograms.getPath()).size());
+    }
+
+    private static List<Histogram> read(Path path) throws FileNotFoundException {
+        HistogramLogReader reader = new HistogramLogReader(path.toFile());
+        List<Histogram> intervals = new ArrayList<>();
+        while (reader.hasNext()) {
+            intervals.add((Histogram) reader.nextIntervalHistogram());
+        }
+        reader.close();
+        return intervals;
+    }
+}
@@ -0,0 +1,158 @@
+package com.atscale.java.runlog;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RunLogLineParserTest {
+    private static final String PREFIX = "2025-03-04 05:06:07 INFO  AtScaleDynamicQueryBuilderScenario:100 - ";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void testSqlHeaderLine() {
+        RunLogLine line = RunLogLineParser.parse(PREFIX + "sqlLog gatlingRunId='run 1' status='OK' gatlingSessionId=7 model='Sales' queryName='Q1' atscaleQueryId='abc' inboundTextAsHash='h1' start=100 end=250 duration=150 rows=12 resultHash='r1'", 3);
+
+        assertNotNull(line);
+        assertEquals(RunLogLineParser.SQL_LOG, line.getMessageKind());
+        assertEquals(LocalDateTime.of(2025, 3, 4, 5, 6, 7), line.getTs());
+        assertEquals("INFO", line.getLevel());
+        assertEquals("AtScaleDynamicQueryBuilderScenario", line.getLogger());
+        assertEquals("run 1", line.getGatlingRunId());
+        assertEquals("OK", line.getStatus());
+        assertEquals("7", line.getGatlingSessionId());
+        assertEquals("Sales", line.getModel());
+        assertEquals("Q1", line.getQueryName());
+        assertEquals("abc", line.getAtscaleQueryId());
+        assertEquals("h1", line.getQueryHash());
+        assertNull(line.getQueryBase64());
+        assertEquals(100L, line.getStartMs());
+        assertEquals(250L, line.getEndMs());
+        assertEquals(150L, line.getDurationMs());
+        assertEquals(12L, line.getRowsReturned());
+        assertEquals("r1", line.getResultHash());
+        assertNull(line.getRowNumber());
+        assertEquals(3, line.getSrcRowNumber());
+        assertFalse(line.isDictionary());
+    }
+
+    @Test
+    public void testMonotonicDurations() {
+        RunLogLine sql = RunLogLineParser.parse(PREFIX + "sqlLog gatlingRunId='run1' status='OK' gatlingSessionId=7 model='Sales' queryName='Q1' atscaleQueryId='abc' inboundTextAsHash='h1' start=100 end=250 duration=150 durationUs=150123 jdbcUs=149000 callbackUs=1123 rows=12 resultHash=''", 1);
+        assertNotNull(sql);
+        assertEquals(150L, sql.getDurationMs(), "duration= must not match durationUs=");
+        assertEquals(150123L, sql.getDurationUs());
+        assertEquals(149000L, sql.getJdbcUs());
+        assertEquals(1123L, sql.getCallbackUs());
+        assertNull(sql.getResponseMs());
+
+        RunLogLine emptySplit = RunLogLineParser.parse(PREFIX + "sqlLog gatlingRunId='run1' status='FAILED' gatlingSessionId=7 model='Sales' queryName='Q1' atscaleQueryId='abc' inboundTextAsHash='h1' start=100 end=250 duration=150 durationUs=150123 jdbcUs= callbackUs= rows=0 resultHash=''", 2);
+        assertNotNull(emptySplit);
+        assertNull(emptySplit.getJdbcUs());
+        assertNull(emptySplit.getCallbackUs());
+
+        RunLogLine phase = RunLogLineParser.parse(PREFIX + "sqlPhase gatlingRunId='run1' model='Sales' queryName='Q1' atscaleQueryId='abc' inboundTextAsHash='h1' start=100 executeUs=900 fetchUs=300 rows=12", 3);
+        assertNotNull(phase);
+        assertEquals(RunLogLineParser.SQL_PHASE, phase.getMessageKind());
+        assertEquals(900L, phase.getExecuteUs());
+        assertEquals(300L, phase.getFetchUs());
+        assertEquals(12L, phase.getRowsReturned());
+
+        RunLogLine xmla = RunLogLineParser.parse(PREFIX + "xmlaLog gatlingRunId='run1' status='OK' gatlingSessionId=7 model='Sales' cube='C' catalog='K' queryName='Q1' atscaleQueryId='abc' inboundTextAsHash='h1' start=100 end=250 duration=150 durationUs=150123 responseMs=140 responseSize=10", 4);
+        assertNotNull(xmla);
+        assertEquals(150123L, xmla.getDurationUs());
+        assertEquals(140L, xmla.getResponseMs());
+    }
+
+    @Test
+    public void testSqlRowLine() {
+        RunLogLine line = RunLogLineParser.parse(PREFIX + "sqlLog gatlingRunId='run1' status='OK' gatlingSessionId=7 model='Sales' queryName='Q1' atscaleQueryId='abc' inboundTextAsHash='h1' rownumber=4 row=Map(a -> 1, b -> x) rowhash=ff00", 1);
+
+        assertNotNull(line);
+        assertEquals(4L, line.getRowNumber());
+        assertEquals("a -> 1, b -> x", line.getRowMapRaw());
+        assertEquals("ff00", line.getRowHash());
+        assertNull(line.getRowsReturned(), "rows= must not match inside rownumber=");
+
+        RunLogLine redacted = RunLogLineParser.parse(PREFIX + "sqlLog gatlingRunId='run1' status='OK' gatlingSessionId=7 model='Sales' queryName='Q1' atscaleQueryId='abc' inboundTextAsHash='h1' rownumber=5 row={REDACTED} rowhash=ff01", 2);
+        assertNotNull(redacted);
+        assertEquals("REDACTED", redacted.getRowMapRaw());
+    }
+
+    @Test
+    public void testDictionaryLines() {
+        RunLogLine sql = RunLogLineParser.parse(PREFIX + "sqlDictionary gatlingRunId='run1' model='Sales' queryName='Q1' atscaleQueryId='abc' inboundTextAsHash='h1' inboundTextAsBase64='U0VMRUNUIDE='", 1);
+        RunLogLine xmla = RunLogLineParser.parse(PREFIX + "xmlaDictionary gatlingRunId='run1' model='Sales' cube='C' catalog='Cat' queryName='Q1' atscaleQueryId='abc' inboundTextAsHash='h1' inboundTextAsBase64='U0VMRUNUIDE='", 2);
+
+        assertNotNull(sql);
+        assertTrue(sql.isDictionary());
+        assertEquals("U0VMRUNUIDE=", sql.getQueryBase64());
+        assertNotNull(xmla);
+        assertTrue(xmla.isDictionary());
+        assertEquals("C", xmla.getCube());
+        assertEquals("Cat", xmla.getCatalog());
+    }
+
+    @Test
+    public void testXmlaLineWithEnvelope() {
+        String envelope = "<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\"><soap:Body>it's</soap:Body></soap:Envelope>";
+        RunLogLine line = RunLogLineParser.parse(PREFIX + "xmlaLog gatlingRunId='run1' status='OK' gatlingSessionId=2 model='Sales' cube='C' catalog='Cat' queryName='Q1' atscaleQueryId='abc' inboundTextAsHash='h1' start=1 end=2 duration=1 responseSize=120 responseHash='rh' response='" + envelope + "'", 1);
+
+        assertNotNull(line);
+        assertEquals(RunLogLineParser.XMLA_LOG, line.getMessageKind());
+        assertEquals(120L, line.getResponseSize());
+        assertEquals("rh", line.getResponseHash());
+        assertEquals(envelope, line.getResponse());
+    }
+
+    @Test
+    public void testXmlaLineRedactedAndWithoutResponse() {
+        RunLogLine redacted = RunLogLineParser.parse(PREFIX + "xmlaLog gatlingRunId='run1' status='OK' gatlingSessionId=2 model='Sales' cube='C' catalog='Cat' queryName='Q1' atscaleQueryId='abc' inboundTextAsHash='h1' start=1 end=2 duration=1 responseSize=120 responseHash='rh' response='REDACTED'", 1);
+        RunLogLine failed = RunLogLineParser.parse(PREFIX + "xmlaLog gatlingRunId='run1' status='KO' gatlingSessionId=2 model='Sales' cube='C' catalog='Cat' queryName='Q1' atscaleQueryId='abc' inboundTextAsHash='h1' start=1 end=2 duration=1 responseSize=0", 2);
+
+        assertNotNull(redacted);
+        assertEquals("REDACTED", redacted.getResponse());
+        assertNotNull(failed);
+        assertEquals("KO", failed.getStatus());
+        assertNull(failed.getResponse());
+        assertNull(failed.getResponseHash());
+    }
+
+    @Test
+    public void testOtherLinesAreIgnored() {
+        assertNull(RunLogLineParser.parse("", 1));
+        assertNull(RunLogLineParser.parse("plain text", 1));
+        assertNull(RunLogLineParser.parse(PREFIX + "Starting simulation", 1));
+        assertNull(RunLogLineParser.parse(PREFIX + "sqlLogger gatlingRunId='run1'", 1));
+    }
+
+    @Test
+    public void testParallelParseKeepsFileOrder() throws Exception {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            if (i % 10 == 0) {
+                lines.add(PREFIX + "Not a run log line " + i);
+            }
+            lines.add(PREFIX + "sqlLog gatlingRunId='run1' status='OK' gatlingSessionId=" + i + " model='Sales' queryName='Q1' atscaleQueryId='abc' inboundTextAsHash='h1' start=1 end=2 duration=1 rows=0 resultHash='r'");
+        }
+        Path log = Files.write(dir.resolve("run.log"), lines);
+
+        List<RunLogLine> parsed = new ArrayList<>();
+        RunLogLineParser.parse(log, 4, 37, parsed::addAll);
+
+        assertEquals(1000, parsed.size());
+        for (int i = 0; i < parsed.size(); i++) {
+            RunLogLine line = parsed.get(i);
+            assertEquals(String.valueOf(i), line.getGatlingSessionId());
+            assertEquals(lines.get((int) line.getSrcRowNumber() - 1), line.getRawLine());
+        }
+    }
+}
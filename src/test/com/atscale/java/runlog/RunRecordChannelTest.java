@@ -0,0 +1,185 @@
+package com.atscale.java.runlog;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RunRecordChannelTest {
+
+    @Test
+    public void testRecordsOfEachPublisherAreWrittenInOrder() throws Exception {
+        int publishers = 4;
+        int recordsPerPublisher = 20_000;
+        Map<Integer, List<Integer>> written = new ConcurrentHashMap<>();
+        RunRecordChannel.RecordWriter writer = record -> written.computeIfAbsent(record.getInt(0), k -> new ArrayList<>()).add(record.getInt(1));
+        RunRecordChannel channel = new RunRecordChannel("test-writer", 1_000, RunRecordChannel.OverflowPolicy.BLOCK);
+        try {
+            List<Thread> threads = new ArrayList<>();
+            for (int p = 0; p < publishers; p++) {
+                int publisher = p;
+                Thread thread = new Thread(() -> {
+                    for (int i = 0; i < recordsPerPublisher; i++) {
+                        assertTrue(channel.publish(writer, publisher, i, 0, 0));
+                    }
+                });
+                threads.add(thread);
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            assertTrue(channel.flush(10, TimeUnit.SECONDS));
+
+            assertEquals(1_024, channel.getCapacity());
+            assertEquals(publishers, written.size());
+            for (List<Integer> records : written.values()) {
+                assertEquals(recordsPerPublisher, records.size());
+                for (int i = 0; i < recordsPerPublisher; i++) {
+                    assertEquals(i, records.get(i));
+                }
+            }
+        } finally {
+            channel.close(1, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void testDropPolicyDiscardsRecordsWhenFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<Object> written = new CopyOnWriteArrayList<>();
+        RunRecordChannel channel = new RunRecordChannel("test-writer", 4, RunRecordChannel.OverflowPolicy.DROP);
+        try {
+            holdWriter(channel, release);
+            // The writer thread holds the first record, so the ring fills after four more
+            long deadline = System.currentTimeMillis() + 5_000;
+            int published = 0;
+            while (channel.getDropped() == 0 && System.currentTimeMillis() < deadline) {
+                if (channel.publish(record -> written.add(record.getInt(0)), published, 0, 0, 0)) {
+                    published++;
+                }
+            }
+
+            assertEquals(4, published);
+            assertTrue(channel.getDropped() > 0);
+            release.countDown();
+            assertTrue(channel.flush(5, TimeUnit.SECONDS));
+            assertEquals(List.of(0, 1, 2, 3), written);
+            assertEquals(0, channel.getDropped());
+        } finally {
+            release.countDown();
+            channel.close(1, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void testBlockPolicyWaitsForFreeSlot() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<Object> written = new CopyOnWriteArrayList<>();
+        RunRecordChannel channel = new RunRecordChannel("test-writer", 2, RunRecordChannel.OverflowPolicy.BLOCK);
+        try {
+            holdWriter(channel, release);
+            channel.publish(record -> written.add(record.getInt(0)), 0, 0, 0, 0);
+            channel.publish(record -> written.add(record.getInt(0)), 1, 0, 0, 0);
+            Thread publisher = new Thread(() -> channel.publish(record -> written.add(record.getInt(0)), 2, 0, 0, 0));
+            publisher.start();
+            publisher.join(200);
+            assertTrue(publisher.isAlive(), "publisher did not wait for a free slot");
+
+            release.countDown();
+            publisher.join(5_000);
+            assertFalse(publisher.isAlive());
+            assertTrue(channel.flush(5, TimeUnit.SECONDS));
+            assertEquals(List.of(0, 1, 2), written);
+        } finally {
+            release.countDown();
+            channel.close(1, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void testFailingWriterDoesNotStopChannel() {
+        List<Object> written = new CopyOnWriteArrayList<>();
+        RunRecordChannel channel = new RunRecordChannel("test-writer", 8, RunRecordChannel.OverflowPolicy.BLOCK);
+        try {
+            channel.publish(record -> {
+                throw new IllegalStateException("disk full");
+            }, 0, 0, 0, 0);
+            channel.publish(record -> written.add(record.getObject(0)), 0, 0, 0, 0, "after", null, null, null);
+            assertTrue(channel.flush(5, TimeUnit.SECONDS));
+
+            assertEquals(List.of("after"), written);
+            assertEquals(1, channel.getFailed());
+        } finally {
+            channel.close(1, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void testPublishDoesNotAllocate() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long[] sum = new long[1];
+        RunRecordChannel.RecordWriter writer = record -> sum[0] += record.getLong(0) + record.getLong(5);
+        String message = "message";
+        RunRecordChannel channel = new RunRecordChannel("test-writer", 1 << 16, RunRecordChannel.OverflowPolicy.BLOCK);
+        try {
+            for (int i = 0; i < 10_000; i++) {
+                channel.publish(writer, i, 1, 2, 3, 4, 5, message, null);
+            }
+            assertTrue(channel.flush(5, TimeUnit.SECONDS));
+            long before = threads.getCurrentThreadAllocatedBytes();
+            for (int i = 0; i < 10_000; i++) {
+                channel.publish(writer, i, 1, 2, 3, 4, 5, message, null);
+            }
+            long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+            assertTrue(channel.flush(5, TimeUnit.SECONDS));
+
+            // Far less than the 10,000 argument arrays and boxed values of an allocating publish
+            assertTrue(allocated < 10_000, "publishing allocated " + allocated + " bytes");
+        } finally {
+            channel.close(1, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void testWriterSeesTheValuesOfEachRecord() {
+        List<String> written = new CopyOnWriteArrayList<>();
+        RunRecordChannel channel = new RunRecordChannel("test-writer", 2, RunRecordChannel.OverflowPolicy.BLOCK);
+        try {
+            for (int i = 0; i < 5; i++) {
+                channel.publish(record -> written.add(record.getLong(0) + ":" + record.getLong(5) + ":" + record.getObject(0) + ":" + record.getObject(1)),
+                        i, 0, 0, 0, 0, i * 10L, "r" + i, i % 2 == 0 ? null : "odd");
+            }
+            assertTrue(channel.flush(5, TimeUnit.SECONDS));
+
+            assertEquals(List.of("0:0:r0:null", "1:10:r1:odd", "2:20:r2:null", "3:30:r3:odd", "4:40:r4:null"), written);
+        } finally {
+            channel.close(1, TimeUnit.SECONDS);
+        }
+    }
+
+    private static void holdWriter(RunRecordChannel channel, CountDownLatch release) throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        channel.publish(record -> {
+            started.countDown();
+            awaitQuietly(release);
+        }, 0, 0, 0, 0);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
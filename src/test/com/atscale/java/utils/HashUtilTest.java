@@ -2,6 +2,8 @@ package com.atscale.java.utils;
 
 import org.junit.jupiter.api.*;
 
+import java.math.BigDecimal;
+
 public class HashUtilTest {
 
     @Test
@@ -11,4 +13,58 @@ public class HashUtilTest {
         String actualSha256 = HashUtil.TO_SHA256(input);
         Assertions.assertEquals(expectedSha256, actualSha256);
     }
+
+    @Test
+    public void testToSha256ReusesDigestSafely() {
+        String expectedSha256 = "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08";
+        HashUtil.TO_SHA256("something else");
+        Assertions.assertEquals(expectedSha256, HashUtil.TO_SHA256("test"));
+        // Hash with leading zero nibbles is still padded to 64 characters
+        Assertions.assertEquals(64, HashUtil.TO_SHA256("").length());
+    }
+
+    @Test
+    public void testFingerprintIsOrderInsensitive() {
+        HashUtil.ResultFingerprint first = HashUtil.newResultFingerprint();
+        first.addValue(1).addValue("a").endRow();
+        first.addValue(2).addValue("b").endRow();
+
+        HashUtil.ResultFingerprint second = HashUtil.newResultFingerprint();
+        second.addValue(2).addValue("b").endRow();
+        second.addValue(1).addValue("a").endRow();
+
+        Assertions.assertEquals(2L, first.getRowCount());
+        Assertions.assertEquals(first.fingerprint(), second.fingerprint());
+        Assertions.assertEquals(64, first.fingerprint().length());
+    }
+
+    @Test
+    public void testFingerprintDetectsChangedAndDuplicatedRows() {
+        HashUtil.ResultFingerprint expected = HashUtil.newResultFingerprint();
+        expected.addValue(1).addValue("a").endRow();
+
+        HashUtil.ResultFingerprint changed = HashUtil.newResultFingerprint();
+        changed.addValue(1).addValue("b").endRow();
+
+        HashUtil.ResultFingerprint duplicated = HashUtil.newResultFingerprint();
+        duplicated.addValue(1).addValue("a").endRow();
+        duplicated.addValue(1).addValue("a").endRow();
+
+        HashUtil.ResultFingerprint shifted = HashUtil.newResultFingerprint();
+        shifted.addValue("1a").endRow();
+
+        Assertions.assertNotEquals(expected.fingerprint(), changed.fingerprint());
+        Assertions.assertNotEquals(expected.fingerprint(), duplicated.fingerprint());
+        Assertions.assertNotEquals(expected.fingerprint(), shifted.fingerprint());
+    }
+
+    @Test
+    public void testRowHashIsStableAcrossFingerprints() {
+        String longValue = "x".repeat(2000) + "é中😀";
+        String first = HashUtil.newResultFingerprint().addValue(null).addValue(longValue).addValue(new BigDecimal("1.50")).endRow().lastRowHash();
+        String second = HashUtil.newResultFingerprint().addValue(null).addValue(longValue).addValue(new BigDecimal("1.5")).endRow().lastRowHash();
+
+        Assertions.assertEquals(first, second);
+        Assertions.assertEquals(64, first.length());
+    }
 }
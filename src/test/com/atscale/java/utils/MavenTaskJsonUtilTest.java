@@ -1,5 +1,6 @@
 package com.atscale.java.utils;
 
+import com.atscale.java.executors.GarbageCollector;
 import com.atscale.java.executors.MavenTaskDto;
 import com.atscale.java.injectionsteps.*;
 import org.apache.commons.lang3.RandomStringUtils;
@@ -491,6 +492,45 @@ public class MavenTaskJsonUtilTest {
     }
 
 
+    @Test
+    public void testMarshallsJvmSettings() {
+        List<MavenTaskDto<ClosedStep>> tasks = new ArrayList<>();
+        MavenTaskDto<ClosedStep> task = new MavenTaskDto<>("Test Task");
+        task.setMavenCommand("gatling:test");
+        task.setSimulationClass("com.example.TestSimulation");
+        task.setInjectionSteps(List.of(new ConstantConcurrentUsersClosedInjectionStep(5, 5)));
+        task.setInitialHeapSize("512M");
+        task.setMaxHeapSize("16G");
+        task.setGarbageCollector(GarbageCollector.GENERATIONAL_ZGC);
+        task.setJvmArgs(List.of("-XX:+AlwaysPreTouch"));
+        tasks.add(task);
+
+        String json = MavenTaskJsonUtil.closedStepTasksToJson(tasks);
+        assertTrue(json.contains("GENERATIONAL_ZGC"));
+
+        List<MavenTaskDto<ClosedStep>> parsedTasks = MavenTaskJsonUtil.closedStepTasksFromJson(json);
+        assertTrue(areEqual(tasks, parsedTasks));
+        assertEquals(16384L, parsedTasks.get(0).getMaxHeapSizeMb());
+    }
+
+    @Test
+    public void testJvmSettingsDefaultWhenMissing() {
+        String json = "[ { \"taskName\" : \"Test Task\", \"simulationClass\" : \"com.example.TestSimulation\" } ]";
+
+        MavenTaskDto<ClosedStep> task = MavenTaskJsonUtil.closedStepTasksFromJson(json).get(0);
+
+        assertEquals(MavenTaskDto.DEFAULT_INITIAL_HEAP_SIZE, task.getInitialHeapSize());
+        assertEquals(MavenTaskDto.DEFAULT_MAX_HEAP_SIZE, task.getMaxHeapSize());
+        assertEquals(GarbageCollector.DEFAULT, task.getGarbageCollector());
+        assertTrue(task.getJvmArgs().isEmpty());
+    }
+
+    @Test
+    public void testRejectsInvalidHeapSize() {
+        MavenTaskDto<ClosedStep> task = new MavenTaskDto<>("Test Task");
+        assertThrows(IllegalArgumentException.class, () -> task.setMaxHeapSize("8 gigabytes"));
+    }
+
     private boolean areEqual(List<? extends MavenTaskDto<?>> expected,
                              List<? extends MavenTaskDto<?>> actual) {
         if (expected.size() != actual.size()) {
@@ -38,4 +38,30 @@ public class PropertiesManagerTest {
                 PropertiesManager.getCustomProperty(RandomStringUtils.secure().nextAlphabetic(35))
         );
     }
+
+    @Test
+    public void testInvalidResultCheckPolicyNamesThePropertyAndAllowedValues() {
+        PropertiesManager.setCustomProperties(Map.of("atscale.policy_model.jdbc.resultCheckPolicy", "SOME_ROWS"));
+        RuntimeException e = Assertions.assertThrows(RuntimeException.class, () ->
+                PropertiesManager.getJdbcResultCheckPolicy("policy model")
+        );
+        Assertions.assertTrue(e.getMessage().contains("atscale.policy_model.jdbc.resultCheckPolicy"));
+        Assertions.assertTrue(e.getMessage().contains("policy model"));
+        Assertions.assertTrue(e.getMessage().contains("COUNT_ONLY, COUNT_AND_HASH, FULL"));
+
+        PropertiesManager.setCustomProperties(Map.of("atscale.policy_model.jdbc.resultCheckPolicy", " count_and_hash "));
+        Assertions.assertEquals("COUNT_AND_HASH", PropertiesManager.getJdbcResultCheckPolicy("policy model"));
+    }
+
+    @Test
+    public void testInvalidOverflowPolicyNamesThePropertyAndAllowedValues() {
+        PropertiesManager.setCustomProperties(Map.of("atscale.runlog.channel.overflowPolicy", "SPILL"));
+        RuntimeException e = Assertions.assertThrows(RuntimeException.class, PropertiesManager::getRunLogChannelOverflowPolicy);
+        Assertions.assertTrue(e.getMessage().contains("atscale.runlog.channel.overflowPolicy"));
+        Assertions.assertTrue(e.getMessage().contains("BLOCK, DROP"));
+
+        PropertiesManager.setCustomProperties(Map.of("atscale.runlog.channel.overflowPolicy", "drop"));
+        Assertions.assertEquals("DROP", PropertiesManager.getRunLogChannelOverflowPolicy());
+        PropertiesManager.setCustomProperties(Map.of("atscale.runlog.channel.overflowPolicy", "BLOCK"));
+    }
 }
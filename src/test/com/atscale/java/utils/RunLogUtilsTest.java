@@ -0,0 +1,82 @@
+package com.atscale.java.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RunLogUtilsTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    public void testExtractGatlingRunIdsInFirstSeenOrder() throws Exception {
+        Path log = Files.write(dir.resolve("run.log"), List.of(
+                "2025-01-01 00:00:00 INFO  Sim:1 - Starting",
+                "2025-01-01 00:00:01 INFO  Sim:1 - sqlLog gatlingRunId='run B' status='OK'",
+                "2025-01-01 00:00:02 INFO  Sim:1 - sqlLog gatlingRunId='run-A' status='OK'",
+                "2025-01-01 00:00:03 INFO  Sim:1 - sqlLog gatlingRunId='run B' status='OK'",
+                "2025-01-01 00:00:04 INFO  Sim:1 - sqlLog gatlingRunId='' gatlingRunId='run-C'"));
+
+        assertEquals(List.of("run B", "run-A", "run-C"), RunLogUtils.extractGatlingRunIds(log));
+    }
+
+    @Test
+    public void testEmptyFile() throws Exception {
+        Path log = Files.createFile(dir.resolve("empty.log"));
+
+        assertTrue(RunLogUtils.extractGatlingRunIds(log).isEmpty());
+    }
+
+    @Test
+    public void testChunkedScanCountsLinesAndOffsets() throws Exception {
+        StringBuilder text = new StringBuilder();
+        List<String> expectedOrder = new ArrayList<>();
+        long[] counts = new long[5];
+        for (int i = 0; i < 2000; i++) {
+            int run = (i / 300) % 5;
+            String line = i % 7 == 0
+                    ? "2025-01-01 00:00:00 INFO  Sim:1 - heartbeat " + "x".repeat(i % 50) + "\r\n"
+                    : "2025-01-01 00:00:00 INFO  Sim:1 - xmlaLog gatlingRunId='run-" + run + "' response='" + "y".repeat(i % 200) + "'\n";
+            text.append(line);
+            if (i % 7 != 0) {
+                if (counts[run] == 0) {
+                    expectedOrder.add("run-" + run);
+                }
+                counts[run]++;
+            }
+        }
+        text.append("tail without newline gatlingRunId='run-tail'");
+        Path log = Files.writeString(dir.resolve("run.log"), text);
+
+        Map<String, RunLogUtils.RunIdStats> stats = RunLogUtils.scanGatlingRunIds(log, 4, 1000);
+
+        expectedOrder.add("run-tail");
+        assertEquals(expectedOrder, new ArrayList<>(stats.keySet()));
+        for (int run = 0; run < 5; run++) {
+            RunLogUtils.RunIdStats runStats = stats.get("run-" + run);
+            assertEquals(counts[run], runStats.getLineCount());
+        }
+        RunLogUtils.RunIdStats tail = stats.get("run-tail");
+        assertEquals(1, tail.getLineCount());
+        assertEquals(stats.toString(), RunLogUtils.scanGatlingRunIds(log, 1, Long.MAX_VALUE).toString());
+    }
+
+    @Test
+    public void testLineLongerThanChunk() throws Exception {
+        String longLine = "sqlLog gatlingRunId='long' row=" + "z".repeat(5000);
+        Path log = Files.write(dir.resolve("long.log"), List.of("gatlingRunId='a'", longLine, "gatlingRunId='b'"));
+
+        Map<String, RunLogUtils.RunIdStats> stats = RunLogUtils.scanGatlingRunIds(log, 3, 100);
+
+        assertEquals(List.of("a", "long", "b"), new ArrayList<>(stats.keySet()));
+        assertEquals(1, stats.get("long").getLineCount());
+        assertEquals(1, stats.get("b").getLineCount());
+    }
+}
@@ -0,0 +1,131 @@
+package com.atscale.java.xmla;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BearerTokenManagerTest {
+    private HttpServer server;
+    private String authUrl;
+    private final List<String> authorizations = new CopyOnWriteArrayList<>();
+    private final AtomicInteger issued = new AtomicInteger();
+    private final AtomicInteger failuresToServe = new AtomicInteger();
+    private volatile long tokenLifetimeSeconds = 3600;
+    private BearerTokenManager manager;
+
+    @BeforeEach
+    void startStubAuthEndpoint() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/default/auth", exchange -> {
+            authorizations.add(exchange.getRequestHeaders().getFirst("Authorization"));
+            if (failuresToServe.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+                exchange.sendResponseHeaders(503, -1);
+                exchange.close();
+                return;
+            }
+            byte[] body = jwt(issued.incrementAndGet(), System.currentTimeMillis() / 1000 + tokenLifetimeSeconds).getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        authUrl = "http://127.0.0.1:" + server.getAddress().getPort() + "/default/auth";
+        manager = new BearerTokenManager(XmlaProtocol::getBearerToken, 60_000);
+    }
+
+    @AfterEach
+    void stop() {
+        manager.shutdown();
+        server.stop(0);
+    }
+
+    @Test
+    public void testTokenIsCachedByUrlAndUser() {
+        BearerTokenManager.CachedToken first = manager.getToken(authUrl, "admin", "secret");
+        BearerTokenManager.CachedToken again = manager.getToken(authUrl, "admin", "secret");
+        BearerTokenManager.CachedToken other = manager.getToken(authUrl, "other", "secret");
+
+        assertSame(first, again);
+        assertNotSame(first, other);
+        assertEquals(2, authorizations.size());
+        assertEquals("Basic " + Base64.getEncoder().encodeToString("admin:secret".getBytes(StandardCharsets.UTF_8)), authorizations.get(0));
+        assertTrue(first.getAuthorizationHeader().startsWith("Bearer ey"));
+        long expectedExpiry = System.currentTimeMillis() + 3600_000;
+        assertTrue(Math.abs(first.getExpiresAtMillis() - expectedExpiry) < 5_000);
+    }
+
+    @Test
+    public void testTokenIsRefreshedBeforeExpiry() throws Exception {
+        tokenLifetimeSeconds = 2;
+        BearerTokenManager.CachedToken token = manager.getToken(authUrl, "admin", "secret");
+        String firstHeader = token.getAuthorizationHeader();
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (token.getRefreshCount() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+
+        assertTrue(token.getRefreshCount() >= 2, "token was not refreshed: " + token);
+        assertNotEquals(firstHeader, token.getAuthorizationHeader());
+    }
+
+    @Test
+    public void testFailedRefreshKeepsCurrentTokenAndRetries() throws Exception {
+        tokenLifetimeSeconds = 1;
+        BearerTokenManager.CachedToken token = manager.getToken(authUrl, "admin", "secret");
+        String firstHeader = token.getAuthorizationHeader();
+        failuresToServe.set(1);
+
+        Thread.sleep(1_200);
+        assertEquals(firstHeader, token.getAuthorizationHeader());
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (token.getRefreshCount() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertTrue(token.getRefreshCount() >= 2, "token was not refreshed after the failure: " + token);
+        assertNotEquals(firstHeader, token.getAuthorizationHeader());
+    }
+
+    @Test
+    public void testFirstFetchFailureIsThrown() {
+        failuresToServe.set(1);
+
+        assertThrows(RuntimeException.class, () -> manager.getToken(authUrl, "admin", "secret"));
+        assertNotNull(manager.getToken(authUrl, "admin", "secret").getAuthorizationHeader());
+    }
+
+    @Test
+    public void testOpaqueTokenUsesDefaultLifetime() {
+        assertNull(BearerTokenManager.parseJwtExpiry("Bearer opaque-token"));
+        assertNull(BearerTokenManager.parseJwtExpiry("Bearer a.not-base64!.c"));
+        assertEquals(1_700_000_000_000L, BearerTokenManager.parseJwtExpiry("Bearer " + jwt(1, 1_700_000_000L)));
+
+        BearerTokenManager opaque = new BearerTokenManager((url, user, password) -> "Bearer opaque", 60_000);
+        try {
+            long expected = System.currentTimeMillis() + 60_000;
+            assertTrue(Math.abs(opaque.getToken("http://auth", "admin", "secret").getExpiresAtMillis() - expected) < 5_000);
+        } finally {
+            opaque.shutdown();
+        }
+    }
+
+    private static String jwt(int serial, long exp) {
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        String header = encoder.encodeToString("{\"alg\":\"none\"}".getBytes(StandardCharsets.UTF_8));
+        String claims = encoder.encodeToString(("{\"sub\":\"admin\",\"jti\":" + serial + ",\"exp\":" + exp + "}").getBytes(StandardCharsets.UTF_8));
+        return header + "." + claims + ".sig";
+    }
+}
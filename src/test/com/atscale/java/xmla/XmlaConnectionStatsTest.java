@@ -0,0 +1,47 @@
+package com.atscale.java.xmla;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class XmlaConnectionStatsTest {
+    private static final Logger CLIENT = LoggerFactory.getLogger(XmlaConnectionStats.CLIENT_LOGGER);
+    private static final Logger POOL = LoggerFactory.getLogger(XmlaConnectionStats.POOL_LOGGER);
+
+    @BeforeEach
+    void install() {
+        XmlaConnectionStats.install();
+        XmlaConnectionStats.reset();
+    }
+
+    @Test
+    public void testCountsClientAndPoolEvents() {
+        POOL.debug("No channel in the pool for key {}", "https://atscale:10500");
+        CLIENT.debug("Opening new channel to remote={} from local={}", "atscale:10500", null);
+        CLIENT.debug("TLS handshake successful: protocol={} cipher suite={}", "TLSv1.3", "TLS_AES_128_GCM_SHA256");
+        for (int i = 0; i < 3; i++) {
+            POOL.debug("Retrieved HTTP/1 channel from pool for key {}", "https://atscale:10500");
+        }
+        CLIENT.debug("Unrelated message");
+
+        XmlaConnectionStats.Counts counts = XmlaConnectionStats.snapshot();
+        assertEquals(1, counts.getOpened());
+        assertEquals(1, counts.getTlsHandshakes());
+        assertEquals(3, counts.getReused());
+        assertEquals(1, counts.getPoolMisses());
+        assertEquals(75, counts.getReusePercent());
+    }
+
+    @Test
+    public void testResetClearsCounts() {
+        CLIENT.debug("Opening new channel to remote={} from local={}", "atscale:10500", null);
+        XmlaConnectionStats.reset();
+
+        XmlaConnectionStats.Counts counts = XmlaConnectionStats.snapshot();
+        assertEquals(0, counts.getOpened());
+        assertEquals(0, counts.getReusePercent());
+    }
+}
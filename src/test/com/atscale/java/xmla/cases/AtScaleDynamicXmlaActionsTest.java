@@ -61,7 +61,7 @@ public class AtScaleDynamicXmlaActionsTest {
         // use a subclass that avoids initializing Gatling DSL by returning null for httpRequest
         AtScaleDynamicXmlaActions actions = new AtScaleDynamicXmlaActions() {
             @Override
-            protected io.gatling.javaapi.http.HttpRequestActionBuilder httpRequest(String queryName, String body, String model) {
+            protected io.gatling.javaapi.http.HttpRequestActionBuilder httpRequest(String queryName, byte[] body, String model) {
                 return null; // we only want to test creation of payloads and metadata, not actual Gatling builders
             }
         };
@@ -115,7 +115,7 @@ public class AtScaleDynamicXmlaActionsTest {
 
         AtScaleDynamicXmlaActions actions = new AtScaleDynamicXmlaActions() {
             @Override
-            protected io.gatling.javaapi.http.HttpRequestActionBuilder httpRequest(String queryName, String body, String model) {
+            protected io.gatling.javaapi.http.HttpRequestActionBuilder httpRequest(String queryName, byte[] body, String model) {
                 return null;
             }
         };
@@ -156,7 +156,7 @@ public class AtScaleDynamicXmlaActionsTest {
         // use a subclass that avoids initializing Gatling DSL by returning null for httpRequest
         AtScaleDynamicXmlaActions actions = new AtScaleDynamicXmlaActions() {
             @Override
-            protected io.gatling.javaapi.http.HttpRequestActionBuilder httpRequest(String queryName, String body, String model) {
+            protected io.gatling.javaapi.http.HttpRequestActionBuilder httpRequest(String queryName, byte[] body, String model) {
                 return null; // we only want to test creation of payloads and metadata, not actual Gatling builders
             }
         };
@@ -211,7 +211,7 @@ public class AtScaleDynamicXmlaActionsTest {
 
         AtScaleDynamicXmlaActions actions = new AtScaleDynamicXmlaActions() {
             @Override
-            protected io.gatling.javaapi.http.HttpRequestActionBuilder httpRequest(String queryName, String body, String model) {
+            protected io.gatling.javaapi.http.HttpRequestActionBuilder httpRequest(String queryName, byte[] body, String model) {
                 return null;
             }
         };
@@ -231,4 +231,17 @@ public class AtScaleDynamicXmlaActionsTest {
         assertTrue(builders[0].xmlPayload.contains("<Cube>" + CUBE + "</Cube>"));
         assertTrue(builders[0].xmlPayload.contains("<Catalog>" + CATALOG + "</Catalog>"));
     }
+
+    @Test
+    public void envelopeWrapsStatementAsUtf8Bytes() {
+        AtScaleDynamicXmlaActions.SoapEnvelope envelope = new AtScaleDynamicXmlaActions.SoapEnvelope(CUBE, CATALOG);
+        String statement = "SELECT [Measures].[Caf\u00e9 &amp; \u20ac] ON 0 FROM [" + CUBE + "]";
+
+        String body = envelope.wrap(statement);
+
+        assertTrue(body.contains("<Statement>" + statement + "</Statement>"));
+        assertTrue(body.contains("<Cube>" + CUBE + "</Cube>"));
+        assertTrue(body.contains("<Catalog>" + CATALOG + "</Catalog>"));
+        assertArrayEquals(body.getBytes(java.nio.charset.StandardCharsets.UTF_8), envelope.wrapAsBytes(statement));
+    }
 }
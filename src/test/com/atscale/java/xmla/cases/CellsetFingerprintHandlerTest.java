@@ -0,0 +1,131 @@
+package com.atscale.java.xmla.cases;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import javax.xml.parsers.SAXParserFactory;
+import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+public class CellsetFingerprintHandlerTest {
+    private static final String CELLSET = """
+            <soap:Envelope xmlns:soap="http://schemas.xmlsoap.org/soap/envelope/"><soap:Body>
+            <ExecuteResponse xmlns="urn:schemas-microsoft-com:xml-analysis"><return>
+            <root xmlns="urn:schemas-microsoft-com:xml-analysis:mddataset" xmlns:xsi="http://www.w3.org/2001/XMLSchema-instance">
+              <Axes>
+                <Axis name="Axis0"><Tuples>
+                  <Tuple><Member Hierarchy="[Measures]"><UName>[Measures].[Sales]</UName><Caption>Sales</Caption></Member></Tuple>
+                </Tuples></Axis>
+                <Axis name="Axis1"><Tuples>
+                  %s
+                </Tuples></Axis>
+                <Axis name="SlicerAxis"><Tuples>
+                  <Tuple><Member Hierarchy="[Color].[Color]"><UName>[Color].[Color].[All]</UName></Member></Tuple>
+                </Tuples></Axis>
+              </Axes>
+              <CellData>%s</CellData>
+            </root></return></ExecuteResponse></soap:Body></soap:Envelope>""";
+    private static final String RED = "<Tuple><Member Hierarchy=\"[Color].[Color]\"><UName>[Color].[Color].&amp;[Red]</UName><Caption>Red</Caption></Member></Tuple>";
+    private static final String BLUE = "<Tuple><Member Hierarchy=\"[Color].[Color]\"><UName>[Color].[Color].&amp;[Blue]</UName><Caption>Blue</Caption></Member></Tuple>";
+
+    @Test
+    public void summarizesAtScalePayload() throws Exception {
+        CellsetFingerprintHandler.CellsetFingerprint cellset;
+        try (InputStream inputStream = new FileInputStream("src/test/resources/internetSalesXmlaPayload.xml")) {
+            cellset = fingerprint(inputStream);
+        }
+
+        List<CellsetFingerprintHandler.AxisSummary> axes = cellset.getAxes();
+        Assertions.assertEquals(List.of("Axis0", "Axis1", "SlicerAxis"), axes.stream().map(CellsetFingerprintHandler.AxisSummary::getName).toList());
+        Assertions.assertEquals(1, axes.get(0).getTupleCount());
+        Assertions.assertEquals(List.of("[Measures]"), axes.get(0).getHierarchies());
+        Assertions.assertEquals(159, axes.get(1).getTupleCount());
+        Assertions.assertEquals(159, cellset.getCellCount());
+        Assertions.assertEquals(159, cellset.getNumericCellCount());
+        Assertions.assertEquals(64, cellset.getFingerprint().length());
+        Assertions.assertTrue(cellset.toLogString().startsWith("cellsetFingerprint='" + cellset.getFingerprint() + "' cells=159 "));
+    }
+
+    @Test
+    public void tupleOrderAndValueFormattingDoNotChangeFingerprint() throws Exception {
+        String original = CELLSET.formatted(RED + BLUE,
+                "<Cell CellOrdinal=\"0\"><Value xsi:type=\"xsd:long\">5</Value><FmtValue>5</FmtValue></Cell>"
+                        + "<Cell CellOrdinal=\"1\"><Value xsi:type=\"xsd:double\">2.5</Value><FmtValue>2.50</FmtValue></Cell>");
+        String reordered = CELLSET.formatted(BLUE + RED,
+                "<Cell CellOrdinal=\"0\"><Value xsi:type=\"xsd:decimal\"> 2.50 </Value><FmtValue>$2.50</FmtValue></Cell>"
+                        + "<Cell CellOrdinal=\"1\"><Value xsi:type=\"xsd:double\">5.0E0</Value><FmtValue>5.0</FmtValue></Cell>");
+
+        CellsetFingerprintHandler.CellsetFingerprint first = fingerprint(original);
+        CellsetFingerprintHandler.CellsetFingerprint second = fingerprint(reordered);
+
+        Assertions.assertEquals(first.getFingerprint(), second.getFingerprint());
+        Assertions.assertNotEquals(first.getResponseHash(), second.getResponseHash());
+        Assertions.assertEquals(first.getAxes().get(1).getTupleFingerprint(), second.getAxes().get(1).getTupleFingerprint());
+        Assertions.assertNotEquals(first.getAxes().get(1).getOrderKey(), second.getAxes().get(1).getOrderKey());
+        Assertions.assertEquals(0, new BigDecimal("7.5").compareTo(second.getNumericSum()));
+    }
+
+    @Test
+    public void changedValueOrMemberChangesFingerprint() throws Exception {
+        String cells = "<Cell CellOrdinal=\"0\"><Value xsi:type=\"xsd:long\">5</Value></Cell><Cell CellOrdinal=\"1\"><Value xsi:type=\"xsd:long\">6</Value></Cell>";
+        String swappedCells = "<Cell CellOrdinal=\"0\"><Value xsi:type=\"xsd:long\">6</Value></Cell><Cell CellOrdinal=\"1\"><Value xsi:type=\"xsd:long\">5</Value></Cell>";
+        String baseline = fingerprint(CELLSET.formatted(RED + BLUE, cells)).getFingerprint();
+
+        Assertions.assertNotEquals(baseline, fingerprint(CELLSET.formatted(RED + BLUE, swappedCells)).getFingerprint());
+        Assertions.assertNotEquals(baseline, fingerprint(CELLSET.formatted(RED + BLUE.replace("Blue]", "Green]"), cells)).getFingerprint());
+        Assertions.assertNotEquals(baseline, fingerprint(CELLSET.formatted(RED + BLUE, cells.replace(">6<", ">7<"))).getFingerprint());
+    }
+
+    @Test
+    public void rowsetRowOrderDoesNotChangeFingerprint() throws Exception {
+        String rowset = """
+                <root xmlns="urn:schemas-microsoft-com:xml-analysis:rowset">%s</root>""";
+        String a = "<row><Name>a</Name><Total>1.0</Total></row>";
+        String b = "<row><Name>b</Name><Total>2</Total></row>";
+
+        CellsetFingerprintHandler.CellsetFingerprint first = fingerprint(rowset.formatted(a + b));
+        CellsetFingerprintHandler.CellsetFingerprint second = fingerprint(rowset.formatted(b + a));
+
+        Assertions.assertEquals(2, first.getRowCount());
+        Assertions.assertEquals(first.getFingerprint(), second.getFingerprint());
+        Assertions.assertNotEquals(first.getFingerprint(), fingerprint(rowset.formatted(a)).getFingerprint());
+    }
+
+    @Test
+    public void resetHandlerFingerprintsLikeNewHandler() throws Exception {
+        String payload = CELLSET.formatted(RED + BLUE, "<Cell CellOrdinal=\"1\"><Value>x</Value></Cell>");
+        CellsetFingerprintHandler handler = new CellsetFingerprintHandler();
+        SAXParserFactory.newNSInstance().newSAXParser().parse(new ByteArrayInputStream(CELLSET.formatted(BLUE, "").getBytes(StandardCharsets.UTF_8)), handler);
+        handler.getCellset();
+        handler.reset();
+        SAXParserFactory.newNSInstance().newSAXParser().parse(new ByteArrayInputStream(payload.getBytes(StandardCharsets.UTF_8)), handler);
+
+        Assertions.assertEquals(fingerprint(payload).toLogString(), handler.getCellset().toLogString());
+    }
+
+    @Test
+    public void transformerFingerprintCarriesResponseHash() throws Exception {
+        String payload = CELLSET.formatted(RED, "<Cell CellOrdinal=\"0\"><Value>x</Value></Cell>");
+
+        CellsetFingerprintHandler.CellsetFingerprint cellset = AtScaleDynamicXmlaActions.SoapTransformerFactory.fingerprint(
+                new ByteArrayInputStream(payload.getBytes(StandardCharsets.UTF_8)));
+
+        Assertions.assertEquals(AtScaleDynamicXmlaActions.SoapTransformerFactory.hash(
+                new ByteArrayInputStream(payload.getBytes(StandardCharsets.UTF_8))), cellset.getResponseHash());
+        Assertions.assertEquals(fingerprint(payload).getFingerprint(), cellset.getFingerprint());
+    }
+
+    private CellsetFingerprintHandler.CellsetFingerprint fingerprint(String payload) throws Exception {
+        return fingerprint(new ByteArrayInputStream(payload.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private CellsetFingerprintHandler.CellsetFingerprint fingerprint(InputStream inputStream) throws Exception {
+        CellsetFingerprintHandler handler = new CellsetFingerprintHandler();
+        SAXParserFactory.newNSInstance().newSAXParser().parse(inputStream, handler);
+        return handler.getCellset();
+    }
+}
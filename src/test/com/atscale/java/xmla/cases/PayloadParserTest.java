@@ -82,6 +82,93 @@ public class PayloadParserTest {
         Assertions.assertEquals(hash1, hash2);
     }
 
+    @Test
+    public void hashMatchesUtf8DigestOfTextContent() throws Exception {
+        final String text = "Caf\u00e9 \u20ac12 \ud83d\ude00 " + "x".repeat(10_000) + " \u00fcber";
+        final String payload = """
+            <Envelope xmlns="http://schemas.xmlsoap.org/soap/envelope/">
+                <Header><Session>ignored</Session></Header>
+                <Body><root><cell>%s</cell></root></Body>
+            </Envelope>""".formatted(text);
+
+        String expected = java.util.HexFormat.of().formatHex(java.security.MessageDigest.getInstance("SHA-256")
+                .digest(textContent(payload).getBytes(StandardCharsets.UTF_8)));
+        Assertions.assertEquals(expected, getHash(payload));
+    }
+
+    @Test
+    public void surrogatePairSplitAcrossChunksHashesAsOneCharacter() throws Exception {
+        final char[] emoji = "a\ud83d\ude00b".toCharArray();
+        AtScaleDynamicXmlaActions.HashingSaxHandler whole = new AtScaleDynamicXmlaActions.HashingSaxHandler();
+        whole.characters(emoji, 0, emoji.length);
+        AtScaleDynamicXmlaActions.HashingSaxHandler split = new AtScaleDynamicXmlaActions.HashingSaxHandler();
+        split.characters(emoji, 0, 2);
+        split.characters(emoji, 2, 2);
+
+        Assertions.assertEquals(whole.getHash(), split.getHash());
+    }
+
+    @Test
+    public void unpairedSurrogatesHashAsReplacement() throws Exception {
+        final char[] chars = {'a', '\ud83d', 'b', '\ude00'};
+        AtScaleDynamicXmlaActions.HashingSaxHandler handler = new AtScaleDynamicXmlaActions.HashingSaxHandler();
+        handler.characters(chars, 0, chars.length);
+
+        String expected = java.util.HexFormat.of().formatHex(java.security.MessageDigest.getInstance("SHA-256")
+                .digest(new String(chars).getBytes(StandardCharsets.UTF_8)));
+        Assertions.assertEquals(expected, handler.getHash());
+    }
+
+    @Test
+    public void reusedParserHashesLikeNewParser() throws Exception {
+        File testFile = new File("src/test/resources/earlierExampleXmlaPayload.xml");
+        String expected = getHash(testFile);
+
+        for (int i = 0; i < 3; i++) {
+            try (InputStream inputStream = new FileInputStream(testFile)) {
+                Assertions.assertEquals(expected, AtScaleDynamicXmlaActions.SoapTransformerFactory.hash(inputStream));
+            }
+        }
+    }
+
+    @Test
+    public void reusedParserRecoversFromMalformedResponse() throws Exception {
+        final String payload = "<Envelope><Header>h</Header><Body>cell</Body></Envelope>";
+        final String truncated = "<Envelope><Header>h";
+        String expected = getHash(payload);
+
+        Assertions.assertThrows(org.xml.sax.SAXException.class, () -> AtScaleDynamicXmlaActions.SoapTransformerFactory.hash(
+                new ByteArrayInputStream(truncated.getBytes(StandardCharsets.UTF_8))));
+        Assertions.assertEquals(expected, AtScaleDynamicXmlaActions.SoapTransformerFactory.hash(
+                new ByteArrayInputStream(payload.getBytes(StandardCharsets.UTF_8))));
+    }
+
+    private String textContent(String payload) throws Exception {
+        StringBuilder text = new StringBuilder();
+        SAXParserFactory.newNSInstance().newSAXParser().parse(new ByteArrayInputStream(payload.getBytes(StandardCharsets.UTF_8)),
+                new org.xml.sax.helpers.DefaultHandler() {
+                    private boolean inHeader;
+
+                    @Override
+                    public void startElement(String uri, String localName, String qName, org.xml.sax.Attributes attributes) {
+                        inHeader |= "Header".equals(localName);
+                    }
+
+                    @Override
+                    public void endElement(String uri, String localName, String qName) {
+                        inHeader &= !"Header".equals(localName);
+                    }
+
+                    @Override
+                    public void characters(char[] ch, int start, int length) {
+                        if (!inHeader) {
+                            text.append(ch, start, length);
+                        }
+                    }
+                });
+        return text.toString();
+    }
+
 
     private String getHash(String testPayload) throws Exception {
         AtScaleDynamicXmlaActions.HashingSaxHandler handler = new AtScaleDynamicXmlaActions.HashingSaxHandler();
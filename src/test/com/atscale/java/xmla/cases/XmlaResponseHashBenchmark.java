@@ -0,0 +1,115 @@
+package com.atscale.java.xmla.cases;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.xml.sax.Attributes;
+
+import javax.xml.parsers.SAXParserFactory;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the XMLA response hashing of the SoapTransformerFactory with the String per text chunk handler it used
+ * before, on a synthetic cellset.  The streaming and String per chunk handlers get a new SAX parser per response, as
+ * the transformer did before, while the reused parser case hashes with the per thread parser of the transformer.
+ * <p>
+ * Run after {@code mvn test-compile} with
+ * {@code java -cp "target/test-classes:target/classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout)" com.atscale.java.xmla.cases.XmlaResponseHashBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class XmlaResponseHashBenchmark {
+    @Param({"1000", "100000"})
+    public int cells;
+
+    private byte[] response;
+
+    @Setup
+    public void createResponse() {
+        StringBuilder xml = new StringBuilder("""
+                <soap:Envelope xmlns:soap="http://schemas.xmlsoap.org/soap/envelope/"><soap:Header><Session SessionId="1"/></soap:Header>
+                <soap:Body><ExecuteResponse xmlns="urn:schemas-microsoft-com:xml-analysis"><return><root xmlns="urn:schemas-microsoft-com:xml-analysis:mddataset"><CellData>""");
+        for (int i = 0; i < cells; i++) {
+            xml.append("<Cell CellOrdinal=\"").append(i).append("\"><Value>").append(i * 1234.5678)
+                    .append("</Value><FmtValue>$").append(i).append(",234.57 über</FmtValue></Cell>");
+        }
+        xml.append("</CellData></root></return></ExecuteResponse></soap:Body></soap:Envelope>");
+        response = xml.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public String streamingHash() throws Exception {
+        AtScaleDynamicXmlaActions.HashingSaxHandler handler = new AtScaleDynamicXmlaActions.HashingSaxHandler();
+        SAXParserFactory.newNSInstance().newSAXParser().parse(new ByteArrayInputStream(response), handler);
+        return handler.getHash();
+    }
+
+    @Benchmark
+    public String reusedParserHash() throws Exception {
+        return AtScaleDynamicXmlaActions.SoapTransformerFactory.hash(new ByteArrayInputStream(response));
+    }
+
+    @Benchmark
+    public String stringPerChunkHash() throws Exception {
+        StringPerChunkHandler handler = new StringPerChunkHandler();
+        SAXParserFactory.newNSInstance().newSAXParser().parse(new ByteArrayInputStream(response), handler);
+        return handler.getHash();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(XmlaResponseHashBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build();
+        new Runner(options).run();
+    }
+
+    /** The handler as it was before streaming, kept as the baseline. */
+    static class StringPerChunkHandler extends org.xml.sax.helpers.DefaultHandler {
+        private final java.security.MessageDigest digest;
+        private boolean isHeaderElement = false;
+
+        StringPerChunkHandler() throws java.security.NoSuchAlgorithmException {
+            this.digest = java.security.MessageDigest.getInstance("SHA-256");
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            if ("Header".equals(localName)) {
+                isHeaderElement = true;
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            if ("Header".equals(localName)) {
+                isHeaderElement = false;
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (!isHeaderElement) {
+                String content = new String(ch, start, length);
+                digest.update(content.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        public String getHash() {
+            byte[] hashBytes = digest.digest();
+            StringBuilder sb = new StringBuilder();
+            for (byte b : hashBytes) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        }
+    }
+}